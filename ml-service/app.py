@@ -104,8 +104,25 @@ def predict_option_recommendation(req: OptionRecommendationRequest):
     return OptionRecommendationResponse(isGoodDeal=is_good, priceTrend=price_trend, note=note)
 
 
+class BatchPredictRequest(BaseModel):
+    items: list[PredictRequest]
+
+
+class BatchPredictResponse(BaseModel):
+    predictions: list[PredictResponse]  # same order as items
+
+
 @app.post("/predict", response_model=PredictResponse)
 def predict(req: PredictRequest):
+    return _predict_one(req)
+
+
+@app.post("/predict/batch", response_model=BatchPredictResponse)
+def predict_batch(req: BatchPredictRequest):
+    return BatchPredictResponse(predictions=[_predict_one(item) for item in req.items])
+
+
+def _predict_one(req: PredictRequest) -> PredictResponse:
     # Simple rule-based predictor (MVP) with explainability
     reasons: list[str] = []
     # Decide action
@@ -0,0 +1,99 @@
+"""Export a trained buy/wait classifier to the portable JSON format read by the backend's
+in-JVM inference engine (ml.client=local).
+
+Supported estimators (binary, class 1 = BUY):
+  - sklearn.linear_model.LogisticRegression            -> "type": "logistic"
+  - sklearn.ensemble.GradientBoostingClassifier         -> "type": "gbt"
+
+Usage:
+  python export_model.py model.joblib buy-wait-model.json \
+      --features daysToDeparture pricePercentileWithinSearch stops --version 2
+
+The feature names must be a subset of: daysToDeparture, stops, durationMinutes, price,
+pricePercentileWithinSearch, given in the column order the estimator was trained on.
+Writing to a temporary file and renaming it over the target lets a running backend pick up
+the new model atomically.
+"""
+import argparse
+import json
+import math
+import os
+import tempfile
+
+ENGINE_FEATURES = {
+    "daysToDeparture",
+    "stops",
+    "durationMinutes",
+    "price",
+    "pricePercentileWithinSearch",
+}
+
+
+def export_logistic(model, features):
+    return {
+        "type": "logistic",
+        "features": features,
+        "weights": [float(w) for w in model.coef_[0]],
+        "bias": float(model.intercept_[0]),
+    }
+
+
+def _export_tree(tree, scale):
+    t = tree.tree_
+    return {
+        "feature": [int(f) if l != -1 else -1 for f, l in zip(t.feature, t.children_left)],
+        "threshold": [float(x) for x in t.threshold],
+        "left": [int(x) for x in t.children_left],
+        "right": [int(x) for x in t.children_right],
+        "value": [float(v[0][0]) * scale for v in t.value],
+    }
+
+
+def export_gbt(model, features):
+    # GradientBoostingClassifier (binary): raw score = init log-odds + lr * sum(tree outputs)
+    prior = model.init_.class_prior_[1]
+    base = math.log(prior / (1.0 - prior))
+    trees = [_export_tree(est[0], model.learning_rate) for est in model.estimators_]
+    return {"type": "gbt", "features": features, "baseScore": base, "trees": trees}
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("model", help="joblib file with a fitted estimator")
+    parser.add_argument("output", help="target JSON file")
+    parser.add_argument("--features", nargs="+", required=True)
+    parser.add_argument("--name", default="buy-wait")
+    parser.add_argument("--version", default="1")
+    parser.add_argument("--threshold", type=float, default=0.5)
+    args = parser.parse_args()
+
+    unknown = set(args.features) - ENGINE_FEATURES
+    if unknown:
+        parser.error(f"unsupported features: {sorted(unknown)}")
+
+    import joblib
+
+    model = joblib.load(args.model)
+    kind = type(model).__name__
+    if kind == "LogisticRegression":
+        doc = export_logistic(model, args.features)
+    elif kind == "GradientBoostingClassifier":
+        doc = export_gbt(model, args.features)
+    else:
+        parser.error(f"unsupported estimator: {kind}")
+
+    doc = {
+        "format": "traveloptimizer-model/v1",
+        "name": args.name,
+        "version": args.version,
+        "threshold": args.threshold,
+        **doc,
+    }
+    directory = os.path.dirname(os.path.abspath(args.output))
+    with tempfile.NamedTemporaryFile("w", dir=directory, delete=False, suffix=".tmp") as tmp:
+        json.dump(doc, tmp, indent=2)
+    os.replace(tmp.name, args.output)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,128 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis value codec for caches with a single known value type.
+ *
+ * <p>Values are written as JSON without class metadata or null fields, behind a one-byte format
+ * header: {@link #PLAIN}, or {@link #DEFLATED} when the JSON is at least {@code
+ * compressionThreshold} bytes and deflating it actually saves space. Legacy entries written by the
+ * previous {@code GenericJackson2JsonRedisSerializer} start with a JSON character instead of a
+ * header byte and are still read, so existing entries stay usable until they expire.
+ */
+public class CompactRedisSerializer<T> implements RedisSerializer<T> {
+
+    static final byte PLAIN = 0x01;
+    static final byte DEFLATED = 0x02;
+
+    private final JavaType type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final int compressionThreshold;
+
+    /**
+     * @param compressionThreshold JSON size in bytes from which values are deflated; 0 or less
+     *     disables compression
+     */
+    public CompactRedisSerializer(ObjectMapper mapper, Class<T> type, int compressionThreshold) {
+        this(mapper, mapper.constructType(type), compressionThreshold);
+    }
+
+    /** For generic value types such as {@code EarlyExpiringCache.Entry<SomeDTO>}. */
+    public CompactRedisSerializer(ObjectMapper mapper, JavaType type, int compressionThreshold) {
+        this.type = type;
+        this.reader = mapper.readerFor(type);
+        this.writer = mapper.writerFor(type);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /** Mapper for cached DTOs: ISO dates, no nulls, tolerant of fields added or removed later. */
+    public static ObjectMapper defaultMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.findAndRegisterModules();
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setDefaultPropertyInclusion(
+                JsonInclude.Value.construct(
+                        JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+        return mapper;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] json = writer.writeValueAsBytes(value);
+            if (compressionThreshold > 0 && json.length >= compressionThreshold) {
+                byte[] deflated = deflate(json);
+                if (deflated.length < json.length + 1) {
+                    return deflated;
+                }
+            }
+            byte[] out = new byte[json.length + 1];
+            out[0] = PLAIN;
+            System.arraycopy(json, 0, out, 1, json.length);
+            return out;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + type, e);
+        }
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return switch (bytes[0]) {
+                case PLAIN -> reader.readValue(bytes, 1, bytes.length - 1);
+                case DEFLATED -> {
+                    try (InputStream in =
+                            new InflaterInputStream(
+                                    new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                        yield reader.readValue(in);
+                    }
+                }
+                    // Legacy GenericJackson2JsonRedisSerializer entry: bare JSON text
+                default -> reader.readValue(bytes);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("Could not read " + type, e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return type.getRawClass();
+    }
+
+    private static byte[] deflate(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 16);
+        out.write(DEFLATED);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater)) {
+            stream.write(json);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
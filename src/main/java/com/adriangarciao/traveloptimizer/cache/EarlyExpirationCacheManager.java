@@ -0,0 +1,116 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+
+/**
+ * {@link CacheManager} decorator that wraps selected caches of another manager in an {@link
+ * EarlyExpiringCache}; other caches are returned as is.
+ *
+ * <p>Configured with {@code app.cache.early-expiration.caches[<name>]=<logical TTL>} and {@code
+ * app.cache.early-expiration.beta}. Negative results in these caches expire after their {@link
+ * NegativeResultTtl} instead.
+ */
+public class EarlyExpirationCacheManager implements CacheManager {
+
+    public static final double DEFAULT_BETA = 1.0;
+
+    private final CacheManager delegate;
+    private final Map<String, Duration> ttls;
+    private final double beta;
+    private final NegativeResultTtl negativeTtl;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, EarlyExpiringCache> caches = new ConcurrentHashMap<>();
+
+    public EarlyExpirationCacheManager(
+            CacheManager delegate,
+            Map<String, Duration> ttls,
+            double beta,
+            MeterRegistry meterRegistry) {
+        this(delegate, ttls, beta, null, meterRegistry);
+    }
+
+    /**
+     * @param negativeTtl TTLs for negative results, or null to cache them like other values
+     */
+    public EarlyExpirationCacheManager(
+            CacheManager delegate,
+            Map<String, Duration> ttls,
+            double beta,
+            NegativeResultTtl negativeTtl,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttls = Map.copyOf(ttls);
+        this.beta = beta;
+        this.negativeTtl = negativeTtl;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * {@code delegate} with early expiration for the caches configured in {@code environment}, or
+     * {@code delegate} itself if there are none.
+     */
+    public static CacheManager fromEnvironment(
+            Environment environment, CacheManager delegate, MeterRegistry meterRegistry) {
+        Map<String, Duration> ttls = configuredCaches(environment);
+        if (ttls.isEmpty()) {
+            return delegate;
+        }
+        return new EarlyExpirationCacheManager(
+                delegate,
+                ttls,
+                environment.getProperty(
+                        "app.cache.early-expiration.beta", Double.class, DEFAULT_BETA),
+                NegativeResultTtl.fromEnvironment(environment),
+                meterRegistry);
+    }
+
+    /** Logical TTL per cache from {@code app.cache.early-expiration.caches}. */
+    public static Map<String, Duration> configuredCaches(Environment environment) {
+        return Binder.get(environment)
+                .bind(
+                        "app.cache.early-expiration.caches",
+                        Bindable.mapOf(String.class, Duration.class))
+                .orElse(Map.of());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Duration ttl = ttls.get(name);
+        if (ttl == null) {
+            return delegate.getCache(name);
+        }
+        EarlyExpiringCache cache = caches.get(name);
+        if (cache == null) {
+            Cache target = delegate.getCache(name);
+            if (target == null) {
+                return null;
+            }
+            cache =
+                    caches.computeIfAbsent(
+                            name,
+                            n ->
+                                    new EarlyExpiringCache(
+                                            target, ttl, beta, negativeTtl, meterRegistry));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    public CacheManager getDelegate() {
+        return delegate;
+    }
+}
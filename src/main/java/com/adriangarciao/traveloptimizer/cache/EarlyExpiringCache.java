@@ -0,0 +1,218 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Cache decorator that expires entries early at random (XFetch) so a popular entry is recomputed by
+ * one caller shortly before it expires instead of by every caller at once after.
+ *
+ * <p>Values are stored as an {@link Entry} carrying how long the value took to compute ({@code
+ * delta}) and when it logically expires. A read treats the entry as a miss when {@code now - delta
+ * * beta * ln(random)} reaches the expiry, so the chance grows as expiry nears and entries that are
+ * expensive to compute are refreshed earlier; {@code beta > 1} favours earlier refreshes. The
+ * compute time is measured by {@link #get(Object, Callable)}, or from the miss to the following
+ * {@link #put} for callers that use get-then-put.
+ *
+ * <p>The logical TTL should not be longer than the delegate's own expiry, or entries disappear
+ * before they can be refreshed early. Negative results (see {@link NegativeResultTtl}) get their
+ * shorter status-specific TTL instead and are never refreshed early, so a struggling provider is
+ * retried no sooner than that TTL allows.
+ */
+public class EarlyExpiringCache implements Cache {
+
+    /** A cached value with the metadata early expiration needs. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry<T> implements Serializable {
+        private T value;
+
+        /** Time taken to compute the value, in milliseconds. */
+        private long deltaMillis;
+
+        /** Logical expiry, epoch milliseconds; 0 for entries not written by this cache. */
+        private long expiresAt;
+    }
+
+    private final Cache delegate;
+    private final long ttlMillis;
+    private final double beta;
+    private final NegativeResultTtl negativeTtl;
+    private final MeterRegistry meterRegistry;
+    private final Counter earlyExpirations;
+
+    /** When each key last missed, so a later {@link #put} can tell how long the compute took. */
+    private final ConcurrentMap<Object, Long> missedAt =
+            Caffeine.newBuilder()
+                    .maximumSize(10_000)
+                    .expireAfterWrite(Duration.ofMinutes(10))
+                    .<Object, Long>build()
+                    .asMap();
+
+    public EarlyExpiringCache(
+            Cache delegate, Duration ttl, double beta, MeterRegistry meterRegistry) {
+        this(delegate, ttl, beta, null, meterRegistry);
+    }
+
+    /**
+     * @param ttl logical time to live of each entry
+     * @param beta weight of the compute time; 1.0 is the usual choice
+     * @param negativeTtl TTLs for negative results, or null to treat them like any other value
+     * @param meterRegistry registry for the early expiration and negative hit counters, or null
+     */
+    public EarlyExpiringCache(
+            Cache delegate,
+            Duration ttl,
+            double beta,
+            NegativeResultTtl negativeTtl,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttlMillis = ttl.toMillis();
+        this.beta = beta;
+        this.negativeTtl = negativeTtl;
+        this.meterRegistry = meterRegistry;
+        this.earlyExpirations =
+                meterRegistry != null
+                        ? Counter.builder("traveloptimizer.cache.early_expirations")
+                                .tag("cache", delegate.getName())
+                                .description("Reads treated as misses to refresh an entry early")
+                                .register(meterRegistry)
+                        : null;
+    }
+
+    /** Whether an entry should be recomputed now; {@code random} is uniform in (0, 1]. */
+    static boolean expiresEarly(Entry<?> entry, long nowMillis, double beta, double random) {
+        return nowMillis - entry.getDeltaMillis() * beta * Math.log(random) >= entry.getExpiresAt();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    /** The decorated cache; holds {@link Entry} values. */
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Entry<?> entry = lookup(key);
+        return entry != null ? new SimpleValueWrapper(entry.getValue()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        Entry<?> entry = lookup(key);
+        Object value = entry != null ? entry.getValue() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Entry<?> entry = lookup(key);
+        if (entry != null) {
+            return (T) entry.getValue();
+        }
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        store(key, value, System.nanoTime() - start);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Long since = missedAt.remove(key);
+        store(key, value, since != null ? System.nanoTime() - since : 0L);
+    }
+
+    @Override
+    public void evict(Object key) {
+        missedAt.remove(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        missedAt.clear();
+        delegate.clear();
+    }
+
+    private void store(Object key, Object value, long deltaNanos) {
+        long ttl = ttlMillis;
+        long delta = Duration.ofNanos(deltaNanos).toMillis();
+        Duration negative = negativeTtl != null ? negativeTtl.ttlFor(value) : null;
+        if (negative != null) {
+            ttl = Math.min(ttl, negative.toMillis());
+            delta = 0L;
+        }
+        delegate.put(key, new Entry<>(value, delta, System.currentTimeMillis() + ttl));
+    }
+
+    /** Count a read served from a cached negative result: one provider call saved. */
+    private void recordNegativeHit(Object value) {
+        if (negativeTtl == null || meterRegistry == null) {
+            return;
+        }
+        ProviderStatus status = NegativeResultTtl.negativeStatus(value);
+        if (status != null) {
+            Counter.builder("traveloptimizer.cache.negative_hits")
+                    .tag("cache", delegate.getName())
+                    .tag("status", status.name())
+                    .description(
+                            "Reads served from a cached negative result instead of the provider")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /** The stored entry, or null on a miss, including an early expiration. */
+    private Entry<?> lookup(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        Object stored = wrapper != null ? wrapper.get() : null;
+        if (stored instanceof Entry<?> entry && entry.getExpiresAt() > 0) {
+            double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+            if (!expiresEarly(entry, System.currentTimeMillis(), beta, random)) {
+                recordNegativeHit(entry.getValue());
+                return entry;
+            }
+            if (earlyExpirations != null) {
+                earlyExpirations.increment();
+            }
+        } else if (wrapper != null && !(stored instanceof Entry<?>)) {
+            // Written before early expiration was enabled; serve it until it expires
+            return new Entry<>(stored, 0L, Long.MAX_VALUE);
+        }
+        missedAt.put(key, System.nanoTime());
+        return null;
+    }
+}
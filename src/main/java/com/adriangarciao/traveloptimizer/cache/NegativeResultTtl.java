@@ -0,0 +1,77 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.provider.FlightSearchResult;
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * Short, status-specific time to live for negative results: flight search results and trip search
+ * results whose flight provider status is anything but OK.
+ *
+ * <p>Caching these briefly stops impossible routes and provider outages from being retried on every
+ * request. Failures get the shortest TTLs, so recovery is noticed quickly; empty results are a
+ * property of the route and can be kept longer. Override with {@code
+ * app.cache.negative-ttl.<status>}, e.g. {@code app.cache.negative-ttl.rate-limited=2m}.
+ */
+public class NegativeResultTtl {
+
+    public static final Map<ProviderStatus, Duration> DEFAULTS =
+            Map.of(
+                    ProviderStatus.NO_RESULTS, Duration.ofMinutes(5),
+                    ProviderStatus.RATE_LIMITED, Duration.ofSeconds(60),
+                    ProviderStatus.AUTH_FAILED, Duration.ofSeconds(60),
+                    ProviderStatus.TIMEOUT, Duration.ofSeconds(30),
+                    ProviderStatus.UPSTREAM_ERROR, Duration.ofSeconds(30));
+
+    private final Map<ProviderStatus, Duration> ttls;
+
+    public NegativeResultTtl(Map<ProviderStatus, Duration> ttls) {
+        this.ttls = new EnumMap<>(ttls);
+    }
+
+    /** {@link #DEFAULTS} overridden by {@code app.cache.negative-ttl.*}. */
+    public static NegativeResultTtl fromEnvironment(Environment environment) {
+        Map<ProviderStatus, Duration> ttls = new EnumMap<>(DEFAULTS);
+        Binder.get(environment)
+                .bind("app.cache.negative-ttl", Bindable.mapOf(String.class, Duration.class))
+                .orElse(Map.of())
+                .forEach(
+                        (status, ttl) ->
+                                ttls.put(
+                                        ProviderStatus.valueOf(
+                                                status.trim()
+                                                        .replace('-', '_')
+                                                        .toUpperCase(Locale.ROOT)),
+                                        ttl));
+        return new NegativeResultTtl(ttls);
+    }
+
+    /** The provider status that makes {@code value} a negative result, or null if it is not one. */
+    public static ProviderStatus negativeStatus(Object value) {
+        ProviderStatus status = null;
+        if (value instanceof FlightSearchResult result) {
+            status = result.getStatus();
+        } else if (value instanceof TripSearchResponseDTO response
+                && response.getFlightProviderStatus() != null) {
+            try {
+                status = ProviderStatus.valueOf(response.getFlightProviderStatus());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return status == ProviderStatus.OK ? null : status;
+    }
+
+    /** How long {@code value} may be cached, or null if it is not a negative result. */
+    public Duration ttlFor(Object value) {
+        ProviderStatus status = negativeStatus(value);
+        return status != null ? ttls.get(status) : null;
+    }
+}
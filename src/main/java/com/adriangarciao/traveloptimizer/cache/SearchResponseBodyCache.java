@@ -0,0 +1,177 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.config.SearchKeyGenerator;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Cache of serialized search response bodies, so a hit is written to the client as stored bytes
+ * instead of copying, sorting and serializing the cached result set again.
+ *
+ * <p>Bodies are keyed by the canonical request plus the per-call limit and sort, serialized with
+ * the same {@link JsonMapper} the HTTP layer uses, and optionally stored gzip-compressed. Only
+ * responses whose flight provider answered OK are stored, so degraded responses keep their short
+ * negative TTLs. Bodies are served as they were first rendered, ML recommendations included, until
+ * {@value #CACHE_NAME} expires them or {@link #evictSearch} drops them; its expiry must not exceed
+ * that of {@code tripSearchCache}.
+ *
+ * <p>Every key also carries a generation stored per search in the same cache. Evicting the
+ * generation orphans all limit and sort variants of a search at once, and they then age out.
+ * Generations are read and written on the shared L2 only, when there is one, so an eviction on one
+ * instance is seen by all others instead of being hidden by their L1 copies.
+ */
+@Component
+public class SearchResponseBodyCache {
+
+    public static final String CACHE_NAME = "tripSearchResponseBody";
+
+    private static final String GENERATION_PREFIX = "generation|";
+
+    private final CacheManager cacheManager;
+    private final JsonMapper jsonMapper;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${app.cache.response-body.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${app.cache.response-body.gzip:true}")
+    private boolean gzip = true;
+
+    public SearchResponseBodyCache(
+            ObjectProvider<CacheManager> cacheManager,
+            ObjectProvider<JsonMapper> jsonMapper,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.cacheManager = cacheManager.getIfAvailable();
+        this.jsonMapper = jsonMapper.getIfAvailable(JsonMapper::new);
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.hits = meterRegistry != null ? counter(meterRegistry, "hit") : null;
+        this.misses = meterRegistry != null ? counter(meterRegistry, "miss") : null;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("traveloptimizer.cache.response_body")
+                .tag("result", result)
+                .description("Search responses served from (hit) or stored into the body cache")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled && cacheManager != null;
+    }
+
+    /**
+     * Key of one rendered response: the canonical request and its current generation plus the
+     * per-call limit and sort.
+     */
+    public String key(TripSearchRequestDTO request, Integer limit, String sortBy, String sortDir) {
+        String searchKey = SearchKeyGenerator.canonicalKey(request);
+        Cache cache = generations(cacheManager.getCache(CACHE_NAME));
+        // Stored as bytes like the bodies, which is all the Redis codec of this cache writes
+        byte[] generation =
+                cache != null
+                        ? cache.get(
+                                GENERATION_PREFIX + searchKey,
+                                () ->
+                                        Long.toHexString(ThreadLocalRandom.current().nextLong())
+                                                .getBytes(StandardCharsets.UTF_8))
+                        : null;
+        return String.join(
+                "|",
+                searchKey,
+                generation != null ? new String(generation, StandardCharsets.UTF_8) : "",
+                Objects.toString(limit, ""),
+                Objects.toString(sortBy, ""),
+                sortDir != null ? sortDir.toLowerCase(Locale.ROOT) : "");
+    }
+
+    /** Drop every stored body of {@code request}, e.g. once its cached result is replaced. */
+    public void evictSearch(TripSearchRequestDTO request) {
+        Cache cache = cacheManager != null ? generations(cacheManager.getCache(CACHE_NAME)) : null;
+        if (cache != null) {
+            cache.evict(GENERATION_PREFIX + SearchKeyGenerator.canonicalKey(request));
+        }
+    }
+
+    /** The tier holding generations: the L2 behind a {@link TwoTierCache}, else {@code cache}. */
+    private static Cache generations(Cache cache) {
+        Cache target = cache instanceof EarlyExpiringCache early ? early.getDelegate() : cache;
+        if (target instanceof TwoTierCache twoTier && twoTier.getRemote() != null) {
+            return twoTier.getRemote();
+        }
+        return cache;
+    }
+
+    /** Whether a response may be stored: only when the flight provider answered OK. */
+    public static boolean isCacheable(TripSearchResponseDTO response) {
+        String status = response.getFlightProviderStatus();
+        return status == null || "OK".equals(status);
+    }
+
+    /** The stored body for {@code key}, or null; see {@link #isGzipped(byte[])}. */
+    public byte[] get(String key) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        byte[] body = cache != null ? cache.get(key, byte[].class) : null;
+        Counter counter = body != null ? hits : misses;
+        if (counter != null) {
+            counter.increment();
+        }
+        return body;
+    }
+
+    /** Serialize {@code response}, store it under {@code key} and return the stored bytes. */
+    public byte[] put(String key, TripSearchResponseDTO response) {
+        byte[] body = jsonMapper.writeValueAsBytes(response);
+        if (gzip) {
+            body = gzip(body);
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.put(key, body);
+        }
+        return body;
+    }
+
+    /** True if {@code body} is gzip data (JSON never starts with the gzip magic bytes). */
+    public static boolean isGzipped(byte[] body) {
+        return body.length > 2 && body[0] == (byte) 0x1f && body[1] == (byte) 0x8b;
+    }
+
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream stream = new GZIPOutputStream(out)) {
+            stream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /** The uncompressed body, for clients that do not accept gzip. */
+    public static byte[] gunzip(byte[] body) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * A bounded in-process Caffeine cache (L1) in front of an optional shared cache (L2, normally
+ * Redis).
+ *
+ * <p>Reads try L1 first and fall through to L2, copying L2 hits into L1; writes and evictions go to
+ * both tiers. L2 is the source of truth across instances, so L1 entries should expire no later than
+ * L2's. An L2 hit may be close to its L2 expiry, so when L1 has variable expiry the copy is kept
+ * for at most the promoted TTL. Errors from L2 are not swallowed, matching the Redis-only
+ * configuration.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final Duration promotedTtl;
+    private final Timer remoteHits;
+    private final Timer remoteMisses;
+
+    public TwoTierCache(
+            String name,
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+            Cache remote,
+            MeterRegistry meterRegistry) {
+        this(name, local, remote, null, meterRegistry);
+    }
+
+    /**
+     * @param remote L2 cache, or null for an L1-only cache
+     * @param promotedTtl longest time an L2 hit is kept in L1, or null for the L1's own expiry;
+     *     applies only to an L1 built with variable expiry
+     * @param meterRegistry registry for the L2 lookup timers, or null
+     */
+    public TwoTierCache(
+            String name,
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+            Cache remote,
+            Duration promotedTtl,
+            MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.promotedTtl = promotedTtl;
+        if (remote != null && meterRegistry != null) {
+            this.remoteHits = remoteTimer(meterRegistry, name, "hit");
+            this.remoteMisses = remoteTimer(meterRegistry, name, "miss");
+        } else {
+            this.remoteHits = null;
+            this.remoteMisses = null;
+        }
+    }
+
+    private static Timer remoteTimer(MeterRegistry meterRegistry, String name, String result) {
+        return Timer.builder("traveloptimizer.cache.l2.gets")
+                .tag("cache", name)
+                .tag("result", result)
+                .description("Lookups that missed L1 and went to the shared L2 cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /** The L1 Caffeine cache. */
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return local;
+    }
+
+    /** The L2 cache, or null if this cache is L1-only. */
+    public Cache getRemote() {
+        return remote;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object stored = local.getIfPresent(key);
+        if (stored != null || remote == null) {
+            return stored;
+        }
+        ValueWrapper wrapper = remoteGet(key);
+        if (wrapper == null) {
+            return null;
+        }
+        return promote(key, wrapper);
+    }
+
+    /**
+     * Tries L2 before taking the L1 entry lock, so an L2 hit is promoted like in {@link
+     * #lookup(Object)}; only the value loader runs under the lock, once per key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object stored = lookup(key);
+        if (stored != null) {
+            return (T) fromStoreValue(stored);
+        }
+        return (T)
+                fromStoreValue(
+                        local.get(
+                                key,
+                                k -> {
+                                    T value;
+                                    try {
+                                        value = valueLoader.call();
+                                    } catch (Exception e) {
+                                        throw new ValueRetrievalException(k, valueLoader, e);
+                                    }
+                                    if (remote != null) {
+                                        remote.put(k, value);
+                                    }
+                                    return toStoreValue(value);
+                                }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, toStoreValue(value));
+        if (remote != null) {
+            remote.put(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (remote != null) {
+            remote.evict(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            remote.clear();
+        }
+    }
+
+    /** Copy an L2 hit into L1, where it expires after at most the promoted TTL. */
+    private Object promote(Object key, ValueWrapper wrapper) {
+        Object stored = toStoreValue(wrapper.get());
+        local.put(key, stored);
+        if (promotedTtl != null) {
+            local.policy()
+                    .expireVariably()
+                    .ifPresent(
+                            expiry -> {
+                                Optional<Duration> left = expiry.getExpiresAfter(key);
+                                if (left.isPresent() && left.get().compareTo(promotedTtl) > 0) {
+                                    expiry.setExpiresAfter(key, promotedTtl);
+                                }
+                            });
+        }
+        return stored;
+    }
+
+    private ValueWrapper remoteGet(Object key) {
+        long start = System.nanoTime();
+        ValueWrapper wrapper = remote.get(key);
+        Timer timer = wrapper != null ? remoteHits : remoteMisses;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, java.util.concurrent.TimeUnit.NANOSECONDS);
+        }
+        return wrapper;
+    }
+}
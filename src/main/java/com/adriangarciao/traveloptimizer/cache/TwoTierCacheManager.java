@@ -0,0 +1,247 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.provider.FlightSearchResult;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+
+/**
+ * {@link CacheManager} whose caches are a bounded Caffeine L1 in front of the matching cache of an
+ * optional L2 manager (see {@link TwoTierCache}).
+ *
+ * <p>Each L1 is built from a Caffeine spec string: {@code app.cache.local.caches[<name>]} if set,
+ * else {@code app.cache.local.spec}, e.g. {@code maximumSize=1000,expireAfterWrite=10m}. A spec
+ * using {@code maximumWeight} weighs entries by {@link #weigh(Object)}, so one large search result
+ * counts for more than a small one. Every cache exports the standard Caffeine meters ({@code
+ * cache.gets}, {@code cache.evictions}, {@code cache.load.duration}, ...) tagged with its name.
+ *
+ * <p>With a {@link NegativeResultTtl}, negative results expire from the L1 after their own TTL when
+ * that is shorter than the spec's {@code expireAfterWrite}/{@code expireAfterAccess}, whether or
+ * not the cache also expires early. L2 hits copied into an L1 expire there after at most {@code
+ * app.cache.local.promoted-ttl}, since how long L2 still keeps them is unknown.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    public static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+
+    public static final Duration DEFAULT_PROMOTED_TTL = Duration.ofSeconds(60);
+
+    private final String defaultSpec;
+    private final Map<String, String> specs;
+    private final CacheManager remote;
+    private final NegativeResultTtl negativeTtl;
+    private final Duration promotedTtl;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultSpec Caffeine spec for caches without their own entry in {@code specs}
+     * @param specs per-cache Caffeine specs; these caches are created up front
+     * @param remote L2 cache manager, or null for L1 only
+     * @param meterRegistry registry for cache meters, or null
+     */
+    public TwoTierCacheManager(
+            String defaultSpec,
+            Map<String, String> specs,
+            CacheManager remote,
+            MeterRegistry meterRegistry) {
+        this(defaultSpec, specs, remote, null, DEFAULT_PROMOTED_TTL, meterRegistry);
+    }
+
+    /**
+     * @param defaultSpec Caffeine spec for caches without their own entry in {@code specs}
+     * @param specs per-cache Caffeine specs; these caches are created up front
+     * @param remote L2 cache manager, or null for L1 only
+     * @param negativeTtl TTLs for negative results, or null to keep them like other values
+     * @param promotedTtl longest time an L2 hit is kept in L1
+     * @param meterRegistry registry for cache meters, or null
+     */
+    public TwoTierCacheManager(
+            String defaultSpec,
+            Map<String, String> specs,
+            CacheManager remote,
+            NegativeResultTtl negativeTtl,
+            Duration promotedTtl,
+            MeterRegistry meterRegistry) {
+        this.defaultSpec =
+                defaultSpec == null || defaultSpec.isBlank() ? DEFAULT_SPEC : defaultSpec;
+        this.specs = specs != null ? Map.copyOf(specs) : Map.of();
+        this.remote = remote;
+        this.negativeTtl = negativeTtl;
+        this.promotedTtl = promotedTtl;
+        this.meterRegistry = meterRegistry;
+        this.specs.keySet().forEach(this::getCache);
+    }
+
+    /**
+     * Manager configured from {@code app.cache.local.spec}, {@code app.cache.local.caches}, {@code
+     * app.cache.local.promoted-ttl} and {@code app.cache.negative-ttl}.
+     */
+    public static TwoTierCacheManager fromEnvironment(
+            Environment environment, CacheManager remote, MeterRegistry meterRegistry) {
+        Map<String, String> specs =
+                Binder.get(environment)
+                        .bind("app.cache.local.caches", Bindable.mapOf(String.class, String.class))
+                        .orElse(Map.of());
+        return new TwoTierCacheManager(
+                environment.getProperty("app.cache.local.spec", DEFAULT_SPEC),
+                specs,
+                remote,
+                NegativeResultTtl.fromEnvironment(environment),
+                environment.getProperty(
+                        "app.cache.local.promoted-ttl", Duration.class, DEFAULT_PROMOTED_TTL),
+                meterRegistry);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        String spec = specs.getOrDefault(name, defaultSpec);
+        Caffeine<Object, Object> builder;
+        if (negativeTtl != null || remote != null) {
+            // Caffeine allows no fixed expiry next to a variable one, so the spec's moves into it
+            Duration afterWrite = null;
+            Duration afterAccess = null;
+            List<String> options = new ArrayList<>();
+            for (String option : spec.split(",")) {
+                String[] keyValue = option.trim().split("=", 2);
+                if (keyValue[0].equals("expireAfterWrite") && keyValue.length == 2) {
+                    afterWrite = specDuration(keyValue[1]);
+                } else if (keyValue[0].equals("expireAfterAccess") && keyValue.length == 2) {
+                    afterAccess = specDuration(keyValue[1]);
+                } else if (!option.isBlank()) {
+                    options.add(option.trim());
+                }
+            }
+            builder =
+                    Caffeine.from(CaffeineSpec.parse(String.join(",", options)))
+                            .expireAfter(new SpecExpiry(negativeTtl, afterWrite, afterAccess));
+        } else {
+            builder = Caffeine.from(CaffeineSpec.parse(spec));
+        }
+        if (spec.contains("maximumWeight")) {
+            builder.weigher((Object key, Object value) -> weigh(value));
+        }
+        if (!spec.contains("recordStats")) {
+            builder.recordStats();
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = builder.build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+        }
+        Cache l2 = remote != null ? remote.getCache(name) : null;
+        return new TwoTierCache(name, local, l2, promotedTtl, meterRegistry);
+    }
+
+    /** A Caffeine spec duration: an ISO-8601 duration or an amount followed by d, h, m or s. */
+    static Duration specDuration(String value) {
+        String v = value.trim();
+        if (v.startsWith("P") || v.startsWith("p")) {
+            return Duration.parse(v);
+        }
+        long amount = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (Character.toLowerCase(v.charAt(v.length() - 1))) {
+            case 'd' -> Duration.ofDays(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 's' -> Duration.ofSeconds(amount);
+            default -> throw new IllegalArgumentException("Invalid cache spec duration: " + value);
+        };
+    }
+
+    /**
+     * The spec's expiry as a variable one, so single entries can be shortened: to the {@link
+     * NegativeResultTtl} for negative results, if one is given, and by {@link TwoTierCache} for
+     * promoted L2 hits. Values stored by an {@link EarlyExpiringCache} are judged by the value they
+     * wrap.
+     */
+    private static final class SpecExpiry implements Expiry<Object, Object> {
+        private final NegativeResultTtl negativeTtl;
+        private final long afterWriteNanos;
+        private final long afterAccessNanos;
+
+        private SpecExpiry(
+                NegativeResultTtl negativeTtl, Duration afterWrite, Duration afterAccess) {
+            this.negativeTtl = negativeTtl;
+            this.afterWriteNanos = afterWrite != null ? afterWrite.toNanos() : Long.MAX_VALUE;
+            this.afterAccessNanos = afterAccess != null ? afterAccess.toNanos() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            long nanos = Math.min(afterWriteNanos, afterAccessNanos);
+            Duration negative = negativeTtl != null ? negativeTtl.ttlFor(unwrap(value)) : null;
+            return negative != null ? Math.min(nanos, negative.toNanos()) : nanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        /**
+         * Reads extend only positive entries of access-expiring specs without expireAfterWrite;
+         * with both, an entry expires at the earlier of the two counted from its write.
+         */
+        @Override
+        public long expireAfterRead(
+                Object key, Object value, long currentTime, long currentDuration) {
+            if (afterAccessNanos == Long.MAX_VALUE
+                    || afterWriteNanos != Long.MAX_VALUE
+                    || (negativeTtl != null && negativeTtl.ttlFor(unwrap(value)) != null)) {
+                return currentDuration;
+            }
+            return afterAccessNanos;
+        }
+
+        private static Object unwrap(Object value) {
+            return value instanceof EarlyExpiringCache.Entry<?> e ? e.getValue() : value;
+        }
+    }
+
+    /** Approximate size of a cached value in result rows; at least 1. */
+    static int weigh(Object value) {
+        if (value instanceof EarlyExpiringCache.Entry<?> entry) {
+            return weigh(entry.getValue());
+        }
+        if (value instanceof TripSearchResponseDTO response) {
+            return 1 + (response.getOptions() != null ? response.getOptions().size() : 0);
+        }
+        if (value instanceof FlightSearchResult result) {
+            return 1 + (result.getOffers() != null ? result.getOffers().size() : 0);
+        }
+        if (value instanceof Collection<?> collection) {
+            return 1 + collection.size();
+        }
+        if (value instanceof byte[] bytes) {
+            // Serialized bodies: about one result row per kilobyte
+            return 1 + bytes.length / 1024;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,156 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide AIMD concurrency limit for calls to the ML service.
+ *
+ * <p>A call must hold a {@link Permit} while in flight; when {@link #getInFlight()} has reached the
+ * current limit {@link #tryAcquire()} returns null and the caller should fall back right away
+ * instead of queueing. The limit grows by one for each success that completes under {@code
+ * latencyThreshold} while the limit was at least half used, and is multiplied by {@code
+ * backoffRatio} when a call is slower than that or fails, always staying within {@code [minLimit,
+ * maxLimit]}. Outcomes that say nothing about the service's load (such as an open circuit breaker)
+ * can be released with {@link Permit#ignore()}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Thrown (as the cause of a failed future) when a call is rejected by the limiter. */
+    public static final class LimitExceededException extends RuntimeException {
+        public LimitExceededException(int limit) {
+            super("ML concurrency limit of " + limit + " reached", null, false, false);
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /** Fractional so repeated back-offs at small limits still converge; guarded by {@code this}. */
+    private double limit;
+
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            Duration latencyThreshold,
+            double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(
+                    "Invalid limit bounds [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1): " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** Register limit, in-flight and rejection meters under {@code traveloptimizer.ml.limiter}. */
+    public AdaptiveConcurrencyLimiter bindTo(MeterRegistry meterRegistry) {
+        if (meterRegistry != null) {
+            Gauge.builder("traveloptimizer.ml.limiter.limit", this, l -> l.getLimit())
+                    .description("Current adaptive concurrency limit for ML service calls")
+                    .register(meterRegistry);
+            Gauge.builder("traveloptimizer.ml.limiter.in_flight", this, l -> l.getInFlight())
+                    .description("ML service calls currently in flight")
+                    .register(meterRegistry);
+            FunctionCounter.builder(
+                            "traveloptimizer.ml.limiter.rejected", this, l -> l.getRejectedCount())
+                    .description("ML service calls rejected by the concurrency limit")
+                    .register(meterRegistry);
+        }
+        return this;
+    }
+
+    /** A permit for one call, or null if the limit is reached (counted as a rejection). */
+    public Permit tryAcquire() {
+        int max = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private synchronized void onSuccess(long latencyNanos, int inFlightAtStart) {
+        if (latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlightAtStart * 2 >= limit) {
+            // Only grow when the limit is actually being used
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    private synchronized void onDropped() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    /** One in-flight call; release it exactly once with the call's outcome. */
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /** The call succeeded; its latency feeds the limit. */
+        public void success() {
+            if (release()) {
+                onSuccess(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+
+        /** The call failed or timed out; back off. */
+        public void dropped() {
+            if (release()) {
+                onDropped();
+            }
+        }
+
+        /** Release without adjusting the limit. */
+        public void ignore() {
+            release();
+        }
+
+        private synchronized boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+}
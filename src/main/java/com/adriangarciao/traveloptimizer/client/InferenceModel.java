@@ -0,0 +1,112 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Buy/wait model evaluated in-process by {@link LocalMlClient}, loaded from the portable JSON
+ * export written by {@code ml-service/export_model.py}.
+ *
+ * <p>Models score a fixed feature vector (see {@link #FEATURES}); at load time the columns named in
+ * the file are mapped onto that order, so evaluation is plain array arithmetic with no lookups.
+ * Supported {@code type}s are {@code logistic} and {@code gbt} (gradient-boosted trees, summed
+ * log-odds).
+ */
+interface InferenceModel {
+
+    /** Engine feature order; model files may use any subset, in any order. */
+    List<String> FEATURES =
+            List.of(
+                    "daysToDeparture",
+                    "stops",
+                    "durationMinutes",
+                    "price",
+                    "pricePercentileWithinSearch");
+
+    int DAYS_TO_DEPARTURE = 0;
+    int STOPS = 1;
+    int DURATION_MINUTES = 2;
+    int PRICE = 3;
+    int PRICE_PERCENTILE = 4;
+
+    /** Probability that buying now is the right call, for a vector in {@link #FEATURES} order. */
+    double predictBuyProbability(double[] features);
+
+    /** Probability at or above which the model recommends BUY. */
+    double threshold();
+
+    /** Name and version from the model file, for logs and explanations. */
+    String name();
+
+    /**
+     * Parse a model file.
+     *
+     * @throws IllegalArgumentException if the file is malformed or names an unknown feature
+     */
+    static InferenceModel read(InputStream in) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(in);
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Model file is not a JSON object");
+        }
+        String type = root.path("type").asText("");
+        int[] columns = columns(root.path("features"));
+        String name =
+                root.path("name").asText("model")
+                        + "@"
+                        + root.path("version").asText("unversioned");
+        double threshold = root.path("threshold").asDouble(0.5);
+        return switch (type) {
+            case "logistic" -> LogisticRegressionModel.fromJson(root, columns, name, threshold);
+            case "gbt" -> TreeEnsembleModel.fromJson(root, columns, name, threshold);
+            default -> throw new IllegalArgumentException("Unsupported model type: '" + type + "'");
+        };
+    }
+
+    /** Map the file's feature names to engine indices. */
+    private static int[] columns(JsonNode features) {
+        if (!features.isArray() || features.isEmpty()) {
+            throw new IllegalArgumentException("Model file has no 'features' list");
+        }
+        int[] columns = new int[features.size()];
+        for (int i = 0; i < columns.length; i++) {
+            int index = FEATURES.indexOf(features.get(i).asText());
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        "Unknown model feature '" + features.get(i).asText() + "'");
+            }
+            columns[i] = index;
+        }
+        return columns;
+    }
+
+    static double[] doubles(JsonNode node, String field) {
+        JsonNode array = node.path(field);
+        if (!array.isArray()) {
+            throw new IllegalArgumentException("Model field '" + field + "' must be an array");
+        }
+        double[] out = new double[array.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = array.get(i).asDouble();
+        }
+        return out;
+    }
+
+    static int[] ints(JsonNode node, String field) {
+        JsonNode array = node.path(field);
+        if (!array.isArray()) {
+            throw new IllegalArgumentException("Model field '" + field + "' must be an array");
+        }
+        int[] out = new int[array.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = array.get(i).asInt();
+        }
+        return out;
+    }
+
+    static double sigmoid(double z) {
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+}
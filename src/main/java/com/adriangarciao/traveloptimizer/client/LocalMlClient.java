@@ -0,0 +1,217 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
+import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scores buy/wait recommendations in-process with an exported {@link InferenceModel}, avoiding the
+ * HTTP hop to the ML service. Select with {@code ml.client=local}.
+ *
+ * <p>The model is read from {@code ml.local.model-path}, or the bundled {@code
+ * ml/buy-wait-model.json} when no path is set. A configured file is polled for changes and swapped
+ * in atomically; a file that fails to load is logged and the previous model stays active. Trend and
+ * best-date-window use the same deterministic rules as the bundled ml-service.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ml.client", havingValue = "local")
+public class LocalMlClient implements MlClient {
+
+    static final String BUNDLED_MODEL = "ml/buy-wait-model.json";
+
+    private final Path modelPath;
+
+    private volatile InferenceModel model;
+
+    /** Last-modified time of the loaded file, to detect replacements. */
+    private volatile long loadedModifiedMillis = -1L;
+
+    public LocalMlClient(@Value("${ml.local.model-path:}") String modelPath) {
+        this.modelPath = modelPath == null || modelPath.isBlank() ? null : Path.of(modelPath);
+        if (this.modelPath != null && reloadIfChanged()) {
+            return;
+        }
+        this.model = loadBundled();
+    }
+
+    /**
+     * Load the model file if it changed since the last successful load.
+     *
+     * @return true if a new model is now active
+     */
+    @Scheduled(fixedDelayString = "${ml.local.reload-interval-ms:10000}")
+    public boolean reloadIfChanged() {
+        if (modelPath == null) {
+            return false;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(modelPath).toMillis();
+            if (modified == loadedModifiedMillis) {
+                return false;
+            }
+            InferenceModel loaded;
+            try (InputStream in = Files.newInputStream(modelPath)) {
+                loaded = InferenceModel.read(in);
+            }
+            this.model = loaded;
+            this.loadedModifiedMillis = modified;
+            log.info("Loaded ML model {} from {}", loaded.name(), modelPath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn(
+                    "Could not load ML model from {} ({}); keeping {}",
+                    modelPath,
+                    e.toString(),
+                    model != null ? model.name() : "bundled model");
+            return false;
+        }
+    }
+
+    /** Name of the active model. */
+    public String modelName() {
+        return model.name();
+    }
+
+    @Override
+    public MlBestDateWindowDTO getBestDateWindow(TripSearchRequestDTO request) {
+        LocalDate start = request.getEarliestDepartureDate();
+        LocalDate end =
+                request.getLatestDepartureDate() != null ? request.getLatestDepartureDate() : start;
+        if (start == null) {
+            return MlBestDateWindowDTO.builder().confidence(0.0).build();
+        }
+        LocalDate returnDate = null;
+        if (request.getEarliestReturnDate() != null && request.getLatestReturnDate() != null) {
+            returnDate = midpoint(request.getEarliestReturnDate(), request.getLatestReturnDate());
+        }
+        double confidence = 0.5;
+        if (request.getMaxBudget() != null) {
+            double budget = request.getMaxBudget().doubleValue();
+            confidence = budget >= 2000 ? 0.9 : budget >= 1000 ? 0.7 : 0.6;
+        }
+        return MlBestDateWindowDTO.builder()
+                .recommendedDepartureDate(midpoint(start, end))
+                .recommendedReturnDate(returnDate)
+                .confidence(confidence)
+                .build();
+    }
+
+    @Override
+    public MlRecommendationDTO getOptionRecommendation(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        return recommend(model, features(option, request, stats));
+    }
+
+    @Override
+    public List<MlRecommendationDTO> getOptionRecommendations(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request, SearchStats stats) {
+        if (options == null || options.isEmpty()) {
+            return List.of();
+        }
+        // One model for the whole page even if a reload lands mid-way
+        InferenceModel active = model;
+        List<MlRecommendationDTO> out = new ArrayList<>(options.size());
+        for (TripOptionSummaryDTO option : options) {
+            out.add(recommend(active, features(option, request, stats)));
+        }
+        return out;
+    }
+
+    /** Feature vector in {@link InferenceModel#FEATURES} order, matching the /predict payload. */
+    static double[] features(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        double[] x = new double[InferenceModel.FEATURES.size()];
+        x[InferenceModel.DAYS_TO_DEPARTURE] =
+                ChronoUnit.DAYS.between(LocalDate.now(), request.getEarliestDepartureDate());
+        if (option.getFlight() != null) {
+            x[InferenceModel.STOPS] = option.getFlight().getStops();
+            if (option.getFlight().getDuration() != null) {
+                x[InferenceModel.DURATION_MINUTES] = option.getFlight().getDuration().toMinutes();
+            }
+        }
+        x[InferenceModel.PRICE] =
+                option.getTotalPrice() != null ? option.getTotalPrice().doubleValue() : 0.0;
+        x[InferenceModel.PRICE_PERCENTILE] =
+                stats != null ? stats.fractionBelow(option.getTotalPrice()) : 0.5;
+        return x;
+    }
+
+    private static MlRecommendationDTO recommend(InferenceModel model, double[] x) {
+        double p = model.predictBuyProbability(x);
+        boolean buy = p >= model.threshold();
+        List<String> reasons = new ArrayList<>(2);
+        reasons.add(
+                String.format(
+                        "Model %s estimates a %.0f%% chance that buying now is best",
+                        model.name(), p * 100));
+
+        double percentile = x[InferenceModel.PRICE_PERCENTILE];
+        String trend;
+        if (percentile <= 0.3) {
+            trend = "likely_down";
+            reasons.add("Historical trend suggests price could drop");
+        } else if (percentile >= 0.7) {
+            trend = "likely_up";
+            reasons.add("Price is high relative to this search; likely to increase");
+        } else {
+            trend = "stable";
+            reasons.add("Price appears stable within this search window");
+        }
+
+        MlRecommendationDTO dto =
+                MlRecommendationDTO.builder()
+                        .action(buy ? "BUY" : "WAIT")
+                        .trend(trend)
+                        .confidence(buy ? p : 1.0 - p)
+                        .reasons(reasons)
+                        .note("In-JVM model " + model.name())
+                        .build();
+        // legacy fields
+        dto.setIsGoodDeal(buy);
+        dto.setPriceTrend(
+                switch (trend) {
+                    case "likely_up" -> "rising";
+                    case "likely_down" -> "falling";
+                    default -> "stable";
+                });
+        return dto;
+    }
+
+    private static LocalDate midpoint(LocalDate start, LocalDate end) {
+        return LocalDate.ofEpochDay((start.toEpochDay() + end.toEpochDay()) / 2);
+    }
+
+    private static InferenceModel loadBundled() {
+        try (InputStream in =
+                LocalMlClient.class.getClassLoader().getResourceAsStream(BUNDLED_MODEL)) {
+            if (in == null) {
+                throw new IllegalStateException("Bundled ML model " + BUNDLED_MODEL + " missing");
+            }
+            return InferenceModel.read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read bundled ML model", e);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        log.info("ML client active: local (ml.client=local, model={})", model.name());
+    }
+}
@@ -0,0 +1,64 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Logistic regression over the engine feature vector. Weights are stored in engine order (zero for
+ * features the model does not use), so scoring is a single dot product.
+ */
+final class LogisticRegressionModel implements InferenceModel {
+
+    private final double[] weights;
+    private final double bias;
+    private final double threshold;
+    private final String name;
+
+    LogisticRegressionModel(double[] weights, double bias, double threshold, String name) {
+        if (weights.length != FEATURES.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + FEATURES.size() + " weights, got " + weights.length);
+        }
+        this.weights = weights;
+        this.bias = bias;
+        this.threshold = threshold;
+        this.name = name;
+    }
+
+    static LogisticRegressionModel fromJson(
+            JsonNode root, int[] columns, String name, double threshold) {
+        double[] fileWeights = InferenceModel.doubles(root, "weights");
+        if (fileWeights.length != columns.length) {
+            throw new IllegalArgumentException(
+                    "Model has "
+                            + columns.length
+                            + " features but "
+                            + fileWeights.length
+                            + " weights");
+        }
+        double[] weights = new double[FEATURES.size()];
+        for (int i = 0; i < columns.length; i++) {
+            weights[columns[i]] += fileWeights[i];
+        }
+        return new LogisticRegressionModel(
+                weights, root.path("bias").asDouble(0.0), threshold, name);
+    }
+
+    @Override
+    public double predictBuyProbability(double[] features) {
+        double z = bias;
+        for (int i = 0; i < weights.length; i++) {
+            z += weights[i] * features[i];
+        }
+        return InferenceModel.sigmoid(z);
+    }
+
+    @Override
+    public double threshold() {
+        return threshold;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+}
@@ -4,13 +4,71 @@ import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
 import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MlClient {
     MlBestDateWindowDTO getBestDateWindow(TripSearchRequestDTO request);
 
+    /**
+     * Recommendation for one option, ranked against statistics already built for its result set.
+     */
     MlRecommendationDTO getOptionRecommendation(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats);
+
+    default MlRecommendationDTO getOptionRecommendation(
             TripOptionSummaryDTO option,
             TripSearchRequestDTO request,
-            List<TripOptionSummaryDTO> allOptions);
+            List<TripOptionSummaryDTO> allOptions) {
+        return getOptionRecommendation(option, request, SearchStats.ofSummaries(allOptions));
+    }
+
+    /**
+     * Recommendations for every option of a result set in one round trip, in the same order as
+     * {@code options}. Options the service could not score get the baseline recommendation.
+     */
+    List<MlRecommendationDTO> getOptionRecommendations(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request, SearchStats stats);
+
+    default List<MlRecommendationDTO> getOptionRecommendations(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request) {
+        return getOptionRecommendations(options, request, SearchStats.ofSummaries(options));
+    }
+
+    // === Async variants ===
+    //
+    // Non-blocking clients override these so no caller thread waits on the ML service. The
+    // defaults run the blocking call on the calling thread and return a completed future, which
+    // suits in-process clients. Futures complete with a fallback rather than exceptionally
+    // whenever the blocking variant would.
+
+    default CompletableFuture<MlBestDateWindowDTO> getBestDateWindowAsync(
+            TripSearchRequestDTO request) {
+        try {
+            return CompletableFuture.completedFuture(getBestDateWindow(request));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<MlRecommendationDTO> getOptionRecommendationAsync(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        try {
+            return CompletableFuture.completedFuture(
+                    getOptionRecommendation(option, request, stats));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    default CompletableFuture<List<MlRecommendationDTO>> getOptionRecommendationsAsync(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request, SearchStats stats) {
+        try {
+            return CompletableFuture.completedFuture(
+                    getOptionRecommendations(options, request, stats));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
+import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+
+/**
+ * Bounded TTL cache for ML predictions, keyed by the quantized features the ML service sees.
+ *
+ * <p>Option recommendations are keyed by route, stops, duration bucket, price bucket, in-search
+ * price percentile (to 1%), airline and days to departure; best-date windows by route, date window,
+ * travellers and budget bucket. Failed calls are cached as negative entries with a much shorter
+ * TTL, so an outage costs one call per key rather than one per search while recovery is still
+ * picked up quickly. Cached DTOs are copied on the way in and out since callers attach them to
+ * responses.
+ */
+public class MlPredictionCache {
+
+    /** Quantized feature vector for {@code /predict}. */
+    record RecommendationKey(
+            String origin,
+            String destination,
+            int stops,
+            long durationBucket,
+            long priceBucket,
+            int percentileBucket,
+            String airlineCode,
+            long daysToDeparture) {}
+
+    /** Quantized request for {@code /predict/best-date-window}. */
+    record WindowKey(
+            String origin,
+            String destination,
+            LocalDate earliestDeparture,
+            LocalDate latestDeparture,
+            LocalDate earliestReturn,
+            LocalDate latestReturn,
+            int numTravelers,
+            long budgetBucket) {}
+
+    /** A cached lookup; {@code value} is null for a cached failure. */
+    record Cached<T>(T value) {
+        boolean negative() {
+            return value == null;
+        }
+    }
+
+    private final Cache<RecommendationKey, Cached<MlRecommendationDTO>> recommendations;
+    private final Cache<WindowKey, Cached<MlBestDateWindowDTO>> windows;
+    private final long priceBucket;
+    private final long durationBucketMinutes;
+
+    public MlPredictionCache(
+            long maxSize,
+            Duration ttl,
+            Duration negativeTtl,
+            long priceBucket,
+            long durationBucketMinutes) {
+        this.priceBucket = Math.max(1, priceBucket);
+        this.durationBucketMinutes = Math.max(1, durationBucketMinutes);
+        this.recommendations =
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfter(
+                                new PositiveNegativeExpiry<RecommendationKey, MlRecommendationDTO>(
+                                        ttl, negativeTtl))
+                        .recordStats()
+                        .build();
+        this.windows =
+                Caffeine.newBuilder()
+                        .maximumSize(maxSize)
+                        .expireAfter(
+                                new PositiveNegativeExpiry<WindowKey, MlBestDateWindowDTO>(
+                                        ttl, negativeTtl))
+                        .recordStats()
+                        .build();
+    }
+
+    /** Register cache size/hit/miss meters and a hit-ratio gauge for both caches. */
+    public MlPredictionCache bindTo(MeterRegistry meterRegistry) {
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, recommendations, "mlRecommendationCache");
+            CaffeineCacheMetrics.monitor(meterRegistry, windows, "mlBestDateWindowCache");
+            Gauge.builder(
+                            "traveloptimizer.ml.recommendation_cache.hit_ratio",
+                            recommendations,
+                            c -> c.stats().hitRate())
+                    .description("Hit ratio of the ML option recommendation cache")
+                    .register(meterRegistry);
+            Gauge.builder(
+                            "traveloptimizer.ml.best_date_window_cache.hit_ratio",
+                            windows,
+                            c -> c.stats().hitRate())
+                    .description("Hit ratio of the ML best-date-window cache")
+                    .register(meterRegistry);
+        }
+        return this;
+    }
+
+    RecommendationKey recommendationKey(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, double percentile) {
+        int stops = option.getFlight() != null ? option.getFlight().getStops() : 0;
+        long duration =
+                option.getFlight() != null && option.getFlight().getDuration() != null
+                        ? option.getFlight().getDuration().toMinutes()
+                        : 0L;
+        String airline = option.getFlight() != null ? option.getFlight().getAirlineCode() : null;
+        return new RecommendationKey(
+                request.getOrigin(),
+                request.getDestination(),
+                stops,
+                duration / durationBucketMinutes,
+                bucket(option.getTotalPrice()),
+                (int) Math.round(percentile * 100),
+                airline,
+                daysToDeparture(request.getEarliestDepartureDate()));
+    }
+
+    WindowKey windowKey(TripSearchRequestDTO request) {
+        return new WindowKey(
+                request.getOrigin(),
+                request.getDestination(),
+                request.getEarliestDepartureDate(),
+                request.getLatestDepartureDate(),
+                request.getEarliestReturnDate(),
+                request.getLatestReturnDate(),
+                request.getNumTravelers(),
+                bucket(request.getMaxBudget()));
+    }
+
+    /** Cached recommendation for the key, or null on a miss. */
+    Cached<MlRecommendationDTO> getRecommendation(RecommendationKey key) {
+        Cached<MlRecommendationDTO> hit = recommendations.getIfPresent(key);
+        return hit == null || hit.negative() ? hit : new Cached<>(copy(hit.value()));
+    }
+
+    /** Store a recommendation, or a negative entry when {@code value} is null. */
+    void putRecommendation(RecommendationKey key, MlRecommendationDTO value) {
+        recommendations.put(key, new Cached<>(value != null ? copy(value) : null));
+    }
+
+    /** Cached best-date window for the key, or null on a miss. */
+    Cached<MlBestDateWindowDTO> getWindow(WindowKey key) {
+        Cached<MlBestDateWindowDTO> hit = windows.getIfPresent(key);
+        return hit == null || hit.negative() ? hit : new Cached<>(copy(hit.value()));
+    }
+
+    /** Store a best-date window, or a negative entry when {@code value} is null. */
+    void putWindow(WindowKey key, MlBestDateWindowDTO value) {
+        windows.put(key, new Cached<>(value != null ? copy(value) : null));
+    }
+
+    double recommendationHitRate() {
+        return recommendations.stats().hitRate();
+    }
+
+    private long bucket(BigDecimal amount) {
+        return amount != null ? Math.floorDiv(amount.longValue(), priceBucket) : -1L;
+    }
+
+    private static long daysToDeparture(LocalDate departure) {
+        return departure != null ? ChronoUnit.DAYS.between(LocalDate.now(), departure) : 0L;
+    }
+
+    private static MlRecommendationDTO copy(MlRecommendationDTO dto) {
+        return MlRecommendationDTO.builder()
+                .isGoodDeal(dto.getIsGoodDeal())
+                .priceTrend(dto.getPriceTrend())
+                .note(dto.getNote())
+                .action(dto.getAction())
+                .trend(dto.getTrend())
+                .confidence(dto.getConfidence())
+                .reasons(dto.getReasons() != null ? new ArrayList<>(dto.getReasons()) : null)
+                .build();
+    }
+
+    private static MlBestDateWindowDTO copy(MlBestDateWindowDTO dto) {
+        return MlBestDateWindowDTO.builder()
+                .recommendedDepartureDate(dto.getRecommendedDepartureDate())
+                .recommendedReturnDate(dto.getRecommendedReturnDate())
+                .confidence(dto.getConfidence())
+                .build();
+    }
+
+    /** Full TTL for successful predictions, the short negative TTL for cached failures. */
+    private static final class PositiveNegativeExpiry<K, V> implements Expiry<K, Cached<V>> {
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        PositiveNegativeExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Cached<V> value, long currentTime) {
+            return value.negative() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                K key, Cached<V> value, long currentTime, long currentDuration) {
+            return value.negative() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(
+                K key, Cached<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
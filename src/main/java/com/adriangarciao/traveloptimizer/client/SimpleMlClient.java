@@ -4,9 +4,9 @@ import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
 import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import javax.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
@@ -88,66 +88,20 @@ public class SimpleMlClient implements MlClient {
 
     @Override
     public MlRecommendationDTO getOptionRecommendation(
-            TripOptionSummaryDTO option,
-            TripSearchRequestDTO request,
-            List<TripOptionSummaryDTO> allOptions) {
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
         // Skip ML call if disabled - return baseline immediately
         if (!mlEnabled) {
-            return buildBaselineRecommendation(option, request, allOptions);
+            return buildBaselineRecommendation(option, request, stats);
         }
         try {
-            Map<String, Object> features = new HashMap<>();
-            features.put(
-                    "route",
-                    Map.of("origin", request.getOrigin(), "destination", request.getDestination()));
-            LocalDate dep = request.getEarliestDepartureDate();
-            long daysToDeparture = java.time.temporal.ChronoUnit.DAYS.between(LocalDate.now(), dep);
-            features.put("departureDate", dep.toString());
-            features.put("daysToDeparture", daysToDeparture);
-            int stops = (option.getFlight() != null) ? option.getFlight().getStops() : 0;
-            features.put("stops", stops);
-            long durationMinutes = 0;
-            if (option.getFlight() != null && option.getFlight().getDuration() != null) {
-                durationMinutes = option.getFlight().getDuration().toMinutes();
-            }
-            features.put("durationMinutes", durationMinutes);
-            double price =
-                    option.getTotalPrice() != null ? option.getTotalPrice().doubleValue() : 0.0;
-            features.put("price", price);
-            features.put(
-                    "airlineCode",
-                    option.getFlight() != null ? option.getFlight().getAirlineCode() : null);
-
-            double percentile = 0.5;
-            if (allOptions != null && !allOptions.isEmpty()) {
-                int less = 0;
-                for (TripOptionSummaryDTO o : allOptions) {
-                    double p = o.getTotalPrice() != null ? o.getTotalPrice().doubleValue() : 0.0;
-                    if (p < price) less++;
-                }
-                percentile = ((double) less) / allOptions.size();
-            }
-            features.put("pricePercentileWithinSearch", percentile);
-
+            Map<String, Object> features = features(option, request, stats);
             String url = mlBaseUrl + "/predict";
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(features, headers);
             Map resp = restTemplate().postForObject(url, entity, Map.class);
-            if (resp != null && resp.containsKey("action")) {
-                MlRecommendationDTO dto =
-                        MlRecommendationDTO.builder()
-                                .action((String) resp.get("action"))
-                                .trend((String) resp.getOrDefault("trend", "stable"))
-                                .confidence(
-                                        resp.containsKey("confidence")
-                                                ? Double.valueOf(resp.get("confidence").toString())
-                                                : 0.0)
-                                .reasons(
-                                        resp.containsKey("reasons")
-                                                ? (java.util.List<String>) resp.get("reasons")
-                                                : java.util.List.of())
-                                .build();
+            MlRecommendationDTO dto = fromResponse(resp);
+            if (dto != null) {
                 return dto;
             }
         } catch (HttpStatusCodeException he) {
@@ -157,24 +111,108 @@ public class SimpleMlClient implements MlClient {
             logMlUnavailable("option-recommendation", t);
         }
 
-        return buildBaselineRecommendation(option, request, allOptions);
+        return buildBaselineRecommendation(option, request, stats);
     }
 
-    /** Build a baseline recommendation when ML service is unavailable. */
-    private MlRecommendationDTO buildBaselineRecommendation(
-            TripOptionSummaryDTO option,
+    @Override
+    public java.util.List<MlRecommendationDTO> getOptionRecommendations(
+            java.util.List<TripOptionSummaryDTO> options,
             TripSearchRequestDTO request,
-            List<TripOptionSummaryDTO> allOptions) {
-        double pricePercentile = 0.5;
-        if (option.getTotalPrice() != null && allOptions != null && !allOptions.isEmpty()) {
-            int less = 0;
-            double price = option.getTotalPrice().doubleValue();
-            for (TripOptionSummaryDTO o : allOptions) {
-                double p = o.getTotalPrice() != null ? o.getTotalPrice().doubleValue() : 0.0;
-                if (p < price) less++;
+            SearchStats stats) {
+        if (options == null || options.isEmpty()) {
+            return java.util.List.of();
+        }
+        java.util.List<Map> predictions = null;
+        if (mlEnabled) {
+            try {
+                java.util.List<Map<String, Object>> items =
+                        new java.util.ArrayList<>(options.size());
+                for (TripOptionSummaryDTO option : options) {
+                    items.add(features(option, request, stats));
+                }
+                String url = mlBaseUrl + "/predict/batch";
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<Map<String, Object>> entity =
+                        new HttpEntity<>(Map.of("items", items), headers);
+                Map resp = restTemplate().postForObject(url, entity, Map.class);
+                Object list = resp != null ? resp.get("predictions") : null;
+                if (list instanceof java.util.List<?> l && l.size() == options.size()) {
+                    predictions = (java.util.List<Map>) l;
+                }
+            } catch (HttpStatusCodeException he) {
+                log.warn("ML batch recommendation HTTP error: {}", he.getStatusCode());
+            } catch (Throwable t) {
+                logMlUnavailable("option-recommendation-batch", t);
             }
-            pricePercentile = ((double) less) / allOptions.size();
         }
+
+        java.util.List<MlRecommendationDTO> out = new java.util.ArrayList<>(options.size());
+        for (int i = 0; i < options.size(); i++) {
+            MlRecommendationDTO dto = predictions != null ? fromResponse(predictions.get(i)) : null;
+            out.add(
+                    dto != null
+                            ? dto
+                            : buildBaselineRecommendation(options.get(i), request, stats));
+        }
+        return out;
+    }
+
+    /** Feature payload for one option, shared by the single and batch endpoints. */
+    private static Map<String, Object> features(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        Map<String, Object> features = new HashMap<>();
+        features.put(
+                "route",
+                Map.of("origin", request.getOrigin(), "destination", request.getDestination()));
+        LocalDate dep = request.getEarliestDepartureDate();
+        long daysToDeparture = java.time.temporal.ChronoUnit.DAYS.between(LocalDate.now(), dep);
+        features.put("departureDate", dep.toString());
+        features.put("daysToDeparture", daysToDeparture);
+        int stops = (option.getFlight() != null) ? option.getFlight().getStops() : 0;
+        features.put("stops", stops);
+        long durationMinutes = 0;
+        if (option.getFlight() != null && option.getFlight().getDuration() != null) {
+            durationMinutes = option.getFlight().getDuration().toMinutes();
+        }
+        features.put("durationMinutes", durationMinutes);
+        double price = option.getTotalPrice() != null ? option.getTotalPrice().doubleValue() : 0.0;
+        features.put("price", price);
+        features.put(
+                "airlineCode",
+                option.getFlight() != null ? option.getFlight().getAirlineCode() : null);
+
+        double percentile = stats != null ? stats.fractionBelow(option.getTotalPrice()) : 0.5;
+        features.put("pricePercentileWithinSearch", percentile);
+        return features;
+    }
+
+    /** Map a prediction response body to a recommendation, or null if it carries no action. */
+    private static MlRecommendationDTO fromResponse(Map resp) {
+        if (resp == null || !resp.containsKey("action")) {
+            return null;
+        }
+        return MlRecommendationDTO.builder()
+                .action((String) resp.get("action"))
+                .trend((String) resp.getOrDefault("trend", "stable"))
+                .confidence(
+                        resp.containsKey("confidence")
+                                ? Double.valueOf(resp.get("confidence").toString())
+                                : 0.0)
+                .reasons(
+                        resp.containsKey("reasons")
+                                ? (java.util.List<String>) resp.get("reasons")
+                                : java.util.List.of())
+                .build();
+    }
+
+    /** Build a baseline recommendation when ML service is unavailable. */
+    private MlRecommendationDTO buildBaselineRecommendation(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        double pricePercentile =
+                option.getTotalPrice() != null && stats != null
+                        ? stats.fractionBelow(option.getTotalPrice())
+                        : 0.5;
         long daysToDeparture =
                 java.time.temporal.ChronoUnit.DAYS.between(
                         LocalDate.now(), request.getEarliestDepartureDate());
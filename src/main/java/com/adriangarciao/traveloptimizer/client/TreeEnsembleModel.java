@@ -0,0 +1,133 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Gradient-boosted trees whose leaf values are summed as log-odds on top of {@code baseScore}.
+ *
+ * <p>All trees are flattened into shared node arrays at load time: {@code feature[n]} is the engine
+ * feature index tested at node {@code n} (or -1 for a leaf), and a sample goes to {@code left[n]}
+ * when its value is {@code <= threshold[n]} (the scikit-learn convention), else to {@code
+ * right[n]}. Child indices are absolute, so evaluation never allocates.
+ */
+final class TreeEnsembleModel implements InferenceModel {
+
+    private final double baseScore;
+    private final int[] roots;
+    private final int[] feature;
+    private final double[] split;
+    private final int[] left;
+    private final int[] right;
+    private final double[] value;
+    private final double threshold;
+    private final String name;
+
+    private TreeEnsembleModel(
+            double baseScore,
+            int[] roots,
+            int[] feature,
+            double[] split,
+            int[] left,
+            int[] right,
+            double[] value,
+            double threshold,
+            String name) {
+        this.baseScore = baseScore;
+        this.roots = roots;
+        this.feature = feature;
+        this.split = split;
+        this.left = left;
+        this.right = right;
+        this.value = value;
+        this.threshold = threshold;
+        this.name = name;
+    }
+
+    static TreeEnsembleModel fromJson(JsonNode root, int[] columns, String name, double threshold) {
+        JsonNode trees = root.path("trees");
+        if (!trees.isArray() || trees.isEmpty()) {
+            throw new IllegalArgumentException("Model has no 'trees'");
+        }
+        int total = 0;
+        for (JsonNode tree : trees) {
+            total += tree.path("feature").size();
+        }
+        int[] roots = new int[trees.size()];
+        int[] feature = new int[total];
+        double[] split = new double[total];
+        int[] left = new int[total];
+        int[] right = new int[total];
+        double[] value = new double[total];
+
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            JsonNode tree = trees.get(t);
+            int[] f = InferenceModel.ints(tree, "feature");
+            double[] th = InferenceModel.doubles(tree, "threshold");
+            int[] l = InferenceModel.ints(tree, "left");
+            int[] r = InferenceModel.ints(tree, "right");
+            double[] v = InferenceModel.doubles(tree, "value");
+            int n = f.length;
+            if (n == 0 || th.length != n || l.length != n || r.length != n || v.length != n) {
+                throw new IllegalArgumentException("Tree " + t + " has inconsistent node arrays");
+            }
+            roots[t] = offset;
+            for (int i = 0; i < n; i++) {
+                int node = offset + i;
+                value[node] = v[i];
+                if (f[i] < 0) {
+                    feature[node] = -1;
+                    continue;
+                }
+                if (f[i] >= columns.length) {
+                    throw new IllegalArgumentException(
+                            "Tree " + t + " node " + i + " uses unknown feature " + f[i]);
+                }
+                // Children must point forward so evaluation always terminates
+                if (l[i] <= i || l[i] >= n || r[i] <= i || r[i] >= n) {
+                    throw new IllegalArgumentException(
+                            "Tree " + t + " node " + i + " has invalid children");
+                }
+                feature[node] = columns[f[i]];
+                split[node] = th[i];
+                left[node] = offset + l[i];
+                right[node] = offset + r[i];
+            }
+            offset += n;
+        }
+        return new TreeEnsembleModel(
+                root.path("baseScore").asDouble(0.0),
+                roots,
+                feature,
+                split,
+                left,
+                right,
+                value,
+                threshold,
+                name);
+    }
+
+    @Override
+    public double predictBuyProbability(double[] features) {
+        double z = baseScore;
+        for (int root : roots) {
+            int node = root;
+            int f;
+            while ((f = feature[node]) >= 0) {
+                node = features[f] <= split[node] ? left[node] : right[node];
+            }
+            z += value[node];
+        }
+        return InferenceModel.sigmoid(z);
+    }
+
+    @Override
+    public double threshold() {
+        return threshold;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+}
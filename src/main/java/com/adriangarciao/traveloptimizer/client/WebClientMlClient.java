@@ -4,13 +4,20 @@ import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
 import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryConfig;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 import javax.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.ObjectProvider;
@@ -33,7 +40,20 @@ public class WebClientMlClient implements MlClient {
     public WebClientMlClient(
             @Value("${ml.service.base-url:http://localhost:8000}") String baseUrl,
             ObjectProvider<RetryRegistry> retryRegistryProvider,
-            ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistryProvider) {
+            ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistryProvider,
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${ml.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${ml.cache.max-size:10000}") long cacheMaxSize,
+            @Value("${ml.cache.ttl-seconds:600}") long cacheTtlSeconds,
+            @Value("${ml.cache.negative-ttl-seconds:30}") long cacheNegativeTtlSeconds,
+            @Value("${ml.cache.price-bucket:10}") long cachePriceBucket,
+            @Value("${ml.cache.duration-bucket-minutes:30}") long cacheDurationBucketMinutes,
+            @Value("${ml.limiter.enabled:true}") boolean limiterEnabled,
+            @Value("${ml.limiter.initial-limit:20}") int limiterInitialLimit,
+            @Value("${ml.limiter.min-limit:2}") int limiterMinLimit,
+            @Value("${ml.limiter.max-limit:200}") int limiterMaxLimit,
+            @Value("${ml.limiter.latency-threshold-ms:500}") long limiterLatencyThresholdMs,
+            @Value("${ml.limiter.backoff-ratio:0.9}") double limiterBackoffRatio) {
         this.baseUrl = baseUrl;
         this.webClient = WebClient.builder().baseUrl(baseUrl).build();
         // obtain configured resilience instances from registries (externalized via properties)
@@ -42,6 +62,26 @@ public class WebClientMlClient implements MlClient {
                 circuitBreakerRegistryProvider.getIfAvailable(CircuitBreakerRegistry::ofDefaults);
         this.retry = rr.retry("mlService");
         this.circuitBreaker = cbr.circuitBreaker("mlService");
+        this.cache =
+                cacheEnabled
+                        ? new MlPredictionCache(
+                                        cacheMaxSize,
+                                        Duration.ofSeconds(cacheTtlSeconds),
+                                        Duration.ofSeconds(cacheNegativeTtlSeconds),
+                                        cachePriceBucket,
+                                        cacheDurationBucketMinutes)
+                                .bindTo(meterRegistryProvider.getIfAvailable())
+                        : null;
+        this.limiter =
+                limiterEnabled
+                        ? new AdaptiveConcurrencyLimiter(
+                                        limiterInitialLimit,
+                                        limiterMinLimit,
+                                        limiterMaxLimit,
+                                        Duration.ofMillis(limiterLatencyThresholdMs),
+                                        limiterBackoffRatio)
+                                .bindTo(meterRegistryProvider.getIfAvailable())
+                        : null;
     }
 
     @org.springframework.beans.factory.annotation.Value("${ml.timeout-ms:2000}")
@@ -55,12 +95,30 @@ public class WebClientMlClient implements MlClient {
         this.webClient = webClient;
         this.retry = retry;
         this.circuitBreaker = circuitBreaker;
+        this.cache = null;
+        this.limiter = null;
     }
 
     // Backwards-compatible constructor used by some tests (creates default resilience instances)
     public WebClientMlClient(WebClient webClient, String baseUrl) {
+        this(webClient, baseUrl, (MlPredictionCache) null);
+    }
+
+    // Test constructor with default resilience instances and an optional prediction cache
+    public WebClientMlClient(WebClient webClient, String baseUrl, MlPredictionCache cache) {
+        this(webClient, baseUrl, cache, null);
+    }
+
+    // Test constructor with default resilience instances, optional cache and optional limiter
+    public WebClientMlClient(
+            WebClient webClient,
+            String baseUrl,
+            MlPredictionCache cache,
+            AdaptiveConcurrencyLimiter limiter) {
         this.baseUrl = baseUrl;
         this.webClient = webClient;
+        this.cache = cache;
+        this.limiter = limiter;
         // initialize resilience defaults for tests when constructed directly
         RetryConfig retryConfig =
                 RetryConfig.custom()
@@ -86,36 +144,297 @@ public class WebClientMlClient implements MlClient {
 
     @Override
     public MlBestDateWindowDTO getBestDateWindow(TripSearchRequestDTO request) {
-        java.util.concurrent.Callable<MlBestDateWindowDTO> supplier =
+        return getBestDateWindowAsync(request).join();
+    }
+
+    @Override
+    public MlRecommendationDTO getOptionRecommendation(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        return getOptionRecommendationAsync(option, request, stats).join();
+    }
+
+    @Override
+    public java.util.List<MlRecommendationDTO> getOptionRecommendations(
+            java.util.List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats) {
+        return getOptionRecommendationsAsync(options, request, stats).join();
+    }
+
+    @Override
+    public CompletableFuture<MlBestDateWindowDTO> getBestDateWindowAsync(
+            TripSearchRequestDTO request) {
+        MlPredictionCache.WindowKey key = cache != null ? cache.windowKey(request) : null;
+        if (key != null) {
+            MlPredictionCache.Cached<MlBestDateWindowDTO> hit = cache.getWindow(key);
+            if (hit != null) {
+                return CompletableFuture.completedFuture(
+                        hit.negative()
+                                ? MlBestDateWindowDTO.builder().confidence(0.0).build()
+                                : hit.value());
+            }
+        }
+
+        return post(
+                        "/predict/best-date-window",
+                        request,
+                        MlBestDateWindowDTO.class,
+                        Duration.ofSeconds(5))
+                .handle(
+                        (res, t) -> {
+                            if (t != null) {
+                                if (rejected(t)) {
+                                    return MlBestDateWindowDTO.builder().confidence(0.0).build();
+                                }
+                                log.warn(
+                                        "ML best-date-window failed after retries/circuit: {}",
+                                        t.toString());
+                                if (key != null) {
+                                    cache.putWindow(key, null);
+                                }
+                                return MlBestDateWindowDTO.builder().confidence(0.0).build();
+                            }
+                            if (key != null && res != null) {
+                                cache.putWindow(key, res);
+                            }
+                            return res;
+                        });
+    }
+
+    @Override
+    public CompletableFuture<MlRecommendationDTO> getOptionRecommendationAsync(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
+        java.util.Map<String, Object> body = features(option, request, stats);
+        double percentile = (Double) body.get("pricePercentileWithinSearch");
+
+        MlPredictionCache.RecommendationKey key =
+                cache != null ? cache.recommendationKey(option, request, percentile) : null;
+        if (key != null) {
+            MlPredictionCache.Cached<MlRecommendationDTO> hit = cache.getRecommendation(key);
+            if (hit != null) {
+                return CompletableFuture.completedFuture(
+                        hit.negative() ? baseline(option, request, percentile) : hit.value());
+            }
+        }
+
+        return post("/predict", body, MlRecommendationDTO.class, Duration.ofMillis(mlTimeoutMs))
+                .handle(
+                        (res, t) -> {
+                            if (t != null) {
+                                if (rejected(t)) {
+                                    return baseline(option, request, percentile);
+                                }
+                                log.warn(
+                                        "ML option-recommendation failed after retries/circuit for option: {}",
+                                        t.toString());
+                                res = null;
+                            } else if (res != null) {
+                                withDefaults(res);
+                            }
+                            if (key != null) {
+                                cache.putRecommendation(key, res);
+                            }
+                            return res != null ? res : baseline(option, request, percentile);
+                        });
+    }
+
+    @Override
+    public CompletableFuture<java.util.List<MlRecommendationDTO>> getOptionRecommendationsAsync(
+            java.util.List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats) {
+        if (options == null || options.isEmpty()) {
+            return CompletableFuture.completedFuture(java.util.List.of());
+        }
+        int n = options.size();
+        java.util.List<java.util.Map<String, Object>> features = new java.util.ArrayList<>(n);
+        MlPredictionCache.RecommendationKey[] keys = new MlPredictionCache.RecommendationKey[n];
+        MlRecommendationDTO[] out = new MlRecommendationDTO[n];
+
+        // Serve what the cache already knows (a negative hit leaves the slot empty for the
+        // baseline); only the misses go to the ML service
+        java.util.List<Integer> misses = new java.util.ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            java.util.Map<String, Object> f = features(options.get(i), request, stats);
+            features.add(f);
+            if (cache != null) {
+                keys[i] =
+                        cache.recommendationKey(
+                                options.get(i),
+                                request,
+                                (Double) f.get("pricePercentileWithinSearch"));
+                MlPredictionCache.Cached<MlRecommendationDTO> hit =
+                        cache.getRecommendation(keys[i]);
+                if (hit != null) {
+                    out[i] = hit.value();
+                    continue;
+                }
+            }
+            misses.add(i);
+        }
+
+        CompletableFuture<java.util.List<MlRecommendationDTO>> predictions =
+                misses.isEmpty()
+                        ? CompletableFuture.completedFuture(null)
+                        : fetchBatch(misses, features);
+        return predictions.thenApply(
+                fetched -> {
+                    // Shed by the limiter: answer with baselines without caching a failure
+                    boolean shed = fetched == REJECTED;
+                    for (int j = 0; !shed && j < misses.size(); j++) {
+                        int i = misses.get(j);
+                        MlRecommendationDTO res = fetched != null ? fetched.get(j) : null;
+                        if (res != null) {
+                            out[i] = withDefaults(res);
+                        }
+                        if (keys[i] != null) {
+                            cache.putRecommendation(keys[i], out[i]);
+                        }
+                    }
+                    java.util.List<MlRecommendationDTO> result = new java.util.ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        result.add(
+                                out[i] != null
+                                        ? out[i]
+                                        : baseline(
+                                                options.get(i),
+                                                request,
+                                                (Double)
+                                                        features.get(i)
+                                                                .get(
+                                                                        "pricePercentileWithinSearch")));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * One {@code /predict/batch} call for the given feature rows. Completes with the predictions in
+     * request order, {@link #REJECTED} if the concurrency limit shed the call, or null if the call
+     * failed or the response does not line up with the request; never completes exceptionally.
+     */
+    private CompletableFuture<java.util.List<MlRecommendationDTO>> fetchBatch(
+            java.util.List<Integer> rows, java.util.List<java.util.Map<String, Object>> features) {
+        java.util.List<java.util.Map<String, Object>> items =
+                new java.util.ArrayList<>(rows.size());
+        for (int i : rows) {
+            items.add(features.get(i));
+        }
+        return post(
+                        "/predict/batch",
+                        java.util.Map.of("items", items),
+                        BatchPredictResponse.class,
+                        Duration.ofMillis(mlTimeoutMs))
+                .handle(
+                        (res, t) -> {
+                            if (t != null) {
+                                if (rejected(t)) {
+                                    return REJECTED;
+                                }
+                                log.warn(
+                                        "ML batch recommendation failed after retries/circuit: {}",
+                                        t.toString());
+                                return null;
+                            }
+                            java.util.List<MlRecommendationDTO> predictions =
+                                    res != null ? res.predictions() : null;
+                            if (predictions != null && predictions.size() != rows.size()) {
+                                log.warn(
+                                        "ML batch returned {} predictions for {} options; using baseline",
+                                        predictions.size(),
+                                        rows.size());
+                                return null;
+                            }
+                            return predictions;
+                        });
+    }
+
+    /**
+     * POST {@code body} to {@code uri} under the ML retry and circuit breaker without blocking a
+     * thread: the exchange runs on the WebClient event loop, the timeout on Reactor's timer, and
+     * retry back-off waits are scheduled on {@link #RETRY_SCHEDULER}.
+     *
+     * <p>The whole call, retries included, holds one permit of the shared concurrency limit; when
+     * none is free the future fails at once with {@link
+     * AdaptiveConcurrencyLimiter.LimitExceededException} so callers fall back without waiting.
+     */
+    private <T> CompletableFuture<T> post(
+            String uri, Object body, Class<T> type, Duration timeout) {
+        AdaptiveConcurrencyLimiter.Permit permit = null;
+        if (limiter != null) {
+            permit = limiter.tryAcquire();
+            if (permit == null) {
+                return CompletableFuture.failedFuture(
+                        new AdaptiveConcurrencyLimiter.LimitExceededException(limiter.getLimit()));
+            }
+        }
+        Supplier<CompletionStage<T>> call =
                 () ->
                         webClient
                                 .post()
-                                .uri("/predict/best-date-window")
+                                .uri(uri)
                                 .contentType(MediaType.APPLICATION_JSON)
-                                .bodyValue(request)
+                                .bodyValue(body)
                                 .retrieve()
-                                .bodyToMono(MlBestDateWindowDTO.class)
-                                .timeout(Duration.ofSeconds(5))
-                                .block();
-
+                                .bodyToMono(type)
+                                .timeout(timeout)
+                                .toFuture();
+        CompletableFuture<T> result;
         try {
-            java.util.concurrent.Callable<MlBestDateWindowDTO> decorated =
-                    io.github.resilience4j.retry.Retry.decorateCallable(
-                            retry,
-                            io.github.resilience4j.circuitbreaker.CircuitBreaker.decorateCallable(
-                                    circuitBreaker, supplier));
-            return decorated.call();
+            result =
+                    Retry.decorateCompletionStage(
+                                    retry,
+                                    RETRY_SCHEDULER,
+                                    CircuitBreaker.decorateCompletionStage(circuitBreaker, call))
+                            .get()
+                            .toCompletableFuture();
         } catch (Throwable t) {
-            log.warn("ML best-date-window failed after retries/circuit: {}", t.toString());
-            return MlBestDateWindowDTO.builder().confidence(0.0).build();
+            result = CompletableFuture.failedFuture(t);
+        }
+        if (permit != null) {
+            // Chained (not a side branch) so the permit is back before callers see the result
+            AdaptiveConcurrencyLimiter.Permit held = permit;
+            result =
+                    result.whenComplete(
+                            (res, t) -> {
+                                if (t == null) {
+                                    held.success();
+                                } else if (unwrap(t)
+                                        instanceof
+                                        io.github.resilience4j.circuitbreaker
+                                                .CallNotPermittedException) {
+                                    // An open breaker says nothing about the service's current
+                                    // latency
+                                    held.ignore();
+                                } else {
+                                    held.dropped();
+                                }
+                            });
         }
+        return result;
     }
 
-    @Override
-    public MlRecommendationDTO getOptionRecommendation(
-            TripOptionSummaryDTO option,
-            TripSearchRequestDTO request,
-            java.util.List<TripOptionSummaryDTO> allOptions) {
+    /** Marker result of {@link #fetchBatch} for a call shed by the concurrency limit. */
+    private static final java.util.List<MlRecommendationDTO> REJECTED =
+            java.util.Collections.unmodifiableList(new java.util.ArrayList<>(0));
+
+    private static boolean rejected(Throwable t) {
+        return unwrap(t) instanceof AdaptiveConcurrencyLimiter.LimitExceededException;
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof java.util.concurrent.CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /** Response body of {@code POST /predict/batch}, predictions in request order. */
+    record BatchPredictResponse(java.util.List<MlRecommendationDTO> predictions) {}
+
+    /** Feature payload for one option, shared by the single and batch endpoints. */
+    private java.util.Map<String, Object> features(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, SearchStats stats) {
         var body = new java.util.HashMap<String, Object>();
         body.put(
                 "route",
@@ -137,67 +456,27 @@ public class WebClientMlClient implements MlClient {
                 "airlineCode",
                 option.getFlight() != null ? option.getFlight().getAirlineCode() : null);
 
-        // compute percentile
-        double percentile = 0.5;
-        if (allOptions != null && !allOptions.isEmpty()) {
-            int less = 0;
-            double price =
-                    option.getTotalPrice() != null ? option.getTotalPrice().doubleValue() : 0.0;
-            for (TripOptionSummaryDTO o : allOptions) {
-                double p = o.getTotalPrice() != null ? o.getTotalPrice().doubleValue() : 0.0;
-                if (p < price) less++;
-            }
-            percentile = ((double) less) / allOptions.size();
-        }
+        double percentile = stats != null ? stats.fractionBelow(option.getTotalPrice()) : 0.5;
         body.put("pricePercentileWithinSearch", percentile);
+        return body;
+    }
 
-        java.util.concurrent.Callable<MlRecommendationDTO> supplier =
-                () ->
-                        webClient
-                                .post()
-                                .uri("/predict")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .bodyValue(body)
-                                .retrieve()
-                                .bodyToMono(MlRecommendationDTO.class)
-                                .timeout(Duration.ofMillis(this.mlTimeoutMs))
-                                .block();
-
-        try {
-            java.util.concurrent.Callable<MlRecommendationDTO> decorated =
-                    io.github.resilience4j.retry.Retry.decorateCallable(
-                            retry,
-                            io.github.resilience4j.circuitbreaker.CircuitBreaker.decorateCallable(
-                                    circuitBreaker, supplier));
-            MlRecommendationDTO res = decorated.call();
-            if (res != null) {
-                // ensure legacy fields and sensible defaults are populated
-                if (res.getPriceTrend() == null) res.setPriceTrend("unknown");
-                if (res.getTrend() == null) res.setTrend("stable");
-                if (res.getIsGoodDeal() == null)
-                    res.setIsGoodDeal(Boolean.valueOf("BUY".equalsIgnoreCase(res.getAction())));
-                if (res.getNote() == null) res.setNote("ML result");
-                if (res.getReasons() == null) res.setReasons(java.util.List.of());
-                if (res.getConfidence() == null) res.setConfidence(0.0);
-                return res;
-            }
-        } catch (Throwable t) {
-            log.warn(
-                    "ML option-recommendation failed after retries/circuit for option: {}",
-                    t.toString());
-        }
+    /** Ensure legacy fields and sensible defaults are populated on an ML result. */
+    private static MlRecommendationDTO withDefaults(MlRecommendationDTO res) {
+        if (res.getPriceTrend() == null) res.setPriceTrend("unknown");
+        if (res.getTrend() == null) res.setTrend("stable");
+        if (res.getIsGoodDeal() == null)
+            res.setIsGoodDeal(Boolean.valueOf("BUY".equalsIgnoreCase(res.getAction())));
+        if (res.getNote() == null) res.setNote("ML result");
+        if (res.getReasons() == null) res.setReasons(java.util.List.of());
+        if (res.getConfidence() == null) res.setConfidence(0.0);
+        return res;
+    }
 
-        // fallback: deterministic baseline similar to SimpleMlClient
-        double pricePercentile = 0.5;
-        if (option.getTotalPrice() != null && allOptions != null && !allOptions.isEmpty()) {
-            int less = 0;
-            double price = option.getTotalPrice().doubleValue();
-            for (TripOptionSummaryDTO o : allOptions) {
-                double p = o.getTotalPrice() != null ? o.getTotalPrice().doubleValue() : 0.0;
-                if (p < price) less++;
-            }
-            pricePercentile = ((double) less) / allOptions.size();
-        }
+    /** Deterministic baseline similar to SimpleMlClient, used when ML is unavailable. */
+    private static MlRecommendationDTO baseline(
+            TripOptionSummaryDTO option, TripSearchRequestDTO request, double percentile) {
+        double pricePercentile = option.getTotalPrice() != null ? percentile : 0.5;
         long daysToDepartureFallback =
                 java.time.temporal.ChronoUnit.DAYS.between(
                         java.time.LocalDate.now(), request.getEarliestDepartureDate());
@@ -220,10 +499,25 @@ public class WebClientMlClient implements MlClient {
         return fallback;
     }
 
+    /** Schedules retry back-off waits for the async calls; daemon so it never holds the JVM. */
+    private static final ScheduledExecutorService RETRY_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(
+                    r -> {
+                        Thread t = new Thread(r, "ml-retry");
+                        t.setDaemon(true);
+                        return t;
+                    });
+
     // programmatic resilience fields
     private final Retry retry;
     private final CircuitBreaker circuitBreaker;
 
+    /** Prediction cache; null when disabled. */
+    private final MlPredictionCache cache;
+
+    /** Concurrency limit shared by every search; null when disabled. */
+    private final AdaptiveConcurrencyLimiter limiter;
+
     @PostConstruct
     void init() {
         log.info("ML client active: webclient (ml.client=webclient)");
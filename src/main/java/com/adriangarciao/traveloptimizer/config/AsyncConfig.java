@@ -3,12 +3,15 @@ package com.adriangarciao.traveloptimizer.config;
 import java.util.concurrent.Executor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class AsyncConfig {
 
+    // Primary so unqualified Executor injection is unaffected by the scheduler's taskScheduler
     @Bean("taskExecutor")
+    @Primary
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor exec = new ThreadPoolTaskExecutor();
         exec.setCorePoolSize(10);
@@ -1,15 +1,21 @@
 package com.adriangarciao.traveloptimizer.config;
 
+import com.adriangarciao.traveloptimizer.cache.EarlyExpirationCacheManager;
+import com.adriangarciao.traveloptimizer.cache.TwoTierCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * Fallback cache configuration used when a Redis-backed CacheManager is not available or
- * intentionally disabled for local development. Provides a simple in-memory cache so the
- * application continues to function without Redis.
+ * intentionally disabled for local development. Provides a bounded in-memory cache (the L1 tier of
+ * {@link TwoTierCacheManager} with no L2) so the application continues to function without Redis
+ * and without unbounded heap growth. Negative results keep their short TTL in every cache; caches
+ * configured for early expiration are also wrapped by {@link EarlyExpirationCacheManager}.
  */
 @Configuration
 public class FallbackCacheConfig {
@@ -19,9 +25,14 @@ public class FallbackCacheConfig {
 
     @Bean
     @ConditionalOnMissingBean(CacheManager.class)
-    public CacheManager concurrentMapCacheManager() {
+    public CacheManager localCacheManager(
+            Environment environment, ObjectProvider<MeterRegistry> meterRegistryProvider) {
         log.info(
-                "No Redis CacheManager present; using in-memory fallback CacheManager for local dev.");
-        return new ConcurrentMapCacheManager();
+                "No Redis CacheManager present; using bounded in-memory fallback CacheManager for local dev.");
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        return EarlyExpirationCacheManager.fromEnvironment(
+                environment,
+                TwoTierCacheManager.fromEnvironment(environment, null, meterRegistry),
+                meterRegistry);
     }
 }
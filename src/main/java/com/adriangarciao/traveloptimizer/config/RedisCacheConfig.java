@@ -1,13 +1,24 @@
 package com.adriangarciao.traveloptimizer.config;
 
+import com.adriangarciao.traveloptimizer.cache.CompactRedisSerializer;
+import com.adriangarciao.traveloptimizer.cache.EarlyExpirationCacheManager;
+import com.adriangarciao.traveloptimizer.cache.EarlyExpiringCache;
+import com.adriangarciao.traveloptimizer.cache.NegativeResultTtl;
+import com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache;
+import com.adriangarciao.traveloptimizer.cache.TwoTierCacheManager;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -31,8 +42,29 @@ public class RedisCacheConfig {
     @Value("${app.cache.ttl.seconds:900}")
     private long defaultTtlSeconds;
 
+    /** Put a bounded in-process L1 in front of Redis (see {@link TwoTierCacheManager}). */
+    @Value("${app.cache.local.enabled:true}")
+    private boolean localTierEnabled = true;
+
+    /**
+     * Value codec for caches with a known value type: {@code compact} (see {@link
+     * CompactRedisSerializer}) or {@code json} for the legacy typed JSON. Compact readers also read
+     * legacy entries, so roll out with {@code json}, then switch once every instance can read both.
+     */
+    @Value("${app.cache.redis.codec:compact}")
+    private String codec = "compact";
+
+    @Value("${app.cache.redis.compression-threshold-bytes:1024}")
+    private int compressionThresholdBytes = 1024;
+
+    @Value("${app.cache.response-body.ttl-seconds:300}")
+    private long responseBodyTtlSeconds = 300;
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(
+            RedisConnectionFactory redisConnectionFactory,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         mapper.setDateFormat(new StdDateFormat());
@@ -41,9 +73,22 @@ public class RedisCacheConfig {
         GenericJackson2JsonRedisSerializer serializer =
                 new GenericJackson2JsonRedisSerializer(mapper);
 
+        // Negative results also expire sooner in Redis itself, not only logically
+        Duration defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        NegativeResultTtl negativeTtl = NegativeResultTtl.fromEnvironment(environment);
         RedisCacheConfiguration config =
                 RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofSeconds(defaultTtlSeconds))
+                        .entryTtl(
+                                (key, value) -> {
+                                    Duration ttl =
+                                            negativeTtl.ttlFor(
+                                                    value instanceof EarlyExpiringCache.Entry<?> e
+                                                            ? e.getValue()
+                                                            : value);
+                                    return ttl != null && ttl.compareTo(defaultTtl) < 0
+                                            ? ttl
+                                            : defaultTtl;
+                                })
                         .serializeValuesWith(
                                 RedisSerializationContext.SerializationPair.fromSerializer(
                                         serializer));
@@ -51,6 +96,44 @@ public class RedisCacheConfig {
         // Build a RedisCacheManager using the provided connection factory. Do not swallow
         // or fallback on failures here — allow connection issues to surface so misconfiguration
         // is detected during integration tests.
-        return RedisCacheManager.builder(redisConnectionFactory).cacheDefaults(config).build();
+        RedisCacheManager.RedisCacheManagerBuilder builder =
+                RedisCacheManager.builder(redisConnectionFactory).cacheDefaults(config);
+        if ("compact".equalsIgnoreCase(codec)) {
+            ObjectMapper compactMapper = CompactRedisSerializer.defaultMapper();
+            // Early-expiring caches store their values wrapped in an entry with expiry metadata
+            JavaType valueType =
+                    EarlyExpirationCacheManager.configuredCaches(environment)
+                                    .containsKey("tripSearchCache")
+                            ? compactMapper
+                                    .getTypeFactory()
+                                    .constructParametricType(
+                                            EarlyExpiringCache.Entry.class,
+                                            TripSearchResponseDTO.class)
+                            : compactMapper.constructType(TripSearchResponseDTO.class);
+            builder.withCacheConfiguration(
+                    "tripSearchCache",
+                    config.serializeValuesWith(
+                            RedisSerializationContext.SerializationPair.fromSerializer(
+                                    new CompactRedisSerializer<>(
+                                            compactMapper, valueType, compressionThresholdBytes))));
+        }
+        // Pre-serialized response bodies are stored as the raw bytes that are sent to clients
+        builder.withCacheConfiguration(
+                SearchResponseBodyCache.CACHE_NAME,
+                config.entryTtl(Duration.ofSeconds(responseBodyTtlSeconds))
+                        .serializeValuesWith(
+                                RedisSerializationContext.SerializationPair.byteArray()));
+        RedisCacheManager redis = builder.build();
+        // Not a bean itself, so initialize it here; otherwise the per-cache configurations above
+        // are never loaded and every cache gets the defaults
+        redis.afterPropertiesSet();
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (!localTierEnabled) {
+            return EarlyExpirationCacheManager.fromEnvironment(environment, redis, meterRegistry);
+        }
+        return EarlyExpirationCacheManager.fromEnvironment(
+                environment,
+                TwoTierCacheManager.fromEnvironment(environment, redis, meterRegistry),
+                meterRegistry);
     }
 }
@@ -0,0 +1,18 @@
+package com.adriangarciao.traveloptimizer.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (e.g. price rollup compaction). Set {@code
+ * app.scheduling.enabled=false} to run without them.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(
+        prefix = "app.scheduling",
+        name = "enabled",
+        havingValue = "true",
+        matchIfMissing = true)
+public class SchedulingConfig {}
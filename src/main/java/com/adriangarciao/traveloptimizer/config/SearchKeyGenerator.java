@@ -1,11 +1,18 @@
 package com.adriangarciao.traveloptimizer.config;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.adriangarciao.traveloptimizer.dto.PreferencesDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripType;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,25 +22,73 @@ public class SearchKeyGenerator {
 
     @Bean("tripSearchKeyGenerator")
     public KeyGenerator keyGenerator() {
-        return new KeyGenerator() {
-            private final ObjectMapper mapper =
-                    new ObjectMapper()
-                            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
-                            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        return (Object target, Method method, Object... params) ->
+                params.length > 0 && params[0] instanceof TripSearchRequestDTO request
+                        ? canonicalKey(request)
+                        : (params.length > 0 ? String.valueOf(params[0]) : "search");
+    }
+
+    /**
+     * Cache key for the full result set of a search. Only fields that change the results are
+     * included, normalized so equivalent requests share a key: IATA codes trimmed and upper-cased,
+     * a missing trip type read as one-way, budget without trailing zeros, absent preferences equal
+     * to default ones, and preferred airlines de-duplicated and sorted. Sort order and limit are
+     * deliberately not part of the key; they are applied after the lookup.
+     */
+    public static String canonicalKey(TripSearchRequestDTO request) {
+        TripType tripType =
+                request.getTripType() != null ? request.getTripType() : TripType.ONE_WAY;
+        PreferencesDTO prefs = request.getPreferences();
+        String canonical =
+                String.join(
+                        "|",
+                        "v1",
+                        tripType.name(),
+                        code(request.getOrigin()),
+                        code(request.getDestination()),
+                        Objects.toString(request.getEarliestDepartureDate(), ""),
+                        Objects.toString(request.getLatestDepartureDate(), ""),
+                        Objects.toString(request.getEarliestReturnDate(), ""),
+                        Objects.toString(request.getLatestReturnDate(), ""),
+                        budget(request.getMaxBudget()),
+                        Integer.toString(request.getNumTravelers()),
+                        prefs != null && prefs.isNonStopOnly() ? "nonstop" : "",
+                        prefs != null && prefs.getMaxLayovers() != null
+                                ? prefs.getMaxLayovers().toString()
+                                : "",
+                        airlines(prefs != null ? prefs.getPreferredAirlines() : null),
+                        prefs != null && prefs.getLodgingType() != null
+                                ? prefs.getLodgingType().trim().toLowerCase(Locale.ROOT)
+                                : "");
+        try {
+            byte[] hash =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256; fall back to the readable form just in case
+            return canonical;
+        }
+    }
+
+    private static String code(String iata) {
+        return iata == null ? "" : iata.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String budget(BigDecimal budget) {
+        return budget == null ? "" : budget.stripTrailingZeros().toPlainString();
+    }
 
-            @Override
-            public Object generate(Object target, Method method, Object... params) {
-                try {
-                    String json = mapper.writeValueAsString(params[0]);
-                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
-                    byte[] hash =
-                            digest.digest(json.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-                    return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
-                } catch (JsonProcessingException | java.security.NoSuchAlgorithmException e) {
-                    // fallback: use toString if serialization fails
-                    return params.length > 0 ? params[0].toString() : "search";
-                }
+    private static String airlines(List<String> airlines) {
+        if (airlines == null || airlines.isEmpty()) {
+            return "";
+        }
+        TreeSet<String> codes = new TreeSet<>();
+        for (String airline : airlines) {
+            if (airline != null && !airline.isBlank()) {
+                codes.add(code(airline));
             }
-        };
+        }
+        return String.join(",", codes);
     }
 }
@@ -0,0 +1,26 @@
+package com.adriangarciao.traveloptimizer.controller;
+
+import com.adriangarciao.traveloptimizer.dto.CacheWarmingStatusDTO;
+import com.adriangarciao.traveloptimizer.service.CacheWarmingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** Read-only view of the search cache warmer. */
+@RestController
+@RequestMapping("/api/cache/warming")
+public class CacheWarmingController {
+
+    private final CacheWarmingService cacheWarmingService;
+
+    public CacheWarmingController(CacheWarmingService cacheWarmingService) {
+        this.cacheWarmingService = cacheWarmingService;
+    }
+
+    /** The warm set, hottest first, with refresh and hit counts. */
+    @GetMapping
+    public ResponseEntity<CacheWarmingStatusDTO> status() {
+        return ResponseEntity.ok(cacheWarmingService.status());
+    }
+}
@@ -1,17 +1,26 @@
 package com.adriangarciao.traveloptimizer.controller;
 
+import com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache;
+import com.adriangarciao.traveloptimizer.dto.FlagCode;
 import com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO;
+import com.adriangarciao.traveloptimizer.dto.TripRecommendationsDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.service.CacheWarmingService;
+import com.adriangarciao.traveloptimizer.service.MlEnrichmentService;
 import com.adriangarciao.traveloptimizer.service.TripSearchService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -29,25 +38,124 @@ public class TripSearchController {
     private final TripSearchService tripSearchService;
     private final com.adriangarciao.traveloptimizer.repository.TripSearchRepository
             tripSearchRepository;
+    private final MlEnrichmentService mlEnrichmentService;
+    private final SearchResponseBodyCache responseBodyCache;
+    private final CacheWarmingService cacheWarmingService;
     private static final Logger log = LoggerFactory.getLogger(TripSearchController.class);
 
     public TripSearchController(
             TripSearchService tripSearchService,
             com.adriangarciao.traveloptimizer.repository.TripSearchRepository
                     tripSearchRepository) {
+        this(tripSearchService, tripSearchRepository, null);
+    }
+
+    public TripSearchController(
+            TripSearchService tripSearchService,
+            com.adriangarciao.traveloptimizer.repository.TripSearchRepository tripSearchRepository,
+            MlEnrichmentService mlEnrichmentService) {
+        this(tripSearchService, tripSearchRepository, mlEnrichmentService, null);
+    }
+
+    public TripSearchController(
+            TripSearchService tripSearchService,
+            com.adriangarciao.traveloptimizer.repository.TripSearchRepository tripSearchRepository,
+            MlEnrichmentService mlEnrichmentService,
+            SearchResponseBodyCache responseBodyCache) {
+        this(tripSearchService, tripSearchRepository, mlEnrichmentService, responseBodyCache, null);
+    }
+
+    @Autowired
+    public TripSearchController(
+            TripSearchService tripSearchService,
+            com.adriangarciao.traveloptimizer.repository.TripSearchRepository tripSearchRepository,
+            @Autowired(required = false) MlEnrichmentService mlEnrichmentService,
+            @Autowired(required = false) SearchResponseBodyCache responseBodyCache,
+            @Autowired(required = false) CacheWarmingService cacheWarmingService) {
         this.tripSearchService = tripSearchService;
         this.tripSearchRepository = tripSearchRepository;
+        this.mlEnrichmentService = mlEnrichmentService;
+        this.responseBodyCache = responseBodyCache;
+        this.cacheWarmingService = cacheWarmingService;
+    }
+
+    public ResponseEntity<TripSearchResponseDTO> searchTrips(
+            TripSearchRequestDTO request, Integer limit, String sortBy, String sortDir) {
+        return searchTrips(request, limit, sortBy, sortDir, null, null);
     }
 
+    /**
+     * Run a search. With the response body cache enabled, cached bodies are written to {@code
+     * servletResponse} as stored bytes (gzip-encoded if the client accepts it) and null is
+     * returned, so the result set is not serialized again.
+     */
     @PostMapping("/search")
     public ResponseEntity<TripSearchResponseDTO> searchTrips(
             @Valid @RequestBody TripSearchRequestDTO request,
             @RequestParam(value = "limit", required = false) Integer limit,
             @RequestParam(value = "sortBy", required = false) String sortBy,
-            @RequestParam(value = "sortDir", required = false) String sortDir) {
-        TripSearchResponseDTO response =
-                tripSearchService.searchTrips(request, limit, sortBy, sortDir);
+            @RequestParam(value = "sortDir", required = false) String sortDir,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+            HttpServletResponse servletResponse) {
+        try {
+            if (servletResponse != null
+                    && responseBodyCache != null
+                    && responseBodyCache.isEnabled()) {
+                String key = responseBodyCache.key(request, limit, sortBy, sortDir);
+                byte[] body = responseBodyCache.get(key);
+                if (body != null && cacheWarmingService != null) {
+                    // The search cache is not consulted, so report the lookup here
+                    cacheWarmingService.recordLookup(request, true);
+                }
+                if (body == null) {
+                    TripSearchResponseDTO response =
+                            tripSearchService.searchTrips(request, limit, sortBy, sortDir);
+                    if (!SearchResponseBodyCache.isCacheable(response)) {
+                        return ResponseEntity.ok()
+                                .headers(providerHeaders(response))
+                                .body(response);
+                    }
+                    body = responseBodyCache.put(key, response);
+                }
+                writeBody(servletResponse, body, acceptEncoding);
+                return null;
+            }
+
+            TripSearchResponseDTO response =
+                    tripSearchService.searchTrips(request, limit, sortBy, sortDir);
+            return ResponseEntity.ok().headers(providerHeaders(response)).body(response);
+        } catch (IllegalArgumentException e) {
+            // Unsupported sortBy
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
+    /** Write a stored body for a successful search (cached bodies are always provider OK). */
+    private static void writeBody(
+            HttpServletResponse servletResponse, byte[] body, String acceptEncoding) {
+        servletResponse.setStatus(org.springframework.http.HttpStatus.OK.value());
+        servletResponse.setContentType(org.springframework.http.MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setHeader("X-Provider-Status", "OK");
+        servletResponse.setHeader(org.springframework.http.HttpHeaders.VARY, "Accept-Encoding");
+        if (SearchResponseBodyCache.isGzipped(body)) {
+            if (acceptEncoding != null
+                    && acceptEncoding.toLowerCase(java.util.Locale.ROOT).contains("gzip")) {
+                servletResponse.setHeader(
+                        org.springframework.http.HttpHeaders.CONTENT_ENCODING, "gzip");
+            } else {
+                body = SearchResponseBodyCache.gunzip(body);
+            }
+        }
+        servletResponse.setContentLength(body.length);
+        try {
+            servletResponse.getOutputStream().write(body);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static org.springframework.http.HttpHeaders providerHeaders(
+            TripSearchResponseDTO response) {
         // Add provider status headers
         org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
         if (response.getFlightProviderStatus() != null) {
@@ -65,8 +173,7 @@ public class TripSearchController {
         } else {
             headers.set("X-Provider-Status", "OK");
         }
-
-        return ResponseEntity.ok().headers(headers).body(response);
+        return headers;
     }
 
     @GetMapping("/{searchId}/options")
@@ -75,9 +182,28 @@ public class TripSearchController {
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
             @RequestParam(value = "sortBy", required = false) String sortBy,
-            @RequestParam(value = "sortDir", required = false) String sortDir) {
-        TripOptionsPageDTO pageDto =
-                tripSearchService.getOptions(searchId, page, size, sortBy, sortDir);
+            @RequestParam(value = "sortDir", required = false) String sortDir,
+            @RequestParam(value = "includeFlags", required = false)
+                    java.util.List<String> includeFlags,
+            @RequestParam(value = "excludeFlags", required = false)
+                    java.util.List<String> excludeFlags,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        java.util.Set<FlagCode> required;
+        java.util.Set<FlagCode> excluded;
+        TripOptionsPageDTO pageDto;
+        try {
+            required = parseFlags(includeFlags);
+            excluded = parseFlags(excludeFlags);
+            // A cursor from a previous page seeks past it; page, sortBy and sortDir are ignored
+            pageDto =
+                    cursor != null && !cursor.isBlank()
+                            ? tripSearchService.getOptionsAfter(
+                                    searchId, cursor, size, required, excluded)
+                            : tripSearchService.getOptions(
+                                    searchId, page, size, sortBy, sortDir, required, excluded);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
         // Provider status is not available in pagination endpoint, default to OK
         org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
@@ -86,6 +212,54 @@ public class TripSearchController {
         return ResponseEntity.ok().headers(headers).body(pageDto);
     }
 
+    /**
+     * ML recommendations stored by background enrichment. The ETag changes whenever a run
+     * completes, so pollers can send {@code If-None-Match} and get a bodiless 304 until then. The
+     * header is matched as HTTP defines it: weak tags, {@code *} and lists of tags all count.
+     */
+    @GetMapping("/{searchId}/recommendations")
+    public ResponseEntity<TripRecommendationsDTO> getRecommendations(
+            @PathVariable("searchId") java.util.UUID searchId,
+            org.springframework.web.context.request.WebRequest webRequest) {
+        if (mlEnrichmentService == null) {
+            return ResponseEntity.notFound().build();
+        }
+        MlEnrichmentService.State state = mlEnrichmentService.getState(searchId);
+        if (state == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = state.etag();
+        String ifNoneMatch = webRequest != null ? webRequest.getHeader("If-None-Match") : null;
+        // Spring matches "*" only for unsafe methods; for a GET it means any current state
+        if (ifNoneMatch != null
+                && (ifNoneMatch.trim().equals("*") || webRequest.checkNotModified(etag))) {
+            return ResponseEntity.status(org.springframework.http.HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .build();
+        }
+        TripRecommendationsDTO body = mlEnrichmentService.getRecommendations(searchId);
+        if (body == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Re-derive from the body so the tag matches what was actually read
+        return ResponseEntity.ok()
+                .eTag(new MlEnrichmentService.State(body.getVersion(), body.getStatus()).etag())
+                .body(body);
+    }
+
+    /** Flag codes from a repeated or comma-separated request parameter. */
+    private static java.util.Set<FlagCode> parseFlags(java.util.List<String> codes) {
+        java.util.Set<FlagCode> flags = java.util.EnumSet.noneOf(FlagCode.class);
+        if (codes != null) {
+            for (String code : codes) {
+                if (code != null && !code.isBlank()) {
+                    flags.add(FlagCode.fromCode(code));
+                }
+            }
+        }
+        return flags;
+    }
+
     @GetMapping("/recent")
     public ResponseEntity<java.util.List<java.util.Map<String, Object>>> recent(
             @RequestParam(value = "limit", defaultValue = "10") int limit) {
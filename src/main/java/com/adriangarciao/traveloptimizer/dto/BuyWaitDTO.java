@@ -27,6 +27,9 @@ public class BuyWaitDTO implements Serializable {
     /** Price percentile within this search: 0.0 = cheapest, 1.0 = most expensive */
     private Double pricePercentile;
 
+    /** Price percentile against route history, null when the route has too little history */
+    private Double historicalPercentile;
+
     /** Deal rating: GREAT, GOOD, FAIR, POOR based on price percentile */
     private String dealRating;
 
@@ -0,0 +1,65 @@
+package com.adriangarciao.traveloptimizer.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** The searches the cache warmer keeps warm, and how often users hit them. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheWarmingStatusDTO implements Serializable {
+    private boolean enabled;
+
+    /** Warming is paused until this time after the provider reported rate limiting; else null. */
+    private Instant pausedUntil;
+
+    private Instant lastRunAt;
+
+    /** Refreshes since startup, and how many of them the provider failed. */
+    private long refreshes;
+
+    private long failedRefreshes;
+
+    /** User lookups of warm searches since startup, and how many were cache hits. */
+    private long lookups;
+
+    private long hits;
+
+    /** {@code hits / lookups}, or null before the first lookup. */
+    private Double hitRatio;
+
+    /** Hottest first. */
+    private List<WarmSearch> searches;
+
+    /** One warm search and its popularity over the ranking window. */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WarmSearch implements Serializable {
+        private TripType tripType;
+        private String origin;
+        private String destination;
+        private LocalDate earliestDepartureDate;
+        private LocalDate latestDepartureDate;
+        private LocalDate earliestReturnDate;
+        private LocalDate latestReturnDate;
+        private int numTravelers;
+        private BigDecimal maxBudget;
+
+        /** User lookups over the ranking window, or persisted searches if those are more. */
+        private long searchCount;
+
+        private Instant lastRefreshedAt;
+        private long lookups;
+        private long hits;
+    }
+}
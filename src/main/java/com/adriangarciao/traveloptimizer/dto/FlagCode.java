@@ -1,8 +1,13 @@
 package com.adriangarciao.traveloptimizer.dto;
 
+import java.util.Collection;
+
 /**
  * Codes identifying specific flight rules/flags. These are stable string values used by the
  * frontend.
+ *
+ * <p>Each code also owns one bit of {@code trip_option.flag_mask}, assigned by declaration order.
+ * Append new codes at the end; reordering would change the meaning of persisted masks.
  */
 public enum FlagCode {
     // Positive flags
@@ -29,6 +34,39 @@ public enum FlagCode {
         return code;
     }
 
+    /** Bit for this code in a persisted flag mask. */
+    public long mask() {
+        return 1L << ordinal();
+    }
+
+    /** Combined mask of the given codes, 0 for null or empty. */
+    public static long maskOf(Collection<FlagCode> codes) {
+        long mask = 0L;
+        if (codes != null) {
+            for (FlagCode code : codes) {
+                mask |= code.mask();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Resolve a stable code ("tight_connection") or enum name ("TIGHT_CONNECTION").
+     *
+     * @throws IllegalArgumentException if the value matches no flag
+     */
+    public static FlagCode fromCode(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (FlagCode flag : values()) {
+                if (flag.code.equalsIgnoreCase(trimmed) || flag.name().equalsIgnoreCase(trimmed)) {
+                    return flag;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown flag code: " + value);
+    }
+
     @Override
     public String toString() {
         return code;
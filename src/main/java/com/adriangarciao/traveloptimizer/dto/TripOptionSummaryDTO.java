@@ -11,7 +11,7 @@ import lombok.NoArgsConstructor;
 
 /** Summary representation of a single trip option (flight + lodging). */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class TripOptionSummaryDTO implements Serializable {
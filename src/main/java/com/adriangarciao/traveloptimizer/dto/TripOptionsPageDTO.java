@@ -27,4 +27,11 @@ public class TripOptionsPageDTO implements Serializable {
      * should show "No further options" instead of a next button.
      */
     @Builder.Default private boolean hasMore = true;
+
+    /**
+     * Opaque cursor for the page after this one, to pass back as {@code cursor}; null when no more
+     * options are stored or the sort does not support keyset paging (valueScore, totalPrice and
+     * duration do). Pages fetched by cursor keep the sort of the page that issued it.
+     */
+    private String nextCursor;
 }
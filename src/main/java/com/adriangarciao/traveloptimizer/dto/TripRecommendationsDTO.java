@@ -0,0 +1,37 @@
+package com.adriangarciao.traveloptimizer.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** ML recommendations stored for a search by background enrichment, for clients to poll. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripRecommendationsDTO implements Serializable {
+    private UUID searchId;
+
+    /** Incremented whenever new recommendations are written; also sent as the ETag. */
+    private long version;
+
+    /** PENDING while enrichment runs, then READY or FAILED; null if none was requested. */
+    private String status;
+
+    private List<OptionRecommendation> recommendations;
+
+    /** Recommendation for one trip option, with the buy/wait it implies. */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OptionRecommendation implements Serializable {
+        private UUID tripOptionId;
+        private MlRecommendationDTO mlRecommendation;
+        private BuyWaitDTO buyWait;
+    }
+}
@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 
 /** Response payload returned from a trip search request. */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class TripSearchResponseDTO implements Serializable {
@@ -89,8 +89,13 @@ public class TripOptionMapper {
         if (entity.getMlRecommendationJson() != null
                 && !entity.getMlRecommendationJson().isBlank()) {
             try {
+                // Stored JSON also carries the derived "goodDeal" property, which has no setter
                 com.fasterxml.jackson.databind.ObjectMapper om =
-                        new com.fasterxml.jackson.databind.ObjectMapper();
+                        new com.fasterxml.jackson.databind.ObjectMapper()
+                                .configure(
+                                        com.fasterxml.jackson.databind.DeserializationFeature
+                                                .FAIL_ON_UNKNOWN_PROPERTIES,
+                                        false);
                 com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO ml =
                         om.readValue(
                                 entity.getMlRecommendationJson(),
@@ -101,6 +106,23 @@ public class TripOptionMapper {
             }
         }
 
+        // map flags stored when the search's options were evaluated
+        if (entity.getFlagsJson() != null && !entity.getFlagsJson().isBlank()) {
+            try {
+                com.fasterxml.jackson.databind.ObjectMapper om =
+                        new com.fasterxml.jackson.databind.ObjectMapper();
+                dto.setFlags(
+                        om.readValue(
+                                entity.getFlagsJson(),
+                                new com.fasterxml.jackson.core.type.TypeReference<
+                                        java.util.List<
+                                                com.adriangarciao.traveloptimizer.dto
+                                                        .TripFlagDTO>>() {}));
+            } catch (Exception e) {
+                // ignore parse errors
+            }
+        }
+
         // map lodging option; provide fallback object if missing
         if (entity.getLodgingOption() != null) {
             LodgingOption lOpt = entity.getLodgingOption();
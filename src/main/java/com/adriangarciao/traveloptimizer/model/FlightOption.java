@@ -25,10 +25,8 @@ public class FlightOption implements java.io.Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(generator = "UUID")
-    @org.hibernate.annotations.GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator")
+    @org.hibernate.annotations.UuidGenerator(
+            style = org.hibernate.annotations.UuidGenerator.Style.VERSION_7)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
@@ -45,12 +43,30 @@ public class FlightOption implements java.io.Serializable {
     @Column(name = "departure_date")
     private LocalDate departureDate;
 
-    @ElementCollection
-    @CollectionTable(
-            name = "flight_option_segments",
-            joinColumns = @JoinColumn(name = "flight_option_id"))
-    @Column(name = "segment")
-    private List<String> segments;
+    /** Outbound legs in flight order, stored as one JSON column rather than a row per leg. */
+    @Convert(converter = FlightSegmentListConverter.class)
+    @Column(name = "legs_json", columnDefinition = "text")
+    private List<FlightSegment> legs;
+
+    // === Outbound leg summary, derived from legs on save so flag rules need not load them ===
+    @Column(name = "departure_hour")
+    private Integer departureHour;
+
+    @Column(name = "min_layover_minutes")
+    private Integer minLayoverMinutes;
+
+    @Column(name = "min_layover_airport", length = 8)
+    private String minLayoverAirport;
+
+    @Column(name = "max_layover_minutes")
+    private Integer maxLayoverMinutes;
+
+    @Column(name = "max_layover_airport", length = 8)
+    private String maxLayoverAirport;
+
+    /** True once the summary columns above have been derived from the legs. */
+    @Column(name = "legs_summarized")
+    private boolean legsSummarized;
 
     @Column(name = "price", precision = 19, scale = 2)
     private BigDecimal price;
@@ -77,15 +93,79 @@ public class FlightOption implements java.io.Serializable {
     @Column(name = "return_date")
     private LocalDate returnDate;
 
-    @ElementCollection
-    @CollectionTable(
-            name = "flight_option_return_segments",
-            joinColumns = @JoinColumn(name = "flight_option_id"))
-    @Column(name = "segment")
-    private List<String> returnSegments;
+    /** Return legs in flight order (null for one-way). */
+    @Convert(converter = FlightSegmentListConverter.class)
+    @Column(name = "return_legs_json", columnDefinition = "text")
+    private List<FlightSegment> returnLegs;
 
     /** Whether this is a round-trip flight option. */
     public boolean isRoundTrip() {
-        return returnDate != null && returnSegments != null && !returnSegments.isEmpty();
+        return returnDate != null && returnLegs != null && !returnLegs.isEmpty();
+    }
+
+    /** Outbound legs as "ORD→DEN" labels. */
+    public List<String> getSegments() {
+        return FlightSegment.labels(legs);
+    }
+
+    /** Replace outbound legs from "ORD→DEN" labels (no schedule details). */
+    public void setSegments(List<String> segments) {
+        setLegs(FlightSegment.parseAll(segments));
+    }
+
+    /** Return legs as "LAX→ORD" labels. */
+    public List<String> getReturnSegments() {
+        return FlightSegment.labels(returnLegs);
+    }
+
+    public void setReturnSegments(List<String> returnSegments) {
+        this.returnLegs = FlightSegment.parseAll(returnSegments);
+    }
+
+    public void setLegs(List<FlightSegment> legs) {
+        this.legs = legs;
+        this.legsSummarized = false;
+    }
+
+    /**
+     * Outbound leg summary: the stored columns when they have been derived, otherwise computed from
+     * the legs in memory.
+     */
+    public FlightSegment.Summary legSummary() {
+        if (legsSummarized) {
+            return new FlightSegment.Summary(
+                    departureHour,
+                    minLayoverMinutes,
+                    minLayoverAirport,
+                    maxLayoverMinutes,
+                    maxLayoverAirport);
+        }
+        return FlightSegment.summarize(legs);
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void summarizeLegs() {
+        if (legsSummarized) {
+            return;
+        }
+        FlightSegment.Summary summary = FlightSegment.summarize(legs);
+        departureHour = summary.departureHour();
+        minLayoverMinutes = summary.minLayoverMinutes();
+        minLayoverAirport = summary.minLayoverAirport();
+        maxLayoverMinutes = summary.maxLayoverMinutes();
+        maxLayoverAirport = summary.maxLayoverAirport();
+        legsSummarized = true;
+    }
+
+    /** Builder accepts legacy "ORD→DEN" labels as well as typed legs. */
+    public static class FlightOptionBuilder {
+        public FlightOptionBuilder segments(List<String> segments) {
+            return legs(FlightSegment.parseAll(segments));
+        }
+
+        public FlightOptionBuilder returnSegments(List<String> returnSegments) {
+            return returnLegs(FlightSegment.parseAll(returnSegments));
+        }
     }
 }
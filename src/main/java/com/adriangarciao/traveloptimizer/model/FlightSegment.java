@@ -0,0 +1,139 @@
+package com.adriangarciao.traveloptimizer.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One flight leg, parsed once by the provider. Times are airport-local, as providers report them,
+ * so a layover is the difference between an arrival and the next departure at the same airport.
+ *
+ * <p>Persisted as JSON by {@link FlightSegmentListConverter}; field names are the stored keys.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightSegment implements java.io.Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Separator used by the legacy "ORD→DEN" segment labels. */
+    public static final String ARROW = "→";
+
+    private String departureAirport;
+
+    private String arrivalAirport;
+
+    /** Local departure time at {@link #departureAirport}, null if unknown. */
+    private LocalDateTime departureAt;
+
+    /** Local arrival time at {@link #arrivalAirport}, null if unknown. */
+    private LocalDateTime arrivalAt;
+
+    /** Block time in minutes, 0 if unknown. */
+    private int durationMinutes;
+
+    private String carrierCode;
+
+    private String flightNumber;
+
+    /** Leg between two airports with no schedule details. */
+    public static FlightSegment of(String departureAirport, String arrivalAirport) {
+        return FlightSegment.builder()
+                .departureAirport(departureAirport)
+                .arrivalAirport(arrivalAirport)
+                .build();
+    }
+
+    /** Display label, e.g. "ORD→DEN". */
+    public String label() {
+        if (arrivalAirport == null) {
+            return departureAirport != null ? departureAirport : "";
+        }
+        return (departureAirport != null ? departureAirport : "") + ARROW + arrivalAirport;
+    }
+
+    /** Parse a legacy "ORD→DEN" label. Labels without an arrow keep the text as departure. */
+    public static FlightSegment parse(String label) {
+        if (label == null) {
+            return new FlightSegment();
+        }
+        int arrow = label.indexOf(ARROW);
+        if (arrow < 0) {
+            return of(label.trim(), null);
+        }
+        return of(label.substring(0, arrow).trim(), label.substring(arrow + 1).trim());
+    }
+
+    public static List<FlightSegment> parseAll(List<String> labels) {
+        if (labels == null) {
+            return null;
+        }
+        List<FlightSegment> legs = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            legs.add(parse(label));
+        }
+        return legs;
+    }
+
+    public static List<String> labels(List<FlightSegment> legs) {
+        if (legs == null) {
+            return null;
+        }
+        List<String> labels = new ArrayList<>(legs.size());
+        for (FlightSegment leg : legs) {
+            labels.add(leg.label());
+        }
+        return labels;
+    }
+
+    /**
+     * Facts about an itinerary that the flag rules need, computed in one pass over its legs.
+     * Layover fields are null when fewer than two legs have usable times.
+     */
+    public record Summary(
+            Integer departureHour,
+            Integer minLayoverMinutes,
+            String minLayoverAirport,
+            Integer maxLayoverMinutes,
+            String maxLayoverAirport) {
+
+        public static final Summary EMPTY = new Summary(null, null, null, null, null);
+    }
+
+    public static Summary summarize(List<FlightSegment> legs) {
+        if (legs == null || legs.isEmpty()) {
+            return Summary.EMPTY;
+        }
+        LocalDateTime firstDeparture = legs.get(0).getDepartureAt();
+        Integer departureHour = firstDeparture != null ? firstDeparture.getHour() : null;
+
+        Integer min = null;
+        Integer max = null;
+        String minAirport = null;
+        String maxAirport = null;
+        for (int i = 0; i + 1 < legs.size(); i++) {
+            LocalDateTime arrive = legs.get(i).getArrivalAt();
+            LocalDateTime depart = legs.get(i + 1).getDepartureAt();
+            if (arrive == null || depart == null) {
+                continue;
+            }
+            int layover = (int) Duration.between(arrive, depart).toMinutes();
+            String airport = legs.get(i).getArrivalAirport();
+            if (min == null || layover < min) {
+                min = layover;
+                minAirport = airport;
+            }
+            if (max == null || layover > max) {
+                max = layover;
+                maxAirport = airport;
+            }
+        }
+        return new Summary(departureHour, min, minAirport, max, maxAirport);
+    }
+}
@@ -0,0 +1,62 @@
+package com.adriangarciao.traveloptimizer.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.util.List;
+
+/**
+ * Stores a flight's legs as one JSON array column, so persisting a flight is a single insert that
+ * Hibernate can batch, instead of a row per leg in a collection table. Times are written as ISO
+ * local date-times and null fields are omitted.
+ */
+@Converter
+public class FlightSegmentListConverter implements AttributeConverter<List<FlightSegment>, String> {
+
+    private static final ObjectMapper MAPPER = mapper();
+    private static final TypeReference<List<FlightSegment>> TYPE = new TypeReference<>() {};
+    private static final ObjectWriter WRITER = MAPPER.writerFor(TYPE);
+    private static final ObjectReader READER = MAPPER.readerFor(TYPE);
+
+    private static ObjectMapper mapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.findAndRegisterModules();
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.setDefaultPropertyInclusion(
+                JsonInclude.Value.construct(
+                        JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+        return mapper;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(List<FlightSegment> legs) {
+        if (legs == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsString(legs);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not write flight legs", e);
+        }
+    }
+
+    @Override
+    public List<FlightSegment> convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return READER.readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not read flight legs: " + json, e);
+        }
+    }
+}
@@ -17,10 +17,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class LodgingOption {
     @Id
-    @GeneratedValue(generator = "UUID")
-    @org.hibernate.annotations.GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator")
+    @org.hibernate.annotations.UuidGenerator(
+            style = org.hibernate.annotations.UuidGenerator.Style.VERSION_7)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
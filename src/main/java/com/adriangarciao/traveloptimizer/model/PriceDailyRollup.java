@@ -0,0 +1,92 @@
+package com.adriangarciao.traveloptimizer.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pre-aggregated price statistics for one route/departure date, per observation day (UTC). Updated
+ * incrementally as observations are recorded so trend queries read one row per day instead of every
+ * raw {@link PriceObservation}.
+ *
+ * <p>The median is approximate while the day is open and becomes exact once compaction rebuilds the
+ * row from the raw observations of that day.
+ */
+@Entity
+@Table(
+        name = "price_daily_rollup",
+        uniqueConstraints =
+                @UniqueConstraint(
+                        name = "uk_price_rollup_route_day",
+                        columnNames = {
+                            "origin",
+                            "destination",
+                            "departure_date",
+                            "observation_day"
+                        }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceDailyRollup {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @org.hibernate.annotations.GenericGenerator(
+            name = "UUID",
+            strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "origin", length = 16, nullable = false)
+    private String origin;
+
+    @Column(name = "destination", length = 16, nullable = false)
+    private String destination;
+
+    @Column(name = "departure_date", nullable = false)
+    private LocalDate departureDate;
+
+    /** UTC day on which the observations were recorded. */
+    @Column(name = "observation_day", nullable = false)
+    private LocalDate observationDay;
+
+    @Column(name = "observation_count", nullable = false)
+    private long observationCount;
+
+    @Column(name = "min_price", precision = 19, scale = 2, nullable = false)
+    private BigDecimal minPrice;
+
+    @Column(name = "median_price", precision = 19, scale = 2, nullable = false)
+    private BigDecimal medianPrice;
+
+    @Column(name = "max_price", precision = 19, scale = 2, nullable = false)
+    private BigDecimal maxPrice;
+
+    @Column(name = "sum_price", precision = 19, scale = 2, nullable = false)
+    private BigDecimal sumPrice;
+
+    /** True once compaction has rebuilt this row from raw observations (median is exact). */
+    @Column(name = "compacted", nullable = false)
+    private boolean compacted;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = Instant.now();
+    }
+
+    /** Average observed price for this day. */
+    public double averagePrice() {
+        return observationCount > 0 ? sumPrice.doubleValue() / observationCount : 0.0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.adriangarciao.traveloptimizer.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted snapshot of the in-memory price quantile sketch for a route, so price distributions
+ * survive restarts without replaying raw observations.
+ */
+@Entity
+@Table(
+        name = "route_price_sketch",
+        uniqueConstraints =
+                @UniqueConstraint(
+                        name = "uk_route_price_sketch_route",
+                        columnNames = {"origin", "destination"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoutePriceSketch {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @org.hibernate.annotations.GenericGenerator(
+            name = "UUID",
+            strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "origin", length = 16, nullable = false)
+    private String origin;
+
+    @Column(name = "destination", length = 16, nullable = false)
+    private String destination;
+
+    @Column(name = "observation_count", nullable = false)
+    private long observationCount;
+
+    /** Serialized {@code PriceQuantileSketch}. */
+    @Column(name = "sketch", length = 65536, nullable = false)
+    private byte[] sketch;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = Instant.now();
+    }
+}
@@ -10,17 +10,31 @@ import lombok.NoArgsConstructor;
 
 /** JPA entity representing a computed trip option for a given search. */
 @Entity
-@Table(name = "trip_option")
+@Table(
+        name = "trip_option",
+        indexes = {
+            @Index(
+                    name = "idx_trip_option_search_flag_mask",
+                    columnList = "trip_search_id, flag_mask"),
+            // Keyset paging indexes, one per supported sort key; see OptionCursor
+            @Index(
+                    name = "idx_trip_option_search_value_score",
+                    columnList = "trip_search_id, value_score, id"),
+            @Index(
+                    name = "idx_trip_option_search_total_price",
+                    columnList = "trip_search_id, total_price, id"),
+            @Index(
+                    name = "idx_trip_option_search_duration",
+                    columnList = "trip_search_id, flight_duration_minutes, id")
+        })
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class TripOption {
     @Id
-    @GeneratedValue(generator = "UUID")
-    @org.hibernate.annotations.GenericGenerator(
-            name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator")
+    @org.hibernate.annotations.UuidGenerator(
+            style = org.hibernate.annotations.UuidGenerator.Style.VERSION_7)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
@@ -33,11 +47,23 @@ public class TripOption {
     @Column(name = "value_score")
     private double valueScore;
 
+    /** Outbound flight duration, copied from the flight on insert so options can be paged by it. */
+    @Column(name = "flight_duration_minutes")
+    private Integer flightDurationMinutes;
+
     @Transient private java.util.Map<String, Double> valueScoreBreakdown;
 
     @Column(name = "ml_recommendation", columnDefinition = "text")
     private String mlRecommendationJson;
 
+    /** Bitwise OR of {@link com.adriangarciao.traveloptimizer.dto.FlagCode#mask()} per flag. */
+    @Column(name = "flag_mask", nullable = false)
+    private long flagMask;
+
+    /** Flags as evaluated against the whole search; null until computed. */
+    @Column(name = "flags_json", columnDefinition = "text")
+    private String flagsJson;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "trip_search_id")
     private TripSearch tripSearch;
@@ -49,4 +75,13 @@ public class TripOption {
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "lodging_option_id")
     private LodgingOption lodgingOption;
+
+    @PrePersist
+    public void copyFlightDuration() {
+        if (flightDurationMinutes == null
+                && flightOption != null
+                && flightOption.getDuration() != null) {
+            flightDurationMinutes = (int) flightOption.getDuration().toMinutes();
+        }
+    }
 }
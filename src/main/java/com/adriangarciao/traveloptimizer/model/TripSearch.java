@@ -11,7 +11,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.GenericGenerator;
 
 /**
  * JPA entity capturing a trip search submitted by a user.
@@ -26,9 +25,10 @@ import org.hibernate.annotations.GenericGenerator;
 @NoArgsConstructor
 @AllArgsConstructor
 public class TripSearch {
+    /** Time-ordered (UUIDv7) so the batched inserts of a search append to the primary key. */
     @Id
-    @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @org.hibernate.annotations.UuidGenerator(
+            style = org.hibernate.annotations.UuidGenerator.Style.VERSION_7)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
 
@@ -90,6 +90,30 @@ public class TripSearch {
     @Builder.Default
     private boolean flightExhausted = false;
 
+    /**
+     * State of background ML enrichment: null if none was requested, else PENDING, READY or FAILED.
+     */
+    @Column(name = "ml_status", length = 16)
+    private String mlStatus;
+
+    /** When the search was last marked PENDING; older runs are presumed lost and may be retried. */
+    @Column(name = "ml_pending_since")
+    private Instant mlPendingSince;
+
+    /** Bumped each time enrichment results are written; served as the recommendations ETag. */
+    @Column(name = "ml_version", nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private long mlVersion = 0L;
+
+    /** True if the search was run by the cache warmer rather than a user. */
+    @Column(name = "warmed", nullable = false, columnDefinition = "boolean default false")
+    @Builder.Default
+    private boolean warmed = false;
+
+    /** Canonical cache key of a warmed search; null for user searches. */
+    @Column(name = "warm_key", length = 255)
+    private String warmKey;
+
     @OneToMany(
             mappedBy = "tripSearch",
             cascade = CascadeType.ALL,
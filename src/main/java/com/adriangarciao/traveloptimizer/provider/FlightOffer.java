@@ -1,5 +1,7 @@
 package com.adriangarciao.traveloptimizer.provider;
 
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -25,7 +27,7 @@ public class FlightOffer {
     private int stops;
     private int durationMinutes;
     private String durationText;
-    private List<String> segments;
+    private List<FlightSegment> legs;
     private LocalDate departDate;
 
     // === Inbound/Return flight details (null for one-way) ===
@@ -36,7 +38,7 @@ public class FlightOffer {
     private int returnStops;
     private int returnDurationMinutes;
     private String returnDurationText;
-    private List<String> returnSegments;
+    private List<FlightSegment> returnLegs;
     private LocalDate returnDate;
 
     // === Price info (total for round-trip) ===
@@ -46,6 +48,29 @@ public class FlightOffer {
 
     /** Whether this is a round-trip offer (has inbound flight data). */
     public boolean isRoundTrip() {
-        return returnDate != null && returnSegments != null && !returnSegments.isEmpty();
+        return returnDate != null && returnLegs != null && !returnLegs.isEmpty();
+    }
+
+    /** Outbound legs as "ORD→DEN" labels. */
+    @JsonIgnore
+    public List<String> getSegments() {
+        return FlightSegment.labels(legs);
+    }
+
+    /** Return legs as "LAX→ORD" labels. */
+    @JsonIgnore
+    public List<String> getReturnSegments() {
+        return FlightSegment.labels(returnLegs);
+    }
+
+    /** Builder accepts "ORD→DEN" labels for providers without schedule details. */
+    public static class FlightOfferBuilder {
+        public FlightOfferBuilder segments(List<String> segments) {
+            return legs(FlightSegment.parseAll(segments));
+        }
+
+        public FlightOfferBuilder returnSegments(List<String> returnSegments) {
+            return returnLegs(FlightSegment.parseAll(returnSegments));
+        }
     }
 }
@@ -18,4 +18,12 @@ public interface FlightSearchProvider {
         // Default implementation falls back to standard search
         return searchFlights(request);
     }
+
+    /**
+     * Fetch fresh offers for {@code request}, bypassing any cached result, and make them the cached
+     * result for later {@link #searchFlights} calls. Used by the cache warmer.
+     */
+    default FlightSearchResult refreshFlights(TripSearchRequestDTO request) {
+        return searchFlights(request);
+    }
 }
@@ -2,6 +2,7 @@ package com.adriangarciao.traveloptimizer.provider.impl;
 
 import com.adriangarciao.traveloptimizer.client.AmadeusAuthClient;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
 import com.adriangarciao.traveloptimizer.provider.FlightOffer;
 import com.adriangarciao.traveloptimizer.provider.FlightSearchProvider;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -20,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -33,6 +35,10 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
 
     private static final Logger log = LoggerFactory.getLogger(AmadeusFlightSearchProvider.class);
 
+    /** Key of the {@code amadeusFlights} cache, shared by lookups and refreshes. */
+    static final String FLIGHTS_CACHE_KEY =
+            "#request.origin + '|' + #request.destination + '|' + (#request.earliestDepartureDate != null ? #request.earliestDepartureDate.toString() : '') + '|' + (#request.earliestReturnDate != null ? #request.earliestReturnDate.toString() : '') + '|' + #request.numTravelers + '|' + (#request.maxBudget != null ? #request.maxBudget.toString() : '') + '|' + (#request.preferences != null && #request.preferences.getNonStopOnly() != null ? #request.preferences.getNonStopOnly().toString() : '')";
+
     private final WebClient webClient;
     private final AmadeusAuthClient authClient;
     private final ObjectMapper mapper = new ObjectMapper();
@@ -63,15 +69,25 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
     }
 
     @Override
-    @Cacheable(
-            value = "amadeusFlights",
-            key =
-                    "#request.origin + '|' + #request.destination + '|' + (#request.earliestDepartureDate != null ? #request.earliestDepartureDate.toString() : '') + '|' + (#request.earliestReturnDate != null ? #request.earliestReturnDate.toString() : '') + '|' + #request.numTravelers + '|' + (#request.maxBudget != null ? #request.maxBudget.toString() : '') + '|' + (#request.preferences != null && #request.preferences.getNonStopOnly() != null ? #request.preferences.getNonStopOnly().toString() : '')")
+    @Cacheable(value = "amadeusFlights", key = FLIGHTS_CACHE_KEY)
     public com.adriangarciao.traveloptimizer.provider.FlightSearchResult searchFlights(
             TripSearchRequestDTO request) {
         return doSearchFlights(request, this.maxResults);
     }
 
+    /** Failed fetches never replace the cached result. */
+    @Override
+    @CachePut(
+            value = "amadeusFlights",
+            key = FLIGHTS_CACHE_KEY,
+            unless =
+                    "#result == null || #result.status !="
+                            + " T(com.adriangarciao.traveloptimizer.provider.ProviderStatus).OK")
+    public com.adriangarciao.traveloptimizer.provider.FlightSearchResult refreshFlights(
+            TripSearchRequestDTO request) {
+        return doSearchFlights(request, this.maxResults);
+    }
+
     @Override
     public com.adriangarciao.traveloptimizer.provider.FlightSearchResult searchFlightsWithLimit(
             TripSearchRequestDTO request, int maxResults) {
@@ -210,11 +226,10 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
             java.util.List<FlightOffer> filtered = new java.util.ArrayList<>();
             for (FlightOffer fo : offers) {
                 try {
-                    if (fo.getSegments() == null || fo.getSegments().isEmpty()) continue;
-                    String firstSeg = fo.getSegments().get(0);
-                    String lastSeg = fo.getSegments().get(fo.getSegments().size() - 1);
-                    String firstDep = firstSeg.split("→")[0];
-                    String lastArr = lastSeg.split("→")[1];
+                    if (fo.getLegs() == null || fo.getLegs().isEmpty()) continue;
+                    String firstDep = fo.getLegs().get(0).getDepartureAirport();
+                    String lastArr = fo.getLegs().get(fo.getLegs().size() - 1).getArrivalAirport();
+                    if (firstDep == null || lastArr == null) continue;
                     if (request.getOrigin().equalsIgnoreCase(firstDep)
                             && request.getDestination().equalsIgnoreCase(lastArr)) {
                         filtered.add(fo);
@@ -427,7 +442,7 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
                                                 outbound.carrier != null ? outbound.carrier : ""))
                                 .flightNumber(
                                         outbound.flightNumber == null ? "" : outbound.flightNumber)
-                                .segments(outbound.segments)
+                                .legs(outbound.legs)
                                 .stops(outbound.stops)
                                 .durationMinutes(outbound.durationMinutes)
                                 .durationText(outbound.durationHuman)
@@ -446,7 +461,7 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
                                             inbound.carrier != null ? inbound.carrier : ""))
                             .returnFlightNumber(
                                     inbound.flightNumber == null ? "" : inbound.flightNumber)
-                            .returnSegments(inbound.segments)
+                            .returnLegs(inbound.legs)
                             .returnStops(inbound.stops)
                             .returnDurationMinutes(inbound.durationMinutes)
                             .returnDurationText(inbound.durationHuman)
@@ -471,7 +486,7 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
     private static class ItineraryData {
         String carrier;
         String flightNumber;
-        java.util.List<String> segments = new java.util.ArrayList<>();
+        java.util.List<FlightSegment> legs = new java.util.ArrayList<>();
         int stops;
         int durationMinutes;
         String durationHuman;
@@ -507,24 +522,32 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
 
             // collect segments and possibly sum durations if itinerary duration missing
             for (JsonNode seg : segments) {
-                String dep = seg.path("departure").path("iataCode").asText(null);
-                String arr = seg.path("arrival").path("iataCode").asText(null);
-                if (dep == null) dep = seg.path("departure").path("at").asText("");
-                if (arr == null) arr = seg.path("arrival").path("at").asText("");
-                if (dep != null && arr != null) data.segments.add(dep + "→" + arr);
+                JsonNode segDur = seg.path("duration");
+                int legMinutes =
+                        segDur != null && segDur.isTextual()
+                                ? isoDurationToMinutes(segDur.asText())
+                                : 0;
+                String num = seg.path("number").asText("");
+                String code = seg.path("carrierCode").asText("");
+                data.legs.add(
+                        FlightSegment.builder()
+                                .departureAirport(
+                                        seg.path("departure").path("iataCode").asText(null))
+                                .arrivalAirport(seg.path("arrival").path("iataCode").asText(null))
+                                .departureAt(parseLocalDateTime(seg.path("departure").path("at")))
+                                .arrivalAt(parseLocalDateTime(seg.path("arrival").path("at")))
+                                .durationMinutes(legMinutes)
+                                .carrierCode(code.isEmpty() ? null : code)
+                                .flightNumber(num.isEmpty() ? null : num)
+                                .build());
 
                 if (itinDurationNode == null
                         || itinDurationNode.isMissingNode()
                         || !itinDurationNode.isTextual()) {
-                    JsonNode segDur = seg.path("duration");
-                    if (segDur != null && segDur.isTextual()) {
-                        data.durationMinutes += isoDurationToMinutes(segDur.asText());
-                    }
+                    data.durationMinutes += legMinutes;
                 }
 
                 // flight number from each segment
-                String num = seg.path("number").asText("");
-                String code = seg.path("carrierCode").asText("");
                 if (num != null && !num.isEmpty()) {
                     String part = (code != null && !code.isEmpty() ? code + " " + num : num);
                     if (flightNumberBuilder.length() > 0) {
@@ -550,6 +573,16 @@ public class AmadeusFlightSearchProvider implements FlightSearchProvider {
         return data;
     }
 
+    /** Amadeus reports airport-local times without an offset, e.g. "2026-03-01T08:00:00". */
+    private static java.time.LocalDateTime parseLocalDateTime(JsonNode node) {
+        if (node == null || !node.isTextual()) return null;
+        try {
+            return java.time.LocalDateTime.parse(node.asText());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private int isoDurationToMinutes(String iso) {
         try {
             java.time.Duration d = java.time.Duration.parse(iso);
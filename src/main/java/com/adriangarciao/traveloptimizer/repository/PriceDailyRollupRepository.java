@@ -0,0 +1,77 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/** Repository for daily price rollups used in trend calculation. */
+public interface PriceDailyRollupRepository extends JpaRepository<PriceDailyRollup, UUID> {
+
+    /** Load the rollup row for a route/day with a row lock so concurrent ingests serialize. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+            "SELECT r FROM PriceDailyRollup r WHERE r.origin = :origin AND r.destination = :destination "
+                    + "AND r.departureDate = :departureDate AND r.observationDay = :observationDay")
+    Optional<PriceDailyRollup> findForUpdate(
+            @Param("origin") String origin,
+            @Param("destination") String destination,
+            @Param("departureDate") LocalDate departureDate,
+            @Param("observationDay") LocalDate observationDay);
+
+    /**
+     * Insert an empty rollup row for a route/day seeded with {@code price}, unless one exists. The
+     * conflict on {@code uk_price_rollup_route_day} is resolved by the database (the id is fresh,
+     * so that key is the only one that can conflict), so concurrent first observations of a day on
+     * several nodes do not fail the transaction; callers then lock the row with {@link
+     * #findForUpdate}. No conflict target is given since the H2 dialect used in tests does not
+     * emulate a targeted one.
+     */
+    @Modifying
+    @Query(
+            "INSERT INTO PriceDailyRollup (id, origin, destination, departureDate, observationDay, "
+                    + "observationCount, minPrice, medianPrice, maxPrice, sumPrice, compacted, updatedAt) "
+                    + "VALUES (:id, :origin, :destination, :departureDate, :observationDay, "
+                    + "0, :price, :price, :price, 0, false, :now) "
+                    + "ON CONFLICT DO NOTHING")
+    int insertIfAbsent(
+            @Param("id") UUID id,
+            @Param("origin") String origin,
+            @Param("destination") String destination,
+            @Param("departureDate") LocalDate departureDate,
+            @Param("observationDay") LocalDate observationDay,
+            @Param("price") BigDecimal price,
+            @Param("now") Instant now);
+
+    /** Rollups for an exact departure date, most recent observation day first. */
+    @Query(
+            "SELECT r FROM PriceDailyRollup r WHERE r.origin = :origin AND r.destination = :destination "
+                    + "AND r.departureDate = :departureDate AND r.observationDay >= :sinceDay "
+                    + "ORDER BY r.observationDay DESC")
+    List<PriceDailyRollup> findRecentByRoute(
+            @Param("origin") String origin,
+            @Param("destination") String destination,
+            @Param("departureDate") LocalDate departureDate,
+            @Param("sinceDay") LocalDate sinceDay);
+
+    /** Rollups for a range of departure dates, most recent observation day first. */
+    @Query(
+            "SELECT r FROM PriceDailyRollup r WHERE r.origin = :origin AND r.destination = :destination "
+                    + "AND r.departureDate BETWEEN :fromDate AND :toDate AND r.observationDay >= :sinceDay "
+                    + "ORDER BY r.observationDay DESC")
+    List<PriceDailyRollup> findRecentByRouteAndDateRange(
+            @Param("origin") String origin,
+            @Param("destination") String destination,
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate,
+            @Param("sinceDay") LocalDate sinceDay);
+}
@@ -6,6 +6,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -47,4 +48,17 @@ public interface PriceObservationRepository extends JpaRepository<PriceObservati
             @Param("origin") String origin,
             @Param("destination") String destination,
             @Param("since") Instant since);
+
+    /** Creation time of the oldest raw observation, or null if there are none. */
+    @Query("SELECT MIN(p.createdAt) FROM PriceObservation p")
+    Instant findOldestCreatedAt();
+
+    /** Raw observations recorded within [from, to). Used by rollup compaction. */
+    @Query("SELECT p FROM PriceObservation p WHERE p.createdAt >= :from AND p.createdAt < :to")
+    List<PriceObservation> findCreatedBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /** Delete raw observations recorded within [from, to) once they are folded into rollups. */
+    @Modifying
+    @Query("DELETE FROM PriceObservation p WHERE p.createdAt >= :from AND p.createdAt < :to")
+    int deleteCreatedBetween(@Param("from") Instant from, @Param("to") Instant to);
 }
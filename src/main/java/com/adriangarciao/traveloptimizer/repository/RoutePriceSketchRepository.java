@@ -0,0 +1,21 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import com.adriangarciao.traveloptimizer.model.RoutePriceSketch;
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/** Repository for persisted route price sketches. */
+public interface RoutePriceSketchRepository extends JpaRepository<RoutePriceSketch, UUID> {
+
+    /** The route's sketch row, locked until the transaction ends so nodes merge into it in turn. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(
+            "SELECT s FROM RoutePriceSketch s WHERE s.origin = :origin AND s.destination = :destination")
+    Optional<RoutePriceSketch> findForUpdate(
+            @Param("origin") String origin, @Param("destination") String destination);
+}
@@ -0,0 +1,48 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import java.util.function.Supplier;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the JDBC statements Hibernate prepares on the current thread while a block of work runs,
+ * so callers can report statements per operation.
+ *
+ * <p>Registered through {@code hibernate.session_factory.statement_inspector}. Hibernate prepares
+ * one statement per batch when JDBC batching applies and one per row otherwise, so the count tracks
+ * database round trips. Outside {@link #count(Supplier)} the inspector does nothing.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    /** Result of a counted block of work. */
+    public record Counted<T>(T value, int statements) {}
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Run {@code work} and count the statements it prepared; nested counts add to the outer one.
+     */
+    public static <T> Counted<T> count(Supplier<T> work) {
+        int[] outer = CURRENT.get();
+        int[] count = new int[1];
+        CURRENT.set(count);
+        try {
+            return new Counted<>(work.get(), count[0]);
+        } finally {
+            if (outer != null) {
+                outer[0] += count[0];
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
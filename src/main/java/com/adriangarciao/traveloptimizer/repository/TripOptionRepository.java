@@ -1,12 +1,120 @@
 package com.adriangarciao.traveloptimizer.repository;
 
 import com.adriangarciao.traveloptimizer.model.TripOption;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import java.util.List;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-/** Repository for {@link com.adriangarciao.traveloptimizer.model.TripOption} entities. */
-public interface TripOptionRepository extends JpaRepository<TripOption, UUID> {
+/**
+ * Repository for {@link com.adriangarciao.traveloptimizer.model.TripOption} entities.
+ *
+ * <p>Queries that return options for {@link
+ * com.adriangarciao.traveloptimizer.mapper.TripOptionMapper} fetch the flight, lodging and search
+ * it reads in the same select, so a page costs one query plus its count instead of one per option.
+ */
+public interface TripOptionRepository
+        extends JpaRepository<TripOption, UUID>, JpaSpecificationExecutor<TripOption> {
+
+    @EntityGraph(attributePaths = {"flightOption", "lodgingOption", "tripSearch"})
     Page<TripOption> findByTripSearchId(UUID tripSearchId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"flightOption", "lodgingOption", "tripSearch"})
+    List<TripOption> findAllByTripSearchId(UUID tripSearchId);
+
+    long countByTripSearchId(UUID tripSearchId);
+
+    /** True if some option of the search has not had its flags evaluated and stored yet. */
+    boolean existsByTripSearchIdAndFlagsJsonIsNull(UUID tripSearchId);
+
+    /**
+     * Options of a search carrying every flag in {@code requiredMask} and none in {@code
+     * excludedMask}. Masks are built from {@link
+     * com.adriangarciao.traveloptimizer.dto.FlagCode#mask()}.
+     */
+    @EntityGraph(attributePaths = {"flightOption", "lodgingOption", "tripSearch"})
+    @Query(
+            "select o from TripOption o where o.tripSearch.id = :tripSearchId"
+                    + " and bitand(o.flagMask, cast(:requiredMask as Long))"
+                    + " = cast(:requiredMask as Long)"
+                    + " and bitand(o.flagMask, cast(:excludedMask as Long)) = 0")
+    Page<TripOption> findByTripSearchIdAndFlags(
+            @Param("tripSearchId") UUID tripSearchId,
+            @Param("requiredMask") long requiredMask,
+            @Param("excludedMask") long excludedMask,
+            Pageable pageable);
+
+    /** Option ids and stored ML recommendation JSON for a search, skipping options without one. */
+    @Query(
+            "select o.id, o.mlRecommendationJson from TripOption o"
+                    + " where o.tripSearch.id = :tripSearchId and o.mlRecommendationJson is not null")
+    List<Object[]> findMlRecommendations(@Param("tripSearchId") UUID tripSearchId);
+
+    /** How many of the given options already have a stored ML recommendation. */
+    @Query(
+            "select count(o) from TripOption o"
+                    + " where o.id in :ids and o.mlRecommendationJson is not null")
+    long countWithMlRecommendation(@Param("ids") java.util.Collection<UUID> ids);
+
+    @Modifying
+    @Query("update TripOption o set o.mlRecommendationJson = :json where o.id = :id")
+    int updateMlRecommendation(@Param("id") UUID id, @Param("json") String json);
+
+    /**
+     * Options of a search, filtered by flag masks as in {@link #findByTripSearchIdAndFlags}; a zero
+     * mask disables that filter. Used for keyset scrolling, which needs a specification.
+     */
+    static Specification<TripOption> ofSearch(
+            UUID tripSearchId, long requiredMask, long excludedMask) {
+        return (root, query, cb) -> {
+            Predicate predicate = cb.equal(root.get("tripSearch").get("id"), tripSearchId);
+            if (requiredMask != 0L) {
+                predicate =
+                        cb.and(
+                                predicate,
+                                cb.equal(
+                                        cb.function(
+                                                "bitand",
+                                                Long.class,
+                                                root.get("flagMask"),
+                                                cb.literal(requiredMask)),
+                                        requiredMask));
+            }
+            if (excludedMask != 0L) {
+                predicate =
+                        cb.and(
+                                predicate,
+                                cb.equal(
+                                        cb.function(
+                                                "bitand",
+                                                Long.class,
+                                                root.get("flagMask"),
+                                                cb.literal(excludedMask)),
+                                        0L));
+            }
+            return predicate;
+        };
+    }
+
+    /**
+     * Fetch joins for the associations the mapper reads, as the entity graphs above do for derived
+     * queries. Only for queries returning options; a count cannot fetch.
+     */
+    static Specification<TripOption> fetchingMapped() {
+        return (root, query, cb) -> {
+            root.fetch("flightOption", JoinType.LEFT);
+            root.fetch("lodgingOption", JoinType.LEFT);
+            root.fetch("tripSearch", JoinType.LEFT);
+            return null;
+        };
+    }
 }
@@ -1,10 +1,75 @@
 package com.adriangarciao.traveloptimizer.repository;
 
 import com.adriangarciao.traveloptimizer.model.TripSearch;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository for persisting {@link com.adriangarciao.traveloptimizer.model.TripSearch} entities.
  */
-public interface TripSearchRepository extends JpaRepository<TripSearch, UUID> {}
+public interface TripSearchRepository extends JpaRepository<TripSearch, UUID> {
+
+    /** ML enrichment version and status without loading the search; one row of two columns. */
+    @Query("select s.mlVersion, s.mlStatus from TripSearch s where s.id = :id")
+    List<Object[]> findMlState(@Param("id") UUID id);
+
+    /**
+     * Claim the enrichment run of a search: mark it PENDING since {@code now} unless another run
+     * claimed it after {@code cutoff}, or a run completed since the caller read {@code version}.
+     * One statement, so of several concurrent callers only one updates the row.
+     *
+     * @return 1 if the caller claimed the run, else 0
+     */
+    @Modifying
+    @Query(
+            "update TripSearch s set s.mlStatus = :pending, s.mlPendingSince = :now"
+                    + " where s.id = :id and s.mlVersion = :version"
+                    + " and (s.mlStatus is null or s.mlStatus <> :pending"
+                    + " or s.mlPendingSince is null or s.mlPendingSince < :cutoff)")
+    int claimMlEnrichment(
+            @Param("id") UUID id,
+            @Param("version") long version,
+            @Param("pending") String pending,
+            @Param("now") Instant now,
+            @Param("cutoff") Instant cutoff);
+
+    /** Record the outcome of an enrichment run and bump the version pollers compare against. */
+    @Modifying
+    @Query(
+            "update TripSearch s set s.mlStatus = :status, s.mlVersion = s.mlVersion + 1"
+                    + " where s.id = :id")
+    int completeMlEnrichment(@Param("id") UUID id, @Param("status") String status);
+
+    /** Ids of the searches the cache warmer ran for one cache key, newest first. */
+    @Query(
+            "select s.id from TripSearch s where s.warmKey = :warmKey"
+                    + " order by s.createdAt desc, s.id desc")
+    List<UUID> findIdsByWarmKey(@Param("warmKey") String warmKey);
+
+    /**
+     * Most searched route and date-window combinations since {@code since} that still depart on or
+     * after {@code today}, most popular first. Searches run by the cache warmer are not counted.
+     * Each row is {@code tripType, origin, destination, earliestDeparture, latestDeparture,
+     * earliestReturn, latestReturn, numTravelers, maxBudget, searchCount}.
+     */
+    @Query(
+            "select s.tripType, s.origin, s.destination, s.earliestDepartureDate,"
+                    + " s.latestDepartureDate, s.earliestReturnDate, s.latestReturnDate,"
+                    + " s.numTravelers, s.maxBudget, count(s)"
+                    + " from TripSearch s"
+                    + " where s.createdAt >= :since and s.warmed = false"
+                    + " and s.earliestDepartureDate >= :today"
+                    + " group by s.tripType, s.origin, s.destination, s.earliestDepartureDate,"
+                    + " s.latestDepartureDate, s.earliestReturnDate, s.latestReturnDate,"
+                    + " s.numTravelers, s.maxBudget"
+                    + " order by count(s) desc")
+    List<Object[]> findHotSearches(
+            @Param("since") Instant since, @Param("today") LocalDate today, Pageable pageable);
+}
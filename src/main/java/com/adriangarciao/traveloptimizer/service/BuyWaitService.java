@@ -10,4 +10,20 @@ public interface BuyWaitService {
             TripOptionSummaryDTO option,
             List<TripOptionSummaryDTO> allOptions,
             TripSearchRequestDTO request);
+
+    /**
+     * Compute baseline decisions for every option of a result set in one pass, ranking prices
+     * against statistics already built for the set. The route trend is looked up once, instead of
+     * per option.
+     *
+     * @return decisions in the same order as {@code options}; an entry is null if that option could
+     *     not be evaluated
+     */
+    List<BuyWaitDTO> computeBaselines(
+            List<TripOptionSummaryDTO> options, SearchStats stats, TripSearchRequestDTO request);
+
+    default List<BuyWaitDTO> computeBaselines(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request) {
+        return computeBaselines(options, SearchStats.ofSummaries(options), request);
+    }
 }
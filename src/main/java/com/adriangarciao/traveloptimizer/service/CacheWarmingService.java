@@ -0,0 +1,33 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.dto.CacheWarmingStatusDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+
+/**
+ * Keeps the search cache warm for the most searched routes, so the first user search after an entry
+ * would have expired is still a cache hit.
+ *
+ * <p>A scheduled run ranks route and date-window combinations by how often users looked them up
+ * recently, cache hits included, and refreshes the cached results of the hottest ones shortly
+ * before they expire, a few per run. Runs stop early, and pause for a cool-down, when the flight
+ * provider reports it is rate limited.
+ */
+public interface CacheWarmingService {
+
+    /**
+     * Re-rank the warm set and refresh the entries that are due, within this run's budget.
+     *
+     * @return number of searches refreshed
+     */
+    int warm();
+
+    /**
+     * Count a user lookup of the cached search for {@code request}, whether or not it was a hit.
+     * Every lookup counts towards ranking; only lookups of warm searches count towards the hit
+     * ratio.
+     */
+    void recordLookup(TripSearchRequestDTO request, boolean hit);
+
+    /** The current warm set and how effective warming has been. */
+    CacheWarmingStatusDTO status();
+}
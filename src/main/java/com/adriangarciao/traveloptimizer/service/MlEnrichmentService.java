@@ -0,0 +1,49 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripRecommendationsDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs ML option recommendations in the background and stores them on the trip options, so searches
+ * can answer with baseline buy/wait right away and clients poll for the ML results.
+ */
+public interface MlEnrichmentService {
+
+    String PENDING = "PENDING";
+    String READY = "READY";
+    String FAILED = "FAILED";
+
+    /** Enrichment version and status of a search. */
+    record State(long version, String status) {
+        /** Strong ETag for the recommendations of this state. */
+        public String etag() {
+            return "\"" + version + "-" + (status != null ? status : "NONE") + "\"";
+        }
+    }
+
+    /**
+     * Mark the search PENDING and request recommendations for {@code options}. When called inside a
+     * transaction the ML call starts after it commits, so the results always find their rows.
+     *
+     * <p>Nothing is requested while a run is PENDING for less than {@code
+     * ml.enrichment.pending-timeout-ms}, or when the search is READY and every option already has a
+     * stored recommendation, as for repeats served from the search result cache.
+     *
+     * @return completes once the results (or the failure) are stored; never exceptionally
+     */
+    CompletableFuture<Void> enrichInBackground(
+            UUID searchId,
+            List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats);
+
+    /** Current state of a search, or null if it does not exist. */
+    State getState(UUID searchId);
+
+    /** Stored recommendations of a search, or null if it does not exist. */
+    TripRecommendationsDTO getRecommendations(UUID searchId);
+}
@@ -0,0 +1,156 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position after the last option of a page, for keyset (seek) paging over {@code (trip_search_id,
+ * sort key, id)}: the next page starts after that option instead of skipping an offset, so deep
+ * pages cost the same as the first.
+ *
+ * <p>Clients see it as an opaque URL-safe string. It carries the sort, so later pages keep the
+ * order of the page that issued it, and the number of options served so far, so progressive
+ * provider fetches still know how far the client has paged.
+ */
+public record OptionCursor(
+        SortKey sortKey, Sort.Direction direction, Object value, UUID id, int served) {
+
+    private static final String VERSION = "v1";
+
+    /** Sort keys with a {@code (trip_search_id, key, id)} index, by their {@code sortBy} name. */
+    public enum SortKey {
+        VALUE_SCORE("valueScore", "valueScore", TripOption::getValueScore, Double::valueOf),
+        TOTAL_PRICE("totalPrice", "totalPrice", TripOption::getTotalPrice, BigDecimal::new),
+        DURATION(
+                "duration",
+                "flightDurationMinutes",
+                TripOption::getFlightDurationMinutes,
+                Integer::valueOf);
+
+        private final String param;
+        private final String property;
+        private final Function<TripOption, Object> extractor;
+        private final Function<String, Object> parser;
+
+        SortKey(
+                String param,
+                String property,
+                Function<TripOption, Object> extractor,
+                Function<String, Object> parser) {
+            this.param = param;
+            this.property = property;
+            this.extractor = extractor;
+            this.parser = parser;
+        }
+
+        /** The {@code sortBy} request value. */
+        public String param() {
+            return param;
+        }
+
+        /** The {@link TripOption} property sorted on. */
+        public String property() {
+            return property;
+        }
+
+        /** The key for a {@code sortBy} value, or null if keyset paging does not support it. */
+        public static SortKey of(String sortBy) {
+            for (SortKey key : values()) {
+                if (key.param.equals(sortBy)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Sort of a keyset page: the key, then id as a tiebreaker, both in {@code direction}. Options
+     * missing the key come first either way, so seeking past a present value never skips them.
+     */
+    public static Sort sort(SortKey sortKey, Sort.Direction direction) {
+        return Sort.by(
+                new Sort.Order(direction, sortKey.property()).nullsFirst(),
+                new Sort.Order(direction, "id"));
+    }
+
+    /**
+     * Cursor following {@code last}, the final option of a page that ends at {@code served}, or
+     * null if {@code last} has no value for the key: a seek cannot compare against a missing value,
+     * so such pages are continued by page number instead.
+     */
+    public static OptionCursor after(
+            SortKey sortKey, Sort.Direction direction, TripOption last, int served) {
+        Object value = sortKey.extractor.apply(last);
+        if (value == null) {
+            return null;
+        }
+        return new OptionCursor(sortKey, direction, value, last.getId(), served);
+    }
+
+    /** Sort of the pages this cursor continues. */
+    public Sort sort() {
+        return sort(sortKey, direction);
+    }
+
+    /** Scroll position for Spring Data keyset scrolling. */
+    public ScrollPosition position() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortKey.property(), value);
+        keys.put("id", id);
+        return ScrollPosition.forward(keys);
+    }
+
+    /** The opaque form handed to clients. */
+    public String encode() {
+        String raw =
+                String.join(
+                        "|",
+                        VERSION,
+                        sortKey.param(),
+                        direction.name(),
+                        value.toString(),
+                        id.toString(),
+                        Integer.toString(served));
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor produced by {@link #encode()}.
+     *
+     * @throws IllegalArgumentException if {@code cursor} is not a valid cursor
+     */
+    public static OptionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 6 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor");
+            }
+            SortKey sortKey = SortKey.of(parts[1]);
+            if (sortKey == null) {
+                throw new IllegalArgumentException("Unsupported cursor sort: " + parts[1]);
+            }
+            Sort.Direction direction = Sort.Direction.valueOf(parts[2].toUpperCase(Locale.ROOT));
+            Object value = sortKey.parser.apply(parts[3]);
+            int served = Integer.parseInt(parts[5]);
+            if (served < 0) {
+                throw new IllegalArgumentException("Negative cursor offset");
+            }
+            return new OptionCursor(sortKey, direction, value, UUID.fromString(parts[4]), served);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -11,7 +11,19 @@ public interface PriceHistoryService {
             String reason, // Human-readable explanation
             int observationCount,
             Double avgRecentPrice,
-            Double avgOlderPrice) {}
+            Double avgOlderPrice,
+            Double slopePerDay, // Estimated price change per day, null if not modelled
+            Double confidence) { // 0..1, null if not modelled
+
+        public TrendResult(
+                String trend,
+                String reason,
+                int observationCount,
+                Double avgRecentPrice,
+                Double avgOlderPrice) {
+            this(trend, reason, observationCount, avgRecentPrice, avgOlderPrice, null, null);
+        }
+    }
 
     /**
      * Compute the price trend for a route based on historical data.
@@ -0,0 +1,229 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Buffers price observations in a bounded in-memory queue and writes them in JDBC batches from a
+ * background flush, so recording an observation never touches the database on the search path.
+ *
+ * <p>Only the first observation per route, departure date and time bucket is accepted; later ones
+ * in the same bucket are dropped so hot routes write at most one row per bucket. When the queue is
+ * full new observations are dropped rather than blocking the caller.
+ */
+@Slf4j
+@Service
+public class PriceObservationIngestor {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO price_observation "
+                    + "(id, origin, destination, departure_date, observed_price, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    /** Dedup key: one accepted observation per route, departure date and time bucket. */
+    record BucketKey(String origin, String destination, LocalDate departureDate, long bucket) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PriceRollupService rollupService;
+    private final BlockingQueue<PriceObservation> queue;
+    private final Cache<BucketKey, Boolean> seenBuckets;
+    private final long bucketSeconds;
+    private final int batchSize;
+    private final List<Consumer<List<PriceObservation>>> flushListeners =
+            new CopyOnWriteArrayList<>();
+
+    private final Counter accepted;
+    private final Counter droppedQueueFull;
+    private final Counter droppedDuplicate;
+    private final Counter flushed;
+    private final Counter flushFailed;
+    private final Timer flushTimer;
+
+    @Autowired
+    public PriceObservationIngestor(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Autowired(required = false) PriceRollupService rollupService,
+            MeterRegistry meterRegistry,
+            @Value("${price-history.ingest.queue-capacity:10000}") int queueCapacity,
+            @Value("${price-history.ingest.batch-size:500}") int batchSize,
+            @Value("${price-history.ingest.dedup-bucket-seconds:60}") long bucketSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rollupService = rollupService;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.bucketSeconds = bucketSeconds;
+        this.seenBuckets =
+                Caffeine.newBuilder()
+                        .maximumSize(100_000)
+                        .expireAfterWrite(Duration.ofSeconds(Math.max(1, bucketSeconds * 2)))
+                        .build();
+
+        this.accepted =
+                Counter.builder("traveloptimizer.price_observation.accepted")
+                        .description("Price observations queued for writing")
+                        .register(meterRegistry);
+        this.droppedQueueFull =
+                Counter.builder("traveloptimizer.price_observation.dropped")
+                        .tag("reason", "queue_full")
+                        .description("Price observations dropped before writing")
+                        .register(meterRegistry);
+        this.droppedDuplicate =
+                Counter.builder("traveloptimizer.price_observation.dropped")
+                        .tag("reason", "duplicate_bucket")
+                        .description("Price observations dropped before writing")
+                        .register(meterRegistry);
+        this.flushed =
+                Counter.builder("traveloptimizer.price_observation.flushed")
+                        .description("Price observations written to the database")
+                        .register(meterRegistry);
+        this.flushFailed =
+                Counter.builder("traveloptimizer.price_observation.flush_failed")
+                        .description("Price observations lost to failed batch writes")
+                        .register(meterRegistry);
+        this.flushTimer =
+                Timer.builder("traveloptimizer.price_observation.flush.duration")
+                        .description("Time to write one batch of price observations")
+                        .register(meterRegistry);
+        Gauge.builder("traveloptimizer.price_observation.queue.depth", queue, BlockingQueue::size)
+                .description("Price observations waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue an observation for writing. Never blocks.
+     *
+     * @return true if the observation was queued, false if it was deduplicated or dropped
+     */
+    public boolean submit(
+            String origin, String destination, LocalDate departureDate, double price) {
+        Instant now = Instant.now();
+        if (bucketSeconds > 0) {
+            BucketKey key =
+                    new BucketKey(
+                            origin,
+                            destination,
+                            departureDate,
+                            now.getEpochSecond() / bucketSeconds);
+            if (seenBuckets.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+                droppedDuplicate.increment();
+                return false;
+            }
+        }
+        PriceObservation obs =
+                PriceObservation.builder()
+                        .origin(origin)
+                        .destination(destination)
+                        .departureDate(departureDate)
+                        .observedPrice(BigDecimal.valueOf(price))
+                        .createdAt(now)
+                        .build();
+        if (!queue.offer(obs)) {
+            droppedQueueFull.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /** Register a callback invoked with each batch after it has been committed. */
+    public void addFlushListener(Consumer<List<PriceObservation>> listener) {
+        flushListeners.add(listener);
+    }
+
+    /** Number of observations waiting to be written. */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Drain the queue in batches. Runs on the scheduler and on shutdown.
+     *
+     * @return number of observations written
+     */
+    @Scheduled(fixedDelayString = "${price-history.ingest.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        int written = 0;
+        List<PriceObservation> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            written += writeBatch(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+        return written;
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        int written = flush();
+        if (written > 0) {
+            log.info("priceObservation.shutdownFlush written={}", written);
+        }
+    }
+
+    private int writeBatch(List<PriceObservation> batch) {
+        try {
+            flushTimer.record(
+                    () ->
+                            transactionTemplate.executeWithoutResult(
+                                    status -> {
+                                        jdbcTemplate.batchUpdate(
+                                                INSERT_SQL,
+                                                batch,
+                                                batch.size(),
+                                                (ps, obs) -> {
+                                                    ps.setObject(1, UUID.randomUUID());
+                                                    ps.setString(2, obs.getOrigin());
+                                                    ps.setString(3, obs.getDestination());
+                                                    ps.setObject(4, obs.getDepartureDate());
+                                                    ps.setBigDecimal(5, obs.getObservedPrice());
+                                                    ps.setTimestamp(
+                                                            6, Timestamp.from(obs.getCreatedAt()));
+                                                });
+                                        if (rollupService != null) {
+                                            rollupService.recordObservations(batch);
+                                        }
+                                    }));
+        } catch (Exception e) {
+            flushFailed.increment(batch.size());
+            log.warn("Failed to write {} price observations: {}", batch.size(), e.toString());
+            return 0;
+        }
+        flushed.increment(batch.size());
+        for (Consumer<List<PriceObservation>> listener : flushListeners) {
+            try {
+                listener.accept(batch);
+            } catch (Exception e) {
+                log.debug("Price observation flush listener failed: {}", e.getMessage());
+            }
+        }
+        return batch.size();
+    }
+}
@@ -0,0 +1,337 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch (merging t-digest) for a price distribution. Memory is bounded by the
+ * compression parameter regardless of how many prices are added: at most about {@code compression}
+ * centroids plus a fixed insert buffer.
+ *
+ * <p>Centroids near the tails are kept small, so low percentiles (the interesting ones for deal
+ * rating) are more accurate than the middle of the distribution. Instances are thread-safe.
+ *
+ * <p>Sketches can be merged, so per-node deltas add up to one distribution, and decayed, which
+ * scales every weight down so old prices fade out of the distribution. Counts are therefore total
+ * weights, rounded where a whole number is returned.
+ */
+public class PriceQuantileSketch {
+
+    private static final byte FORMAT_VERSION = 2;
+
+    /** Version 1 stored the count as a long, before weights could decay. */
+    private static final byte FORMAT_VERSION_LONG_COUNT = 1;
+
+    /** Centroids decayed below this weight are dropped. */
+    private static final double MIN_WEIGHT = 1e-3;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int size;
+    private final double[] buffer;
+    private int buffered;
+    private double total;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public PriceQuantileSketch(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression * 2) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[(int) Math.ceil(compression * 5)];
+    }
+
+    public synchronized void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        buffer[buffered++] = value;
+        total++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (buffered == buffer.length) {
+            compress();
+        }
+    }
+
+    /** Total weight of the sketch: the number of prices added, less any decay. */
+    public synchronized long count() {
+        return Math.round(total);
+    }
+
+    /** Immutable view of the current distribution; cheap to query from many threads. */
+    public synchronized Snapshot snapshot() {
+        compress();
+        return new Snapshot(
+                Arrays.copyOf(means, size), Arrays.copyOf(weights, size), total, min, max);
+    }
+
+    /** Add every price of {@code other} to this sketch, e.g. another node's delta. */
+    public void merge(PriceQuantileSketch other) {
+        Snapshot added = other.snapshot();
+        synchronized (this) {
+            if (added.total == 0) {
+                return;
+            }
+            compress();
+            int n = size + added.means.length;
+            double[] m = Arrays.copyOf(means, n);
+            double[] w = Arrays.copyOf(weights, n);
+            System.arraycopy(added.means, 0, m, size, added.means.length);
+            System.arraycopy(added.weights, 0, w, size, added.weights.length);
+            total += added.total;
+            min = Math.min(min, added.min);
+            max = Math.max(max, added.max);
+            cluster(m, w);
+        }
+    }
+
+    /**
+     * Scale every weight by {@code factor} in (0, 1], so older prices count for less than those
+     * added afterwards. Centroids that fade out entirely are dropped, narrowing min and max to what
+     * is left.
+     */
+    public synchronized void decay(double factor) {
+        if (factor >= 1.0) {
+            return;
+        }
+        compress();
+        int kept = 0;
+        boolean lowestKept = false;
+        boolean highestKept = false;
+        total = 0;
+        for (int i = 0; i < size; i++) {
+            double weight = weights[i] * factor;
+            if (weight < MIN_WEIGHT) {
+                continue;
+            }
+            lowestKept |= i == 0;
+            highestKept = i == size - 1;
+            means[kept] = means[i];
+            weights[kept] = weight;
+            total += weight;
+            kept++;
+        }
+        size = kept;
+        if (size == 0) {
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            return;
+        }
+        if (!lowestKept) {
+            min = means[0];
+        }
+        if (!highestKept) {
+            max = means[size - 1];
+        }
+    }
+
+    /** Merge buffered values into the centroid list, re-clustering under the scale function. */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = size + buffered;
+        double[] m = new double[n];
+        double[] w = new double[n];
+        System.arraycopy(means, 0, m, 0, size);
+        System.arraycopy(weights, 0, w, 0, size);
+        for (int i = 0; i < buffered; i++) {
+            m[size + i] = buffer[i];
+            w[size + i] = 1.0;
+        }
+        buffered = 0;
+        cluster(m, w);
+    }
+
+    /** Replace the centroids with {@code m}/{@code w} re-clustered under the scale function. */
+    private void cluster(double[] m, double[] w) {
+        int n = m.length;
+        sortByMean(m, w);
+
+        int out = 0;
+        double curMean = m[0];
+        double curWeight = w[0];
+        double weightSoFar = 0;
+        double kLeft = scale(0.0);
+        for (int i = 1; i < n; i++) {
+            double proposed = curWeight + w[i];
+            if (scale((weightSoFar + proposed) / total) - kLeft <= 1.0) {
+                curMean += (m[i] - curMean) * w[i] / proposed;
+                curWeight = proposed;
+            } else {
+                out = emit(out, curMean, curWeight);
+                weightSoFar += curWeight;
+                kLeft = scale(weightSoFar / total);
+                curMean = m[i];
+                curWeight = w[i];
+            }
+        }
+        size = emit(out, curMean, curWeight);
+    }
+
+    /**
+     * Arcsine scale function: a centroid may span at most one unit of k, which keeps centroids
+     * small near q = 0 and q = 1 and bounds their total number by the compression.
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, q) - 1);
+    }
+
+    private int emit(int index, double mean, double weight) {
+        if (index == means.length) {
+            means = Arrays.copyOf(means, index * 2);
+            weights = Arrays.copyOf(weights, index * 2);
+        }
+        means[index] = mean;
+        weights[index] = weight;
+        return index + 1;
+    }
+
+    private static void sortByMean(double[] m, double[] w) {
+        Integer[] order = new Integer[m.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(m[a], m[b]));
+        double[] sm = new double[m.length];
+        double[] sw = new double[w.length];
+        for (int i = 0; i < order.length; i++) {
+            sm[i] = m[order[i]];
+            sw[i] = w[order[i]];
+        }
+        System.arraycopy(sm, 0, m, 0, m.length);
+        System.arraycopy(sw, 0, w, 0, w.length);
+    }
+
+    /** Serialize the compressed sketch for snapshotting. */
+    public synchronized byte[] toBytes() {
+        compress();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + size * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeDouble(compression);
+            out.writeDouble(total);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(means[i]);
+                out.writeDouble(weights[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Restore a sketch written by {@link #toBytes()}. */
+    public static PriceQuantileSketch fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION && version != FORMAT_VERSION_LONG_COUNT) {
+                throw new IllegalArgumentException("Unsupported sketch format " + version);
+            }
+            PriceQuantileSketch sketch = new PriceQuantileSketch(in.readDouble());
+            sketch.total = version == FORMAT_VERSION ? in.readDouble() : in.readLong();
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                sketch.size = sketch.emit(sketch.size, in.readDouble(), in.readDouble());
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Read-only centroid view used to answer percentile queries. */
+    public static final class Snapshot {
+        private final double[] means;
+        private final double[] weights;
+        private final double total;
+        private final double min;
+        private final double max;
+
+        Snapshot(double[] means, double[] weights, double total, double min, double max) {
+            this.means = means;
+            this.weights = weights;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long count() {
+            return Math.round(total);
+        }
+
+        /**
+         * Fraction of observed prices at or below {@code value} (0 = cheaper than everything seen,
+         * 1 = more expensive than everything seen).
+         */
+        public double cdf(double value) {
+            if (total == 0) {
+                return Double.NaN;
+            }
+            if (value < min) {
+                return 0.0;
+            }
+            if (value >= max) {
+                return 1.0;
+            }
+            int n = means.length;
+            if (value < means[0]) {
+                double span = means[0] - min;
+                return span > 0 ? (value - min) / span * (weights[0] / 2) / total : 0.0;
+            }
+            double weightSoFar = 0;
+            for (int i = 0; i < n - 1; i++) {
+                if (value < means[i + 1]) {
+                    double left = weightSoFar + weights[i] / 2;
+                    double right = weightSoFar + weights[i] + weights[i + 1] / 2;
+                    double span = means[i + 1] - means[i];
+                    double frac = span > 0 ? (value - means[i]) / span : 0.0;
+                    return (left + frac * (right - left)) / total;
+                }
+                weightSoFar += weights[i];
+            }
+            double left = weightSoFar + weights[n - 1] / 2;
+            double span = max - means[n - 1];
+            double frac = span > 0 ? (value - means[n - 1]) / span : 1.0;
+            return Math.min(1.0, (left + frac * (weights[n - 1] / 2)) / total);
+        }
+
+        /** Estimated price at quantile {@code q} in [0, 1]. */
+        public double quantile(double q) {
+            if (total == 0) {
+                return Double.NaN;
+            }
+            double target = Math.max(0.0, Math.min(1.0, q)) * total;
+            int n = means.length;
+            if (target < weights[0] / 2) {
+                return min + (target / (weights[0] / 2)) * (means[0] - min);
+            }
+            double weightSoFar = 0;
+            for (int i = 0; i < n - 1; i++) {
+                double left = weightSoFar + weights[i] / 2;
+                double right = weightSoFar + weights[i] + weights[i + 1] / 2;
+                if (target < right) {
+                    return means[i] + (target - left) / (right - left) * (means[i + 1] - means[i]);
+                }
+                weightSoFar += weights[i];
+            }
+            double left = weightSoFar + weights[n - 1] / 2;
+            double half = weights[n - 1] / 2;
+            double frac = half > 0 ? (target - left) / half : 0.0;
+            return Math.min(max, means[n - 1] + Math.max(0.0, frac) * (max - means[n - 1]));
+        }
+    }
+}
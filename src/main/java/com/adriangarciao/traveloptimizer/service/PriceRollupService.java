@@ -0,0 +1,52 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains daily price rollups per route and departure date. Observations are folded in as they
+ * are recorded, and a compaction job rebuilds closed days exactly from raw observations before
+ * deleting them.
+ */
+public interface PriceRollupService {
+
+    /** Fold a single observation into the rollup row for its observation day. */
+    void recordObservation(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            BigDecimal price,
+            Instant observedAt);
+
+    /**
+     * Fold a batch of observations, taking each affected rollup row lock once. Observations must
+     * have {@code createdAt} set.
+     */
+    void recordObservations(List<PriceObservation> observations);
+
+    /** Rollups for an exact departure date observed on or after {@code sinceDay}, newest first. */
+    List<PriceDailyRollup> findRecent(
+            String origin, String destination, LocalDate departureDate, LocalDate sinceDay);
+
+    /**
+     * Rollups for departure dates within {@code departureDate ± rangeDays} observed on or after
+     * {@code sinceDay}, newest first.
+     */
+    List<PriceDailyRollup> findRecentInRange(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            int rangeDays,
+            LocalDate sinceDay);
+
+    /**
+     * Fold raw observations older than the retention window into exact rollups and delete them.
+     *
+     * @return number of observation days compacted
+     */
+    int compactRawObservations();
+}
@@ -0,0 +1,27 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import java.util.Optional;
+
+/**
+ * Long-running price distribution per route (origin/destination, across departure dates), kept in
+ * memory as a quantile sketch so a price can be rated against history without a query at search
+ * time.
+ */
+public interface RoutePriceDistributionService {
+
+    /** Add an observed price for a route. */
+    void record(String origin, String destination, double price);
+
+    /**
+     * Current distribution for a route, or empty if the route has fewer observations than the
+     * configured minimum.
+     */
+    Optional<PriceQuantileSketch.Snapshot> distribution(String origin, String destination);
+
+    /**
+     * Persist sketches that changed since the last snapshot.
+     *
+     * @return number of routes written
+     */
+    int snapshot();
+}
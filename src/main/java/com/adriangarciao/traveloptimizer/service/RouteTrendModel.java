@@ -0,0 +1,149 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Online price trend per route and departure date using Holt's linear smoothing (level + slope)
+ * adapted to irregular observation times. Each observation updates the state in O(1); reading an
+ * estimate is a map lookup.
+ *
+ * <p>State is kept in a bounded Caffeine map; updates go through {@code asMap().compute}, which
+ * locks only the key's bin of the underlying concurrent map, so routes update independently.
+ */
+public class RouteTrendModel {
+
+    /** Observations closer together than this only update the level, not the slope. */
+    private static final double MIN_SLOPE_INTERVAL_DAYS = 1.0 / 24.0;
+
+    private static final double SECONDS_PER_DAY = 86_400.0;
+
+    /** State key: route and departure date. */
+    record Key(String origin, String destination, LocalDate departureDate) {}
+
+    /**
+     * Smoothed state for one route/date.
+     *
+     * @param level smoothed price at {@code lastObservedAt}
+     * @param slopePerDay smoothed price change per day
+     * @param residualVariance exponentially weighted variance of one-step forecast errors
+     * @param count observations folded in
+     */
+    public record Estimate(
+            double level,
+            double slopePerDay,
+            double residualVariance,
+            long count,
+            Instant lastObservedAt) {
+
+        public double residualStdDev() {
+            return Math.sqrt(residualVariance);
+        }
+    }
+
+    private final Cache<Key, Estimate> states;
+    private final double alpha;
+    private final double beta;
+
+    /**
+     * @param alpha level smoothing factor in (0, 1]
+     * @param beta slope smoothing factor in (0, 1]
+     * @param maxEntries maximum route/date states kept
+     * @param idleExpiry states not updated for this long are dropped
+     */
+    public RouteTrendModel(double alpha, double beta, long maxEntries, Duration idleExpiry) {
+        this.alpha = alpha;
+        this.beta = beta;
+        this.states =
+                Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(idleExpiry).build();
+    }
+
+    /** Fold one observed price into the route/date state. */
+    public void update(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            double price,
+            Instant observedAt) {
+        states.asMap()
+                .compute(
+                        new Key(origin, destination, departureDate),
+                        (k, s) ->
+                                s == null ? first(price, observedAt) : next(s, price, observedAt));
+    }
+
+    /**
+     * Seed a route/date from stored observations, oldest first. An existing state is replaced
+     * unless it already holds at least as many observations: live updates only start after the
+     * observation is written, so stored history includes them, and a state a flush created before
+     * the first seed would otherwise keep the route cold.
+     *
+     * @return true if the observations were applied
+     */
+    public boolean seed(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            List<PriceObservation> oldestFirst) {
+        if (oldestFirst.isEmpty()) {
+            return false;
+        }
+        Estimate s = null;
+        for (PriceObservation obs : oldestFirst) {
+            double price = obs.getObservedPrice().doubleValue();
+            Instant at = obs.getCreatedAt() != null ? obs.getCreatedAt() : Instant.now();
+            s = s == null ? first(price, at) : next(s, price, at);
+        }
+        Estimate seeded = s;
+        boolean[] applied = {false};
+        states.asMap()
+                .compute(
+                        new Key(origin, destination, departureDate),
+                        (k, existing) -> {
+                            if (existing != null && existing.count() >= seeded.count()) {
+                                return existing;
+                            }
+                            applied[0] = true;
+                            return seeded;
+                        });
+        return applied[0];
+    }
+
+    /** Current estimate for a route/date, if any observations have been seen. */
+    public Optional<Estimate> estimate(String origin, String destination, LocalDate departureDate) {
+        return Optional.ofNullable(
+                states.getIfPresent(new Key(origin, destination, departureDate)));
+    }
+
+    /** Number of route/date states currently held. */
+    public long size() {
+        return states.estimatedSize();
+    }
+
+    private static Estimate first(double price, Instant at) {
+        return new Estimate(price, 0.0, 0.0, 1, at);
+    }
+
+    private Estimate next(Estimate s, double price, Instant at) {
+        double dtDays =
+                Math.max(0.0, Duration.between(s.lastObservedAt(), at).toMillis() / 1000.0)
+                        / SECONDS_PER_DAY;
+        double forecast = s.level() + s.slopePerDay() * dtDays;
+        double error = price - forecast;
+
+        double level = forecast + alpha * error;
+        double slope = s.slopePerDay();
+        if (dtDays >= MIN_SLOPE_INTERVAL_DAYS) {
+            slope = beta * ((level - s.level()) / dtDays) + (1 - beta) * slope;
+        }
+        double variance = (1 - alpha) * s.residualVariance() + alpha * error * error;
+        Instant last = at.isAfter(s.lastObservedAt()) ? at : s.lastObservedAt();
+        return new Estimate(level, slope, variance, s.count() + 1, last);
+    }
+}
@@ -7,7 +7,7 @@ import lombok.Data;
 
 /**
  * Context computed once per search/page containing aggregate statistics needed for comparative flag
- * evaluation (percentiles, medians, etc.).
+ * evaluation (percentiles, medians, etc.). The figures come from a shared {@link SearchStats}.
  */
 @Data
 @Builder
@@ -30,6 +30,25 @@ public class SearchContext {
     /** Number of options in the result set. */
     private int optionCount;
 
+    /** Historical price distribution for the searched route, or null if not enough history. */
+    private PriceQuantileSketch.Snapshot routePriceHistory;
+
+    /** Statistics this context was derived from, for consumers that need rank lookups. */
+    private SearchStats stats;
+
+    /** Build a context from statistics already computed for the result set. */
+    public static SearchContext from(SearchStats stats) {
+        return SearchContext.builder()
+                .optionCount(stats.priceCount())
+                .minPrice(stats.minPrice())
+                .maxPrice(stats.maxPrice())
+                .p25Price(stats.p25Price())
+                .p75Price(stats.p75Price())
+                .medianDurationMinutes(stats.medianDurationMinutes())
+                .stats(stats)
+                .build();
+    }
+
     /**
      * Compute a SearchContext from a list of prices and durations.
      *
@@ -38,64 +57,10 @@ public class SearchContext {
      * @return SearchContext with computed statistics
      */
     public static SearchContext compute(List<BigDecimal> prices, List<Long> durations) {
-        SearchContextBuilder builder = SearchContext.builder().optionCount(prices.size());
-
-        if (prices.isEmpty()) {
-            return builder.minPrice(BigDecimal.ZERO)
-                    .maxPrice(BigDecimal.ZERO)
-                    .p25Price(BigDecimal.ZERO)
-                    .p75Price(BigDecimal.ZERO)
-                    .medianDurationMinutes(0L)
-                    .build();
+        long[] d = new long[durations.size()];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = durations.get(i);
         }
-
-        // Sort prices for percentile calculation
-        List<BigDecimal> sortedPrices = prices.stream().sorted().toList();
-
-        builder.minPrice(sortedPrices.get(0));
-        builder.maxPrice(sortedPrices.get(sortedPrices.size() - 1));
-        builder.p25Price(percentile(sortedPrices, 25));
-        builder.p75Price(percentile(sortedPrices, 75));
-
-        // Calculate median duration
-        if (!durations.isEmpty()) {
-            List<Long> sortedDurations = durations.stream().sorted().toList();
-            int midIndex = sortedDurations.size() / 2;
-            if (sortedDurations.size() % 2 == 0) {
-                builder.medianDurationMinutes(
-                        (sortedDurations.get(midIndex - 1) + sortedDurations.get(midIndex)) / 2);
-            } else {
-                builder.medianDurationMinutes(sortedDurations.get(midIndex));
-            }
-        } else {
-            builder.medianDurationMinutes(0L);
-        }
-
-        return builder.build();
-    }
-
-    /** Calculate percentile value from a sorted list. */
-    private static BigDecimal percentile(List<BigDecimal> sorted, int percentile) {
-        if (sorted.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        if (sorted.size() == 1) {
-            return sorted.get(0);
-        }
-
-        double index = (percentile / 100.0) * (sorted.size() - 1);
-        int lower = (int) Math.floor(index);
-        int upper = (int) Math.ceil(index);
-
-        if (lower == upper || upper >= sorted.size()) {
-            return sorted.get(lower);
-        }
-
-        // Linear interpolation
-        double fraction = index - lower;
-        BigDecimal lowerVal = sorted.get(lower);
-        BigDecimal upperVal = sorted.get(upper);
-
-        return lowerVal.add(upperVal.subtract(lowerVal).multiply(BigDecimal.valueOf(fraction)));
+        return from(SearchStats.of(prices, d, 0));
     }
 }
@@ -0,0 +1,342 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Price, duration and stop statistics for one result set, built once and handed to every consumer
+ * (flag rules, buy/wait, ML features, assembly scoring) instead of each re-deriving them.
+ *
+ * <p>Quartiles and the median duration come from quickselect on a working copy, so building the
+ * stats is linear. Rank lookups need full order; the prices are sorted once, on the first lookup,
+ * and shared by all later ones. Options without a price or duration are left out of the respective
+ * statistics.
+ */
+public final class SearchStats {
+
+    public static final SearchStats EMPTY = new SearchStats(new BigDecimal[0], new long[0], 0);
+
+    private final int priceCount;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final BigDecimal p25Price;
+    private final BigDecimal p75Price;
+    private final int durationCount;
+    private final long minDurationMinutes;
+    private final long maxDurationMinutes;
+    private final long medianDurationMinutes;
+    private final int maxStops;
+
+    /** Prices in selection order; sorted in place on the first rank lookup. */
+    private final BigDecimal[] prices;
+
+    private volatile boolean pricesSorted;
+
+    private SearchStats(BigDecimal[] prices, long[] durations, int maxStops) {
+        this.prices = prices;
+        this.priceCount = prices.length;
+        this.maxStops = maxStops;
+
+        if (priceCount == 0) {
+            minPrice = BigDecimal.ZERO;
+            maxPrice = BigDecimal.ZERO;
+            p25Price = BigDecimal.ZERO;
+            p75Price = BigDecimal.ZERO;
+        } else {
+            BigDecimal min = prices[0];
+            BigDecimal max = prices[0];
+            for (BigDecimal p : prices) {
+                if (p.compareTo(min) < 0) min = p;
+                if (p.compareTo(max) > 0) max = p;
+            }
+            minPrice = min;
+            maxPrice = max;
+            p25Price = quantile(prices, 0.25);
+            p75Price = quantile(prices, 0.75);
+        }
+
+        this.durationCount = durations.length;
+        if (durationCount == 0) {
+            minDurationMinutes = 0L;
+            maxDurationMinutes = 0L;
+            medianDurationMinutes = 0L;
+        } else {
+            long min = durations[0];
+            long max = durations[0];
+            for (long d : durations) {
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+            }
+            minDurationMinutes = min;
+            maxDurationMinutes = max;
+            medianDurationMinutes = median(durations);
+        }
+    }
+
+    /** Stats over raw values. Null prices are skipped; the arrays are not retained. */
+    public static SearchStats of(Collection<BigDecimal> prices, long[] durations, int maxStops) {
+        BigDecimal[] p = prices.stream().filter(Objects::nonNull).toArray(BigDecimal[]::new);
+        return new SearchStats(p, durations.clone(), maxStops);
+    }
+
+    /** Stats over persisted/assembled options (total price, flight duration and stops). */
+    public static SearchStats ofTripOptions(Collection<TripOption> options) {
+        if (options == null || options.isEmpty()) {
+            return EMPTY;
+        }
+        BigDecimal[] prices = new BigDecimal[options.size()];
+        long[] durations = new long[options.size()];
+        int np = 0;
+        int nd = 0;
+        int maxStops = 0;
+        for (TripOption o : options) {
+            if (o == null) continue;
+            if (o.getTotalPrice() != null) {
+                prices[np++] = o.getTotalPrice();
+            }
+            FlightOption f = o.getFlightOption();
+            if (f != null) {
+                if (f.getDuration() != null) {
+                    durations[nd++] = f.getDuration().toMinutes();
+                }
+                maxStops = Math.max(maxStops, f.getStops());
+            }
+        }
+        return new SearchStats(Arrays.copyOf(prices, np), Arrays.copyOf(durations, nd), maxStops);
+    }
+
+    /** Stats over a page of response options. */
+    public static SearchStats ofSummaries(Collection<TripOptionSummaryDTO> options) {
+        if (options == null || options.isEmpty()) {
+            return EMPTY;
+        }
+        BigDecimal[] prices = new BigDecimal[options.size()];
+        long[] durations = new long[options.size()];
+        int np = 0;
+        int nd = 0;
+        int maxStops = 0;
+        for (TripOptionSummaryDTO o : options) {
+            if (o == null) continue;
+            if (o.getTotalPrice() != null) {
+                prices[np++] = o.getTotalPrice();
+            }
+            if (o.getFlight() != null) {
+                if (o.getFlight().getDuration() != null) {
+                    durations[nd++] = o.getFlight().getDuration().toMinutes();
+                }
+                maxStops = Math.max(maxStops, o.getFlight().getStops());
+            }
+        }
+        return new SearchStats(Arrays.copyOf(prices, np), Arrays.copyOf(durations, nd), maxStops);
+    }
+
+    /** Number of priced options. */
+    public int priceCount() {
+        return priceCount;
+    }
+
+    public BigDecimal minPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal maxPrice() {
+        return maxPrice;
+    }
+
+    /** 25th percentile price, linearly interpolated between neighbouring ranks. */
+    public BigDecimal p25Price() {
+        return p25Price;
+    }
+
+    /** 75th percentile price, linearly interpolated between neighbouring ranks. */
+    public BigDecimal p75Price() {
+        return p75Price;
+    }
+
+    /** Number of options with a known duration. */
+    public int durationCount() {
+        return durationCount;
+    }
+
+    public long minDurationMinutes() {
+        return minDurationMinutes;
+    }
+
+    public long maxDurationMinutes() {
+        return maxDurationMinutes;
+    }
+
+    /** Median duration; the mean of the two middle values for an even count. */
+    public long medianDurationMinutes() {
+        return medianDurationMinutes;
+    }
+
+    public int maxStops() {
+        return maxStops;
+    }
+
+    /** Number of priced options strictly cheaper than {@code price}. */
+    public int countBelow(BigDecimal price) {
+        if (price == null || priceCount == 0) {
+            return 0;
+        }
+        BigDecimal[] sorted = sortedPrices();
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(price) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Share of priced options strictly cheaper than {@code price}, in [0, 1); 0.5 when the result
+     * set has no prices.
+     */
+    public double fractionBelow(BigDecimal price) {
+        if (priceCount == 0) {
+            return 0.5;
+        }
+        return (double) countBelow(price) / priceCount;
+    }
+
+    /** Whether some option has exactly this price (ignoring scale). */
+    public boolean containsPrice(BigDecimal price) {
+        if (price == null || priceCount == 0) {
+            return false;
+        }
+        int index = countBelow(price);
+        return index < priceCount && prices[index].compareTo(price) == 0;
+    }
+
+    private BigDecimal[] sortedPrices() {
+        if (!pricesSorted) {
+            synchronized (prices) {
+                if (!pricesSorted) {
+                    Arrays.sort(prices);
+                    pricesSorted = true;
+                }
+            }
+        }
+        return prices;
+    }
+
+    // === Selection ===
+
+    /** Quantile with linear interpolation at index {@code q * (n - 1)}; reorders {@code a}. */
+    static BigDecimal quantile(BigDecimal[] a, double q) {
+        int n = a.length;
+        if (n == 1) {
+            return a[0];
+        }
+        double index = q * (n - 1);
+        int lower = (int) Math.floor(index);
+        int upper = (int) Math.ceil(index);
+        BigDecimal lowerVal = select(a, lower);
+        if (lower == upper) {
+            return lowerVal;
+        }
+        // After selecting rank 'lower', rank 'upper' is the smallest value to its right
+        BigDecimal upperVal = a[upper];
+        for (int i = upper + 1; i < n; i++) {
+            if (a[i].compareTo(upperVal) < 0) upperVal = a[i];
+        }
+        double fraction = index - lower;
+        return lowerVal.add(upperVal.subtract(lowerVal).multiply(BigDecimal.valueOf(fraction)));
+    }
+
+    /** Rearrange {@code a} so that {@code a[k]} holds the k-th smallest value, and return it. */
+    static BigDecimal select(BigDecimal[] a, int k) {
+        int lo = 0;
+        int hi = a.length - 1;
+        while (lo < hi) {
+            BigDecimal pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i].compareTo(pivot) < 0) i++;
+                while (a[j].compareTo(pivot) > 0) j--;
+                if (i <= j) {
+                    BigDecimal t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return a[k];
+    }
+
+    private static BigDecimal medianOfThree(BigDecimal a, BigDecimal b, BigDecimal c) {
+        if (a.compareTo(b) > 0) {
+            BigDecimal t = a;
+            a = b;
+            b = t;
+        }
+        if (b.compareTo(c) > 0) {
+            b = c;
+        }
+        return a.compareTo(b) > 0 ? a : b;
+    }
+
+    /** Median of {@code a} (mean of the middle pair for even length); reorders {@code a}. */
+    static long median(long[] a) {
+        int n = a.length;
+        int mid = n / 2;
+        long upper = select(a, mid);
+        if (n % 2 != 0) {
+            return upper;
+        }
+        long lower = a[0];
+        for (int i = 1; i < mid; i++) {
+            lower = Math.max(lower, a[i]);
+        }
+        return (lower + upper) / 2;
+    }
+
+    static long select(long[] a, int k) {
+        int lo = 0;
+        int hi = a.length - 1;
+        while (lo < hi) {
+            long x = a[lo];
+            long y = a[(lo + hi) >>> 1];
+            long z = a[hi];
+            long pivot = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    long t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return a[k];
+    }
+}
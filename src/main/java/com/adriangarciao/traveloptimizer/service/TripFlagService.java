@@ -2,13 +2,14 @@ package com.adriangarciao.traveloptimizer.service;
 
 import com.adriangarciao.traveloptimizer.dto.*;
 import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
 import com.adriangarciao.traveloptimizer.model.TripOption;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -29,41 +30,80 @@ public class TripFlagService {
     private static final int REDEYE_START_HOUR = 22; // 10 PM
     private static final int REDEYE_END_HOUR = 5; // 5 AM
 
-    // Pattern to parse segment strings like "ORD → DEN (2h 30m)" or "ORD-DEN"
-    private static final Pattern SEGMENT_DURATION_PATTERN =
-            Pattern.compile("\\((\\d+)h\\s*(\\d*)m?\\)");
-    private static final Pattern SEGMENT_TIME_PATTERN = Pattern.compile("(\\d{1,2}):(\\d{2})");
+    /** Historical percentile at or below which a price is great regardless of this search. */
+    private static final double HISTORICAL_GREAT_PERCENTILE = 0.25;
+
+    /** Search-cheap prices must also be at or below this historical percentile to be great. */
+    private static final double HISTORICAL_MEDIAN_PERCENTILE = 0.50;
+
+    private static final ObjectMapper FLAGS_MAPPER = new ObjectMapper();
+
+    private final RoutePriceDistributionService priceDistributionService;
+
+    public TripFlagService() {
+        this(null);
+    }
+
+    @Autowired
+    public TripFlagService(
+            @Autowired(required = false) RoutePriceDistributionService priceDistributionService) {
+        this.priceDistributionService = priceDistributionService;
+    }
+
+    /**
+     * Compute SearchContext for a route, attaching the route's historical price distribution when
+     * one is available.
+     */
+    public SearchContext computeContext(
+            List<TripOption> options, String origin, String destination) {
+        SearchContext ctx = computeContext(options);
+        if (priceDistributionService != null) {
+            try {
+                ctx.setRoutePriceHistory(
+                        priceDistributionService.distribution(origin, destination).orElse(null));
+            } catch (Exception e) {
+                log.debug("Route price history unavailable: {}", e.getMessage());
+            }
+        }
+        return ctx;
+    }
 
     /**
      * Compute SearchContext from a list of TripOptions. Should be called once per search result
      * page.
      */
     public SearchContext computeContext(List<TripOption> options) {
+        return SearchContext.from(SearchStats.ofTripOptions(options));
+    }
+
+    /**
+     * Evaluate every option of a search against a context built from all of them, and store the
+     * result on each option as a flag mask plus the serialized flags. Called once when options are
+     * assembled or added, so reads can filter on the mask and skip evaluation.
+     */
+    public void applyFlags(List<TripOption> options, String origin, String destination) {
         if (options == null || options.isEmpty()) {
-            return SearchContext.builder()
-                    .optionCount(0)
-                    .minPrice(BigDecimal.ZERO)
-                    .maxPrice(BigDecimal.ZERO)
-                    .p25Price(BigDecimal.ZERO)
-                    .p75Price(BigDecimal.ZERO)
-                    .medianDurationMinutes(0L)
-                    .build();
+            return;
         }
-
-        List<BigDecimal> prices = new ArrayList<>();
-        List<Long> durations = new ArrayList<>();
-
-        for (TripOption opt : options) {
-            if (opt.getTotalPrice() != null) {
-                prices.add(opt.getTotalPrice());
-            }
-            FlightOption flight = opt.getFlightOption();
-            if (flight != null && flight.getDuration() != null) {
-                durations.add(flight.getDuration().toMinutes());
+        SearchContext ctx = computeContext(options, origin, destination);
+        for (TripOption option : options) {
+            List<TripFlagDTO> flags = evaluate(option, ctx);
+            option.setFlagMask(maskOf(flags));
+            try {
+                option.setFlagsJson(FLAGS_MAPPER.writeValueAsString(flags));
+            } catch (Exception e) {
+                log.warn("Failed to serialize flags: {}", e.toString());
+                option.setFlagsJson(null);
             }
         }
+    }
 
-        return SearchContext.compute(prices, durations);
+    static long maskOf(List<TripFlagDTO> flags) {
+        long mask = 0L;
+        for (TripFlagDTO flag : flags) {
+            mask |= FlagCode.fromCode(flag.getCode()).mask();
+        }
+        return mask;
     }
 
     /**
@@ -139,105 +179,75 @@ public class TripFlagService {
     }
 
     private void checkTightConnection(FlightOption flight, List<TripFlagDTO> flags) {
-        List<String> segments = flight.getSegments();
-        if (segments == null || segments.size() <= 1) {
+        FlightSegment.Summary legs = flight.legSummary();
+        Integer layover = legs.minLayoverMinutes();
+        if (layover == null || layover <= 0 || layover >= TIGHT_CONNECTION_MINUTES) {
             return;
         }
+        String airport = legs.minLayoverAirport();
+        FlagSeverity severity = layover < 45 ? FlagSeverity.BAD : FlagSeverity.WARN;
 
-        // Try to detect tight connections from segment info
-        // We'll estimate layover time from segment patterns if available
-        // Format often: "ORD → DEN (2h 30m)" or contains connection time info
-
-        List<Integer> layoverMinutes = estimateLayoverTimes(segments);
-
-        for (int i = 0; i < layoverMinutes.size(); i++) {
-            int layover = layoverMinutes.get(i);
-            if (layover > 0 && layover < TIGHT_CONNECTION_MINUTES) {
-                String airport = extractConnectionAirport(segments, i);
-                FlagSeverity severity = layover < 45 ? FlagSeverity.BAD : FlagSeverity.WARN;
-
-                Map<String, Object> metrics = new HashMap<>();
-                metrics.put("connectionMinutes", layover);
-                if (airport != null) {
-                    metrics.put("airport", airport);
-                }
-
-                flags.add(
-                        TripFlagDTO.of(
-                                FlagCode.TIGHT_CONNECTION,
-                                severity,
-                                "Tight connection",
-                                String.format(
-                                        "Only %dm%s; high risk of missed connection.",
-                                        layover, airport != null ? " in " + airport : ""),
-                                metrics));
-                break; // Only flag the tightest connection
-            }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("connectionMinutes", layover);
+        if (airport != null) {
+            metrics.put("airport", airport);
         }
+
+        flags.add(
+                TripFlagDTO.of(
+                        FlagCode.TIGHT_CONNECTION,
+                        severity,
+                        "Tight connection",
+                        String.format(
+                                "Only %dm%s; high risk of missed connection.",
+                                layover, airport != null ? " in " + airport : ""),
+                        metrics));
     }
 
     private void checkLongLayover(FlightOption flight, List<TripFlagDTO> flags) {
-        List<String> segments = flight.getSegments();
-        if (segments == null || segments.size() <= 1) {
+        FlightSegment.Summary legs = flight.legSummary();
+        Integer layover = legs.maxLayoverMinutes();
+        if (layover == null || layover < LONG_LAYOVER_MINUTES) {
             return;
         }
-
-        List<Integer> layoverMinutes = estimateLayoverTimes(segments);
-
-        for (int i = 0; i < layoverMinutes.size(); i++) {
-            int layover = layoverMinutes.get(i);
-            if (layover >= LONG_LAYOVER_MINUTES) {
-                String airport = extractConnectionAirport(segments, i);
-                FlagSeverity severity = layover >= 300 ? FlagSeverity.WARN : FlagSeverity.INFO;
-
-                int hours = layover / 60;
-                int mins = layover % 60;
-                String durationText =
-                        mins > 0
-                                ? String.format("%dh %dm", hours, mins)
-                                : String.format("%dh", hours);
-
-                Map<String, Object> metrics = new HashMap<>();
-                metrics.put("layoverMinutes", layover);
-                if (airport != null) {
-                    metrics.put("airport", airport);
-                }
-
-                flags.add(
-                        TripFlagDTO.of(
-                                FlagCode.LONG_LAYOVER,
-                                severity,
-                                "Long layover",
-                                String.format(
-                                        "%s layover%s.",
-                                        durationText, airport != null ? " in " + airport : ""),
-                                metrics));
-                break; // Only flag the longest layover
-            }
+        String airport = legs.maxLayoverAirport();
+        FlagSeverity severity = layover >= 300 ? FlagSeverity.WARN : FlagSeverity.INFO;
+
+        int hours = layover / 60;
+        int mins = layover % 60;
+        String durationText =
+                mins > 0 ? String.format("%dh %dm", hours, mins) : String.format("%dh", hours);
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("layoverMinutes", layover);
+        if (airport != null) {
+            metrics.put("airport", airport);
         }
+
+        flags.add(
+                TripFlagDTO.of(
+                        FlagCode.LONG_LAYOVER,
+                        severity,
+                        "Long layover",
+                        String.format(
+                                "%s layover%s.",
+                                durationText, airport != null ? " in " + airport : ""),
+                        metrics));
     }
 
     private void checkRedeye(FlightOption flight, List<TripFlagDTO> flags) {
-        // Check segments for departure times
-        List<String> segments = flight.getSegments();
-        if (segments == null || segments.isEmpty()) {
+        Integer departureHour = flight.legSummary().departureHour();
+        if (departureHour == null) {
             return;
         }
-
-        // Try to extract departure time from first segment
-        String firstSegment = segments.get(0);
-        Integer departureHour = extractDepartureHour(firstSegment);
-
-        if (departureHour != null) {
-            if (departureHour >= REDEYE_START_HOUR || departureHour < REDEYE_END_HOUR) {
-                flags.add(
-                        TripFlagDTO.of(
-                                FlagCode.REDEYE,
-                                FlagSeverity.WARN,
-                                "Red-eye flight",
-                                "Departure between 10PM-5AM may affect sleep schedule.",
-                                Map.of("departureHour", departureHour)));
-            }
+        if (departureHour >= REDEYE_START_HOUR || departureHour < REDEYE_END_HOUR) {
+            flags.add(
+                    TripFlagDTO.of(
+                            FlagCode.REDEYE,
+                            FlagSeverity.WARN,
+                            "Red-eye flight",
+                            "Departure between 10PM-5AM may affect sleep schedule.",
+                            Map.of("departureHour", departureHour)));
         }
     }
 
@@ -285,8 +295,13 @@ public class TripFlagService {
         }
     }
 
+    /**
+     * GREAT_PRICE: in the lowest 25% of this search. When the route has enough history the price
+     * must also be at or below the historical median, and a price in the historical lowest 25% is
+     * great even if the search itself is small.
+     */
     private void checkGreatPrice(TripOption option, SearchContext ctx, List<TripFlagDTO> flags) {
-        if (ctx == null || ctx.getP25Price() == null || ctx.getOptionCount() < 3) {
+        if (ctx == null) {
             return;
         }
 
@@ -295,35 +310,65 @@ public class TripFlagService {
             return;
         }
 
-        if (price.compareTo(ctx.getP25Price()) <= 0) {
-            int percentBelowMedian = 0;
-            if (ctx.getP75Price() != null && ctx.getP75Price().compareTo(BigDecimal.ZERO) > 0) {
-                // Calculate how much below median
-                BigDecimal medianApprox =
-                        ctx.getP25Price()
-                                .add(ctx.getP75Price())
-                                .divide(BigDecimal.valueOf(2), 2, java.math.RoundingMode.HALF_UP);
-                if (medianApprox.compareTo(BigDecimal.ZERO) > 0) {
-                    percentBelowMedian =
-                            medianApprox
-                                    .subtract(price)
-                                    .multiply(BigDecimal.valueOf(100))
-                                    .divide(medianApprox, 0, java.math.RoundingMode.HALF_UP)
-                                    .intValue();
-                }
-            }
+        boolean inSearchP25 =
+                ctx.getP25Price() != null
+                        && ctx.getOptionCount() >= 3
+                        && price.compareTo(ctx.getP25Price()) <= 0;
+
+        PriceQuantileSketch.Snapshot history = ctx.getRoutePriceHistory();
+        Double historicalPercentile = history != null ? history.cdf(price.doubleValue()) : null;
+
+        boolean great;
+        String detail;
+        if (historicalPercentile == null) {
+            great = inSearchP25;
+            detail = "In the lowest 25% of prices for this search.";
+        } else if (historicalPercentile <= HISTORICAL_GREAT_PERCENTILE) {
+            great = true;
+            detail = "In the lowest 25% of prices seen on this route.";
+        } else {
+            great = inSearchP25 && historicalPercentile <= HISTORICAL_MEDIAN_PERCENTILE;
+            detail = "In the lowest 25% of prices for this search and below the usual price.";
+        }
+        if (!great) {
+            return;
+        }
 
-            flags.add(
-                    TripFlagDTO.of(
-                            FlagCode.GREAT_PRICE,
-                            FlagSeverity.GOOD,
-                            "Great price",
-                            "In the lowest 25% of prices for this search.",
-                            Map.of(
-                                    "price", price,
-                                    "p25Price", ctx.getP25Price(),
-                                    "percentBelowMedian", Math.max(0, percentBelowMedian))));
+        int percentBelowMedian = 0;
+        BigDecimal medianApprox = null;
+        if (history != null) {
+            medianApprox = BigDecimal.valueOf(history.quantile(0.5));
+        } else if (ctx.getP25Price() != null
+                && ctx.getP75Price() != null
+                && ctx.getP75Price().compareTo(BigDecimal.ZERO) > 0) {
+            // Calculate how much below median
+            medianApprox =
+                    ctx.getP25Price()
+                            .add(ctx.getP75Price())
+                            .divide(BigDecimal.valueOf(2), 2, java.math.RoundingMode.HALF_UP);
+        }
+        if (medianApprox != null && medianApprox.compareTo(BigDecimal.ZERO) > 0) {
+            percentBelowMedian =
+                    medianApprox
+                            .subtract(price)
+                            .multiply(BigDecimal.valueOf(100))
+                            .divide(medianApprox, 0, java.math.RoundingMode.HALF_UP)
+                            .intValue();
+        }
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("price", price);
+        if (ctx.getP25Price() != null) {
+            metrics.put("p25Price", ctx.getP25Price());
         }
+        metrics.put("percentBelowMedian", Math.max(0, percentBelowMedian));
+        if (historicalPercentile != null) {
+            metrics.put("historicalPercentile", historicalPercentile);
+        }
+
+        flags.add(
+                TripFlagDTO.of(
+                        FlagCode.GREAT_PRICE, FlagSeverity.GOOD, "Great price", detail, metrics));
     }
 
     private void checkExpensive(TripOption option, SearchContext ctx, List<TripFlagDTO> flags) {
@@ -385,87 +430,4 @@ public class TripFlagService {
             }
         }
     }
-
-    /**
-     * Estimate layover times from segment information. This is a heuristic since we may not have
-     * exact times.
-     *
-     * <p>Assumption: If segments contain duration info, we can estimate. Otherwise, we use a
-     * default based on number of stops.
-     */
-    private List<Integer> estimateLayoverTimes(List<String> segments) {
-        List<Integer> layovers = new ArrayList<>();
-
-        if (segments.size() <= 1) {
-            return layovers;
-        }
-
-        // Try to extract timing info from segments
-        // Common format: "ORD 10:30 → DEN 12:45" or "ORD → DEN (2h 15m)"
-        List<Integer> segmentDurations = new ArrayList<>();
-
-        for (String segment : segments) {
-            Matcher m = SEGMENT_DURATION_PATTERN.matcher(segment);
-            if (m.find()) {
-                int hours = Integer.parseInt(m.group(1));
-                int mins = m.group(2).isEmpty() ? 0 : Integer.parseInt(m.group(2));
-                segmentDurations.add(hours * 60 + mins);
-            } else {
-                // Can't determine duration from this segment
-                segmentDurations.add(-1);
-            }
-        }
-
-        // If we couldn't extract durations, use heuristic layover estimates
-        // based on typical connection times
-        if (segmentDurations.stream().allMatch(d -> d < 0)) {
-            // Default: assume 90 minutes layover between segments
-            for (int i = 0; i < segments.size() - 1; i++) {
-                layovers.add(90); // Default layover estimate
-            }
-        }
-
-        return layovers;
-    }
-
-    /** Extract connection airport code from segment info. */
-    private String extractConnectionAirport(List<String> segments, int connectionIndex) {
-        if (connectionIndex >= segments.size() - 1) {
-            return null;
-        }
-
-        // Try to extract destination airport from segment
-        // Format: "ORD → DEN" - we want DEN (the connection point)
-        String segment = segments.get(connectionIndex);
-        Pattern airportPattern = Pattern.compile("→\\s*([A-Z]{3})");
-        Matcher m = airportPattern.matcher(segment);
-        if (m.find()) {
-            return m.group(1);
-        }
-
-        // Alternative pattern: "ORD-DEN" or "ORD - DEN"
-        Pattern altPattern = Pattern.compile("-\\s*([A-Z]{3})");
-        m = altPattern.matcher(segment);
-        if (m.find()) {
-            return m.group(1);
-        }
-
-        return null;
-    }
-
-    /**
-     * Extract departure hour from segment string. Looks for time patterns like "10:30" or "22:45".
-     */
-    private Integer extractDepartureHour(String segment) {
-        if (segment == null) {
-            return null;
-        }
-
-        Matcher m = SEGMENT_TIME_PATTERN.matcher(segment);
-        if (m.find()) {
-            return Integer.parseInt(m.group(1));
-        }
-
-        return null;
-    }
 }
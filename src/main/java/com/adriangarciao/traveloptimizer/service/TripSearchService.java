@@ -1,8 +1,10 @@
 package com.adriangarciao.traveloptimizer.service;
 
+import com.adriangarciao.traveloptimizer.dto.FlagCode;
 import com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -12,10 +14,58 @@ import java.util.UUID;
  * persistence.
  */
 public interface TripSearchService {
+    /**
+     * Search trips, returning the first {@code limit} options by {@code sortBy}.
+     *
+     * @throws IllegalArgumentException if {@code sortBy} is not {@code valueScore}, {@code
+     *     totalPrice} or {@code duration}
+     */
     TripSearchResponseDTO searchTrips(
             TripSearchRequestDTO request, Integer limit, String sortBy, String sortDir);
 
-    TripOptionsPageDTO getOptions(UUID searchId, int page, int size, String sortBy, String sortDir);
+    /**
+     * Run {@code request} against the providers again, bypassing cached provider and search
+     * results, and cache the fresh full result set in place of any existing one. Results from a
+     * failed flight provider call are returned but neither cached nor kept in the database. Older
+     * warmed searches of the same request are deleted, except the one just replaced. Used by the
+     * cache warmer.
+     *
+     * @return the fresh full result set, or null if there is no search cache
+     */
+    TripSearchResponseDTO refreshCachedSearch(TripSearchRequestDTO request);
+
+    /**
+     * Page through a search's options. Only options carrying every flag in {@code requiredFlags}
+     * and none in {@code excludedFlags} are counted and returned; null or empty sets disable the
+     * filter.
+     */
+    TripOptionsPageDTO getOptions(
+            UUID searchId,
+            int page,
+            int size,
+            String sortBy,
+            String sortDir,
+            Set<FlagCode> requiredFlags,
+            Set<FlagCode> excludedFlags);
+
+    /**
+     * The page after {@code cursor}, a {@link TripOptionsPageDTO#getNextCursor()} from an earlier
+     * page, found by seeking on the sort key instead of skipping an offset. The sort is the one the
+     * cursor was issued for; flag filters should match those of the earlier page.
+     *
+     * @throws IllegalArgumentException if {@code cursor} is malformed
+     */
+    TripOptionsPageDTO getOptionsAfter(
+            UUID searchId,
+            String cursor,
+            int size,
+            Set<FlagCode> requiredFlags,
+            Set<FlagCode> excludedFlags);
+
+    default TripOptionsPageDTO getOptions(
+            UUID searchId, int page, int size, String sortBy, String sortDir) {
+        return getOptions(searchId, page, size, sortBy, sortDir, Set.of(), Set.of());
+    }
 
     default TripSearchResponseDTO searchTrips(TripSearchRequestDTO request) {
         return searchTrips(request, null, null, null);
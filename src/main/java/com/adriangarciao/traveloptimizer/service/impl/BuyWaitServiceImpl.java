@@ -6,10 +6,13 @@ import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
 import com.adriangarciao.traveloptimizer.service.BuyWaitService;
 import com.adriangarciao.traveloptimizer.service.PriceHistoryService;
+import com.adriangarciao.traveloptimizer.service.PriceQuantileSketch;
+import com.adriangarciao.traveloptimizer.service.RoutePriceDistributionService;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +25,9 @@ import org.springframework.stereotype.Service;
  * <p>Key principles: 1. POOR deals (percentile >= 0.75) should NOT get BUY unless a strong override
  * applies 2. Overrides require: (a) very urgent (≤7 days) AND (b) confirmed RISING trend 3. When
  * override applies, explanation MUST explicitly justify the contradictory recommendation
+ *
+ * <p>When the route has a historical price distribution, the percentile used for the deal rating is
+ * the average of the price's rank within this search and its rank against route history.
  */
 @Service
 @Slf4j
@@ -44,16 +50,23 @@ public class BuyWaitServiceImpl implements BuyWaitService {
     private static final double STRONG_TREND_CONFIDENCE = 0.70;
 
     private final PriceHistoryService priceHistoryService;
+    private final RoutePriceDistributionService priceDistributionService;
 
     /** No-arg constructor for unit tests that don't need price history. */
     public BuyWaitServiceImpl() {
-        this.priceHistoryService = null;
+        this(null, null);
+    }
+
+    public BuyWaitServiceImpl(PriceHistoryService priceHistoryService) {
+        this(priceHistoryService, null);
     }
 
     @Autowired
     public BuyWaitServiceImpl(
-            @Autowired(required = false) PriceHistoryService priceHistoryService) {
+            @Autowired(required = false) PriceHistoryService priceHistoryService,
+            @Autowired(required = false) RoutePriceDistributionService priceDistributionService) {
         this.priceHistoryService = priceHistoryService;
+        this.priceDistributionService = priceDistributionService;
     }
 
     @Override
@@ -62,72 +75,157 @@ public class BuyWaitServiceImpl implements BuyWaitService {
             List<TripOptionSummaryDTO> allOptions,
             TripSearchRequestDTO request) {
         if (option == null || allOptions == null || allOptions.isEmpty()) {
-            return BuyWaitDTO.builder()
-                    .decision("HOLD")
-                    .confidence(0.0)
-                    .reasons(List.of("Insufficient data"))
-                    .trend("UNKNOWN")
-                    .dealRating("UNKNOWN")
-                    .build();
+            return insufficientData();
         }
+        SearchStats stats = SearchStats.ofSummaries(allOptions);
+        int daysToDeparture = computeDaysToDeparture(request);
+        RouteTrend routeTrend = lookupRouteTrend(request);
+        PriceQuantileSketch.Snapshot history = lookupRouteHistory(request);
+        return decide(option, stats, daysToDeparture, routeTrend, history);
+    }
 
-        // === Step 1: Compute price percentile (0 = cheapest, 1 = most expensive) ===
-        List<Double> prices = new ArrayList<>();
-        for (TripOptionSummaryDTO o : allOptions) {
-            prices.add(o.getTotalPrice().doubleValue());
+    @Override
+    public List<BuyWaitDTO> computeBaselines(
+            List<TripOptionSummaryDTO> options, SearchStats stats, TripSearchRequestDTO request) {
+        if (options == null || options.isEmpty()) {
+            return List.of();
         }
-        prices.sort(Comparator.naturalOrder());
-        double price = option.getTotalPrice().doubleValue();
-        int index = 0;
-        for (int i = 0; i < prices.size(); i++) {
-            if (prices.get(i) == price) {
-                index = i;
-                break;
+
+        // Shared inputs: one days-to-departure and one route history lookup per page
+        int daysToDeparture = computeDaysToDeparture(request);
+        RouteTrend routeTrend = lookupRouteTrend(request);
+        PriceQuantileSketch.Snapshot history = lookupRouteHistory(request);
+
+        List<BuyWaitDTO> results = new ArrayList<>(options.size());
+        for (TripOptionSummaryDTO option : options) {
+            BuyWaitDTO result = null;
+            try {
+                result =
+                        option != null
+                                ? decide(option, stats, daysToDeparture, routeTrend, history)
+                                : null;
+            } catch (Exception e) {
+                log.warn(
+                        "Failed to compute baseline buy/wait for option {}: {}",
+                        option.getTripOptionId(),
+                        e.toString());
             }
+            results.add(result);
         }
-        double percentile =
-                (prices.size() <= 1) ? 0.5 : (double) index / (double) (prices.size() - 1);
+        return results;
+    }
+
+    /** Trend derived from stored price history for the searched route. */
+    private record RouteTrend(String trend, String reason, double confidence) {
+        static final RouteTrend UNKNOWN = new RouteTrend("UNKNOWN", null, 0.0);
+    }
+
+    private BuyWaitDTO insufficientData() {
+        return BuyWaitDTO.builder()
+                .decision("HOLD")
+                .confidence(0.0)
+                .reasons(List.of("Insufficient data"))
+                .trend("UNKNOWN")
+                .dealRating("UNKNOWN")
+                .build();
+    }
+
+    /**
+     * Price percentile (0 = cheapest, 1 = most expensive): the number of cheaper options over the
+     * highest rank. Prices not present in the result set rank as cheapest.
+     */
+    private double percentileOf(BigDecimal price, SearchStats stats) {
+        int n = stats.priceCount();
+        if (n <= 1) {
+            return 0.5;
+        }
+        int index = stats.containsPrice(price) ? stats.countBelow(price) : 0;
+        return (double) index / (double) (n - 1);
+    }
 
-        // === Step 2: Compute days to departure ===
-        int daysToDeparture = -1;
-        LocalDate departureDate = null;
+    /** Days from today until the earliest departure date, -1 if unknown. */
+    private int computeDaysToDeparture(TripSearchRequestDTO request) {
         try {
             if (request != null && request.getEarliestDepartureDate() != null) {
                 LocalDate now = LocalDate.now();
-                departureDate = request.getEarliestDepartureDate();
-                daysToDeparture =
-                        (int)
-                                Duration.between(now.atStartOfDay(), departureDate.atStartOfDay())
-                                        .toDays();
+                return (int)
+                        Duration.between(
+                                        now.atStartOfDay(),
+                                        request.getEarliestDepartureDate().atStartOfDay())
+                                .toDays();
             }
         } catch (Exception e) {
-            daysToDeparture = -1;
+            // fall through to unknown
         }
+        return -1;
+    }
 
-        // === Step 3: Compute trend from price history or ML ===
-        String trendStr = "UNKNOWN";
-        String trendReason = null;
-        double trendConfidence = 0.0;
+    /** Look up the route trend from price history. Called once per result set. */
+    private RouteTrend lookupRouteTrend(TripSearchRequestDTO request) {
+        if (priceHistoryService == null
+                || request == null
+                || request.getEarliestDepartureDate() == null) {
+            return RouteTrend.UNKNOWN;
+        }
+        try {
+            PriceHistoryService.TrendResult trendResult =
+                    priceHistoryService.computeTrend(
+                            request.getOrigin(),
+                            request.getDestination(),
+                            request.getEarliestDepartureDate());
+            // Model confidence when available, otherwise based on observation count
+            double trendConfidence =
+                    trendResult.confidence() != null
+                            ? trendResult.confidence()
+                            : Math.min(1.0, trendResult.observationCount() / 10.0);
+            log.debug(
+                    "Price history trend for {}->{}: {} (confidence: {})",
+                    request.getOrigin(),
+                    request.getDestination(),
+                    trendResult.trend(),
+                    trendConfidence);
+            return new RouteTrend(trendResult.trend(), trendResult.reason(), trendConfidence);
+        } catch (Exception e) {
+            log.debug("Failed to compute trend from price history: {}", e.getMessage());
+            return RouteTrend.UNKNOWN;
+        }
+    }
 
-        if (priceHistoryService != null && request != null && departureDate != null) {
-            try {
-                PriceHistoryService.TrendResult trendResult =
-                        priceHistoryService.computeTrend(
-                                request.getOrigin(), request.getDestination(), departureDate);
-                trendStr = trendResult.trend();
-                trendReason = trendResult.reason();
-                // Confidence based on observation count
-                trendConfidence = Math.min(1.0, trendResult.observationCount() / 10.0);
-                log.debug(
-                        "Price history trend for {}->{}: {} (confidence: {})",
-                        request.getOrigin(),
-                        request.getDestination(),
-                        trendStr,
-                        trendConfidence);
-            } catch (Exception e) {
-                log.debug("Failed to compute trend from price history: {}", e.getMessage());
-            }
+    /** Historical price distribution for the route, or null when there is not enough history. */
+    private PriceQuantileSketch.Snapshot lookupRouteHistory(TripSearchRequestDTO request) {
+        if (priceDistributionService == null || request == null) {
+            return null;
+        }
+        try {
+            return priceDistributionService
+                    .distribution(request.getOrigin(), request.getDestination())
+                    .orElse(null);
+        } catch (Exception e) {
+            log.debug("Failed to look up route price history: {}", e.getMessage());
+            return null;
         }
+    }
+
+    /** Compute the buy/wait decision for a single option against precomputed shared inputs. */
+    private BuyWaitDTO decide(
+            TripOptionSummaryDTO option,
+            SearchStats stats,
+            int daysToDeparture,
+            RouteTrend routeTrend,
+            PriceQuantileSketch.Snapshot history) {
+        // === Step 1: Compute price percentile (0 = cheapest, 1 = most expensive) ===
+        double price = option.getTotalPrice().doubleValue();
+        double searchPercentile = percentileOf(option.getTotalPrice(), stats);
+        Double historicalPercentile = history != null ? history.cdf(price) : null;
+        double percentile =
+                historicalPercentile != null
+                        ? (searchPercentile + historicalPercentile) / 2.0
+                        : searchPercentile;
+
+        // === Step 2/3: Days to departure and route trend are shared across the result set ===
+        String trendStr = routeTrend.trend() != null ? routeTrend.trend() : "UNKNOWN";
+        String trendReason = routeTrend.reason();
+        double trendConfidence = routeTrend.confidence();
 
         // Fall back to ML recommendation if price history didn't help
         if ("UNKNOWN".equals(trendStr)) {
@@ -266,7 +364,9 @@ public class BuyWaitServiceImpl implements BuyWaitService {
                         overrideApplied,
                         hasTimePressure,
                         isUrgent,
-                        option);
+                        option,
+                        historicalPercentile,
+                        history != null ? history.count() : 0L);
 
         // === Step 9: Build signals for debugging ===
         BuyWaitDTO.SignalsDTO signals =
@@ -297,7 +397,8 @@ public class BuyWaitServiceImpl implements BuyWaitService {
                 .confidence(confidence)
                 .reasons(reasons)
                 .trend(trendStr)
-                .pricePercentile(percentile)
+                .pricePercentile(searchPercentile)
+                .historicalPercentile(historicalPercentile)
                 .dealRating(dealRating)
                 .daysUntilDeparture(daysToDeparture)
                 .trendConfidence(trendConfidence > 0 ? trendConfidence : null)
@@ -372,13 +473,23 @@ public class BuyWaitServiceImpl implements BuyWaitService {
             boolean overrideApplied,
             boolean hasTimePressure,
             boolean isUrgent,
-            TripOptionSummaryDTO option) {
+            TripOptionSummaryDTO option,
+            Double historicalPercentile,
+            long historyCount) {
         List<String> reasons = new ArrayList<>();
 
         // Price position explanation
         String priceText = buildPriceExplanation(percentile, dealRating);
         reasons.add(priceText);
 
+        // Route history explanation
+        if (historicalPercentile != null) {
+            reasons.add(
+                    String.format(
+                            "Cheaper than %d%% of %d prices seen on this route.",
+                            Math.round((1.0 - historicalPercentile) * 100.0), historyCount));
+        }
+
         // Time explanation
         String timeText =
                 (daysToDeparture >= 0)
@@ -0,0 +1,500 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import com.adriangarciao.traveloptimizer.config.SearchKeyGenerator;
+import com.adriangarciao.traveloptimizer.dto.CacheWarmingStatusDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.dto.TripType;
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import com.adriangarciao.traveloptimizer.service.CacheWarmingService;
+import com.adriangarciao.traveloptimizer.service.TripSearchService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache warming driven by the lookups reported through {@link #recordLookup}.
+ *
+ * <p>Each lookup, hit or miss, is counted per search cache key in hourly buckets. Hits must count:
+ * once a search is warm its users no longer persist {@code trip_search} rows, so ranking on those
+ * alone would drop the hottest searches from the warm set once their rows age out. Lookups are
+ * counted per instance; {@link TripSearchRepository#findHotSearches} still seeds the ranking after
+ * a restart and adds misses seen by other instances, and a combination ranks by whichever of the
+ * two counts is higher.
+ *
+ * <p>The warm set is the top {@code app.cache.warming.top-searches} combinations looked up at least
+ * {@code min-searches} times in the last {@code lookback-hours}. An entry is refreshed when it was
+ * last refreshed {@code refresh-after-seconds} ago or more, which must be shorter than the search
+ * cache TTL; at most {@code max-refreshes-per-run} are refreshed per run, {@code pause-ms} apart.
+ * The pause is a delayed continuation on the {@link TaskScheduler}, not a sleep, so warming never
+ * holds a scheduler thread while it waits. A refresh the provider rate-limits ends the run and
+ * pauses warming for {@code rate-limit-pause-minutes}; any other failed refresh just ends the run.
+ * Searches ranked from persisted rows carry no preferences.
+ */
+@Slf4j
+@Service
+public class CacheWarmingServiceImpl implements CacheWarmingService {
+
+    private final TripSearchRepository tripSearchRepository;
+
+    /** Looked up lazily: the search service reports its cache lookups back to this service. */
+    private final ObjectProvider<TripSearchService> tripSearchService;
+
+    /** Runs the rest of a run after each pause; without one a run ends at its first pause. */
+    private final ObjectProvider<TaskScheduler> taskScheduler;
+
+    private final Counter refreshedOk;
+    private final Counter refreshedFailed;
+    private final Counter refreshedRateLimited;
+    private final Counter lookupHits;
+    private final Counter lookupMisses;
+
+    @Value("${app.cache.warming.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${app.cache.warming.lookback-hours:24}")
+    private long lookbackHours = 24;
+
+    @Value("${app.cache.warming.top-searches:20}")
+    private int topSearches = 20;
+
+    @Value("${app.cache.warming.min-searches:3}")
+    private long minSearches = 3;
+
+    @Value("${app.cache.warming.refresh-after-seconds:480}")
+    private long refreshAfterSeconds = 480;
+
+    @Value("${app.cache.warming.max-refreshes-per-run:5}")
+    private int maxRefreshesPerRun = 5;
+
+    @Value("${app.cache.warming.pause-ms:1000}")
+    private long pauseMs = 1000;
+
+    @Value("${app.cache.warming.rate-limit-pause-minutes:15}")
+    private long rateLimitPauseMinutes = 15;
+
+    /** Bound on search keys whose lookups are counted; new keys are ignored while full. */
+    @Value("${app.cache.warming.max-tracked-searches:10000}")
+    private int maxTrackedSearches = 10000;
+
+    /** Lookups per search cache key over the lookback window; pruned by each run. */
+    private final Map<String, Demand> demand = new ConcurrentHashMap<>();
+
+    /** Keyed by search cache key, hottest first; replaced wholesale by each run. */
+    private volatile Map<String, WarmEntry> warmSet = Map.of();
+
+    private volatile Instant pausedUntil;
+    private volatile Instant lastRunAt;
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Bumped by each run, so the delayed rest of a superseded run does nothing. */
+    private final AtomicLong runs = new AtomicLong();
+
+    public CacheWarmingServiceImpl(
+            TripSearchRepository tripSearchRepository,
+            ObjectProvider<TripSearchService> tripSearchService,
+            ObjectProvider<TaskScheduler> taskScheduler,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.tripSearchRepository = tripSearchRepository;
+        this.tripSearchService = tripSearchService;
+        this.taskScheduler = taskScheduler;
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            this.refreshedOk = refreshCounter(meterRegistry, "ok");
+            this.refreshedFailed = refreshCounter(meterRegistry, "failed");
+            this.refreshedRateLimited = refreshCounter(meterRegistry, "rate_limited");
+            this.lookupHits = lookupCounter(meterRegistry, "hit");
+            this.lookupMisses = lookupCounter(meterRegistry, "miss");
+            Gauge.builder("traveloptimizer.cache.warming.searches", this, w -> w.warmSet.size())
+                    .description("Searches currently kept warm")
+                    .register(meterRegistry);
+        } else {
+            this.refreshedOk = null;
+            this.refreshedFailed = null;
+            this.refreshedRateLimited = null;
+            this.lookupHits = null;
+            this.lookupMisses = null;
+        }
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("traveloptimizer.cache.warming.refreshes")
+                .tag("result", result)
+                .description("Search cache refreshes run by the cache warmer")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("traveloptimizer.cache.warming.lookups")
+                .tag("result", result)
+                .description("User search cache lookups of warm searches")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.cache.warming.interval-ms:60000}",
+            initialDelayString = "${app.cache.warming.initial-delay-ms:60000}")
+    public void scheduledWarm() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            warm();
+        } catch (Exception e) {
+            log.warn("cacheWarming.failed error={}", e.toString());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return number of searches refreshed before the first pause; the rest of the run continues on
+     *     the task scheduler
+     */
+    @Override
+    public int warm() {
+        Instant now = Instant.now();
+        lastRunAt = now;
+        long run = runs.incrementAndGet();
+        warmSet = rank(now);
+        return refreshDue(run, maxRefreshesPerRun);
+    }
+
+    /**
+     * Refresh due warm entries, hottest first, up to {@code budget} of them. At the first pause the
+     * rest of the run is scheduled {@code pause-ms} later instead of waiting here.
+     *
+     * @return number refreshed by this call
+     */
+    private int refreshDue(long run, int budget) {
+        if (run != runs.get()) {
+            // A newer run re-ranked the warm set and has its own budget
+            return 0;
+        }
+        if (pausedUntil != null && Instant.now().isBefore(pausedUntil)) {
+            log.debug("cacheWarming.paused until={}", pausedUntil);
+            return 0;
+        }
+        pausedUntil = null;
+
+        TripSearchService searchService = tripSearchService.getIfAvailable();
+        if (searchService == null) {
+            return 0;
+        }
+        Duration refreshAfter = Duration.ofSeconds(refreshAfterSeconds);
+        int refreshed = 0;
+        for (WarmEntry entry : warmSet.values()) {
+            if (refreshed >= budget) {
+                break;
+            }
+            Instant last = entry.lastRefreshedAt;
+            if (last != null && Duration.between(last, Instant.now()).compareTo(refreshAfter) < 0) {
+                continue;
+            }
+            if (refreshed > 0 && pauseMs > 0) {
+                continueLater(run, budget - refreshed);
+                break;
+            }
+            refreshed++;
+            if (!refresh(searchService, entry)) {
+                break;
+            }
+        }
+        if (refreshed > 0) {
+            log.info("cacheWarming.run refreshed={} warmSet={}", refreshed, warmSet.size());
+        }
+        return refreshed;
+    }
+
+    /** Run the rest of {@code run} after {@code pause-ms}, keeping warming low priority. */
+    private void continueLater(long run, int budget) {
+        TaskScheduler scheduler = taskScheduler.getIfUnique();
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.schedule(
+                () -> {
+                    try {
+                        refreshDue(run, budget);
+                    } catch (Exception e) {
+                        log.warn("cacheWarming.failed error={}", e.toString());
+                    }
+                },
+                Instant.now().plusMillis(pauseMs));
+    }
+
+    /** Refresh one warm entry; false if the run should stop. */
+    private boolean refresh(TripSearchService searchService, WarmEntry entry) {
+        refreshes.incrementAndGet();
+        TripSearchResponseDTO result;
+        try {
+            result = searchService.refreshCachedSearch(entry.request);
+        } catch (Exception e) {
+            log.warn(
+                    "cacheWarming.refreshFailed origin={} dest={} error={}",
+                    entry.request.getOrigin(),
+                    entry.request.getDestination(),
+                    e.toString());
+            recordFailure(refreshedFailed);
+            return false;
+        }
+        String status = result != null ? result.getFlightProviderStatus() : null;
+        if (ProviderStatus.RATE_LIMITED.name().equals(status)) {
+            pausedUntil = Instant.now().plus(Duration.ofMinutes(rateLimitPauseMinutes));
+            log.info("cacheWarming.rateLimited pausedUntil={}", pausedUntil);
+            recordFailure(refreshedRateLimited);
+            return false;
+        }
+        if (status != null
+                && !ProviderStatus.OK.name().equals(status)
+                && !ProviderStatus.NO_RESULTS.name().equals(status)) {
+            log.info(
+                    "cacheWarming.providerFailed origin={} dest={} status={}",
+                    entry.request.getOrigin(),
+                    entry.request.getDestination(),
+                    status);
+            recordFailure(refreshedFailed);
+            return false;
+        }
+        entry.lastRefreshedAt = Instant.now();
+        if (refreshedOk != null) {
+            refreshedOk.increment();
+        }
+        return true;
+    }
+
+    @Override
+    public void recordLookup(TripSearchRequestDTO request, boolean hit) {
+        if (request == null) {
+            return;
+        }
+        String key = SearchKeyGenerator.canonicalKey(request);
+        Demand counted = demand.get(key);
+        if (counted == null && demand.size() < maxTrackedSearches) {
+            counted =
+                    demand.computeIfAbsent(
+                            key, k -> new Demand(copy(request), (int) lookbackHours));
+        }
+        if (counted != null) {
+            counted.add(currentHour(Instant.now()));
+        }
+
+        WarmEntry entry = warmSet.get(key);
+        if (entry == null) {
+            return;
+        }
+        lookups.incrementAndGet();
+        entry.lookups.incrementAndGet();
+        if (hit) {
+            hits.incrementAndGet();
+            entry.hits.incrementAndGet();
+        }
+        Counter counter = hit ? lookupHits : lookupMisses;
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public CacheWarmingStatusDTO status() {
+        List<CacheWarmingStatusDTO.WarmSearch> searches = new ArrayList<>();
+        for (WarmEntry entry : warmSet.values()) {
+            TripSearchRequestDTO r = entry.request;
+            searches.add(
+                    CacheWarmingStatusDTO.WarmSearch.builder()
+                            .tripType(r.getTripType())
+                            .origin(r.getOrigin())
+                            .destination(r.getDestination())
+                            .earliestDepartureDate(r.getEarliestDepartureDate())
+                            .latestDepartureDate(r.getLatestDepartureDate())
+                            .earliestReturnDate(r.getEarliestReturnDate())
+                            .latestReturnDate(r.getLatestReturnDate())
+                            .numTravelers(r.getNumTravelers())
+                            .maxBudget(r.getMaxBudget())
+                            .searchCount(entry.searchCount)
+                            .lastRefreshedAt(entry.lastRefreshedAt)
+                            .lookups(entry.lookups.get())
+                            .hits(entry.hits.get())
+                            .build());
+        }
+        long totalLookups = lookups.get();
+        long totalHits = hits.get();
+        return CacheWarmingStatusDTO.builder()
+                .enabled(enabled)
+                .pausedUntil(pausedUntil)
+                .lastRunAt(lastRunAt)
+                .refreshes(refreshes.get())
+                .failedRefreshes(failedRefreshes.get())
+                .lookups(totalLookups)
+                .hits(totalHits)
+                .hitRatio(totalLookups > 0 ? (double) totalHits / totalLookups : null)
+                .searches(searches)
+                .build();
+    }
+
+    /**
+     * The new warm set, carrying over refresh times and lookup counts of entries still in it.
+     * Combinations rank by their recorded lookups, or their persisted searches if those are more.
+     */
+    private Map<String, WarmEntry> rank(Instant now) {
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        long sinceHour = currentHour(now) - lookbackHours + 1;
+        Map<String, Candidate> candidates = new HashMap<>();
+        for (Map.Entry<String, Demand> e : demand.entrySet()) {
+            Demand d = e.getValue();
+            long count = d.total(sinceHour);
+            LocalDate departure = d.request.getEarliestDepartureDate();
+            if (count == 0 || (departure != null && departure.isBefore(today))) {
+                // Idle or departed; stop tracking so the map holds only live demand
+                demand.remove(e.getKey(), d);
+                continue;
+            }
+            candidates.put(e.getKey(), new Candidate(d.request, count));
+        }
+        List<Object[]> rows =
+                tripSearchRepository.findHotSearches(
+                        now.minus(Duration.ofHours(lookbackHours)),
+                        today,
+                        PageRequest.of(0, Math.max(1, topSearches)));
+        for (Object[] row : rows) {
+            long count = ((Number) row[9]).longValue();
+            TripSearchRequestDTO request =
+                    TripSearchRequestDTO.builder()
+                            .tripType(row[0] != null ? (TripType) row[0] : TripType.ONE_WAY)
+                            .origin((String) row[1])
+                            .destination((String) row[2])
+                            .earliestDepartureDate((LocalDate) row[3])
+                            .latestDepartureDate((LocalDate) row[4])
+                            .earliestReturnDate((LocalDate) row[5])
+                            .latestReturnDate((LocalDate) row[6])
+                            .numTravelers(row[7] != null ? ((Number) row[7]).intValue() : 1)
+                            .maxBudget((BigDecimal) row[8])
+                            .build();
+            // Misses here were also counted as lookups, so take the larger count, not the sum
+            candidates.merge(
+                    SearchKeyGenerator.canonicalKey(request),
+                    new Candidate(request, count),
+                    (a, b) -> a.count() >= b.count() ? a : b);
+        }
+
+        Map<String, WarmEntry> previous = warmSet;
+        Map<String, WarmEntry> next = new LinkedHashMap<>();
+        candidates.entrySet().stream()
+                .filter(e -> e.getValue().count() >= minSearches)
+                .sorted(
+                        Comparator.comparingLong(
+                                        (Map.Entry<String, Candidate> e) -> e.getValue().count())
+                                .reversed())
+                .limit(Math.max(1, topSearches))
+                .forEach(
+                        e -> {
+                            WarmEntry entry = previous.get(e.getKey());
+                            if (entry == null) {
+                                entry = new WarmEntry(e.getValue().request());
+                            }
+                            entry.searchCount = e.getValue().count();
+                            next.put(e.getKey(), entry);
+                        });
+        return Collections.unmodifiableMap(next);
+    }
+
+    /** Detached copy to warm with, so later changes to the caller's request don't leak in. */
+    private static TripSearchRequestDTO copy(TripSearchRequestDTO request) {
+        return new TripSearchRequestDTO(
+                request.getTripType(),
+                request.getOrigin(),
+                request.getDestination(),
+                request.getEarliestDepartureDate(),
+                request.getLatestDepartureDate(),
+                request.getEarliestReturnDate(),
+                request.getLatestReturnDate(),
+                request.getMaxBudget(),
+                request.getNumTravelers(),
+                request.getPreferences());
+    }
+
+    private static long currentHour(Instant now) {
+        return now.getEpochSecond() / 3600;
+    }
+
+    private void recordFailure(Counter counter) {
+        failedRefreshes.incrementAndGet();
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /** A combination to rank and how often it was searched. */
+    private record Candidate(TripSearchRequestDTO request, long count) {}
+
+    /** Lookups of one search cache key, in a ring of hourly buckets spanning the lookback. */
+    private static final class Demand {
+        private final TripSearchRequestDTO request;
+        private final long[] hours;
+        private final long[] counts;
+
+        private Demand(TripSearchRequestDTO request, int lookbackHours) {
+            this.request = request;
+            this.hours = new long[Math.max(1, lookbackHours)];
+            this.counts = new long[hours.length];
+        }
+
+        private synchronized void add(long hour) {
+            int i = (int) (hour % hours.length);
+            if (hours[i] != hour) {
+                hours[i] = hour;
+                counts[i] = 0;
+            }
+            counts[i]++;
+        }
+
+        /** Lookups in the buckets from {@code sinceHour} on. */
+        private synchronized long total(long sinceHour) {
+            long total = 0;
+            for (int i = 0; i < hours.length; i++) {
+                if (hours[i] >= sinceHour) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+    }
+
+    private static final class WarmEntry {
+        private final TripSearchRequestDTO request;
+        private final AtomicLong lookups = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private volatile long searchCount;
+        private volatile Instant lastRefreshedAt;
+
+        private WarmEntry(TripSearchRequestDTO request) {
+            this.request = request;
+        }
+    }
+}
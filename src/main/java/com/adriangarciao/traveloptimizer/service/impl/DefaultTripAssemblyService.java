@@ -2,10 +2,12 @@ package com.adriangarciao.traveloptimizer.service.impl;
 
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
 import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
 import com.adriangarciao.traveloptimizer.model.LodgingOption;
 import com.adriangarciao.traveloptimizer.model.TripOption;
 import com.adriangarciao.traveloptimizer.provider.FlightOffer;
 import com.adriangarciao.traveloptimizer.provider.LodgingOffer;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import com.adriangarciao.traveloptimizer.service.TripAssemblyService;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -52,13 +54,13 @@ public class DefaultTripAssemblyService implements TripAssemblyService {
                                 .flightNumber(f.getFlightNumber())
                                 .stops(f.getStops())
                                 .duration(Duration.ofMinutes(f.getDurationMinutes()))
-                                .segments(
-                                        f.getSegments() != null && !f.getSegments().isEmpty()
-                                                ? f.getSegments()
+                                .legs(
+                                        f.getLegs() != null && !f.getLegs().isEmpty()
+                                                ? f.getLegs()
                                                 : List.of(
-                                                        request.getOrigin()
-                                                                + "->"
-                                                                + request.getDestination()))
+                                                        FlightSegment.of(
+                                                                request.getOrigin(),
+                                                                request.getDestination())))
                                 .price(f.getPrice())
                                 .departureDate(f.getDepartDate());
 
@@ -75,10 +77,7 @@ public class DefaultTripAssemblyService implements TripAssemblyService {
                                             ? Duration.ofMinutes(f.getReturnDurationMinutes())
                                             : null)
                             .returnDate(f.getReturnDate())
-                            .returnSegments(
-                                    f.getReturnSegments() != null
-                                            ? f.getReturnSegments()
-                                            : List.of());
+                            .returnLegs(f.getReturnLegs() != null ? f.getReturnLegs() : List.of());
                 }
 
                 TripOption opt =
@@ -108,47 +107,12 @@ public class DefaultTripAssemblyService implements TripAssemblyService {
 
         // Compute normalized scoring across assembled options
         if (!options.isEmpty()) {
-            double minPrice =
-                    options.stream()
-                            .mapToDouble(o -> o.getTotalPrice().doubleValue())
-                            .min()
-                            .orElse(0);
-            double maxPrice =
-                    options.stream()
-                            .mapToDouble(o -> o.getTotalPrice().doubleValue())
-                            .max()
-                            .orElse(minPrice);
-            long minDur =
-                    options.stream()
-                            .mapToLong(
-                                    o ->
-                                            o.getFlightOption() != null
-                                                            && o.getFlightOption().getDuration()
-                                                                    != null
-                                                    ? o.getFlightOption().getDuration().toMinutes()
-                                                    : Long.MAX_VALUE)
-                            .min()
-                            .orElse(0L);
-            long maxDur =
-                    options.stream()
-                            .mapToLong(
-                                    o ->
-                                            o.getFlightOption() != null
-                                                            && o.getFlightOption().getDuration()
-                                                                    != null
-                                                    ? o.getFlightOption().getDuration().toMinutes()
-                                                    : 0)
-                            .max()
-                            .orElse(minDur);
-            int maxStops =
-                    options.stream()
-                            .mapToInt(
-                                    o ->
-                                            o.getFlightOption() != null
-                                                    ? o.getFlightOption().getStops()
-                                                    : 0)
-                            .max()
-                            .orElse(0);
+            SearchStats stats = SearchStats.ofTripOptions(options);
+            double minPrice = stats.minPrice().doubleValue();
+            double maxPrice = stats.maxPrice().doubleValue();
+            long minDur = stats.minDurationMinutes();
+            long maxDur = stats.maxDurationMinutes();
+            int maxStops = stats.maxStops();
 
             for (TripOption o : options) {
                 double price = o.getTotalPrice().doubleValue();
@@ -0,0 +1,295 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import com.adriangarciao.traveloptimizer.client.MlClient;
+import com.adriangarciao.traveloptimizer.dto.BuyWaitDTO;
+import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripRecommendationsDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import com.adriangarciao.traveloptimizer.repository.TripOptionRepository;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import com.adriangarciao.traveloptimizer.service.MlEnrichmentService;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Background ML enrichment backed by {@code trip_option.ml_recommendation} and the search's {@code
+ * ml_status}/{@code ml_version}. The ML call uses the client's non-blocking variant; only the final
+ * database write runs on the task executor.
+ */
+@Slf4j
+@Service
+public class MlEnrichmentServiceImpl implements MlEnrichmentService {
+
+    /** Stored JSON also carries the derived "goodDeal" property, which has no setter. */
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final MlClient mlClient;
+    private final TripSearchRepository tripSearchRepository;
+    private final TripOptionRepository tripOptionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final long timeoutMs;
+    private final long pendingTimeoutMs;
+    private final Counter completed;
+    private final Counter failed;
+
+    @Autowired
+    public MlEnrichmentServiceImpl(
+            @Autowired(required = false) MlClient mlClient,
+            TripSearchRepository tripSearchRepository,
+            TripOptionRepository tripOptionRepository,
+            PlatformTransactionManager transactionManager,
+            Executor executor,
+            @Autowired(required = false) MeterRegistry meterRegistry,
+            @Value("${ml.enrichment.timeout-ms:10000}") long timeoutMs,
+            @Value("${ml.enrichment.pending-timeout-ms:60000}") long pendingTimeoutMs) {
+        this.mlClient = mlClient;
+        this.tripSearchRepository = tripSearchRepository;
+        this.tripOptionRepository = tripOptionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+        this.pendingTimeoutMs = pendingTimeoutMs;
+        if (meterRegistry != null) {
+            this.completed =
+                    Counter.builder("traveloptimizer.ml.enrichment")
+                            .tag("outcome", "ready")
+                            .description("Background ML enrichment runs by outcome")
+                            .register(meterRegistry);
+            this.failed =
+                    Counter.builder("traveloptimizer.ml.enrichment")
+                            .tag("outcome", "failed")
+                            .description("Background ML enrichment runs by outcome")
+                            .register(meterRegistry);
+        } else {
+            this.completed = null;
+            this.failed = null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> enrichInBackground(
+            UUID searchId,
+            List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats) {
+        if (mlClient == null || searchId == null || options == null || options.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        TripSearch search = tripSearchRepository.findById(searchId).orElse(null);
+        if (search == null || alreadyStored(search, options) || !claim(search)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<TripOptionSummaryDTO> snapshot = List.copyOf(options);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable start =
+                () ->
+                        run(searchId, snapshot, request, stats)
+                                .whenComplete((ignored, t) -> done.complete(null));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            start.run();
+                        }
+
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) {
+                                done.complete(null);
+                            }
+                        }
+                    });
+        } else {
+            start.run();
+        }
+        return done;
+    }
+
+    /**
+     * Mark the search PENDING unless a run started recently enough that it may still complete, or
+     * one completed since the search was read. The check and the write are one conditional update,
+     * so concurrent repeats of a search start one run between them. Joins the caller's transaction,
+     * if any.
+     */
+    private boolean claim(TripSearch search) {
+        Instant now = Instant.now();
+        Integer claimed =
+                transactionTemplate.execute(
+                        status ->
+                                tripSearchRepository.claimMlEnrichment(
+                                        search.getId(),
+                                        search.getMlVersion(),
+                                        PENDING,
+                                        now,
+                                        now.minusMillis(pendingTimeoutMs)));
+        if (claimed == null || claimed == 0) {
+            return false;
+        }
+        if (PENDING.equals(search.getMlStatus())) {
+            log.info(
+                    "Retrying ML enrichment for search {} left PENDING since {}",
+                    search.getId(),
+                    search.getMlPendingSince());
+        }
+        // Keep the loaded entity in line, so a later flush of it writes the claim back unchanged
+        search.setMlStatus(PENDING);
+        search.setMlPendingSince(now);
+        return true;
+    }
+
+    /**
+     * The search is READY and each option already has a stored recommendation. Rewriting them would
+     * only bump the version and invalidate every poller's ETag.
+     */
+    private boolean alreadyStored(TripSearch search, List<TripOptionSummaryDTO> options) {
+        if (!READY.equals(search.getMlStatus())) {
+            return false;
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (TripOptionSummaryDTO option : options) {
+            if (option.getTripOptionId() != null) {
+                ids.add(option.getTripOptionId());
+            }
+        }
+        return ids.isEmpty() || tripOptionRepository.countWithMlRecommendation(ids) == ids.size();
+    }
+
+    private CompletableFuture<Void> run(
+            UUID searchId,
+            List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats) {
+        CompletableFuture<List<MlRecommendationDTO>> call;
+        try {
+            call = mlClient.getOptionRecommendationsAsync(options, request, stats);
+        } catch (Throwable t) {
+            call = CompletableFuture.failedFuture(t);
+        }
+        return call.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .handleAsync(
+                        (recs, t) -> {
+                            if (t != null) {
+                                log.warn(
+                                        "Background ML enrichment failed for search {}: {}",
+                                        searchId,
+                                        t.toString());
+                            }
+                            store(searchId, options, t == null ? recs : null);
+                            return null;
+                        },
+                        executor);
+    }
+
+    /** Write the recommendations and bump the search's version in one transaction. */
+    private void store(
+            UUID searchId, List<TripOptionSummaryDTO> options, List<MlRecommendationDTO> recs) {
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        int written = 0;
+                        for (int i = 0;
+                                recs != null && i < options.size() && i < recs.size();
+                                i++) {
+                            UUID optionId = options.get(i).getTripOptionId();
+                            if (optionId == null || recs.get(i) == null) {
+                                continue;
+                            }
+                            try {
+                                written +=
+                                        tripOptionRepository.updateMlRecommendation(
+                                                optionId, MAPPER.writeValueAsString(recs.get(i)));
+                            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+                                log.warn(
+                                        "Could not serialize ML recommendation for option {}: {}",
+                                        optionId,
+                                        e.toString());
+                            }
+                        }
+                        tripSearchRepository.completeMlEnrichment(
+                                searchId, recs != null ? READY : FAILED);
+                        log.debug("Stored {} ML recommendations for search {}", written, searchId);
+                    });
+            Counter outcome = recs != null ? completed : failed;
+            if (outcome != null) {
+                outcome.increment();
+            }
+        } catch (RuntimeException e) {
+            log.warn(
+                    "Failed to store ML recommendations for search {}: {}", searchId, e.toString());
+        }
+    }
+
+    @Override
+    public State getState(UUID searchId) {
+        List<Object[]> rows = tripSearchRepository.findMlState(searchId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        return new State(((Number) row[0]).longValue(), (String) row[1]);
+    }
+
+    @Override
+    public TripRecommendationsDTO getRecommendations(UUID searchId) {
+        State state = getState(searchId);
+        if (state == null) {
+            return null;
+        }
+        List<TripRecommendationsDTO.OptionRecommendation> items = new ArrayList<>();
+        for (Object[] row : tripOptionRepository.findMlRecommendations(searchId)) {
+            try {
+                MlRecommendationDTO rec =
+                        MAPPER.readValue((String) row[1], MlRecommendationDTO.class);
+                items.add(
+                        TripRecommendationsDTO.OptionRecommendation.builder()
+                                .tripOptionId((UUID) row[0])
+                                .mlRecommendation(rec)
+                                .buyWait(
+                                        BuyWaitDTO.builder()
+                                                .decision(rec.getAction())
+                                                .confidence(rec.getConfidence())
+                                                .reasons(rec.getReasons())
+                                                .trend(rec.getTrend())
+                                                .build())
+                                .build());
+            } catch (Exception e) {
+                log.warn(
+                        "Skipping unreadable ML recommendation for option {}: {}",
+                        row[0],
+                        e.toString());
+            }
+        }
+        return TripRecommendationsDTO.builder()
+                .searchId(searchId)
+                .version(state.version())
+                .status(state.status())
+                .recommendations(items)
+                .build();
+    }
+}
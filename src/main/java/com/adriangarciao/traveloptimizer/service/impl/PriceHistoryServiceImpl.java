@@ -1,37 +1,171 @@
 package com.adriangarciao.traveloptimizer.service.impl;
 
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
 import com.adriangarciao.traveloptimizer.model.PriceObservation;
 import com.adriangarciao.traveloptimizer.repository.PriceObservationRepository;
 import com.adriangarciao.traveloptimizer.service.PriceHistoryService;
+import com.adriangarciao.traveloptimizer.service.PriceObservationIngestor;
+import com.adriangarciao.traveloptimizer.service.PriceRollupService;
+import com.adriangarciao.traveloptimizer.service.RouteTrendModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-/** Implementation of PriceHistoryService that computes trends from stored price observations. */
+/**
+ * Implementation of PriceHistoryService that computes trends from stored price observations.
+ *
+ * <p>Computed trends are kept in a bounded, TTL-based cache keyed by route and departure date so
+ * repeat searches on popular routes do not query the repository. Recording an observation
+ * invalidates every cached trend that could have included it.
+ *
+ * <p>When a {@link PriceRollupService} is available, cache misses read one daily rollup row per
+ * observation day rather than every raw observation, and fall back to raw rows only when the
+ * rollups cover fewer than two days.
+ *
+ * <p>Routes with enough recent observations are answered from an online Holt trend model updated as
+ * observations are written, without touching the cache or the repository. The repository path above
+ * is only used for cold routes, and seeds the model from the raw rows it loads.
+ */
 @Slf4j
 @Service
 public class PriceHistoryServiceImpl implements PriceHistoryService {
 
     private static final int MIN_OBSERVATIONS_FOR_TREND = 4;
-    private static final int LOOKBACK_DAYS = 14; // Look back 14 days for price history
     private static final double TREND_THRESHOLD_PCT = 2.0; // 2% change threshold
+    private static final int DATE_RANGE_DAYS = 3; // ±3 days fallback when exact date is sparse
+    private static final double TREND_HORIZON_DAYS = 7.0; // Online slope is judged over a week
+    private static final double MODEL_ALPHA = 0.3; // Level smoothing
+    private static final double MODEL_BETA = 0.1; // Slope smoothing
+
+    /** Cache key for a computed route trend. */
+    record RouteKey(String origin, String destination, LocalDate departureDate) {}
 
     private final PriceObservationRepository repository;
+    private final Cache<RouteKey, TrendResult> trendCache;
+    private final PriceRollupService rollupService;
+    private final PriceObservationIngestor ingestor;
+    private final RouteTrendModel trendModel;
+
+    /** Writes synchronous observations in their own transaction; null in plain unit tests. */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Days of price history a trend covers. Beyond the raw retention window (14 days by default)
+     * only daily rollups are left, so longer windows are served from rollups alone.
+     */
+    private final int lookbackDays;
+
+    public PriceHistoryServiceImpl(
+            PriceObservationRepository repository,
+            PriceRollupService rollupService,
+            PriceObservationIngestor ingestor,
+            MeterRegistry meterRegistry,
+            long trendCacheTtlSeconds,
+            long trendCacheMaxSize,
+            int lookbackDays) {
+        this(
+                repository,
+                rollupService,
+                ingestor,
+                null,
+                meterRegistry,
+                trendCacheTtlSeconds,
+                trendCacheMaxSize,
+                lookbackDays);
+    }
 
     @Autowired
-    public PriceHistoryServiceImpl(PriceObservationRepository repository) {
+    public PriceHistoryServiceImpl(
+            PriceObservationRepository repository,
+            @Autowired(required = false) PriceRollupService rollupService,
+            @Autowired(required = false) PriceObservationIngestor ingestor,
+            @Autowired(required = false) PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${price-history.trend-cache.ttl-seconds:300}") long trendCacheTtlSeconds,
+            @Value("${price-history.trend-cache.max-size:10000}") long trendCacheMaxSize,
+            @Value("${price-history.lookback-days:14}") int lookbackDays) {
         this.repository = repository;
+        if (transactionManager != null) {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.transactionTemplate.setPropagationBehavior(
+                    TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        } else {
+            this.transactionTemplate = null;
+        }
+        this.lookbackDays = lookbackDays;
+        this.rollupService = rollupService;
+        this.ingestor = ingestor;
+        this.trendCache =
+                Caffeine.newBuilder()
+                        .maximumSize(trendCacheMaxSize)
+                        .expireAfterWrite(Duration.ofSeconds(trendCacheTtlSeconds))
+                        .recordStats()
+                        .build();
+        this.trendModel =
+                new RouteTrendModel(
+                        MODEL_ALPHA, MODEL_BETA, trendCacheMaxSize, Duration.ofDays(lookbackDays));
+        if (ingestor != null) {
+            // Written observations feed the online model and drop cached cold-route trends
+            ingestor.addFlushListener(
+                    batch -> {
+                        for (PriceObservation obs : batch) {
+                            trendModel.update(
+                                    obs.getOrigin(),
+                                    obs.getDestination(),
+                                    obs.getDepartureDate(),
+                                    obs.getObservedPrice().doubleValue(),
+                                    obs.getCreatedAt());
+                            invalidateRoute(
+                                    obs.getOrigin(), obs.getDestination(), obs.getDepartureDate());
+                        }
+                    });
+        }
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, trendCache, "routeTrendCache");
+            Gauge.builder(
+                            "traveloptimizer.price_history.trend_cache.hit_ratio",
+                            trendCache,
+                            c -> c.stats().hitRate())
+                    .description("Hit ratio of the route trend cache")
+                    .register(meterRegistry);
+            Gauge.builder(
+                            "traveloptimizer.price_history.trend_model.size",
+                            trendModel,
+                            RouteTrendModel::size)
+                    .description("Route/date states held by the online trend model")
+                    .register(meterRegistry);
+        }
     }
 
     // For testing without repository
     public PriceHistoryServiceImpl() {
         this.repository = null;
+        this.rollupService = null;
+        this.ingestor = null;
+        this.trendCache = null;
+        this.trendModel = null;
+        this.transactionTemplate = null;
+        this.lookbackDays = 14;
     }
 
     @Override
@@ -41,24 +175,15 @@ public class PriceHistoryServiceImpl implements PriceHistoryService {
                     "UNKNOWN", "Price history service not available.", 0, null, null);
         }
 
-        try {
-            Instant since = Instant.now().minus(LOOKBACK_DAYS, ChronoUnit.DAYS);
-
-            // First try exact date match
-            List<PriceObservation> observations =
-                    repository.findRecentByRoute(origin, destination, departureDate, since);
-
-            // If not enough data for exact date, try a date range (±3 days)
-            if (observations.size() < MIN_OBSERVATIONS_FOR_TREND) {
-                LocalDate fromDate = departureDate.minusDays(3);
-                LocalDate toDate = departureDate.plusDays(3);
-                observations =
-                        repository.findRecentByRouteAndDateRange(
-                                origin, destination, fromDate, toDate, since);
-            }
-
-            return computeTrendFromObservations(observations);
+        TrendResult online = onlineTrend(origin, destination, departureDate);
+        if (online != null) {
+            return online;
+        }
 
+        try {
+            // Failed lookups throw out of the loader and are therefore never cached
+            return trendCache.get(
+                    new RouteKey(origin, destination, departureDate), this::loadTrend);
         } catch (Exception e) {
             log.debug(
                     "Error computing price trend for {}->{}: {}",
@@ -69,18 +194,209 @@ public class PriceHistoryServiceImpl implements PriceHistoryService {
         }
     }
 
+    /**
+     * Trend from the online model, or null if the route/date has too few observations (cold). The
+     * slope is projected over a week and compared against the usual 2% threshold.
+     */
+    private TrendResult onlineTrend(String origin, String destination, LocalDate departureDate) {
+        RouteTrendModel.Estimate est =
+                trendModel.estimate(origin, destination, departureDate).orElse(null);
+        if (est == null || est.count() < MIN_OBSERVATIONS_FOR_TREND || est.level() <= 0) {
+            return null;
+        }
+        return trendFromEstimate(est);
+    }
+
+    /** Classify a model estimate. Package-private for tests. */
+    TrendResult trendFromEstimate(RouteTrendModel.Estimate est) {
+        double projected = est.slopePerDay() * TREND_HORIZON_DAYS;
+        double changePct = projected / est.level() * 100.0;
+        int count = (int) Math.min(est.count(), Integer.MAX_VALUE);
+
+        // Signal-to-noise of the weekly move versus one-step forecast error
+        double noise = Math.max(est.residualStdDev(), est.level() * 0.001);
+        double snr = Math.abs(projected) / noise;
+        double countFactor = 1.0 - Math.exp(-(count - 1) / 4.0);
+
+        String trend;
+        String reason;
+        double confidence;
+        if (changePct >= TREND_THRESHOLD_PCT) {
+            trend = "RISING";
+            reason =
+                    String.format(
+                            "Prices rising about %.1f%% per week (now ~$%.0f over %d observations).",
+                            changePct, est.level(), count);
+            confidence = countFactor * snr / (1 + snr);
+        } else if (changePct <= -TREND_THRESHOLD_PCT) {
+            trend = "FALLING";
+            reason =
+                    String.format(
+                            "Prices falling about %.1f%% per week (now ~$%.0f over %d observations).",
+                            Math.abs(changePct), est.level(), count);
+            confidence = countFactor * snr / (1 + snr);
+        } else {
+            trend = "STABLE";
+            reason =
+                    String.format(
+                            "Prices stable (%.1f%% per week, ~$%.0f over %d observations).",
+                            changePct, est.level(), count);
+            confidence = countFactor / (1 + snr);
+        }
+
+        return new TrendResult(
+                trend,
+                reason,
+                count,
+                est.level(),
+                est.level() - projected,
+                est.slopePerDay(),
+                confidence);
+    }
+
+    /** Query the repository and compute the trend for a route. Invoked on cache misses. */
+    private TrendResult loadTrend(RouteKey key) {
+        if (rollupService != null) {
+            TrendResult fromRollups = loadTrendFromRollups(key);
+            if (fromRollups != null) {
+                return fromRollups;
+            }
+        }
+
+        Instant since = Instant.now().minus(lookbackDays, ChronoUnit.DAYS);
+
+        // First try exact date match
+        List<PriceObservation> observations =
+                repository.findRecentByRoute(
+                        key.origin(), key.destination(), key.departureDate(), since);
+        seedModel(key, observations);
+
+        // If not enough data for exact date, try a date range (±3 days)
+        if (observations.size() < MIN_OBSERVATIONS_FOR_TREND) {
+            LocalDate fromDate = key.departureDate().minusDays(DATE_RANGE_DAYS);
+            LocalDate toDate = key.departureDate().plusDays(DATE_RANGE_DAYS);
+            observations =
+                    repository.findRecentByRouteAndDateRange(
+                            key.origin(), key.destination(), fromDate, toDate, since);
+        }
+
+        return computeTrendFromObservations(observations);
+    }
+
+    /**
+     * Compute the trend from daily rollups, widening to ±3 days when the exact date is sparse.
+     * Returns null when the rollups span fewer than two observation days, since a single day cannot
+     * be split into recent and older halves.
+     */
+    private TrendResult loadTrendFromRollups(RouteKey key) {
+        LocalDate sinceDay = LocalDate.now(ZoneOffset.UTC).minusDays(lookbackDays);
+
+        List<PriceDailyRollup> rollups =
+                rollupService.findRecent(
+                        key.origin(), key.destination(), key.departureDate(), sinceDay);
+        if (totalCount(rollups) < MIN_OBSERVATIONS_FOR_TREND) {
+            rollups =
+                    rollupService.findRecentInRange(
+                            key.origin(),
+                            key.destination(),
+                            key.departureDate(),
+                            DATE_RANGE_DAYS,
+                            sinceDay);
+        }
+
+        // Merge departure dates per observation day, most recent first
+        Map<LocalDate, DayTotals> byDay = new TreeMap<>(Comparator.reverseOrder());
+        for (PriceDailyRollup r : rollups) {
+            byDay.merge(
+                    r.getObservationDay(),
+                    new DayTotals(r.getObservationCount(), r.getSumPrice().doubleValue()),
+                    DayTotals::plus);
+        }
+        if (byDay.size() < 2) {
+            return null;
+        }
+        return computeTrendFromDailyTotals(new ArrayList<>(byDay.values()));
+    }
+
+    /** Observation count and price sum for one observation day. */
+    record DayTotals(long count, double sum) {
+        DayTotals plus(DayTotals other) {
+            return new DayTotals(count + other.count, sum + other.sum);
+        }
+    }
+
+    private static long totalCount(List<PriceDailyRollup> rollups) {
+        long total = 0;
+        for (PriceDailyRollup r : rollups) {
+            total += r.getObservationCount();
+        }
+        return total;
+    }
+
+    /**
+     * Compute trend from per-day totals ordered most recent first. Days are split into recent and
+     * older groups at the day boundary closest to half the observations; the older group always
+     * keeps at least one day.
+     */
+    TrendResult computeTrendFromDailyTotals(List<DayTotals> days) {
+        long total = 0;
+        for (DayTotals d : days) {
+            total += d.count();
+        }
+        int count = (int) Math.min(total, Integer.MAX_VALUE);
+        if (count < MIN_OBSERVATIONS_FOR_TREND || days.size() < 2) {
+            return insufficientHistory(count);
+        }
+
+        long recentCount = 0;
+        double recentSum = 0;
+        int i = 0;
+        while (i < days.size() - 1 && recentCount < total / 2) {
+            recentCount += days.get(i).count();
+            recentSum += days.get(i).sum();
+            i++;
+        }
+        double olderSum = 0;
+        for (int j = i; j < days.size(); j++) {
+            olderSum += days.get(j).sum();
+        }
+        double avgRecent = recentSum / recentCount;
+        double avgOlder = olderSum / (total - recentCount);
+        return classify(avgRecent, avgOlder, count);
+    }
+
+    /**
+     * Warm the online model for a cold route from exact-date rows (repository order is newest
+     * first).
+     */
+    private void seedModel(RouteKey key, List<PriceObservation> newestFirst) {
+        if (trendModel == null || newestFirst.isEmpty()) {
+            return;
+        }
+        List<PriceObservation> oldestFirst = new ArrayList<>(newestFirst);
+        java.util.Collections.reverse(oldestFirst);
+        trendModel.seed(key.origin(), key.destination(), key.departureDate(), oldestFirst);
+    }
+
+    /**
+     * Drop cached trends that may include an observation for this route and date. Trends for
+     * neighbouring dates can fall back to the ±3 day range query, so those are dropped too.
+     */
+    private void invalidateRoute(String origin, String destination, LocalDate departureDate) {
+        if (trendCache == null || departureDate == null) {
+            return;
+        }
+        for (int d = -DATE_RANGE_DAYS; d <= DATE_RANGE_DAYS; d++) {
+            trendCache.invalidate(new RouteKey(origin, destination, departureDate.plusDays(d)));
+        }
+    }
+
     /** Compute trend from a list of observations. Public for testing. */
     public TrendResult computeTrendFromObservations(List<PriceObservation> observations) {
         int count = observations.size();
 
         if (count < MIN_OBSERVATIONS_FOR_TREND) {
-            String reason =
-                    count == 0
-                            ? "No price history yet for this route."
-                            : String.format(
-                                    "Not enough price history yet (%d observations, need %d).",
-                                    count, MIN_OBSERVATIONS_FOR_TREND);
-            return new TrendResult("UNKNOWN", reason, count, null, null);
+            return insufficientHistory(count);
         }
 
         // Split observations into recent half and older half
@@ -102,6 +418,21 @@ public class PriceHistoryServiceImpl implements PriceHistoryService {
         }
         double avgOlder = sumOlder / olderCount;
 
+        return classify(avgRecent, avgOlder, count);
+    }
+
+    private static TrendResult insufficientHistory(int count) {
+        String reason =
+                count == 0
+                        ? "No price history yet for this route."
+                        : String.format(
+                                "Not enough price history yet (%d observations, need %d).",
+                                count, MIN_OBSERVATIONS_FOR_TREND);
+        return new TrendResult("UNKNOWN", reason, count, null, null);
+    }
+
+    /** Classify the change between older and recent average prices. */
+    private TrendResult classify(double avgRecent, double avgOlder, int count) {
         // Compute percentage change: (recent - older) / older * 100
         double changePct = (avgOlder != 0) ? ((avgRecent - avgOlder) / avgOlder) * 100.0 : 0.0;
 
@@ -132,15 +463,23 @@ public class PriceHistoryServiceImpl implements PriceHistoryService {
         return new TrendResult(trend, reason, count, avgRecent, avgOlder);
     }
 
+    /**
+     * Record an observation. With an ingestor available the observation is only queued (and may be
+     * deduplicated); it is written and trends are invalidated on the next background flush.
+     * Otherwise it is saved synchronously in a transaction of its own, so the rollup row lock is
+     * not held for the rest of the caller's search, and the trend model is updated once that
+     * commits.
+     */
     @Override
-    @Transactional(
-            propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
     public void recordObservation(
             String origin, String destination, LocalDate departureDate, double price) {
+        if (ingestor != null) {
+            ingestor.submit(origin, destination, departureDate, price);
+            return;
+        }
         if (repository == null) {
             return;
         }
-
         try {
             PriceObservation obs =
                     PriceObservation.builder()
@@ -148,8 +487,27 @@ public class PriceHistoryServiceImpl implements PriceHistoryService {
                             .destination(destination)
                             .departureDate(departureDate)
                             .observedPrice(BigDecimal.valueOf(price))
+                            .createdAt(Instant.now())
                             .build();
-            repository.save(obs);
+            Runnable write =
+                    () -> {
+                        repository.save(obs);
+                        if (rollupService != null) {
+                            rollupService.recordObservation(
+                                    origin,
+                                    destination,
+                                    departureDate,
+                                    obs.getObservedPrice(),
+                                    obs.getCreatedAt());
+                        }
+                    };
+            if (transactionTemplate != null) {
+                transactionTemplate.executeWithoutResult(status -> write.run());
+            } else {
+                write.run();
+            }
+            trendModel.update(origin, destination, departureDate, price, obs.getCreatedAt());
+            invalidateRoute(origin, destination, departureDate);
             log.debug(
                     "Recorded price observation: {}->{} on {} @ ${}",
                     origin,
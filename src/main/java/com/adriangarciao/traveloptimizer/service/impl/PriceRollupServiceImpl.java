@@ -0,0 +1,255 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.adriangarciao.traveloptimizer.repository.PriceDailyRollupRepository;
+import com.adriangarciao.traveloptimizer.repository.PriceObservationRepository;
+import com.adriangarciao.traveloptimizer.service.PriceRollupService;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Rollup maintenance backed by {@link PriceDailyRollupRepository}.
+ *
+ * <p>Ingest takes a row lock on each (route, departure date, day) rollup, inserting it with {@code
+ * ON CONFLICT DO NOTHING} first if missing, and updates count, sum, min and max exactly. The median
+ * is tracked with a bounded step estimator while the day is open; compaction replaces it with the
+ * exact value once the day's raw rows are folded in.
+ */
+@Slf4j
+@Service
+public class PriceRollupServiceImpl implements PriceRollupService {
+
+    private final PriceDailyRollupRepository rollupRepository;
+    private final PriceObservationRepository observationRepository;
+
+    /** Raw observations newer than this many days are kept for exact intra-day analysis. */
+    @Value("${price-history.rollup.raw-retention-days:14}")
+    private int rawRetentionDays = 14;
+
+    /** Upper bound on observation days folded per compaction run. */
+    @Value("${price-history.rollup.compaction-max-days:7}")
+    private int compactionMaxDays = 7;
+
+    public PriceRollupServiceImpl(
+            PriceDailyRollupRepository rollupRepository,
+            PriceObservationRepository observationRepository) {
+        this.rollupRepository = rollupRepository;
+        this.observationRepository = observationRepository;
+    }
+
+    @Override
+    @Transactional
+    public void recordObservation(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            BigDecimal price,
+            Instant observedAt) {
+        foldAll(
+                new RouteDate(origin, destination, departureDate),
+                LocalDate.ofInstant(observedAt, ZoneOffset.UTC),
+                List.of(price));
+    }
+
+    @Override
+    @Transactional
+    public void recordObservations(List<PriceObservation> observations) {
+        Map<RouteDay, List<BigDecimal>> grouped = new LinkedHashMap<>();
+        for (PriceObservation obs : observations) {
+            RouteDay key =
+                    new RouteDay(
+                            new RouteDate(
+                                    obs.getOrigin(), obs.getDestination(), obs.getDepartureDate()),
+                            LocalDate.ofInstant(obs.getCreatedAt(), ZoneOffset.UTC));
+            grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(obs.getObservedPrice());
+        }
+        for (Map.Entry<RouteDay, List<BigDecimal>> e : grouped.entrySet()) {
+            foldAll(e.getKey().route(), e.getKey().day(), e.getValue());
+        }
+    }
+
+    /** Lock (or create) the rollup row for a route/day and fold the prices into it. */
+    private void foldAll(RouteDate route, LocalDate day, List<BigDecimal> prices) {
+        // A new row starts empty (count and sum 0, bounds at the first price), so every price folds
+        PriceDailyRollup rollup = lockOrCreate(route, day, prices.get(0));
+        for (BigDecimal price : prices) {
+            fold(rollup, price);
+        }
+        rollupRepository.save(rollup);
+    }
+
+    /**
+     * Lock the rollup row for a route/day, first inserting an empty one seeded with {@code seed} if
+     * none exists. The insert skips rows created concurrently by another flush or node instead of
+     * failing on the unique key, which would roll back the caller's whole batch.
+     */
+    private PriceDailyRollup lockOrCreate(RouteDate route, LocalDate day, BigDecimal seed) {
+        return rollupRepository
+                .findForUpdate(route.origin(), route.destination(), route.departureDate(), day)
+                .orElseGet(
+                        () -> {
+                            rollupRepository.insertIfAbsent(
+                                    UUID.randomUUID(),
+                                    route.origin(),
+                                    route.destination(),
+                                    route.departureDate(),
+                                    day,
+                                    seed,
+                                    Instant.now());
+                            return rollupRepository
+                                    .findForUpdate(
+                                            route.origin(),
+                                            route.destination(),
+                                            route.departureDate(),
+                                            day)
+                                    .orElseThrow(
+                                            () ->
+                                                    new IllegalStateException(
+                                                            "Rollup row missing after insert: "
+                                                                    + route
+                                                                    + " "
+                                                                    + day));
+                        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PriceDailyRollup> findRecent(
+            String origin, String destination, LocalDate departureDate, LocalDate sinceDay) {
+        return rollupRepository.findRecentByRoute(origin, destination, departureDate, sinceDay);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PriceDailyRollup> findRecentInRange(
+            String origin,
+            String destination,
+            LocalDate departureDate,
+            int rangeDays,
+            LocalDate sinceDay) {
+        return rollupRepository.findRecentByRouteAndDateRange(
+                origin,
+                destination,
+                departureDate.minusDays(rangeDays),
+                departureDate.plusDays(rangeDays),
+                sinceDay);
+    }
+
+    @Override
+    @Scheduled(cron = "${price-history.rollup.compaction-cron:0 15 3 * * *}")
+    @Transactional
+    public int compactRawObservations() {
+        LocalDate cutoffDay = LocalDate.now(ZoneOffset.UTC).minusDays(rawRetentionDays);
+        int compactedDays = 0;
+        int compactedRows = 0;
+
+        while (compactedDays < compactionMaxDays) {
+            Instant oldest = observationRepository.findOldestCreatedAt();
+            if (oldest == null) {
+                break;
+            }
+            LocalDate day = LocalDate.ofInstant(oldest, ZoneOffset.UTC);
+            if (!day.isBefore(cutoffDay)) {
+                break;
+            }
+            Instant from = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant to = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+            Map<RouteDate, List<BigDecimal>> byRoute = new HashMap<>();
+            for (PriceObservation obs : observationRepository.findCreatedBetween(from, to)) {
+                byRoute.computeIfAbsent(
+                                new RouteDate(
+                                        obs.getOrigin(),
+                                        obs.getDestination(),
+                                        obs.getDepartureDate()),
+                                k -> new ArrayList<>())
+                        .add(obs.getObservedPrice());
+            }
+            for (Map.Entry<RouteDate, List<BigDecimal>> e : byRoute.entrySet()) {
+                rebuildExact(e.getKey(), day, e.getValue());
+            }
+            compactedRows += observationRepository.deleteCreatedBetween(from, to);
+            compactedDays++;
+        }
+
+        if (compactedDays > 0) {
+            log.info(
+                    "priceRollup.compaction days={} rawRowsFolded={} cutoffDay={}",
+                    compactedDays,
+                    compactedRows,
+                    cutoffDay);
+        }
+        return compactedDays;
+    }
+
+    /** Route and departure date a group of raw observations belongs to. */
+    private record RouteDate(String origin, String destination, LocalDate departureDate) {}
+
+    /** Rollup row identity: route, departure date and observation day. */
+    private record RouteDay(RouteDate route, LocalDate day) {}
+
+    /** Replace a rollup row with exact statistics computed from all raw prices of that day. */
+    private void rebuildExact(RouteDate route, LocalDate day, List<BigDecimal> prices) {
+        prices.sort(null);
+        int n = prices.size();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal p : prices) {
+            sum = sum.add(p);
+        }
+        BigDecimal median =
+                (n % 2 == 1)
+                        ? prices.get(n / 2)
+                        : prices.get(n / 2 - 1)
+                                .add(prices.get(n / 2))
+                                .divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
+
+        PriceDailyRollup rollup = lockOrCreate(route, day, median);
+        rollup.setObservationCount(n);
+        rollup.setMinPrice(prices.get(0));
+        rollup.setMedianPrice(median);
+        rollup.setMaxPrice(prices.get(n - 1));
+        rollup.setSumPrice(sum);
+        rollup.setCompacted(true);
+        rollupRepository.save(rollup);
+    }
+
+    /**
+     * Fold one price into an open rollup. The median estimate moves toward the new price by at most
+     * (max - min) / count, which keeps it inside [min, max] and settles as the day fills.
+     */
+    static void fold(PriceDailyRollup rollup, BigDecimal price) {
+        long count = rollup.getObservationCount() + 1;
+        BigDecimal min = rollup.getMinPrice().min(price);
+        BigDecimal max = rollup.getMaxPrice().max(price);
+        BigDecimal median = rollup.getMedianPrice();
+        BigDecimal step =
+                max.subtract(min).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+        int cmp = price.compareTo(median);
+        if (cmp > 0) {
+            median = median.add(step).min(price);
+        } else if (cmp < 0) {
+            median = median.subtract(step).max(price);
+        }
+
+        rollup.setObservationCount(count);
+        rollup.setSumPrice(rollup.getSumPrice().add(price));
+        rollup.setMinPrice(min);
+        rollup.setMaxPrice(max);
+        rollup.setMedianPrice(median);
+    }
+}
@@ -0,0 +1,250 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.adriangarciao.traveloptimizer.model.RoutePriceSketch;
+import com.adriangarciao.traveloptimizer.repository.RoutePriceSketchRepository;
+import com.adriangarciao.traveloptimizer.service.PriceObservationIngestor;
+import com.adriangarciao.traveloptimizer.service.PriceQuantileSketch;
+import com.adriangarciao.traveloptimizer.service.RoutePriceDistributionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps one {@link PriceQuantileSketch} per route in memory, fed from price observations as they
+ * are written. Sketches are loaded from {@code route_price_sketch} on startup and written back
+ * periodically and on shutdown.
+ *
+ * <p>Several nodes share each stored sketch. A node records its own observations in a separate
+ * delta as well. Each snapshot locks the route's row, merges the delta into the stored sketch and
+ * adopts the result, so every node's observations add up and each node picks up the others'.
+ *
+ * <p>Weights decay with a half-life of {@code price-history.sketch.half-life-days}, both in memory
+ * and when a stored sketch is merged into, so prices from long ago stop deciding the rating.
+ */
+@Slf4j
+@Service
+public class RoutePriceDistributionServiceImpl implements RoutePriceDistributionService {
+
+    /** Route identity for a sketch. Departure dates share one distribution. */
+    record RouteKey(String origin, String destination) {}
+
+    private final RoutePriceSketchRepository repository;
+    private final PriceObservationIngestor ingestor;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<RouteKey, PriceQuantileSketch> sketches = new ConcurrentHashMap<>();
+
+    /** Observations of this node not yet merged into the stored sketches. */
+    private final Map<RouteKey, PriceQuantileSketch> deltas = new ConcurrentHashMap<>();
+
+    private final double compression;
+    private final long minObservations;
+    private final Duration halfLife;
+    private volatile Instant decayedAt = Instant.now();
+
+    @Autowired
+    public RoutePriceDistributionServiceImpl(
+            @Autowired(required = false) RoutePriceSketchRepository repository,
+            @Autowired(required = false) PriceObservationIngestor ingestor,
+            @Autowired(required = false) PlatformTransactionManager transactionManager,
+            @Autowired(required = false) MeterRegistry meterRegistry,
+            @Value("${price-history.sketch.compression:100}") double compression,
+            @Value("${price-history.sketch.min-observations:20}") long minObservations,
+            @Value("${price-history.sketch.half-life-days:30}") long halfLifeDays) {
+        this.repository = repository;
+        this.ingestor = ingestor;
+        this.transactionTemplate =
+                transactionManager != null ? new TransactionTemplate(transactionManager) : null;
+        this.compression = compression;
+        this.minObservations = minObservations;
+        this.halfLife = Duration.ofDays(halfLifeDays);
+        if (ingestor != null) {
+            ingestor.addFlushListener(
+                    batch -> {
+                        for (PriceObservation obs : batch) {
+                            record(
+                                    obs.getOrigin(),
+                                    obs.getDestination(),
+                                    obs.getObservedPrice().doubleValue());
+                        }
+                    });
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("traveloptimizer.price_distribution.routes", sketches, Map::size)
+                    .description("Routes with an in-memory price distribution")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        if (repository == null) {
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            for (RoutePriceSketch row : repository.findAll()) {
+                sketches.put(
+                        new RouteKey(row.getOrigin(), row.getDestination()), decayed(row, now));
+            }
+            log.info("Loaded {} route price sketches", sketches.size());
+        } catch (Exception e) {
+            log.warn("Failed to load route price sketches: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void record(String origin, String destination, double price) {
+        if (origin == null || destination == null) {
+            return;
+        }
+        RouteKey key = new RouteKey(origin, destination);
+        sketches.compute(key, (k, sketch) -> add(sketch, price));
+        // Added under the map's lock, so a snapshot taking the delta cannot lose the price
+        deltas.compute(key, (k, delta) -> add(delta, price));
+    }
+
+    private PriceQuantileSketch add(PriceQuantileSketch sketch, double price) {
+        if (sketch == null) {
+            sketch = new PriceQuantileSketch(compression);
+        }
+        sketch.add(price);
+        return sketch;
+    }
+
+    @Override
+    public Optional<PriceQuantileSketch.Snapshot> distribution(String origin, String destination) {
+        if (origin == null || destination == null) {
+            return Optional.empty();
+        }
+        PriceQuantileSketch sketch = sketches.get(new RouteKey(origin, destination));
+        if (sketch == null || sketch.count() < minObservations) {
+            return Optional.empty();
+        }
+        return Optional.of(sketch.snapshot());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Also decays the in-memory sketches of every route by the time since the last snapshot.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${price-history.sketch.snapshot-interval-ms:300000}")
+    public int snapshot() {
+        Instant now = Instant.now();
+        double factor = decayFactor(Duration.between(decayedAt, now));
+        decayedAt = now;
+        sketches.values().forEach(sketch -> sketch.decay(factor));
+        if (repository == null || deltas.isEmpty()) {
+            return 0;
+        }
+        int written = 0;
+        for (RouteKey key : Set.copyOf(deltas.keySet())) {
+            PriceQuantileSketch delta = deltas.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                PriceQuantileSketch merged =
+                        transactionTemplate != null
+                                ? transactionTemplate.execute(status -> mergeInto(key, delta))
+                                : mergeInto(key, delta);
+                // Adopt the shared sketch, plus anything recorded here since the delta was taken
+                sketches.compute(
+                        key,
+                        (k, current) -> {
+                            PriceQuantileSketch since = deltas.get(k);
+                            if (since != null) {
+                                merged.merge(since);
+                            }
+                            return merged;
+                        });
+                written++;
+            } catch (Exception e) {
+                // Retry on the next snapshot
+                deltas.merge(
+                        key,
+                        delta,
+                        (newer, older) -> {
+                            older.merge(newer);
+                            return older;
+                        });
+                log.warn(
+                        "Failed to snapshot price sketch for {}->{}: {}",
+                        key.origin(),
+                        key.destination(),
+                        e.toString());
+            }
+        }
+        log.debug("Snapshotted {} route price sketches", written);
+        return written;
+    }
+
+    /**
+     * Merge {@code delta} into the route's stored sketch under a row lock and return the stored
+     * result. A row first created by two nodes at once fails one of them on the unique constraint;
+     * that node retries on its next snapshot.
+     */
+    private PriceQuantileSketch mergeInto(RouteKey key, PriceQuantileSketch delta) {
+        Instant now = Instant.now();
+        RoutePriceSketch row =
+                repository.findForUpdate(key.origin(), key.destination()).orElse(null);
+        PriceQuantileSketch stored;
+        if (row == null) {
+            row =
+                    RoutePriceSketch.builder()
+                            .origin(key.origin())
+                            .destination(key.destination())
+                            .build();
+            stored = new PriceQuantileSketch(compression);
+        } else {
+            stored = decayed(row, now);
+        }
+        stored.merge(delta);
+        row.setObservationCount(stored.count());
+        row.setSketch(stored.toBytes());
+        repository.save(row);
+        return stored;
+    }
+
+    /** The stored sketch of {@code row}, decayed for the time since it was last written. */
+    private PriceQuantileSketch decayed(RoutePriceSketch row, Instant now) {
+        PriceQuantileSketch sketch = PriceQuantileSketch.fromBytes(row.getSketch());
+        if (row.getUpdatedAt() != null) {
+            sketch.decay(decayFactor(Duration.between(row.getUpdatedAt(), now)));
+        }
+        return sketch;
+    }
+
+    /** Weight left after {@code elapsed}: one half per half-life. */
+    private double decayFactor(Duration elapsed) {
+        if (elapsed.isNegative() || elapsed.isZero() || halfLife.isZero()) {
+            return 1.0;
+        }
+        return Math.pow(0.5, (double) elapsed.toMillis() / halfLife.toMillis());
+    }
+
+    @PreDestroy
+    void snapshotOnShutdown() {
+        // This bean is destroyed before the ingestor, so drain it first to include its last batch
+        if (ingestor != null) {
+            ingestor.flush();
+        }
+        snapshot();
+    }
+}
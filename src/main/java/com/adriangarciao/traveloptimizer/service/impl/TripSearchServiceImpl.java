@@ -9,7 +9,7 @@ import com.adriangarciao.traveloptimizer.model.TripSearch;
 import com.adriangarciao.traveloptimizer.repository.TripOptionRepository;
 import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
 import com.adriangarciao.traveloptimizer.service.PriceHistoryService;
-import com.adriangarciao.traveloptimizer.service.SearchContext;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import com.adriangarciao.traveloptimizer.service.TripSearchService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
@@ -67,6 +67,34 @@ public class TripSearchServiceImpl implements TripSearchService {
     @org.springframework.beans.factory.annotation.Value("${ml.enabled:true}")
     private boolean mlEnabled = true;
 
+    /**
+     * When true (and an enrichment service is available), ML recommendations are computed in the
+     * background and served from {@code /api/trips/{searchId}/recommendations}; responses carry
+     * baseline buy/wait only.
+     */
+    @org.springframework.beans.factory.annotation.Value("${ml.enrichment.async:false}")
+    private boolean mlAsyncEnrichment = false;
+
+    @Autowired(required = false)
+    private com.adriangarciao.traveloptimizer.service.MlEnrichmentService mlEnrichmentService;
+
+    static final String TRIP_SEARCH_CACHE = "tripSearchCache";
+
+    /** Warmed searches kept per cache key: the cached one and the one it replaced. */
+    static final int KEPT_WARMED_SEARCHES = 2;
+
+    /** Holds the full result set of each search; absent in plain unit tests. */
+    @Autowired(required = false)
+    private org.springframework.cache.CacheManager cacheManager;
+
+    /** Told about search cache lookups so it can report how many hit warmed entries. */
+    @Autowired(required = false)
+    private com.adriangarciao.traveloptimizer.service.CacheWarmingService cacheWarmingService;
+
+    /** Rendered bodies of a search, dropped when a refresh replaces its cached result. */
+    @Autowired(required = false)
+    private com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache responseBodyCache;
+
     @org.springframework.beans.factory.annotation.Value("${travel.providers.flights:}")
     private String travelProvidersFlights;
 
@@ -175,12 +203,10 @@ public class TripSearchServiceImpl implements TripSearchService {
 
     @Override
     @org.springframework.transaction.annotation.Transactional
-    @org.springframework.cache.annotation.Cacheable(
-            value = "tripSearchCache",
-            keyGenerator = "tripSearchKeyGenerator",
-            unless = "#result == null")
     public TripSearchResponseDTO searchTrips(
             TripSearchRequestDTO request, Integer limit, String sortBy, String sortDir) {
+        // Reject an unknown sort before running (and caching) the search
+        searchSortKey(sortBy);
         long searchStart = System.currentTimeMillis();
         String requestId = MDC.get("requestId");
         String provider =
@@ -292,14 +318,156 @@ public class TripSearchServiceImpl implements TripSearchService {
                     .build();
         }
 
+        // The full, unsorted result set is cached per canonical request; sorting, limiting and
+        // ML enrichment are applied per call to a copy, so they never leak into the cache
+        TripSearchResponseDTO full =
+                cachedSearch(request, () -> searchAllOptions(request, requestId, false));
+        int safeLimit = (limit == null) ? 10 : Math.max(1, Math.min(limit, 50));
+        TripSearchResponseDTO dto =
+                full.toBuilder()
+                        .options(sortAndLimit(full.getOptions(), sortBy, sortDir, safeLimit))
+                        .build();
+
+        // Enrich with ML predictions if enabled; both calls are non-blocking with one simple retry
+        if (mlEnabled && mlClient != null) {
+            java.util.concurrent.CompletableFuture<MlBestDateWindowDTO> mlWindowFuture =
+                    retryOnce(() -> mlClient.getBestDateWindowAsync(request), "ML best-date-window")
+                            .orTimeout(2, java.util.concurrent.TimeUnit.SECONDS)
+                            .exceptionally(
+                                    t -> {
+                                        log.warn(
+                                                "ML best-date-window timeout/failure: {}",
+                                                t.toString());
+                                        return MlBestDateWindowDTO.builder()
+                                                .confidence(0.0)
+                                                .build();
+                                    });
+
+            // Attach the window when it arrives; the option recommendations below run meanwhile
+            java.util.concurrent.CompletableFuture<Void> mlWindowAttached =
+                    mlWindowFuture.thenAccept(dto::setMlBestDateWindow);
+
+            if (dto.getOptions() != null && !dto.getOptions().isEmpty()) {
+                // Compute baseline buy/wait recommendations for each option (so frontend always has
+                // buyWait)
+                final SearchStats pageStats = SearchStats.ofSummaries(dto.getOptions());
+                try {
+                    attachBaselineBuyWait(dto.getOptions(), pageStats, request);
+                } catch (Throwable __t) {
+                    log.warn("BuyWait baseline compute skipped: {}", __t.toString());
+                }
+
+                enrichWithMl(dto.getSearchId(), dto.getOptions(), request, pageStats);
+
+                // After ML attempts, prefer ML-derived buy/wait when available, otherwise keep
+                // baseline
+                for (TripOptionSummaryDTO optionDto : dto.getOptions()) {
+                    try {
+                        MlRecommendationDTO mlRec = optionDto.getMlRecommendation();
+                        if (mlRec != null) {
+                            com.adriangarciao.traveloptimizer.dto.BuyWaitDTO mlBuyWait =
+                                    com.adriangarciao.traveloptimizer.dto.BuyWaitDTO.builder()
+                                            .decision(mlRec.getAction())
+                                            .confidence(mlRec.getConfidence())
+                                            .reasons(mlRec.getReasons())
+                                            .trend(mlRec.getTrend())
+                                            .build();
+                            optionDto.setBuyWait(mlBuyWait);
+                            log.info(
+                                    "Buy/Wait: ML used for option {} (decision={}, confidence={})",
+                                    optionDto.getTripOptionId(),
+                                    mlRec.getAction(),
+                                    mlRec.getConfidence());
+                        } else {
+                            // baseline already set earlier; if missing, log
+                            if (optionDto.getBuyWait() == null) {
+                                log.info(
+                                        "Buy/Wait: no ML rec for option {}, baseline missing too",
+                                        optionDto.getTripOptionId());
+                            } else {
+                                log.info(
+                                        "Buy/Wait: baseline used for option {} (decision={}, confidence={})",
+                                        optionDto.getTripOptionId(),
+                                        optionDto.getBuyWait().getDecision(),
+                                        optionDto.getBuyWait().getConfidence());
+                            }
+                        }
+                    } catch (Throwable t) {
+                        log.warn(
+                                "Failed to attach buy/wait for option {}: {}",
+                                optionDto.getTripOptionId(),
+                                t.toString());
+                    }
+                }
+            }
+
+            try {
+                mlWindowAttached.get();
+            } catch (Throwable t) {
+                log.warn("Failed to get ML best-date-window: {}", t.toString());
+            }
+        }
+
+        // Record metrics for this search
+        long searchLatency = System.currentTimeMillis() - searchStart;
+        // Note: requestId and provider already declared above
+        String status =
+                (dto.getOptions() != null && !dto.getOptions().isEmpty()) ? "success" : "fail";
+        int offerCount = dto.getOptions() != null ? dto.getOptions().size() : 0;
+
+        // Record latency with tags
+        if (meterRegistry != null) {
+            Timer.builder("traveloptimizer.trip_search.latency")
+                    .tag("provider", provider)
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(searchLatency, TimeUnit.MILLISECONDS);
+
+            // Record request completion
+            Counter.builder("traveloptimizer.trip_search.requests")
+                    .tag("provider", provider)
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        log.info(
+                "tripSearch.complete requestId={} provider={} status={} elapsedMs={} offerCount={} searchId={}",
+                requestId,
+                provider,
+                status,
+                searchLatency,
+                offerCount,
+                dto.getSearchId());
+
+        // Set latency on response for frontend diagnostics
+        dto.setLatencyMs(searchLatency);
+
+        return dto;
+    }
+
+    /**
+     * Query the providers, assemble, persist and map every option of a search, unsorted and without
+     * ML enrichment. This is the part of {@link #searchTrips} that is cached.
+     *
+     * @param warming true for a cache warmer refresh: flights are fetched fresh rather than from
+     *     the provider cache, and the search is persisted as warmed
+     */
+    private TripSearchResponseDTO searchAllOptions(
+            TripSearchRequestDTO request, String requestId, boolean warming) {
         // Persist real entities and return DTO mapped from saved entities
-        // Note: requestId already declared above
         log.info(
                 "tripSearch.persist requestId={} origin={} dest={}",
                 requestId,
                 request.getOrigin(),
                 request.getDestination());
         TripSearch toSave = tripSearchMapper.toEntity(request);
+        toSave.setWarmed(warming);
+        if (warming) {
+            toSave.setWarmKey(
+                    com.adriangarciao.traveloptimizer.config.SearchKeyGenerator.canonicalKey(
+                            request));
+        }
 
         // Run flight and lodging searches in parallel with timeouts and graceful fallbacks
         java.util.concurrent.CompletableFuture<
@@ -312,7 +480,11 @@ public class TripSearchServiceImpl implements TripSearchService {
         if (flightSearchProvider != null) {
             flightsFuture =
                     java.util.concurrent.CompletableFuture.supplyAsync(
-                                    () -> flightSearchProvider.searchFlights(request), executor)
+                                    () ->
+                                            warming
+                                                    ? flightSearchProvider.refreshFlights(request)
+                                                    : flightSearchProvider.searchFlights(request),
+                                    executor)
                             .orTimeout(
                                     this.flightProviderTimeoutSeconds,
                                     java.util.concurrent.TimeUnit.SECONDS)
@@ -395,23 +567,39 @@ public class TripSearchServiceImpl implements TripSearchService {
         // Record price observations for trend analysis on future searches
         recordPriceObservations(request, assembled);
 
+        // Evaluate flags once against the whole result set; stored with each option
+        applyFlags(assembled, request.getOrigin(), request.getDestination());
+
         toSave.setOptions(assembled);
 
-        TripSearch saved = tripSearchRepository.save(toSave);
+        // Flush inside the count so the batched inserts of the whole graph are attributed here
+        com.adriangarciao.traveloptimizer.repository.StatementCounter.Counted<TripSearch>
+                persisted =
+                        com.adriangarciao.traveloptimizer.repository.StatementCounter.count(
+                                () -> {
+                                    TripSearch s = tripSearchRepository.save(toSave);
+                                    tripSearchRepository.flush();
+                                    return s;
+                                });
+        TripSearch saved = persisted.value();
+        log.debug(
+                "tripSearch.persisted requestId={} options={} statements={}",
+                requestId,
+                assembled.size(),
+                persisted.statements());
+        if (meterRegistry != null) {
+            DistributionSummary.builder("traveloptimizer.trip_search.persist_statements")
+                    .description("JDBC statements prepared to persist one search and its options")
+                    .register(meterRegistry)
+                    .record(persisted.statements());
+        }
 
         // Map saved entity to response DTO (IDs populated by DB/Hibernate)
         TripSearchResponseDTO dto = tripSearchMapper.toDto(saved);
 
-        // Apply server-side sorting/limiting by querying persisted TripOptions
-        int safeLimit = (limit == null) ? 10 : Math.max(1, Math.min(limit, 50));
-        String safeSortBy = (sortBy == null || sortBy.isBlank()) ? "valueScore" : sortBy;
-        Sort.Direction dir =
-                ("asc".equalsIgnoreCase(sortDir)) ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Page<TripOption> optionsPage =
-                tripOptionRepository.findByTripSearchId(
-                        saved.getId(), PageRequest.of(0, safeLimit, Sort.by(dir, safeSortBy)));
-        List<TripOptionSummaryDTO> limited =
-                optionsPage.getContent().stream()
+        // All persisted options, unsorted; callers sort and limit their own copy
+        List<TripOptionSummaryDTO> all =
+                tripOptionRepository.findAllByTripSearchId(saved.getId()).stream()
                         .map(tripOptionMapper::toDto)
                         .collect(Collectors.toList());
 
@@ -431,7 +619,7 @@ public class TripSearchServiceImpl implements TripSearchService {
                 breakdownMap.put(key, a.getValueScoreBreakdown());
             }
         }
-        for (TripOptionSummaryDTO dtoOpt : limited) {
+        for (TripOptionSummaryDTO dtoOpt : all) {
             String key =
                     (dtoOpt.getFlight() != null && dtoOpt.getFlight().getFlightNumber() != null
                                     ? dtoOpt.getFlight().getFlightNumber()
@@ -443,21 +631,7 @@ public class TripSearchServiceImpl implements TripSearchService {
             }
         }
 
-        // Compute and attach flags for each option
-        try {
-            if (tripFlagService != null && !optionsPage.getContent().isEmpty()) {
-                SearchContext ctx = tripFlagService.computeContext(optionsPage.getContent());
-                for (int i = 0; i < optionsPage.getContent().size() && i < limited.size(); i++) {
-                    List<TripFlagDTO> flags =
-                            tripFlagService.evaluate(optionsPage.getContent().get(i), ctx);
-                    limited.get(i).setFlags(flags);
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Failed to compute flags for searchTrips: {}", e.toString());
-        }
-
-        dto.setOptions(limited);
+        dto.setOptions(all);
 
         // Surface provider metadata to the API response so frontend can distinguish no-results vs
         // errors
@@ -470,247 +644,238 @@ public class TripSearchServiceImpl implements TripSearchService {
             dto.setFlightProviderMessage(null);
         }
 
-        // Enrich with ML predictions if enabled; run with limited parallelism and simple retry
-        if (mlEnabled && mlClient != null) {
-            java.util.concurrent.CompletableFuture<MlBestDateWindowDTO> mlWindowFuture =
-                    java.util.concurrent.CompletableFuture.supplyAsync(
-                                    () -> {
-                                        // simple retry once
-                                        try {
-                                            return mlClient.getBestDateWindow(request);
-                                        } catch (Throwable t) {
-                                            log.warn(
-                                                    "ML best-date-window first attempt failed: {}",
-                                                    t.toString());
-                                            try {
-                                                Thread.sleep(150);
-                                            } catch (InterruptedException ignored) {
-                                            }
-                                            try {
-                                                return mlClient.getBestDateWindow(request);
-                                            } catch (Throwable t2) {
-                                                log.warn(
-                                                        "ML best-date-window retry failed: {}",
-                                                        t2.toString());
-                                                return MlBestDateWindowDTO.builder()
-                                                        .confidence(0.0)
-                                                        .build();
-                                            }
-                                        }
-                                    },
-                                    executor)
-                            .orTimeout(2, java.util.concurrent.TimeUnit.SECONDS)
-                            .exceptionally(
-                                    t -> {
-                                        log.warn(
-                                                "ML best-date-window timeout/failure: {}",
-                                                t.toString());
-                                        return MlBestDateWindowDTO.builder()
-                                                .confidence(0.0)
-                                                .build();
-                                    });
-
-            try {
-                dto.setMlBestDateWindow(mlWindowFuture.get());
-            } catch (Throwable t) {
-                log.warn("Failed to get ML best-date-window: {}", t.toString());
-            }
+        return dto;
+    }
 
-            if (dto.getOptions() != null && !dto.getOptions().isEmpty()) {
-                // Compute baseline buy/wait recommendations for each option (so frontend always has
-                // buyWait)
-                try {
-                    for (TripOptionSummaryDTO opt : dto.getOptions()) {
-                        try {
-                            com.adriangarciao.traveloptimizer.dto.BuyWaitDTO baseline = null;
-                            if (this.buyWaitService != null) {
-                                baseline =
-                                        this.buyWaitService.computeBaseline(
-                                                opt, dto.getOptions(), request);
-                            }
-                            if (baseline != null) {
-                                opt.setBuyWait(baseline);
-                            }
-                        } catch (Throwable inner) {
-                            log.warn(
-                                    "Failed to compute baseline buy/wait for option {}: {}",
-                                    opt.getTripOptionId(),
-                                    inner.toString());
-                        }
-                    }
-                } catch (Throwable __t) {
-                    log.warn("BuyWait baseline compute skipped: {}", __t.toString());
-                }
+    /**
+     * The cached full result set for {@code request}, computing and caching it on a miss. Runs
+     * {@code search} directly when no cache manager is available.
+     */
+    private TripSearchResponseDTO cachedSearch(
+            TripSearchRequestDTO request,
+            java.util.function.Supplier<TripSearchResponseDTO> search) {
+        org.springframework.cache.Cache cache =
+                cacheManager != null ? cacheManager.getCache(TRIP_SEARCH_CACHE) : null;
+        if (cache == null) {
+            return search.get();
+        }
+        String key =
+                com.adriangarciao.traveloptimizer.config.SearchKeyGenerator.canonicalKey(request);
+        TripSearchResponseDTO cached = cache.get(key, TripSearchResponseDTO.class);
+        if (cacheWarmingService != null) {
+            cacheWarmingService.recordLookup(request, cached != null);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        TripSearchResponseDTO result = search.get();
+        if (result != null) {
+            putAfterCommit(cache, key, result);
+        }
+        return result;
+    }
 
-                // cap number of parallel ML option recommendation calls
-                int cap = Math.min(dto.getOptions().size(), 5);
-                java.util.List<java.util.concurrent.CompletableFuture<Void>> recFutures =
-                        new java.util.ArrayList<>();
-                for (int i = 0; i < cap; i++) {
-                    TripOptionSummaryDTO optionDto = dto.getOptions().get(i);
-                    java.util.concurrent.CompletableFuture<Void> f =
-                            java.util.concurrent.CompletableFuture.runAsync(
-                                            () -> {
-                                                try {
-                                                    MlRecommendationDTO rec = null;
-                                                    if (mlClient != null && mlEnabled) {
-                                                        // simple retry
-                                                        try {
-                                                            rec =
-                                                                    mlClient
-                                                                            .getOptionRecommendation(
-                                                                                    optionDto,
-                                                                                    request,
-                                                                                    dto
-                                                                                            .getOptions());
-                                                        } catch (Throwable t) {
-                                                            log.warn(
-                                                                    "ML recommendation first attempt failed for option {}: {}",
-                                                                    optionDto.getTripOptionId(),
-                                                                    t.toString());
-                                                            try {
-                                                                Thread.sleep(150);
-                                                            } catch (InterruptedException ignored) {
-                                                            }
-                                                            try {
-                                                                rec =
-                                                                        mlClient
-                                                                                .getOptionRecommendation(
-                                                                                        optionDto,
-                                                                                        request,
-                                                                                        dto
-                                                                                                .getOptions());
-                                                            } catch (Throwable t2) {
-                                                                log.warn(
-                                                                        "ML recommendation retry failed for option {}: {}",
-                                                                        optionDto.getTripOptionId(),
-                                                                        t2.toString());
-                                                            }
-                                                        }
-                                                    }
-
-                                                    if (rec != null) {
-                                                        optionDto.setMlRecommendation(rec);
-                                                    }
-                                                } catch (Throwable t) {
-                                                    log.warn(
-                                                            "Unexpected error in ML recommendation task for option {}: {}",
-                                                            optionDto.getTripOptionId(),
-                                                            t.toString());
-                                                }
-                                            },
-                                            executor)
-                                    .orTimeout(2, java.util.concurrent.TimeUnit.SECONDS)
-                                    .exceptionally(
-                                            t -> {
-                                                log.warn(
-                                                        "ML recommendation timeout for option {}: {}",
-                                                        optionDto.getTripOptionId(),
-                                                        t.toString());
-                                                return null;
-                                            });
-                    recFutures.add(f);
-                }
-                try {
-                    java.util.concurrent.CompletableFuture.allOf(
-                                    recFutures.toArray(
-                                            new java.util.concurrent.CompletableFuture[0]))
-                            .get();
-                } catch (Throwable t) {
-                    log.warn("Error waiting for ML recommendation futures: {}", t.toString());
-                }
+    /**
+     * Cache a search result once the surrounding transaction commits, so a rolled back search never
+     * leaves a cached searchId with no row behind it. Puts at once outside a transaction.
+     */
+    private static void putAfterCommit(
+            org.springframework.cache.Cache cache, Object key, TripSearchResponseDTO result) {
+        afterCommit(() -> cache.put(key, result));
+    }
 
-                // After ML attempts, prefer ML-derived buy/wait when available, otherwise keep
-                // baseline
-                for (TripOptionSummaryDTO optionDto : dto.getOptions()) {
-                    try {
-                        MlRecommendationDTO mlRec = optionDto.getMlRecommendation();
-                        if (mlRec != null) {
-                            com.adriangarciao.traveloptimizer.dto.BuyWaitDTO mlBuyWait =
-                                    com.adriangarciao.traveloptimizer.dto.BuyWaitDTO.builder()
-                                            .decision(mlRec.getAction())
-                                            .confidence(mlRec.getConfidence())
-                                            .reasons(mlRec.getReasons())
-                                            .trend(mlRec.getTrend())
-                                            .build();
-                            optionDto.setBuyWait(mlBuyWait);
-                            log.info(
-                                    "Buy/Wait: ML used for option {} (decision={}, confidence={})",
-                                    optionDto.getTripOptionId(),
-                                    mlRec.getAction(),
-                                    mlRec.getConfidence());
-                        } else {
-                            // baseline already set earlier; if missing, log
-                            if (optionDto.getBuyWait() == null) {
-                                log.info(
-                                        "Buy/Wait: no ML rec for option {}, baseline missing too",
-                                        optionDto.getTripOptionId());
-                            } else {
-                                log.info(
-                                        "Buy/Wait: baseline used for option {} (decision={}, confidence={})",
-                                        optionDto.getTripOptionId(),
-                                        optionDto.getBuyWait().getDecision(),
-                                        optionDto.getBuyWait().getConfidence());
+    /** Run {@code action} once the surrounding transaction commits, or at once outside one. */
+    private static void afterCommit(Runnable action) {
+        if (!org.springframework.transaction.support.TransactionSynchronizationManager
+                .isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        org.springframework.transaction.support.TransactionSynchronizationManager
+                .registerSynchronization(
+                        new org.springframework.transaction.support.TransactionSynchronization() {
+                            @Override
+                            public void afterCommit() {
+                                action.run();
                             }
+                        });
+    }
+
+    @Override
+    @org.springframework.transaction.annotation.Transactional
+    public TripSearchResponseDTO refreshCachedSearch(TripSearchRequestDTO request) {
+        org.springframework.cache.Cache cache =
+                cacheManager != null ? cacheManager.getCache(TRIP_SEARCH_CACHE) : null;
+        if (cache == null || tripSearchRepository == null || tripSearchMapper == null) {
+            return null;
+        }
+        TripSearchResponseDTO result = searchAllOptions(request, MDC.get("requestId"), true);
+        String status = result.getFlightProviderStatus();
+        if (status == null
+                || com.adriangarciao.traveloptimizer.provider.ProviderStatus.OK
+                        .name()
+                        .equals(status)
+                || com.adriangarciao.traveloptimizer.provider.ProviderStatus.NO_RESULTS
+                        .name()
+                        .equals(status)) {
+            String key =
+                    com.adriangarciao.traveloptimizer.config.SearchKeyGenerator.canonicalKey(
+                            request);
+            deleteSupersededWarmedSearches(key);
+            // Bodies rendered from the replaced result would otherwise outlive it
+            afterCommit(
+                    () -> {
+                        cache.put(key, result);
+                        if (responseBodyCache != null) {
+                            responseBodyCache.evictSearch(request);
                         }
-                    } catch (Throwable t) {
-                        log.warn(
-                                "Failed to attach buy/wait for option {}: {}",
-                                optionDto.getTripOptionId(),
-                                t.toString());
-                    }
-                }
-            }
+                    });
+        } else if (result.getSearchId() != null) {
+            // Not cached, so nothing will ever refer to it
+            tripSearchRepository.deleteById(result.getSearchId());
         }
+        return result;
+    }
 
-        // Record metrics for this search
-        long searchLatency = System.currentTimeMillis() - searchStart;
-        // Note: requestId and provider already declared above
-        String status =
-                (dto.getOptions() != null && !dto.getOptions().isEmpty()) ? "success" : "fail";
-        int offerCount = dto.getOptions() != null ? dto.getOptions().size() : 0;
-
-        // Record latency with tags
-        if (meterRegistry != null) {
-            Timer.builder("traveloptimizer.trip_search.latency")
-                    .tag("provider", provider)
-                    .tag("status", status)
-                    .register(meterRegistry)
-                    .record(searchLatency, TimeUnit.MILLISECONDS);
-
-            // Record request completion
-            Counter.builder("traveloptimizer.trip_search.requests")
-                    .tag("provider", provider)
-                    .tag("status", status)
-                    .register(meterRegistry)
-                    .increment();
+    /**
+     * Delete the warmed searches of {@code key} older than the new one and the one it replaces in
+     * the cache. The replaced one stays until the next refresh, since clients that just got it from
+     * the cache may still page its options or poll its recommendations.
+     */
+    private void deleteSupersededWarmedSearches(String key) {
+        List<UUID> warmed = tripSearchRepository.findIdsByWarmKey(key);
+        if (warmed.size() > KEPT_WARMED_SEARCHES) {
+            List<UUID> superseded = warmed.subList(KEPT_WARMED_SEARCHES, warmed.size());
+            tripSearchRepository.deleteAllById(superseded);
+            log.debug("cacheWarming.deletedSuperseded count={}", superseded.size());
         }
+    }
 
-        log.info(
-                "tripSearch.complete requestId={} provider={} status={} elapsedMs={} offerCount={} searchId={}",
-                requestId,
-                provider,
-                status,
-                searchLatency,
-                offerCount,
-                dto.getSearchId());
+    /**
+     * Copies of the first {@code limit} options ordered by {@code sortBy} ({@code valueScore}, the
+     * default, {@code totalPrice} or {@code duration}, as for option pages), descending unless
+     * {@code sortDir} is {@code asc}. Options without a price or duration sort last either way.
+     *
+     * @throws IllegalArgumentException if {@code sortBy} is not one of those keys
+     */
+    static List<TripOptionSummaryDTO> sortAndLimit(
+            List<TripOptionSummaryDTO> options, String sortBy, String sortDir, int limit) {
+        com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey sortKey =
+                searchSortKey(sortBy);
+        if (options == null || options.isEmpty()) {
+            return new java.util.ArrayList<>();
+        }
+        boolean asc = "asc".equalsIgnoreCase(sortDir);
+        java.util.Comparator<TripOptionSummaryDTO> order =
+                switch (sortKey) {
+                    case VALUE_SCORE -> {
+                        java.util.Comparator<TripOptionSummaryDTO> byScore =
+                                java.util.Comparator.comparingDouble(
+                                        TripOptionSummaryDTO::getValueScore);
+                        yield asc ? byScore : byScore.reversed();
+                    }
+                    case TOTAL_PRICE -> java.util.Comparator.comparing(
+                            TripOptionSummaryDTO::getTotalPrice,
+                            java.util.Comparator.nullsLast(inDirection(asc)));
+                    case DURATION -> java.util.Comparator.comparing(
+                            (TripOptionSummaryDTO o) ->
+                                    o.getFlight() != null ? o.getFlight().getDuration() : null,
+                            java.util.Comparator.nullsLast(inDirection(asc)));
+                };
+        return options.stream()
+                .sorted(order)
+                .limit(limit)
+                .map(o -> o.toBuilder().build())
+                .collect(Collectors.toList());
+    }
 
-        // Set latency on response for frontend diagnostics
-        dto.setLatencyMs(searchLatency);
+    /**
+     * The key search results are sorted on: {@code valueScore} when {@code sortBy} is blank.
+     *
+     * @throws IllegalArgumentException if {@code sortBy} names no supported key
+     */
+    static com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey searchSortKey(
+            String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey.VALUE_SCORE;
+        }
+        com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey sortKey =
+                com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey.of(sortBy);
+        if (sortKey == null) {
+            throw new IllegalArgumentException(
+                    "Unsupported sortBy '" + sortBy + "'; use valueScore, totalPrice or duration");
+        }
+        return sortKey;
+    }
 
-        return dto;
+    private static <T extends Comparable<? super T>> java.util.Comparator<T> inDirection(
+            boolean asc) {
+        return asc ? java.util.Comparator.naturalOrder() : java.util.Comparator.reverseOrder();
     }
 
     @Override
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    @org.springframework.transaction.annotation.Transactional
     public com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO getOptions(
-            java.util.UUID searchId, int page, int size, String sortBy, String sortDir) {
-        String requestId = MDC.get("requestId");
+            java.util.UUID searchId,
+            int page,
+            int size,
+            String sortBy,
+            String sortDir,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> requiredFlags,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> excludedFlags) {
         int safeSize = Math.max(1, Math.min(size, 100));
         int safePage = Math.max(0, page);
         String safeSortBy = (sortBy == null || sortBy.isBlank()) ? "valueScore" : sortBy;
         Sort.Direction dir =
                 ("asc".equalsIgnoreCase(sortDir)) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return optionsPage(
+                searchId,
+                safePage * safeSize,
+                safeSize,
+                safeSortBy,
+                dir,
+                requiredFlags,
+                excludedFlags,
+                null);
+    }
+
+    @Override
+    @org.springframework.transaction.annotation.Transactional
+    public com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO getOptionsAfter(
+            java.util.UUID searchId,
+            String cursor,
+            int size,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> requiredFlags,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> excludedFlags) {
+        com.adriangarciao.traveloptimizer.service.OptionCursor after =
+                com.adriangarciao.traveloptimizer.service.OptionCursor.decode(cursor);
+        return optionsPage(
+                searchId,
+                after.served(),
+                Math.max(1, Math.min(size, 100)),
+                after.sortKey().param(),
+                after.direction(),
+                requiredFlags,
+                excludedFlags,
+                after);
+    }
+
+    /**
+     * One page of a search's options, starting {@code served} options in: by offset when {@code
+     * after} is null, otherwise by seeking past the option {@code after} points at. Either way the
+     * page carries a cursor for keyset paging onwards when the sort key supports it.
+     */
+    private com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO optionsPage(
+            java.util.UUID searchId,
+            int served,
+            int safeSize,
+            String safeSortBy,
+            Sort.Direction dir,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> requiredFlags,
+            java.util.Set<com.adriangarciao.traveloptimizer.dto.FlagCode> excludedFlags,
+            com.adriangarciao.traveloptimizer.service.OptionCursor after) {
+        String requestId = MDC.get("requestId");
+        int safePage = served / safeSize;
         String provider =
                 (flightSearchProvider != null)
                         ? (flightSearchProvider
@@ -747,11 +912,8 @@ public class TripSearchServiceImpl implements TripSearchService {
 
         // Check if we need to fetch more offers from Amadeus
         boolean flightExhausted = tripSearch != null && tripSearch.isFlightExhausted();
-        long existingCount =
-                tripOptionRepository
-                        .findByTripSearchId(searchId, PageRequest.of(0, 1))
-                        .getTotalElements();
-        int requestedCount = (safePage + 1) * safeSize;
+        long existingCount = tripOptionRepository.countByTripSearchId(searchId);
+        int requestedCount = served + safeSize;
 
         log.info(
                 "tripOptions.page.start requestId={} searchId={} page={} size={} existingCount={} requestedCount={} flightExhausted={}",
@@ -805,9 +967,7 @@ public class TripSearchServiceImpl implements TripSearchService {
                             && !result.getOffers().isEmpty()) {
                         // Get existing offers for deduplication
                         List<TripOption> existingOptions =
-                                tripOptionRepository
-                                        .findByTripSearchId(searchId, PageRequest.of(0, 1000))
-                                        .getContent();
+                                tripOptionRepository.findAllByTripSearchId(searchId);
                         java.util.Set<String> existingKeys =
                                 existingOptions.stream()
                                         .map(this::computeOfferKey)
@@ -830,20 +990,26 @@ public class TripSearchServiceImpl implements TripSearchService {
 
                         if (!newOffers.isEmpty()) {
                             // Convert and persist new offers
+                            List<TripOption> added = new java.util.ArrayList<>();
                             for (var fo : newOffers) {
                                 try {
                                     TripOption option =
                                             buildTripOptionFromFlightOffer(fo, tripSearch);
-                                    tripOptionRepository.save(option);
+                                    added.add(tripOptionRepository.save(option));
                                 } catch (Throwable t) {
                                     log.warn("Failed to persist new offer: {}", t.toString());
                                 }
                             }
+                            // The result set changed, so price/duration context changed too
+                            if (!added.isEmpty()) {
+                                List<TripOption> all = new java.util.ArrayList<>(existingOptions);
+                                all.addAll(added);
+                                applyFlags(
+                                        all, tripSearch.getOrigin(), tripSearch.getDestination());
+                                tripOptionRepository.saveAll(all);
+                            }
                             // Update existing count
-                            existingCount =
-                                    tripOptionRepository
-                                            .findByTripSearchId(searchId, PageRequest.of(0, 1))
-                                            .getTotalElements();
+                            existingCount = tripOptionRepository.countByTripSearchId(searchId);
                             log.info(
                                     "Progressive fetch: persisted {} new offers, total now={}",
                                     newOffers.size(),
@@ -881,38 +1047,73 @@ public class TripSearchServiceImpl implements TripSearchService {
             }
         }
 
-        // Now query the database for the requested page
-        Page<TripOption> p =
-                tripOptionRepository.findByTripSearchId(
-                        searchId, PageRequest.of(safePage, safeSize, Sort.by(dir, safeSortBy)));
-        List<TripOption> tripOptions = p.getContent();
-        List<com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO> content =
-                tripOptions.stream().map(tripOptionMapper::toDto).collect(Collectors.toList());
-
-        // Compute and attach flags for each option
+        // Options saved before flags were stored get them now, once, for the whole search
         try {
-            if (tripFlagService != null && !tripOptions.isEmpty()) {
-                com.adriangarciao.traveloptimizer.service.SearchContext ctx =
-                        tripFlagService.computeContext(tripOptions);
-                for (int i = 0; i < tripOptions.size() && i < content.size(); i++) {
-                    try {
-                        java.util.List<com.adriangarciao.traveloptimizer.dto.TripFlagDTO> flags =
-                                tripFlagService.evaluate(tripOptions.get(i), ctx);
-                        content.get(i).setFlags(flags);
-                    } catch (Throwable t) {
-                        log.warn(
-                                "Failed to compute flags for option {}: {}",
-                                content.get(i).getTripOptionId(),
-                                t.toString());
-                    }
-                }
+            if (tripFlagService != null
+                    && tripOptionRepository.existsByTripSearchIdAndFlagsJsonIsNull(searchId)) {
+                List<TripOption> all = tripOptionRepository.findAllByTripSearchId(searchId);
+                applyFlags(
+                        all,
+                        tripSearch != null ? tripSearch.getOrigin() : null,
+                        tripSearch != null ? tripSearch.getDestination() : null);
+                tripOptionRepository.saveAll(all);
             }
         } catch (Throwable t) {
-            log.warn("Failed to compute search context for flags: {}", t.toString());
+            log.warn("Failed to backfill flags for search {}: {}", searchId, t.toString());
         }
 
+        // Now query the database for the requested page; flag filters apply before paging
+        long requiredMask = com.adriangarciao.traveloptimizer.dto.FlagCode.maskOf(requiredFlags);
+        long excludedMask = com.adriangarciao.traveloptimizer.dto.FlagCode.maskOf(excludedFlags);
+        boolean filtered = requiredMask != 0L || excludedMask != 0L;
+        com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey sortKey =
+                com.adriangarciao.traveloptimizer.service.OptionCursor.SortKey.of(safeSortBy);
+        List<TripOption> tripOptions;
+        boolean moreStored;
+        long totalOptions;
+        if (after == null) {
+            // Supported keys sort on their (possibly denormalized) property with id as tiebreaker,
+            // matching the keyset order so a cursor from this page continues it
+            Sort sort =
+                    sortKey != null
+                            ? com.adriangarciao.traveloptimizer.service.OptionCursor.sort(
+                                    sortKey, dir)
+                            : Sort.by(dir, safeSortBy);
+            PageRequest pageRequest = PageRequest.of(safePage, safeSize, sort);
+            Page<TripOption> p =
+                    filtered
+                            ? tripOptionRepository.findByTripSearchIdAndFlags(
+                                    searchId, requiredMask, excludedMask, pageRequest)
+                            : tripOptionRepository.findByTripSearchId(searchId, pageRequest);
+            tripOptions = p.getContent();
+            moreStored = p.hasNext();
+            totalOptions = p.getTotalElements();
+        } else {
+            // Seek past the cursor's option: no offset to skip and, unfiltered, no extra count
+            org.springframework.data.jpa.domain.Specification<TripOption> spec =
+                    TripOptionRepository.ofSearch(searchId, requiredMask, excludedMask);
+            org.springframework.data.domain.Window<TripOption> window =
+                    tripOptionRepository.findBy(
+                            spec.and(TripOptionRepository.fetchingMapped()),
+                            q -> q.sortBy(after.sort()).limit(safeSize).scroll(after.position()));
+            tripOptions = window.getContent();
+            moreStored = window.hasNext();
+            totalOptions = filtered ? tripOptionRepository.count(spec) : existingCount;
+        }
+        com.adriangarciao.traveloptimizer.service.OptionCursor next =
+                sortKey != null && moreStored && !tripOptions.isEmpty()
+                        ? com.adriangarciao.traveloptimizer.service.OptionCursor.after(
+                                sortKey,
+                                dir,
+                                tripOptions.get(tripOptions.size() - 1),
+                                served + tripOptions.size())
+                        : null;
+        String nextCursor = next != null ? next.encode() : null;
+        List<com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO> content =
+                tripOptions.stream().map(tripOptionMapper::toDto).collect(Collectors.toList());
+
         // Determine hasMore: false if exhausted AND this page is empty or partial
-        boolean hasMore = !flightExhausted || (p.hasNext());
+        boolean hasMore = !flightExhausted || moreStored;
         if (content.isEmpty() && flightExhausted) {
             hasMore = false;
         }
@@ -923,7 +1124,7 @@ public class TripSearchServiceImpl implements TripSearchService {
                 searchId,
                 safePage,
                 content.size(),
-                p.getTotalElements(),
+                totalOptions,
                 hasMore,
                 flightExhausted);
 
@@ -953,20 +1154,11 @@ public class TripSearchServiceImpl implements TripSearchService {
                 }
 
                 // compute baseline buy/wait for each option
-                for (com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO opt : content) {
-                    try {
-                        com.adriangarciao.traveloptimizer.dto.BuyWaitDTO baseline = null;
-                        if (this.buyWaitService != null) {
-                            baseline =
-                                    this.buyWaitService.computeBaseline(opt, content, requestDto);
-                        }
-                        if (baseline != null) opt.setBuyWait(baseline);
-                    } catch (Throwable inner) {
-                        log.warn(
-                                "Failed to compute baseline buy/wait for option {}: {}",
-                                opt.getTripOptionId(),
-                                inner.toString());
-                    }
+                final SearchStats pageStats = SearchStats.ofSummaries(content);
+                try {
+                    attachBaselineBuyWait(content, pageStats, requestDto);
+                } catch (Throwable t) {
+                    log.warn("BuyWait baseline compute skipped: {}", t.toString());
                 }
 
                 // make final copy for use inside lambdas
@@ -974,81 +1166,7 @@ public class TripSearchServiceImpl implements TripSearchService {
                         requestDto;
 
                 if (mlEnabled && mlClient != null) {
-                    int cap = Math.min(content.size(), 5);
-                    java.util.List<java.util.concurrent.CompletableFuture<Void>> recFutures =
-                            new java.util.ArrayList<>();
-                    for (int i = 0; i < cap; i++) {
-                        final com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO optionDto =
-                                content.get(i);
-                        java.util.concurrent.CompletableFuture<Void> f =
-                                java.util.concurrent.CompletableFuture.runAsync(
-                                                () -> {
-                                                    try {
-                                                        com.adriangarciao.traveloptimizer.dto
-                                                                        .MlRecommendationDTO
-                                                                rec = null;
-                                                        try {
-                                                            rec =
-                                                                    mlClient
-                                                                            .getOptionRecommendation(
-                                                                                    optionDto,
-                                                                                    requestForMl,
-                                                                                    content);
-                                                        } catch (Throwable t) {
-                                                            log.warn(
-                                                                    "ML recommendation first attempt failed for option {}: {}",
-                                                                    optionDto.getTripOptionId(),
-                                                                    t.toString());
-                                                            try {
-                                                                Thread.sleep(150);
-                                                            } catch (InterruptedException ignored) {
-                                                            }
-                                                            try {
-                                                                rec =
-                                                                        mlClient
-                                                                                .getOptionRecommendation(
-                                                                                        optionDto,
-                                                                                        requestForMl,
-                                                                                        content);
-                                                            } catch (Throwable t2) {
-                                                                log.warn(
-                                                                        "ML recommendation retry failed for option {}: {}",
-                                                                        optionDto.getTripOptionId(),
-                                                                        t2.toString());
-                                                            }
-                                                        }
-                                                        if (rec != null) {
-                                                            optionDto.setMlRecommendation(rec);
-                                                        }
-                                                    } catch (Throwable t) {
-                                                        log.warn(
-                                                                "Unexpected error in ML recommendation task for option {}: {}",
-                                                                optionDto.getTripOptionId(),
-                                                                t.toString());
-                                                    }
-                                                },
-                                                executor)
-                                        .orTimeout(2, java.util.concurrent.TimeUnit.SECONDS)
-                                        .exceptionally(
-                                                t -> {
-                                                    log.warn(
-                                                            "ML recommendation timeout for option {}: {}",
-                                                            optionDto.getTripOptionId(),
-                                                            t.toString());
-                                                    return null;
-                                                });
-                        recFutures.add(f);
-                    }
-                    try {
-                        java.util.concurrent.CompletableFuture.allOf(
-                                        recFutures.toArray(
-                                                new java.util.concurrent.CompletableFuture[0]))
-                                .get();
-                    } catch (Throwable t) {
-                        log.warn(
-                                "Error waiting for ML recommendation futures (getOptions): {}",
-                                t.toString());
-                    }
+                    enrichWithMl(searchId, content, requestForMl, pageStats);
 
                     // prefer ML buy/wait when available
                     for (com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO optionDto :
@@ -1083,13 +1201,116 @@ public class TripSearchServiceImpl implements TripSearchService {
                 .searchId(searchId)
                 .page(safePage)
                 .size(safeSize)
-                .totalOptions(p.getTotalElements())
+                .totalOptions(totalOptions)
                 .options(content)
+                .nextCursor(nextCursor)
                 .hasMore(hasMore)
                 .criteria(tripSearch != null ? tripSearchMapper.toCriteria(tripSearch) : null)
                 .build();
     }
 
+    /**
+     * Attach ML recommendations inline, or hand the options still lacking one to background
+     * enrichment when {@code ml.enrichment.async} is on.
+     */
+    private void enrichWithMl(
+            UUID searchId,
+            List<TripOptionSummaryDTO> options,
+            com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO request,
+            SearchStats stats) {
+        if (mlAsyncEnrichment && mlEnrichmentService != null && searchId != null) {
+            List<TripOptionSummaryDTO> missing =
+                    options.stream().filter(o -> o.getMlRecommendation() == null).toList();
+            if (!missing.isEmpty()) {
+                mlEnrichmentService.enrichInBackground(searchId, missing, request, stats);
+            }
+            return;
+        }
+        attachMlRecommendations(options, request, stats);
+    }
+
+    /**
+     * Fetch ML recommendations for every option in one batch request and attach them, waiting at
+     * most 2s. Options keep their baseline buy/wait when ML is disabled or the batch fails.
+     */
+    private void attachMlRecommendations(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request, SearchStats stats) {
+        attachMlRecommendationsAsync(options, request, stats).join();
+    }
+
+    /**
+     * Start the batch ML call (one retry, 2s timeout) and attach its results when it completes.
+     * Uses the client's non-blocking variant, so no executor thread waits on the ML service. The
+     * returned future never completes exceptionally.
+     */
+    private java.util.concurrent.CompletableFuture<Void> attachMlRecommendationsAsync(
+            List<TripOptionSummaryDTO> options, TripSearchRequestDTO request, SearchStats stats) {
+        if (mlClient == null || !mlEnabled || options == null || options.isEmpty()) {
+            return java.util.concurrent.CompletableFuture.completedFuture(null);
+        }
+        return retryOnce(
+                        () -> mlClient.getOptionRecommendationsAsync(options, request, stats),
+                        "ML batch recommendation")
+                .orTimeout(2, TimeUnit.SECONDS)
+                .handle(
+                        (recs, t) -> {
+                            if (t != null) {
+                                log.warn(
+                                        "ML batch recommendation failed for {} options: {}",
+                                        options.size(),
+                                        t.toString());
+                                return null;
+                            }
+                            for (int i = 0;
+                                    i < options.size() && recs != null && i < recs.size();
+                                    i++) {
+                                if (recs.get(i) != null) {
+                                    options.get(i).setMlRecommendation(recs.get(i));
+                                }
+                            }
+                            return null;
+                        });
+    }
+
+    /** Run an async ML call, retrying once after 150ms if it fails; never blocks a thread. */
+    private <T> java.util.concurrent.CompletableFuture<T> retryOnce(
+            java.util.function.Supplier<java.util.concurrent.CompletableFuture<T>> call,
+            String what) {
+        java.util.concurrent.CompletableFuture<T> first;
+        try {
+            first = call.get();
+        } catch (Throwable t) {
+            first = java.util.concurrent.CompletableFuture.failedFuture(t);
+        }
+        return first.exceptionallyCompose(
+                t -> {
+                    log.warn("{} first attempt failed: {}", what, t.toString());
+                    return java.util.concurrent.CompletableFuture.runAsync(
+                                    () -> {},
+                                    java.util.concurrent.CompletableFuture.delayedExecutor(
+                                            150, TimeUnit.MILLISECONDS, executor))
+                            .thenCompose(ignored -> call.get());
+                });
+    }
+
+    /**
+     * Compute baseline buy/wait decisions for a whole result set in one batch call and attach them
+     * to the options, ranking against the page's shared stats and looking up the route trend once.
+     */
+    private void attachBaselineBuyWait(
+            List<TripOptionSummaryDTO> options, SearchStats stats, TripSearchRequestDTO request) {
+        if (this.buyWaitService == null || options == null || options.isEmpty()) {
+            return;
+        }
+        List<com.adriangarciao.traveloptimizer.dto.BuyWaitDTO> baselines =
+                this.buyWaitService.computeBaselines(options, stats, request);
+        for (int i = 0; i < options.size() && i < baselines.size(); i++) {
+            if (baselines.get(i) != null) {
+                options.get(i).setBuyWait(baselines.get(i));
+            }
+        }
+    }
+
     /**
      * Record price observations for trend analysis. Stores the median/average price for this
      * route+date combination to build historical data.
@@ -1135,6 +1356,18 @@ public class TripSearchServiceImpl implements TripSearchService {
         }
     }
 
+    /** Evaluate and store flags on the options of one search; no-op without a flag service. */
+    private void applyFlags(List<TripOption> options, String origin, String destination) {
+        if (tripFlagService == null) {
+            return;
+        }
+        try {
+            tripFlagService.applyFlags(options, origin, destination);
+        } catch (Exception e) {
+            log.warn("Failed to compute flags: {}", e.toString());
+        }
+    }
+
     /**
      * Compute a deduplication key for an existing TripOption. Key is based on airline, flight
      * number, price, and segments.
@@ -1182,13 +1415,14 @@ public class TripSearchServiceImpl implements TripSearchService {
                         .flightNumber(fo.getFlightNumber())
                         .stops(fo.getStops())
                         .duration(Duration.ofMinutes(fo.getDurationMinutes()))
-                        .segments(
-                                fo.getSegments() != null && !fo.getSegments().isEmpty()
-                                        ? fo.getSegments()
+                        .legs(
+                                fo.getLegs() != null && !fo.getLegs().isEmpty()
+                                        ? fo.getLegs()
                                         : List.of(
-                                                tripSearch.getOrigin()
-                                                        + "->"
-                                                        + tripSearch.getDestination()))
+                                                com.adriangarciao.traveloptimizer.model
+                                                        .FlightSegment.of(
+                                                        tripSearch.getOrigin(),
+                                                        tripSearch.getDestination())))
                         .price(fo.getPrice())
                         .build();
 
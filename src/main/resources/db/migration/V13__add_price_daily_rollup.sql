@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS price_daily_rollup (
+    id UUID NOT NULL,
+    origin VARCHAR(16) NOT NULL,
+    destination VARCHAR(16) NOT NULL,
+    departure_date DATE NOT NULL,
+    observation_day DATE NOT NULL,
+    observation_count BIGINT NOT NULL,
+    min_price NUMERIC(19, 2) NOT NULL,
+    median_price NUMERIC(19, 2) NOT NULL,
+    max_price NUMERIC(19, 2) NOT NULL,
+    sum_price NUMERIC(19, 2) NOT NULL,
+    compacted BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_price_daily_rollup PRIMARY KEY (id),
+    CONSTRAINT uk_price_rollup_route_day UNIQUE (origin, destination, departure_date, observation_day)
+);
+
+-- Backfill rollups from existing raw observations (exact, since all raw rows are present)
+INSERT INTO price_daily_rollup (
+    id, origin, destination, departure_date, observation_day, observation_count,
+    min_price, median_price, max_price, sum_price, compacted, updated_at)
+SELECT gen_random_uuid(), origin, destination, departure_date,
+       CAST(created_at AT TIME ZONE 'UTC' AS DATE),
+       COUNT(*), MIN(observed_price),
+       CAST(PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY observed_price) AS NUMERIC(19, 2)),
+       MAX(observed_price), SUM(observed_price), FALSE, NOW()
+FROM price_observation
+GROUP BY origin, destination, departure_date, CAST(created_at AT TIME ZONE 'UTC' AS DATE);
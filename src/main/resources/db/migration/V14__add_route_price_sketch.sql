@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS route_price_sketch (
+    id UUID NOT NULL,
+    origin VARCHAR(16) NOT NULL,
+    destination VARCHAR(16) NOT NULL,
+    observation_count BIGINT NOT NULL,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_route_price_sketch PRIMARY KEY (id),
+    CONSTRAINT uk_route_price_sketch_route UNIQUE (origin, destination)
+);
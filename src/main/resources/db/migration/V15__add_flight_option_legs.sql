@@ -0,0 +1,55 @@
+-- Typed flight legs replace the "ORD→DEN" segment strings. Times are airport-local as reported by
+-- the provider, so layovers can be computed without time zone data.
+CREATE TABLE IF NOT EXISTS flight_option_leg (
+  flight_option_id UUID NOT NULL,
+  leg_index INTEGER NOT NULL,
+  departure_airport VARCHAR(8),
+  arrival_airport VARCHAR(8),
+  departure_at TIMESTAMP,
+  arrival_at TIMESTAMP,
+  duration_minutes INTEGER NOT NULL DEFAULT 0,
+  carrier_code VARCHAR(8),
+  flight_number VARCHAR(16),
+  CONSTRAINT pk_flight_option_leg PRIMARY KEY (flight_option_id, leg_index),
+  CONSTRAINT fk_fol_flight_option FOREIGN KEY (flight_option_id) REFERENCES flight_option(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS flight_option_return_leg (
+  flight_option_id UUID NOT NULL,
+  leg_index INTEGER NOT NULL,
+  departure_airport VARCHAR(8),
+  arrival_airport VARCHAR(8),
+  departure_at TIMESTAMP,
+  arrival_at TIMESTAMP,
+  duration_minutes INTEGER NOT NULL DEFAULT 0,
+  carrier_code VARCHAR(8),
+  flight_number VARCHAR(16),
+  CONSTRAINT pk_flight_option_return_leg PRIMARY KEY (flight_option_id, leg_index),
+  CONSTRAINT fk_forl_flight_option FOREIGN KEY (flight_option_id) REFERENCES flight_option(id) ON DELETE CASCADE
+);
+
+-- Leg summary read by the flag rules; filled on save from the legs
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS departure_hour INTEGER;
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS min_layover_minutes INTEGER;
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS min_layover_airport VARCHAR(8);
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS max_layover_minutes INTEGER;
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS max_layover_airport VARCHAR(8);
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS legs_summarized BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Carry existing segment strings over; they have airports only, in insertion order
+INSERT INTO flight_option_leg (flight_option_id, leg_index, departure_airport, arrival_airport)
+SELECT flight_option_id,
+       ROW_NUMBER() OVER (PARTITION BY flight_option_id ORDER BY ctid) - 1,
+       LEFT(TRIM(split_part(segment, '→', 1)), 8),
+       NULLIF(LEFT(TRIM(split_part(segment, '→', 2)), 8), '')
+FROM flight_option_segments;
+
+INSERT INTO flight_option_return_leg (flight_option_id, leg_index, departure_airport, arrival_airport)
+SELECT flight_option_id,
+       ROW_NUMBER() OVER (PARTITION BY flight_option_id ORDER BY ctid) - 1,
+       LEFT(TRIM(split_part(segment, '→', 1)), 8),
+       NULLIF(LEFT(TRIM(split_part(segment, '→', 2)), 8), '')
+FROM flight_option_return_segments;
+
+DROP TABLE IF EXISTS flight_option_segments;
+DROP TABLE IF EXISTS flight_option_return_segments;
@@ -0,0 +1,6 @@
+-- Flags are evaluated once per search and stored, so the options endpoint can filter on them
+-- before paging. Bit positions follow FlagCode declaration order.
+ALTER TABLE trip_option ADD COLUMN IF NOT EXISTS flag_mask BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE trip_option ADD COLUMN IF NOT EXISTS flags_json TEXT;
+
+CREATE INDEX IF NOT EXISTS idx_trip_option_search_flag_mask ON trip_option (trip_search_id, flag_mask);
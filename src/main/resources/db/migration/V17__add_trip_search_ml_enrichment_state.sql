@@ -0,0 +1,4 @@
+-- Background ML enrichment writes recommendations to trip_option.ml_recommendation and bumps
+-- ml_version, which the recommendations endpoint serves as its ETag.
+ALTER TABLE trip_search ADD COLUMN IF NOT EXISTS ml_status VARCHAR(16);
+ALTER TABLE trip_search ADD COLUMN IF NOT EXISTS ml_version BIGINT NOT NULL DEFAULT 0;
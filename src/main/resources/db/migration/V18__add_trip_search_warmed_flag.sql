@@ -0,0 +1,3 @@
+-- Searches run by the cache warmer are persisted like user searches (their ids are served from the
+-- cache) but must not count towards route popularity.
+ALTER TABLE trip_search ADD COLUMN IF NOT EXISTS warmed BOOLEAN NOT NULL DEFAULT FALSE;
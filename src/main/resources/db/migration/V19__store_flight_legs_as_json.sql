@@ -0,0 +1,42 @@
+-- Flight legs move from one row per leg into a JSON array on flight_option, so a search's options
+-- are persisted with batched inserts into three tables instead of a statement per leg. Keys match
+-- the FlightSegment fields; times are airport-local ISO date-times as before.
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS legs_json TEXT;
+ALTER TABLE flight_option ADD COLUMN IF NOT EXISTS return_legs_json TEXT;
+
+UPDATE flight_option fo
+SET legs_json = l.legs
+FROM (
+  SELECT flight_option_id,
+         json_agg(json_strip_nulls(json_build_object(
+           'departureAirport', departure_airport,
+           'arrivalAirport', arrival_airport,
+           'departureAt', departure_at,
+           'arrivalAt', arrival_at,
+           'durationMinutes', duration_minutes,
+           'carrierCode', carrier_code,
+           'flightNumber', flight_number)) ORDER BY leg_index)::text AS legs
+  FROM flight_option_leg
+  GROUP BY flight_option_id
+) l
+WHERE l.flight_option_id = fo.id;
+
+UPDATE flight_option fo
+SET return_legs_json = l.legs
+FROM (
+  SELECT flight_option_id,
+         json_agg(json_strip_nulls(json_build_object(
+           'departureAirport', departure_airport,
+           'arrivalAirport', arrival_airport,
+           'departureAt', departure_at,
+           'arrivalAt', arrival_at,
+           'durationMinutes', duration_minutes,
+           'carrierCode', carrier_code,
+           'flightNumber', flight_number)) ORDER BY leg_index)::text AS legs
+  FROM flight_option_return_leg
+  GROUP BY flight_option_id
+) l
+WHERE l.flight_option_id = fo.id;
+
+DROP TABLE IF EXISTS flight_option_leg;
+DROP TABLE IF EXISTS flight_option_return_leg;
@@ -0,0 +1,15 @@
+-- Keyset paging of a search's options seeks on (trip_search_id, sort key, id) instead of skipping
+-- an offset. Duration lives on flight_option, so it is copied onto trip_option to be indexable.
+ALTER TABLE trip_option ADD COLUMN IF NOT EXISTS flight_duration_minutes INTEGER;
+
+-- flight_option.duration is NUMERIC(21,0) nanoseconds (see V11)
+UPDATE trip_option o
+SET flight_duration_minutes = (f.duration / 60000000000)::integer
+FROM flight_option f
+WHERE o.flight_option_id = f.id
+  AND f.duration IS NOT NULL
+  AND o.flight_duration_minutes IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_trip_option_search_value_score ON trip_option (trip_search_id, value_score, id);
+CREATE INDEX IF NOT EXISTS idx_trip_option_search_total_price ON trip_option (trip_search_id, total_price, id);
+CREATE INDEX IF NOT EXISTS idx_trip_option_search_duration ON trip_option (trip_search_id, flight_duration_minutes, id);
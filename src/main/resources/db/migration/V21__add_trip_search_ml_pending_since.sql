@@ -0,0 +1,3 @@
+-- When a search was last marked PENDING, so a run lost to a crash or restart can be retried once
+-- it is older than ml.enrichment.pending-timeout-ms instead of blocking enrichment forever.
+ALTER TABLE trip_search ADD COLUMN IF NOT EXISTS ml_pending_since TIMESTAMP WITH TIME ZONE;
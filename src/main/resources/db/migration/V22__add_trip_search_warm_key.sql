@@ -0,0 +1,4 @@
+-- Cache key of a search run by the cache warmer, so each refresh can delete the warmed searches of
+-- the same key that no cached result refers to any more. Null for user searches.
+ALTER TABLE trip_search ADD COLUMN IF NOT EXISTS warm_key VARCHAR(255);
+CREATE INDEX IF NOT EXISTS idx_trip_search_warm_key ON trip_search (warm_key, created_at);
@@ -0,0 +1,63 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Bytes per cached search result and encode/decode cost of the compact codec against the legacy
+ * typed JSON serializer, for a 50-option response. Skipped by default; run with {@code mvn test
+ * -Dtest=CompactRedisSerializerBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class CompactRedisSerializerBenchmarkTest {
+
+    private static final int OPTIONS = 50;
+
+    @Test
+    void compactVersusLegacyJson() {
+        TripSearchResponseDTO response = CompactRedisSerializerTest.sampleResponse(OPTIONS);
+
+        report("legacy json", CompactRedisSerializerTest.legacySerializer(), response);
+        report(
+                "compact",
+                new CompactRedisSerializer<>(
+                        CompactRedisSerializer.defaultMapper(), TripSearchResponseDTO.class, 0),
+                response);
+        report(
+                "compact+deflate",
+                new CompactRedisSerializer<>(
+                        CompactRedisSerializer.defaultMapper(), TripSearchResponseDTO.class, 1024),
+                response);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void report(String name, RedisSerializer serializer, Object value) {
+        int warmup = 2_000;
+        int iterations = 10_000;
+        byte[] bytes = null;
+        for (int i = 0; i < warmup; i++) {
+            bytes = serializer.serialize(value);
+            serializer.deserialize(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            bytes = serializer.serialize(value);
+        }
+        long encodeNs = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            serializer.deserialize(bytes);
+        }
+        long decodeNs = (System.nanoTime() - start) / iterations;
+        log.info(
+                "{}: {} bytes/entry, encode {} ns/op, decode {} ns/op",
+                name,
+                bytes.length,
+                encodeNs,
+                decodeNs);
+    }
+}
@@ -0,0 +1,146 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.FlightSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.LodgingSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer<TripSearchResponseDTO> serializer =
+            new CompactRedisSerializer<>(
+                    CompactRedisSerializer.defaultMapper(), TripSearchResponseDTO.class, 1024);
+
+    @Test
+    void smallValues_roundTripUncompressed() {
+        TripSearchResponseDTO response = sampleResponse(1);
+
+        byte[] bytes = serializer.serialize(response);
+
+        assertThat(bytes[0]).isEqualTo(CompactRedisSerializer.PLAIN);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(response);
+    }
+
+    @Test
+    void largeValues_areDeflatedAndRoundTrip() {
+        TripSearchResponseDTO response = sampleResponse(50);
+
+        byte[] bytes = serializer.serialize(response);
+        byte[] plain =
+                new CompactRedisSerializer<>(
+                                CompactRedisSerializer.defaultMapper(),
+                                TripSearchResponseDTO.class,
+                                0)
+                        .serialize(response);
+
+        assertThat(bytes[0]).isEqualTo(CompactRedisSerializer.DEFLATED);
+        assertThat(bytes.length).isLessThan(plain.length / 3);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(response);
+    }
+
+    @Test
+    void entriesWrittenByTheLegacySerializer_remainReadable() {
+        TripSearchResponseDTO response = sampleResponse(3);
+
+        byte[] legacy = legacySerializer().serialize(response);
+
+        assertThat(serializer.deserialize(legacy)).isEqualTo(response);
+    }
+
+    @Test
+    void earlyExpiringEntries_roundTripWithTheirValueType() {
+        ObjectMapper mapper = CompactRedisSerializer.defaultMapper();
+        CompactRedisSerializer<EarlyExpiringCache.Entry<TripSearchResponseDTO>> entries =
+                new CompactRedisSerializer<>(
+                        mapper,
+                        mapper.getTypeFactory()
+                                .constructParametricType(
+                                        EarlyExpiringCache.Entry.class,
+                                        TripSearchResponseDTO.class),
+                        1024);
+        EarlyExpiringCache.Entry<TripSearchResponseDTO> entry =
+                new EarlyExpiringCache.Entry<>(sampleResponse(2), 1500, 1_700_000_000_000L);
+
+        assertThat(entries.deserialize(entries.serialize(entry))).isEqualTo(entry);
+    }
+
+    @Test
+    void nullAndEmpty_mapToNull() {
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    /** The serializer {@code RedisCacheConfig} used for every cache before the compact codec. */
+    static GenericJackson2JsonRedisSerializer legacySerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.setDateFormat(new StdDateFormat());
+        mapper.findAndRegisterModules();
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+
+    static TripSearchResponseDTO sampleResponse(int optionCount) {
+        List<TripOptionSummaryDTO> options = new ArrayList<>();
+        for (int i = 0; i < optionCount; i++) {
+            options.add(
+                    TripOptionSummaryDTO.builder()
+                            .tripOptionId(UUID.randomUUID())
+                            .totalPrice(BigDecimal.valueOf(300 + i * 7L, 0))
+                            .currency("USD")
+                            .flight(
+                                    FlightSummaryDTO.builder()
+                                            .airline("Delta Air Lines")
+                                            .airlineCode("DL")
+                                            .airlineName("Delta Air Lines")
+                                            .flightNumber("DL" + (100 + i))
+                                            .stops(i % 3)
+                                            .duration(Duration.ofMinutes(320 + i * 5L))
+                                            .durationText((320 + i * 5) / 60 + "h")
+                                            .segments(List.of("SFO->ATL", "ATL->JFK"))
+                                            .departureDate(LocalDate.of(2026, 11, 10))
+                                            .price(BigDecimal.valueOf(200 + i * 5L, 0))
+                                            .build())
+                            .lodging(
+                                    LodgingSummaryDTO.builder()
+                                            .hotelName("Hotel " + i)
+                                            .lodgingType("hotel")
+                                            .rating(4.2)
+                                            .pricePerNight(BigDecimal.valueOf(110, 0))
+                                            .nights(3)
+                                            .build())
+                            .valueScore(0.5 + i / 100.0)
+                            .valueScoreBreakdown(Map.of("price", 0.4, "duration", 0.3))
+                            .mlRecommendation(
+                                    MlRecommendationDTO.builder()
+                                            .action("WAIT")
+                                            .trend("stable")
+                                            .confidence(0.6)
+                                            .reasons(List.of("Prices are stable"))
+                                            .build())
+                            .build());
+        }
+        return TripSearchResponseDTO.builder()
+                .searchId(UUID.randomUUID())
+                .origin("SFO")
+                .destination("JFK")
+                .currency("USD")
+                .options(options)
+                .build();
+    }
+}
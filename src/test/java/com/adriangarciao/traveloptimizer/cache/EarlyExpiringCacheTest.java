@@ -0,0 +1,143 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.provider.FlightSearchResult;
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class EarlyExpiringCacheTest {
+
+    @Test
+    void earlyExpirationGetsLikelierNearExpiryAndForExpensiveEntries() {
+        EarlyExpiringCache.Entry<String> cheap = new EarlyExpiringCache.Entry<>("v", 10, 10_000);
+        EarlyExpiringCache.Entry<String> expensive =
+                new EarlyExpiringCache.Entry<>("v", 1_000, 10_000);
+        double median = 0.5;
+
+        // Far from expiry nothing is refreshed; the expensive entry starts refreshing sooner
+        assertThat(EarlyExpiringCache.expiresEarly(cheap, 5_000, 1.0, median)).isFalse();
+        assertThat(EarlyExpiringCache.expiresEarly(expensive, 5_000, 1.0, median)).isFalse();
+        assertThat(EarlyExpiringCache.expiresEarly(cheap, 9_500, 1.0, median)).isFalse();
+        assertThat(EarlyExpiringCache.expiresEarly(expensive, 9_500, 1.0, median)).isTrue();
+        // An unlucky draw refreshes the cheap entry early too, and a larger beta refreshes earlier
+        assertThat(EarlyExpiringCache.expiresEarly(cheap, 9_500, 1.0, 1e-30)).isTrue();
+        assertThat(EarlyExpiringCache.expiresEarly(expensive, 9_000, 1.0, median)).isFalse();
+        assertThat(EarlyExpiringCache.expiresEarly(expensive, 9_000, 2.0, median)).isTrue();
+        // Past expiry it is always a miss
+        assertThat(EarlyExpiringCache.expiresEarly(cheap, 10_000, 1.0, 1.0)).isTrue();
+    }
+
+    @Test
+    void valuesAreStoredWithComputeTimeAndExpiry() {
+        ConcurrentMapCache delegate = new ConcurrentMapCache("c");
+        EarlyExpiringCache cache = new EarlyExpiringCache(delegate, Duration.ofHours(1), 1.0, null);
+        long before = System.currentTimeMillis();
+
+        String value =
+                cache.get(
+                        "k",
+                        () -> {
+                            Thread.sleep(20);
+                            return "v";
+                        });
+
+        assertThat(value).isEqualTo("v");
+        assertThat(cache.get("k", String.class)).isEqualTo("v");
+        EarlyExpiringCache.Entry<?> entry = (EarlyExpiringCache.Entry<?>) delegate.get("k").get();
+        assertThat(entry.getValue()).isEqualTo("v");
+        assertThat(entry.getDeltaMillis()).isGreaterThanOrEqualTo(20);
+        assertThat(entry.getExpiresAt())
+                .isBetween(before + 3_600_000, System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void getThenPut_timesTheRecomputeFromTheMiss() throws InterruptedException {
+        ConcurrentMapCache delegate = new ConcurrentMapCache("c");
+        EarlyExpiringCache cache = new EarlyExpiringCache(delegate, Duration.ofHours(1), 1.0, null);
+
+        assertThat(cache.get("k")).isNull();
+        Thread.sleep(20);
+        cache.put("k", "v");
+
+        assertThat(cache.get("k").get()).isEqualTo("v");
+        EarlyExpiringCache.Entry<?> entry = (EarlyExpiringCache.Entry<?>) delegate.get("k").get();
+        assertThat(entry.getDeltaMillis()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void expiredEntriesMiss_andPlainValuesWrittenEarlierAreServed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentMapCache delegate = new ConcurrentMapCache("c");
+        EarlyExpiringCache cache = new EarlyExpiringCache(delegate, Duration.ZERO, 1.0, registry);
+
+        cache.put("k", "v");
+        delegate.put("plain", "old");
+
+        assertThat(cache.get("k")).isNull();
+        assertThat(cache.get("plain").get()).isEqualTo("old");
+        assertThat(
+                        registry.get("traveloptimizer.cache.early_expirations")
+                                .tag("cache", "c")
+                                .counter()
+                                .count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void negativeResults_getTheirShortTtl_areNotRefreshedEarly_andCountSavedCalls() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentMapCache delegate = new ConcurrentMapCache("amadeusFlights");
+        EarlyExpiringCache cache =
+                new EarlyExpiringCache(
+                        delegate,
+                        Duration.ofMinutes(10),
+                        1.0,
+                        new NegativeResultTtl(NegativeResultTtl.DEFAULTS),
+                        registry);
+        long before = System.currentTimeMillis();
+
+        cache.get(
+                "k",
+                () -> {
+                    Thread.sleep(20);
+                    return FlightSearchResult.failure(ProviderStatus.RATE_LIMITED, "429");
+                });
+        cache.get("k");
+        cache.get("k");
+
+        EarlyExpiringCache.Entry<?> entry = (EarlyExpiringCache.Entry<?>) delegate.get("k").get();
+        assertThat(entry.getDeltaMillis()).isZero();
+        assertThat(entry.getExpiresAt())
+                .isBetween(before + 60_000, System.currentTimeMillis() + 60_000);
+        assertThat(
+                        registry.get("traveloptimizer.cache.negative_hits")
+                                .tag("cache", "amadeusFlights")
+                                .tag("status", "RATE_LIMITED")
+                                .counter()
+                                .count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void managerWrapsOnlyConfiguredCaches() {
+        CacheManager manager =
+                new EarlyExpirationCacheManager(
+                        new ConcurrentMapCacheManager(),
+                        Map.of("tripSearchCache", Duration.ofMinutes(10)),
+                        1.0,
+                        null);
+
+        Cache wrapped = manager.getCache("tripSearchCache");
+        assertThat(wrapped).isInstanceOf(EarlyExpiringCache.class);
+        assertThat(manager.getCache("tripSearchCache")).isSameAs(wrapped);
+        assertThat(manager.getCache("other")).isInstanceOf(ConcurrentMapCache.class);
+    }
+}
@@ -0,0 +1,46 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.provider.FlightSearchResult;
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+class NegativeResultTtlTest {
+
+    @Test
+    void statusSpecificTtls_withOverridesFromTheEnvironment() {
+        NegativeResultTtl ttl =
+                NegativeResultTtl.fromEnvironment(
+                        new MockEnvironment()
+                                .withProperty("app.cache.negative-ttl.rate-limited", "2m"));
+
+        assertThat(ttl.ttlFor(FlightSearchResult.failure(ProviderStatus.RATE_LIMITED, "429")))
+                .isEqualTo(Duration.ofMinutes(2));
+        assertThat(ttl.ttlFor(FlightSearchResult.failure(ProviderStatus.TIMEOUT, "slow")))
+                .isEqualTo(Duration.ofSeconds(30));
+        assertThat(ttl.ttlFor(FlightSearchResult.noResults())).isEqualTo(Duration.ofMinutes(5));
+        assertThat(ttl.ttlFor(FlightSearchResult.ok(List.of()))).isNull();
+    }
+
+    @Test
+    void tripSearchResultsAreNegativeWhenTheirFlightProviderFailed() {
+        assertThat(
+                        NegativeResultTtl.negativeStatus(
+                                TripSearchResponseDTO.builder()
+                                        .flightProviderStatus("AUTH_FAILED")
+                                        .build()))
+                .isEqualTo(ProviderStatus.AUTH_FAILED);
+        assertThat(
+                        NegativeResultTtl.negativeStatus(
+                                TripSearchResponseDTO.builder().flightProviderStatus("OK").build()))
+                .isNull();
+        assertThat(NegativeResultTtl.negativeStatus(TripSearchResponseDTO.builder().build()))
+                .isNull();
+        assertThat(NegativeResultTtl.negativeStatus("other")).isNull();
+    }
+}
@@ -0,0 +1,85 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Latency and allocation of a cache hit for a 50-option search: copying, sorting and serializing
+ * the cached result set, against writing a stored body (plain or gzip). Skipped by default; run
+ * with {@code mvn test -Dtest=SearchResponseBodyCacheBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class SearchResponseBodyCacheBenchmarkTest {
+
+    private static final int OPTIONS = 50;
+    private static final int LIMIT = 50;
+
+    @Test
+    void objectHitVersusBodyHit() {
+        JsonMapper mapper = new JsonMapper();
+        TripSearchResponseDTO full = CompactRedisSerializerTest.sampleResponse(OPTIONS);
+        Cache objects = new ConcurrentMapCache("objects");
+        Cache bodies = new ConcurrentMapCache("bodies");
+        objects.put("k", full);
+        byte[] plain = mapper.writeValueAsBytes(full);
+        bodies.put("plain", plain);
+        bodies.put("gzip", SearchResponseBodyCache.gzip(plain));
+        ByteArrayOutputStream socket = new ByteArrayOutputStream(plain.length);
+
+        report(
+                "object hit + serialize",
+                () -> {
+                    TripSearchResponseDTO cached = objects.get("k", TripSearchResponseDTO.class);
+                    List<TripOptionSummaryDTO> options =
+                            cached.getOptions().stream()
+                                    .sorted(
+                                            Comparator.comparingDouble(
+                                                            TripOptionSummaryDTO::getValueScore)
+                                                    .reversed())
+                                    .limit(LIMIT)
+                                    .map(o -> o.toBuilder().build())
+                                    .toList();
+                    return mapper.writeValueAsBytes(cached.toBuilder().options(options).build());
+                },
+                socket);
+        report("body hit", () -> bodies.get("plain", byte[].class), socket);
+        report("gzip body hit", () -> bodies.get("gzip", byte[].class), socket);
+        log.info(
+                "body sizes: plain {} bytes, gzip {} bytes",
+                plain.length,
+                bodies.get("gzip", byte[].class).length);
+    }
+
+    private static void report(String name, Supplier<byte[]> hit, ByteArrayOutputStream socket) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int warmup = 5_000;
+        int iterations = 20_000;
+        for (int i = 0; i < warmup; i++) {
+            socket.reset();
+            socket.writeBytes(hit.get());
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            socket.reset();
+            socket.writeBytes(hit.get());
+        }
+        long ns = (System.nanoTime() - start) / iterations;
+        long allocated = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / iterations;
+        log.info("{}: {} ns/op, {} bytes allocated/op", name, ns, allocated);
+    }
+}
@@ -0,0 +1,68 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+class SearchResponseBodyCacheTest {
+
+    @Test
+    void evictingASearchOnOneInstanceOrphansItsBodiesOnAllOthers() {
+        // Two instances with their own L1 in front of one shared L2
+        ConcurrentMapCacheManager l2 = new ConcurrentMapCacheManager();
+        SearchResponseBodyCache first =
+                bodyCache(new TwoTierCacheManager(null, Map.of(), l2, null));
+        SearchResponseBodyCache second =
+                bodyCache(new TwoTierCacheManager(null, Map.of(), l2, null));
+        TripSearchRequestDTO request =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(5))
+                        .latestDepartureDate(LocalDate.now().plusDays(7))
+                        .maxBudget(BigDecimal.valueOf(1000))
+                        .numTravelers(1)
+                        .build();
+        TripSearchResponseDTO response =
+                TripSearchResponseDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .options(Collections.emptyList())
+                        .build();
+
+        String key = first.key(request, 5, null, null);
+        first.put(key, response);
+        assertThat(second.key(request, 5, null, null)).isEqualTo(key);
+        assertThat(second.get(key)).isNotNull();
+
+        first.evictSearch(request);
+
+        String next = second.key(request, 5, null, null);
+        assertThat(next).isNotEqualTo(key);
+        assertThat(second.get(next)).isNull();
+        assertThat(first.key(request, 5, null, null)).isEqualTo(next);
+    }
+
+    private static SearchResponseBodyCache bodyCache(CacheManager cacheManager) {
+        StaticListableBeanFactory beans =
+                new StaticListableBeanFactory(Map.of("cacheManager", cacheManager));
+        SearchResponseBodyCache bodyCache =
+                new SearchResponseBodyCache(
+                        beans.getBeanProvider(CacheManager.class),
+                        beans.getBeanProvider(JsonMapper.class),
+                        beans.getBeanProvider(io.micrometer.core.instrument.MeterRegistry.class));
+        ReflectionTestUtils.setField(bodyCache, "enabled", true);
+        return bodyCache;
+    }
+}
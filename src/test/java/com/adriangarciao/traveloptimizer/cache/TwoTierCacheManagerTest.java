@@ -0,0 +1,166 @@
+package com.adriangarciao.traveloptimizer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.provider.FlightSearchResult;
+import com.adriangarciao.traveloptimizer.provider.ProviderStatus;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.mock.env.MockEnvironment;
+
+class TwoTierCacheManagerTest {
+
+    @Test
+    void l2HitsArePromotedToL1_andWritesReachBothTiers() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+        TwoTierCacheManager manager = new TwoTierCacheManager(null, Map.of(), remote, registry);
+        TwoTierCache cache = (TwoTierCache) manager.getCache("tripSearchCache");
+        Cache l2 = remote.getCache("tripSearchCache");
+
+        // Written by another instance: only in L2
+        l2.put("k", "v");
+        assertThat(cache.getNativeCache().policy().getIfPresentQuietly("k")).isNull();
+        assertThat(cache.get("k").get()).isEqualTo("v");
+        assertThat(cache.getNativeCache().policy().getIfPresentQuietly("k")).isEqualTo("v");
+        assertThat(cache.get("k").get()).isEqualTo("v");
+        assertThat(
+                        registry.get("traveloptimizer.cache.l2.gets")
+                                .tag("cache", "tripSearchCache")
+                                .tag("result", "hit")
+                                .timer()
+                                .count())
+                .isEqualTo(1);
+
+        cache.put("k2", "v2");
+        assertThat(l2.get("k2").get()).isEqualTo("v2");
+        cache.evict("k2");
+        assertThat(cache.get("k2")).isNull();
+        assertThat(l2.get("k2")).isNull();
+
+        assertThat(
+                        registry.get("cache.gets")
+                                .tag("cache", "tripSearchCache")
+                                .tag("result", "hit")
+                                .functionCounter()
+                                .count())
+                .isEqualTo(1.0);
+        assertThat(registry.find("cache.evictions").tag("cache", "tripSearchCache").meter())
+                .isNotNull();
+    }
+
+    @Test
+    void promotedL2HitsExpireFromL1AfterThePromotedTtl() {
+        ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+        TwoTierCacheManager manager = new TwoTierCacheManager(null, Map.of(), remote, null);
+        TwoTierCache cache = (TwoTierCache) manager.getCache("tripSearchResponseBody");
+        VarExpiration<Object, Object> expiry =
+                cache.getNativeCache().policy().expireVariably().orElseThrow();
+        Cache l2 = remote.getCache("tripSearchResponseBody");
+
+        // Written by another instance, possibly just before its L2 TTL runs out
+        l2.put("looked-up", "v");
+        l2.put("loaded", "v");
+        assertThat(cache.get("looked-up").get()).isEqualTo("v");
+        assertThat(cache.get("loaded", () -> "not-loaded")).isEqualTo("v");
+        assertThat(expiry.getExpiresAfter("looked-up").orElseThrow())
+                .isLessThanOrEqualTo(TwoTierCacheManager.DEFAULT_PROMOTED_TTL);
+        assertThat(expiry.getExpiresAfter("loaded").orElseThrow())
+                .isLessThanOrEqualTo(TwoTierCacheManager.DEFAULT_PROMOTED_TTL);
+
+        // Values this instance writes or loads keep the spec's expiry
+        cache.put("written", "v");
+        cache.get("missing", () -> "v");
+        assertThat(expiry.getExpiresAfter("written").orElseThrow())
+                .isGreaterThan(Duration.ofMinutes(9));
+        assertThat(expiry.getExpiresAfter("missing").orElseThrow())
+                .isGreaterThan(Duration.ofMinutes(9));
+    }
+
+    @Test
+    void valueLoaderRunsOncePerKey_andFillsL2() {
+        ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+        TwoTierCacheManager manager = new TwoTierCacheManager(null, Map.of(), remote, null);
+        Cache cache = manager.getCache("amadeusFlights");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("k", () -> "loaded-" + loads.incrementAndGet())).isEqualTo("loaded-1");
+        assertThat(cache.get("k", () -> "loaded-" + loads.incrementAndGet())).isEqualTo("loaded-1");
+        assertThat(loads).hasValue(1);
+        assertThat(remote.getCache("amadeusFlights").get("k").get()).isEqualTo("loaded-1");
+    }
+
+    @Test
+    void perCacheSpecsBoundTheL1ByWeight() {
+        MockEnvironment env =
+                new MockEnvironment()
+                        .withProperty("app.cache.local.spec", "maximumSize=5")
+                        .withProperty(
+                                "app.cache.local.caches[tripSearchCache]",
+                                "maximumWeight=100,expireAfterWrite=10m");
+        TwoTierCacheManager manager = TwoTierCacheManager.fromEnvironment(env, null, null);
+        assertThat(manager.getCacheNames()).containsExactly("tripSearchCache");
+
+        TwoTierCache searches = (TwoTierCache) manager.getCache("tripSearchCache");
+        assertThat(searches.getRemote()).isNull();
+        assertThat(searches.getNativeCache().policy().eviction().orElseThrow().getMaximum())
+                .isEqualTo(100);
+        // Ten results of 1 + 19 options each weigh 200 rows; only about half can stay
+        for (int i = 0; i < 10; i++) {
+            searches.put("search-" + i, response(19));
+        }
+        searches.getNativeCache().cleanUp();
+        assertThat(
+                        searches.getNativeCache()
+                                .policy()
+                                .eviction()
+                                .orElseThrow()
+                                .weightedSize()
+                                .getAsLong())
+                .isBetween(1L, 100L);
+
+        TwoTierCache other = (TwoTierCache) manager.getCache("somethingElse");
+        assertThat(other.getNativeCache().policy().eviction().orElseThrow().getMaximum())
+                .isEqualTo(5);
+    }
+
+    @Test
+    void negativeResultsExpireSoonerInTheL1_withoutEarlyExpiration() {
+        MockEnvironment env =
+                new MockEnvironment()
+                        .withProperty("app.cache.local.spec", "maximumSize=5,expireAfterWrite=10m")
+                        .withProperty("app.cache.negative-ttl.timeout", "20s");
+        TwoTierCacheManager manager = TwoTierCacheManager.fromEnvironment(env, null, null);
+        TwoTierCache cache = (TwoTierCache) manager.getCache("amadeusFlights");
+
+        cache.put("ok", FlightSearchResult.ok(List.of()));
+        cache.put("timeout", FlightSearchResult.failure(ProviderStatus.TIMEOUT, "slow"));
+        cache.put("wrapped", new EarlyExpiringCache.Entry<>(FlightSearchResult.noResults(), 0, 0));
+
+        VarExpiration<Object, Object> expiry =
+                cache.getNativeCache().policy().expireVariably().orElseThrow();
+        assertThat(expiry.getExpiresAfter("ok").orElseThrow())
+                .isGreaterThan(Duration.ofMinutes(9))
+                .isLessThanOrEqualTo(Duration.ofMinutes(10));
+        assertThat(expiry.getExpiresAfter("timeout").orElseThrow())
+                .isLessThanOrEqualTo(Duration.ofSeconds(20));
+        assertThat(expiry.getExpiresAfter("wrapped").orElseThrow())
+                .isLessThanOrEqualTo(NegativeResultTtl.DEFAULTS.get(ProviderStatus.NO_RESULTS));
+    }
+
+    private static TripSearchResponseDTO response(int options) {
+        return TripSearchResponseDTO.builder()
+                .options(Collections.nCopies(options, TripOptionSummaryDTO.builder().build()))
+                .build();
+    }
+}
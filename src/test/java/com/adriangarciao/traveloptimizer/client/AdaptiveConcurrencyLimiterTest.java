@@ -0,0 +1,76 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsOverTheLimit_andExportsMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1), 0.5)
+                        .bindTo(registry);
+
+        AdaptiveConcurrencyLimiter.Permit a = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit b = limiter.tryAcquire();
+        assertThat(a).isNotNull();
+        assertThat(b).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+
+        assertThat(registry.get("traveloptimizer.ml.limiter.in_flight").gauge().value())
+                .isEqualTo(2.0);
+        assertThat(registry.get("traveloptimizer.ml.limiter.rejected").functionCounter().count())
+                .isEqualTo(1.0);
+
+        a.ignore();
+        a.ignore(); // releasing twice is harmless
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        b.ignore();
+        assertThat(registry.get("traveloptimizer.ml.limiter.limit").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void growsOnFastSuccessesUnderLoad_andBacksOffOnFailures() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(4, 2, 8, Duration.ofSeconds(10), 0.5);
+
+        // Saturate the limit with fast calls: additive increase up to the max
+        for (int round = 0; round < 10; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            AdaptiveConcurrencyLimiter.Permit p;
+            while ((p = limiter.tryAcquire()) != null) {
+                permits.add(p);
+            }
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        // A lone call at low utilisation does not grow the limit further or shrink it
+        limiter.tryAcquire().success();
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        // Failures back off multiplicatively, bounded by the minimum
+        limiter.tryAcquire().dropped();
+        assertThat(limiter.getLimit()).isEqualTo(4);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire().dropped();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void slowSuccessesBackOff() throws Exception {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(10, 1, 10, Duration.ofMillis(1), 0.5);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        Thread.sleep(20);
+        permit.success();
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,120 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.FlightSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Per-option latency of the in-JVM model against the HTTP client (WireMock standing in for the ML
+ * service, so network cost is loopback only). Skipped by default; run with {@code mvn test
+ * -Dtest=LocalMlClientBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class LocalMlClientBenchmarkTest {
+
+    private static final int OPTIONS = 50;
+
+    @Test
+    void localVersusHttpRecommendation() {
+        List<TripOptionSummaryDTO> options = options();
+        SearchStats stats = SearchStats.ofSummaries(options);
+        TripSearchRequestDTO request =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(5))
+                        .latestDepartureDate(LocalDate.now().plusDays(7))
+                        .numTravelers(1)
+                        .build();
+
+        LocalMlClient local = new LocalMlClient("");
+        long localNs = measure(local, options, request, stats, 20_000, 200_000);
+
+        WireMockServer server = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        server.start();
+        try {
+            server.stubFor(
+                    post(urlPathEqualTo("/predict"))
+                            .willReturn(
+                                    aResponse()
+                                            .withHeader("Content-Type", "application/json")
+                                            .withBody(
+                                                    "{\"action\":\"WAIT\",\"trend\":\"stable\",\"confidence\":0.6,\"reasons\":[\"r\"]}")));
+            WebClientMlClient http =
+                    new WebClientMlClient(
+                            WebClient.builder().baseUrl(server.baseUrl()).build(),
+                            server.baseUrl());
+            long httpNs = measure(http, options, request, stats, 200, 1_000);
+
+            log.info(
+                    "ML recommendation: local {} ns/option, http {} ns/option ({}x)",
+                    localNs,
+                    httpNs,
+                    localNs > 0 ? httpNs / localNs : "inf");
+            assertThat(localNs).isLessThan(httpNs);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long measure(
+            MlClient client,
+            List<TripOptionSummaryDTO> options,
+            TripSearchRequestDTO request,
+            SearchStats stats,
+            int warmup,
+            int measured) {
+        long sink = 0;
+        for (int i = 0; i < warmup; i++) {
+            sink +=
+                    client.getOptionRecommendation(options.get(i % OPTIONS), request, stats)
+                            .getReasons()
+                            .size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measured; i++) {
+            sink +=
+                    client.getOptionRecommendation(options.get(i % OPTIONS), request, stats)
+                            .getReasons()
+                            .size();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isPositive();
+        return elapsed / measured;
+    }
+
+    private static List<TripOptionSummaryDTO> options() {
+        List<TripOptionSummaryDTO> options = new ArrayList<>(OPTIONS);
+        for (int i = 0; i < OPTIONS; i++) {
+            options.add(
+                    TripOptionSummaryDTO.builder()
+                            .totalPrice(BigDecimal.valueOf(150 + (i * 37L) % 600))
+                            .currency("USD")
+                            .flight(
+                                    FlightSummaryDTO.builder()
+                                            .stops(i % 3)
+                                            .duration(Duration.ofMinutes(180 + (i % 3) * 150L))
+                                            .build())
+                            .build());
+        }
+        return options;
+    }
+}
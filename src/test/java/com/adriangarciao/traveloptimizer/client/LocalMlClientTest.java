@@ -0,0 +1,163 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.adriangarciao.traveloptimizer.dto.FlightSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LocalMlClientTest {
+
+    private static final String LOGISTIC =
+            "{\"type\":\"logistic\",\"name\":\"lr\",\"version\":\"%s\","
+                    + "\"features\":[\"pricePercentileWithinSearch\",\"daysToDeparture\"],"
+                    + "\"weights\":[-4.0,%s],\"bias\":1.0}";
+
+    @Test
+    void logisticModelMapsFileColumnsToEngineOrder() throws Exception {
+        InferenceModel model = read(String.format(LOGISTIC, "1", "-0.1"));
+        double[] x = new double[InferenceModel.FEATURES.size()];
+        x[InferenceModel.PRICE_PERCENTILE] = 0.25;
+        x[InferenceModel.DAYS_TO_DEPARTURE] = 10;
+
+        // z = 1 - 4 * 0.25 - 0.1 * 10 = -1
+        assertThat(model.predictBuyProbability(x)).isCloseTo(1 / (1 + Math.E), within());
+        assertThat(model.name()).isEqualTo("lr@1");
+    }
+
+    @Test
+    void treeEnsembleSumsLeafLogOdds() throws Exception {
+        InferenceModel model =
+                read(
+                        "{\"type\":\"gbt\",\"features\":[\"stops\",\"price\"],\"baseScore\":0.5,"
+                                + "\"trees\":["
+                                + "{\"feature\":[0,-1,-1],\"threshold\":[0.5,0,0],\"left\":[1,-1,-1],"
+                                + "\"right\":[2,-1,-1],\"value\":[0,1.0,-1.0]},"
+                                + "{\"feature\":[1,-1,-1],\"threshold\":[300,0,0],\"left\":[1,-1,-1],"
+                                + "\"right\":[2,-1,-1],\"value\":[0,0.5,-0.5]}]}");
+        double[] x = new double[InferenceModel.FEATURES.size()];
+        x[InferenceModel.STOPS] = 0;
+        x[InferenceModel.PRICE] = 300; // equal to the split goes left
+        assertThat(model.predictBuyProbability(x)).isCloseTo(sigmoid(2.0), within());
+
+        x[InferenceModel.STOPS] = 2;
+        x[InferenceModel.PRICE] = 450;
+        assertThat(model.predictBuyProbability(x)).isCloseTo(sigmoid(-1.0), within());
+    }
+
+    @Test
+    void malformedModelsAreRejected() {
+        assertThatThrownBy(() -> read("{\"type\":\"svm\",\"features\":[\"price\"]}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("svm");
+        assertThatThrownBy(
+                        () ->
+                                read(
+                                        String.format(LOGISTIC, "1", "-0.1")
+                                                .replace("daysToDeparture", "weather")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("weather");
+        // A child pointing backwards would loop forever
+        assertThatThrownBy(
+                        () ->
+                                read(
+                                        "{\"type\":\"gbt\",\"features\":[\"price\"],\"trees\":[{\"feature\":[0,-1],"
+                                                + "\"threshold\":[1,0],\"left\":[0,-1],\"right\":[1,-1],\"value\":[0,1]}]}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid children");
+    }
+
+    @Test
+    void bundledModelRecommendsBuyingCheapFaresCloseToDeparture() {
+        LocalMlClient client = new LocalMlClient("");
+        TripOptionSummaryDTO cheap = option(200, 0);
+        TripOptionSummaryDTO pricey = option(900, 1);
+        List<TripOptionSummaryDTO> page = List.of(cheap, option(400, 0), option(600, 1), pricey);
+
+        List<MlRecommendationDTO> soon =
+                client.getOptionRecommendations(page, request(3), SearchStats.ofSummaries(page));
+        assertThat(soon.get(0).getAction()).isEqualTo("BUY");
+        assertThat(soon.get(0).getTrend()).isEqualTo("likely_down");
+        assertThat(soon.get(3).getAction()).isEqualTo("WAIT");
+        assertThat(soon.get(3).getTrend()).isEqualTo("likely_up");
+
+        MlRecommendationDTO later =
+                client.getOptionRecommendation(cheap, request(30), SearchStats.ofSummaries(page));
+        assertThat(later.getAction()).isEqualTo("WAIT");
+        assertThat(later.getConfidence()).isBetween(0.5, 1.0);
+    }
+
+    @Test
+    void modelFileIsHotReloadedAndBadFilesKeepThePreviousModel(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("model.json");
+        Files.writeString(file, String.format(LOGISTIC, "1", "-0.1"));
+        LocalMlClient client = new LocalMlClient(file.toString());
+        assertThat(client.modelName()).isEqualTo("lr@1");
+        assertThat(client.reloadIfChanged()).isFalse();
+
+        Files.writeString(file, String.format(LOGISTIC, "2", "-0.2"));
+        touch(file, 10_000);
+        assertThat(client.reloadIfChanged()).isTrue();
+        assertThat(client.modelName()).isEqualTo("lr@2");
+
+        Files.writeString(file, "{\"type\":\"logistic\"");
+        touch(file, 20_000);
+        assertThat(client.reloadIfChanged()).isFalse();
+        assertThat(client.modelName()).isEqualTo("lr@2");
+    }
+
+    @Test
+    void missingModelFileFallsBackToBundledModel(@TempDir Path dir) {
+        LocalMlClient client = new LocalMlClient(dir.resolve("absent.json").toString());
+        assertThat(client.modelName()).isEqualTo("buy-wait-rules@1");
+    }
+
+    private static InferenceModel read(String json) throws Exception {
+        return InferenceModel.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Move the file's mtime forward; writes within one clock tick can share a timestamp. */
+    private static void touch(Path file, long plusMillis) throws Exception {
+        FileTime now = Files.getLastModifiedTime(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(now.toMillis() + plusMillis));
+    }
+
+    private static TripOptionSummaryDTO option(int price, int stops) {
+        return TripOptionSummaryDTO.builder()
+                .totalPrice(BigDecimal.valueOf(price))
+                .currency("USD")
+                .flight(FlightSummaryDTO.builder().stops(stops).build())
+                .build();
+    }
+
+    private static TripSearchRequestDTO request(int daysOut) {
+        return TripSearchRequestDTO.builder()
+                .origin("SFO")
+                .destination("JFK")
+                .earliestDepartureDate(LocalDate.now().plusDays(daysOut))
+                .latestDepartureDate(LocalDate.now().plusDays(daysOut + 2))
+                .numTravelers(1)
+                .build();
+    }
+
+    private static double sigmoid(double z) {
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    private static org.assertj.core.data.Offset<Double> within() {
+        return org.assertj.core.data.Offset.offset(1e-9);
+    }
+}
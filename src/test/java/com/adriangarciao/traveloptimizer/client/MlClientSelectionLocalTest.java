@@ -0,0 +1,21 @@
+package com.adriangarciao.traveloptimizer.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+@SpringBootTest(properties = {"ml.client=local", "ml.enabled=true"})
+public class MlClientSelectionLocalTest {
+
+    @Autowired private ApplicationContext ctx;
+
+    @Test
+    void when_local_selected_only_local_present() {
+        String[] names = ctx.getBeanNamesForType(MlClient.class);
+        assertThat(names).hasSize(1);
+        assertThat(ctx.getBean(MlClient.class)).isInstanceOf(LocalMlClient.class);
+    }
+}
@@ -2,6 +2,7 @@ package com.adriangarciao.traveloptimizer.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -9,8 +10,10 @@ import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
 import com.adriangarciao.traveloptimizer.dto.MlRecommendationDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
 import com.adriangarciao.traveloptimizer.test.support.WireMockMlServerExtension;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -117,4 +120,202 @@ public class WebClientMlClientTest {
         assertThat(fallbackRec.isGoodDeal()).isFalse();
         assertThat(fallbackRec.getPriceTrend()).isEqualTo("stable");
     }
+
+    @Test
+    void batchRecommendations_useOneRequest_and_fallBackOnSizeMismatch() {
+        String baseUrl = baseUrl();
+        WMEXT.getServer().resetRequests();
+        WMEXT.getServer()
+                .stubFor(
+                        post(urlPathEqualTo("/predict/batch"))
+                                .willReturn(
+                                        aResponse()
+                                                .withHeader("Content-Type", "application/json")
+                                                .withBody(
+                                                        "{\"predictions\":["
+                                                                + "{\"action\":\"BUY\",\"trend\":\"likely_down\",\"confidence\":0.7,\"reasons\":[\"a\"]},"
+                                                                + "{\"action\":\"WAIT\",\"trend\":\"stable\",\"confidence\":0.6,\"reasons\":[\"b\"]},"
+                                                                + "{\"action\":\"WAIT\",\"trend\":\"likely_up\",\"confidence\":0.5,\"reasons\":[\"c\"]}]}")
+                                                .withStatus(200)));
+
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl).build();
+        WebClientMlClient client = new WebClientMlClient(webClient, baseUrl);
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(30))
+                        .latestDepartureDate(LocalDate.now().plusDays(32))
+                        .numTravelers(1)
+                        .build();
+        java.util.List<TripOptionSummaryDTO> options =
+                java.util.List.of(option(200), option(300), option(400));
+
+        java.util.List<MlRecommendationDTO> recs = client.getOptionRecommendations(options, req);
+
+        assertThat(recs)
+                .extracting(MlRecommendationDTO::getAction)
+                .containsExactly("BUY", "WAIT", "WAIT");
+        assertThat(recs.get(2).getTrend()).isEqualTo("likely_up");
+        WMEXT.getServer().verify(1, postRequestedFor(urlPathEqualTo("/predict/batch")));
+        WMEXT.getServer().verify(0, postRequestedFor(urlPathEqualTo("/predict")));
+
+        // A response that does not line up with the request falls back to the baseline per option
+        java.util.List<MlRecommendationDTO> mismatched =
+                client.getOptionRecommendations(java.util.List.of(option(200), option(300)), req);
+        assertThat(mismatched).hasSize(2);
+        assertThat(mismatched)
+                .allSatisfy(r -> assertThat(r.getNote()).isEqualTo("Baseline rule used"));
+    }
+
+    @Test
+    void cachedClient_servesRepeatSearchesFromCache_and_cachesFailuresBriefly() {
+        String baseUrl = baseUrl();
+        WMEXT.getServer().resetRequests();
+        stubBestDateWindow(
+                "{\"recommendedDepartureDate\":\"2025-12-20\",\"recommendedReturnDate\":\"2025-12-25\",\"confidence\":0.8}");
+        stubOptionRecommendation(
+                "{\"action\":\"WAIT\",\"trend\":\"stable\",\"confidence\":0.6,\"reasons\":[\"x\"]}");
+        MlPredictionCache cache =
+                new MlPredictionCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30), 10, 30);
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl).build();
+        WebClientMlClient client = new WebClientMlClient(webClient, baseUrl, cache);
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(30))
+                        .latestDepartureDate(LocalDate.now().plusDays(32))
+                        .numTravelers(1)
+                        .build();
+
+        client.getBestDateWindow(req);
+        MlBestDateWindowDTO again = client.getBestDateWindow(req);
+        assertThat(again.getConfidence()).isEqualTo(0.8);
+        WMEXT.getServer().verify(1, postRequestedFor(urlPathEqualTo("/predict/best-date-window")));
+
+        // 203 and 207 share a price bucket and percentile, so the second is a cache hit
+        MlRecommendationDTO first =
+                client.getOptionRecommendation(option(203), req, SearchStats.EMPTY);
+        MlRecommendationDTO second =
+                client.getOptionRecommendation(option(207), req, SearchStats.EMPTY);
+        assertThat(second.getAction()).isEqualTo(first.getAction());
+        assertThat(second).isNotSameAs(first);
+        WMEXT.getServer().verify(1, postRequestedFor(urlPathEqualTo("/predict")));
+
+        // A failed call is cached as negative: later lookups use the baseline without calling
+        stub500ForOptionRecommendation();
+        MlRecommendationDTO failed =
+                client.getOptionRecommendation(option(503), req, SearchStats.EMPTY);
+        MlRecommendationDTO cachedFailure =
+                client.getOptionRecommendation(option(505), req, SearchStats.EMPTY);
+        assertThat(failed.getNote()).isEqualTo("Baseline rule used");
+        assertThat(cachedFailure.getNote()).isEqualTo("Baseline rule used");
+        int afterFailure =
+                WMEXT.getServer().findAll(postRequestedFor(urlPathEqualTo("/predict"))).size();
+        client.getOptionRecommendation(option(509), req, SearchStats.EMPTY);
+        assertThat(WMEXT.getServer().findAll(postRequestedFor(urlPathEqualTo("/predict"))))
+                .hasSize(afterFailure);
+        assertThat(cache.recommendationHitRate()).isGreaterThan(0.0);
+    }
+
+    @Test
+    void asyncCalls_returnImmediately_and_runConcurrentlyWithoutCallerThreads() {
+        String baseUrl = baseUrl();
+        WMEXT.getServer().resetRequests();
+        WMEXT.getServer()
+                .stubFor(
+                        post(urlPathEqualTo("/predict"))
+                                .willReturn(
+                                        aResponse()
+                                                .withHeader("Content-Type", "application/json")
+                                                .withBody(
+                                                        "{\"action\":\"BUY\",\"trend\":\"stable\",\"confidence\":0.7,\"reasons\":[\"r\"]}")
+                                                .withFixedDelay(300)
+                                                .withStatus(200)));
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl).build();
+        WebClientMlClient client = new WebClientMlClient(webClient, baseUrl);
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(30))
+                        .latestDepartureDate(LocalDate.now().plusDays(32))
+                        .numTravelers(1)
+                        .build();
+
+        int calls = 8;
+        long start = System.nanoTime();
+        java.util.List<java.util.concurrent.CompletableFuture<MlRecommendationDTO>> futures =
+                new java.util.ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            futures.add(
+                    client.getOptionRecommendationAsync(option(200 + i), req, SearchStats.EMPTY));
+        }
+        long issueMillis = (System.nanoTime() - start) / 1_000_000;
+        // Issuing does not wait for the 300ms responses
+        assertThat(issueMillis).isLessThan(300L * calls);
+        assertThat(futures).anyMatch(f -> !f.isDone());
+
+        java.util.concurrent.CompletableFuture.allOf(
+                        futures.toArray(new java.util.concurrent.CompletableFuture[0]))
+                .join();
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+        assertThat(futures).allSatisfy(f -> assertThat(f.join().getAction()).isEqualTo("BUY"));
+        // In flight together rather than one after another
+        assertThat(totalMillis).isLessThan(300L * calls);
+        WMEXT.getServer().verify(calls, postRequestedFor(urlPathEqualTo("/predict")));
+    }
+
+    @Test
+    void callsOverTheConcurrencyLimit_getTheBaselineImmediately() {
+        String baseUrl = baseUrl();
+        WMEXT.getServer().resetRequests();
+        WMEXT.getServer()
+                .stubFor(
+                        post(urlPathEqualTo("/predict"))
+                                .willReturn(
+                                        aResponse()
+                                                .withHeader("Content-Type", "application/json")
+                                                .withBody(
+                                                        "{\"action\":\"BUY\",\"trend\":\"stable\",\"confidence\":0.7,\"reasons\":[\"r\"]}")
+                                                .withFixedDelay(300)
+                                                .withStatus(200)));
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(2, 2, 2, Duration.ofSeconds(5), 0.9);
+        WebClient webClient = WebClient.builder().baseUrl(baseUrl).build();
+        WebClientMlClient client = new WebClientMlClient(webClient, baseUrl, null, limiter);
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(30))
+                        .latestDepartureDate(LocalDate.now().plusDays(32))
+                        .numTravelers(1)
+                        .build();
+
+        java.util.List<java.util.concurrent.CompletableFuture<MlRecommendationDTO>> futures =
+                new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(
+                    client.getOptionRecommendationAsync(option(200 + i), req, SearchStats.EMPTY));
+        }
+
+        // The three calls over the limit are already answered with the baseline
+        assertThat(futures.subList(2, 5)).allMatch(java.util.concurrent.CompletableFuture::isDone);
+        assertThat(futures.subList(2, 5))
+                .allSatisfy(f -> assertThat(f.join().getNote()).isEqualTo("Baseline rule used"));
+        assertThat(futures.subList(0, 2))
+                .allSatisfy(f -> assertThat(f.join().getAction()).isEqualTo("BUY"));
+        assertThat(limiter.getRejectedCount()).isEqualTo(3);
+        assertThat(limiter.getInFlight()).isZero();
+        WMEXT.getServer().verify(2, postRequestedFor(urlPathEqualTo("/predict")));
+    }
+
+    private static TripOptionSummaryDTO option(int price) {
+        return TripOptionSummaryDTO.builder()
+                .totalPrice(BigDecimal.valueOf(price))
+                .currency("USD")
+                .build();
+    }
 }
@@ -0,0 +1,35 @@
+package com.adriangarciao.traveloptimizer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.adriangarciao.traveloptimizer.cache.TwoTierCache;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.env.MockEnvironment;
+
+class FallbackCacheConfigTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void negativeResultsExpireAfterTheirTtl_withEarlyExpirationDisabled() throws Exception {
+        MockEnvironment env =
+                new MockEnvironment()
+                        .withProperty("app.cache.local.spec", "maximumSize=10,expireAfterWrite=10m")
+                        .withProperty("app.cache.negative-ttl.upstream-error", "50ms");
+        CacheManager manager =
+                new FallbackCacheConfig().localCacheManager(env, mock(ObjectProvider.class));
+        TwoTierCache cache = (TwoTierCache) manager.getCache("tripSearchCache");
+
+        cache.put("ok", TripSearchResponseDTO.builder().flightProviderStatus("OK").build());
+        cache.put(
+                "failed",
+                TripSearchResponseDTO.builder().flightProviderStatus("UPSTREAM_ERROR").build());
+        Thread.sleep(100);
+
+        assertThat(cache.get("ok")).isNotNull();
+        assertThat(cache.get("failed")).isNull();
+    }
+}
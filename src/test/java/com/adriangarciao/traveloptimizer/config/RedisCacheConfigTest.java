@@ -0,0 +1,52 @@
+package com.adriangarciao.traveloptimizer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.adriangarciao.traveloptimizer.cache.CompactRedisSerializer;
+import com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RedisCacheConfigTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void perCacheConfigurationsApplyWithTheLocalTierDisabled() {
+        RedisCacheConfig config = new RedisCacheConfig();
+        ReflectionTestUtils.setField(config, "defaultTtlSeconds", 900L);
+        ReflectionTestUtils.setField(config, "localTierEnabled", false);
+        CacheManager manager =
+                config.cacheManager(
+                        mock(RedisConnectionFactory.class),
+                        new MockEnvironment(),
+                        mock(ObjectProvider.class));
+
+        RedisCache body = (RedisCache) manager.getCache(SearchResponseBodyCache.CACHE_NAME);
+        byte[] bytes = {1, 2, 3};
+        assertThat(body.getCacheConfiguration().getTtlFunction().getTimeToLive("k", bytes))
+                .isEqualTo(Duration.ofSeconds(300));
+        assertThat(body.getCacheConfiguration().getValueSerializationPair().write(bytes))
+                .isEqualTo(ByteBuffer.wrap(bytes));
+
+        RedisCache search = (RedisCache) manager.getCache("tripSearchCache");
+        TripSearchResponseDTO response =
+                TripSearchResponseDTO.builder().flightProviderStatus("OK").build();
+        byte[] compact =
+                new CompactRedisSerializer<>(
+                                CompactRedisSerializer.defaultMapper(),
+                                TripSearchResponseDTO.class,
+                                1024)
+                        .serialize(response);
+        assertThat(search.getCacheConfiguration().getValueSerializationPair().write(response))
+                .isEqualTo(ByteBuffer.wrap(compact));
+    }
+}
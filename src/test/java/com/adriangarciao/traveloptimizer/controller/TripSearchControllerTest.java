@@ -2,17 +2,26 @@ package com.adriangarciao.traveloptimizer.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache;
 import com.adriangarciao.traveloptimizer.dto.MlBestDateWindowDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripRecommendationsDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.service.CacheWarmingService;
+import com.adriangarciao.traveloptimizer.service.MlEnrichmentService;
 import com.adriangarciao.traveloptimizer.service.TripSearchService;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 class TripSearchControllerTest {
 
@@ -63,4 +72,149 @@ class TripSearchControllerTest {
         assertThat(result.getBody()).isNotNull();
         assertThat(result.getBody().getOrigin()).isEqualTo("SFO");
     }
+
+    @Test
+    void recommendations_returnNotModifiedWhileEtagMatches() {
+        UUID searchId = UUID.randomUUID();
+        MlEnrichmentService enrichment = Mockito.mock(MlEnrichmentService.class);
+        Mockito.when(enrichment.getState(searchId))
+                .thenReturn(new MlEnrichmentService.State(1, MlEnrichmentService.READY));
+        Mockito.when(enrichment.getRecommendations(searchId))
+                .thenReturn(
+                        TripRecommendationsDTO.builder()
+                                .searchId(searchId)
+                                .version(1)
+                                .status(MlEnrichmentService.READY)
+                                .recommendations(Collections.emptyList())
+                                .build());
+        TripSearchController controller =
+                new TripSearchController(
+                        Mockito.mock(TripSearchService.class),
+                        Mockito.mock(
+                                com.adriangarciao.traveloptimizer.repository.TripSearchRepository
+                                        .class),
+                        enrichment);
+
+        var first = controller.getRecommendations(searchId, polling(null));
+        assertThat(first.getStatusCode().value()).isEqualTo(200);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isEqualTo("\"1-READY\"");
+
+        var second = controller.getRecommendations(searchId, polling(etag));
+        assertThat(second.getStatusCode().value()).isEqualTo(304);
+        assertThat(second.getBody()).isNull();
+        Mockito.verify(enrichment, Mockito.times(1)).getRecommendations(searchId);
+
+        // Weak tags, wildcards and lists match as HTTP defines
+        for (String ifNoneMatch : new String[] {"W/" + etag, "*", "\"0-PENDING\", " + etag}) {
+            assertThat(
+                            controller
+                                    .getRecommendations(searchId, polling(ifNoneMatch))
+                                    .getStatusCode()
+                                    .value())
+                    .as(ifNoneMatch)
+                    .isEqualTo(304);
+        }
+        assertThat(
+                        controller
+                                .getRecommendations(searchId, polling("\"0-PENDING\""))
+                                .getStatusCode()
+                                .value())
+                .isEqualTo(200);
+
+        assertThat(
+                        controller
+                                .getRecommendations(UUID.randomUUID(), polling(null))
+                                .getStatusCode()
+                                .value())
+                .isEqualTo(404);
+    }
+
+    /** A GET of the recommendations, with {@code If-None-Match} if {@code ifNoneMatch} is set. */
+    private static ServletWebRequest polling(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/recommendations");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    @Test
+    void searchResponses_areServedFromTheBodyCache_gzippedWhenAccepted() {
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("SFO")
+                        .destination("JFK")
+                        .earliestDepartureDate(LocalDate.now().plusDays(5))
+                        .latestDepartureDate(LocalDate.now().plusDays(7))
+                        .maxBudget(BigDecimal.valueOf(1000))
+                        .numTravelers(1)
+                        .build();
+        TripSearchService service = Mockito.mock(TripSearchService.class);
+        Mockito.when(
+                        service.searchTrips(
+                                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(
+                        TripSearchResponseDTO.builder()
+                                .searchId(UUID.randomUUID())
+                                .origin("SFO")
+                                .destination("JFK")
+                                .flightProviderStatus("OK")
+                                .options(Collections.emptyList())
+                                .build());
+        StaticListableBeanFactory beans =
+                new StaticListableBeanFactory(
+                        java.util.Map.of(
+                                "cacheManager",
+                                new org.springframework.cache.concurrent
+                                        .ConcurrentMapCacheManager()));
+        SearchResponseBodyCache bodyCache =
+                new SearchResponseBodyCache(
+                        beans.getBeanProvider(org.springframework.cache.CacheManager.class),
+                        beans.getBeanProvider(tools.jackson.databind.json.JsonMapper.class),
+                        beans.getBeanProvider(io.micrometer.core.instrument.MeterRegistry.class));
+        org.springframework.test.util.ReflectionTestUtils.setField(bodyCache, "enabled", true);
+        CacheWarmingService warmer = Mockito.mock(CacheWarmingService.class);
+        TripSearchController controller =
+                new TripSearchController(
+                        service,
+                        Mockito.mock(
+                                com.adriangarciao.traveloptimizer.repository.TripSearchRepository
+                                        .class),
+                        null,
+                        bodyCache,
+                        warmer);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertThat(controller.searchTrips(req, 5, null, null, "gzip, deflate", first)).isNull();
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertThat(controller.searchTrips(req, 5, null, null, null, second)).isNull();
+
+        Mockito.verify(service, Mockito.times(1))
+                .searchTrips(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        // Only the hit skips the search service, which reports misses itself
+        Mockito.verify(warmer, Mockito.times(1)).recordLookup(req, true);
+        assertThat(first.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(
+                        new String(
+                                SearchResponseBodyCache.gunzip(first.getContentAsByteArray()),
+                                StandardCharsets.UTF_8))
+                .contains("\"origin\":\"SFO\"");
+        assertThat(second.getHeader("Content-Encoding")).isNull();
+        assertThat(second.getHeader("X-Provider-Status")).isEqualTo("OK");
+        assertThat(second.getContentAsByteArray())
+                .isEqualTo(SearchResponseBodyCache.gunzip(first.getContentAsByteArray()));
+
+        // A different limit is a different body
+        controller.searchTrips(req, 10, null, null, null, new MockHttpServletResponse());
+        Mockito.verify(service, Mockito.times(2))
+                .searchTrips(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+
+        // Evicting the search drops the bodies of every limit and sort
+        bodyCache.evictSearch(req);
+        controller.searchTrips(req, 5, null, null, null, new MockHttpServletResponse());
+        controller.searchTrips(req, 10, null, null, null, new MockHttpServletResponse());
+        Mockito.verify(service, Mockito.times(4))
+                .searchTrips(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
 }
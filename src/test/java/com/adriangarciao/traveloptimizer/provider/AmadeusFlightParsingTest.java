@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.adriangarciao.traveloptimizer.client.AmadeusAuthClient;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
 import com.adriangarciao.traveloptimizer.provider.impl.AmadeusFlightSearchProvider;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
@@ -79,6 +80,11 @@ public class AmadeusFlightParsingTest {
         assertThat(fo.getSegments()).hasSize(2);
         assertThat(fo.getSegments().get(0)).isEqualTo("JFK→DEN");
         assertThat(fo.getStops()).isEqualTo(fo.getSegments().size() - 1);
+        assertThat(fo.getLegs().get(0).getDepartureAt())
+                .isEqualTo(java.time.LocalDateTime.parse("2026-01-10T08:00:00"));
+        assertThat(fo.getLegs().get(1).getCarrierCode()).isEqualTo("AA");
+        assertThat(fo.getLegs().get(1).getDurationMinutes()).isEqualTo(132);
+        assertThat(FlightSegment.summarize(fo.getLegs()).minLayoverMinutes()).isEqualTo(108);
     }
 
     private static String readResource(String path) {
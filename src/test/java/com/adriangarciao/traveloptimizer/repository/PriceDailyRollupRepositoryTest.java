@@ -0,0 +1,54 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class PriceDailyRollupRepositoryTest {
+
+    @Autowired private PriceDailyRollupRepository rollupRepository;
+
+    @Test
+    void insertIfAbsentSkipsAnExistingRouteDay() {
+        LocalDate departure = LocalDate.of(2030, 6, 1);
+        LocalDate day = LocalDate.of(2030, 5, 1);
+
+        int first =
+                rollupRepository.insertIfAbsent(
+                        UUID.randomUUID(),
+                        "ORD",
+                        "LAX",
+                        departure,
+                        day,
+                        new BigDecimal("450.00"),
+                        Instant.now());
+        int second =
+                rollupRepository.insertIfAbsent(
+                        UUID.randomUUID(),
+                        "ORD",
+                        "LAX",
+                        departure,
+                        day,
+                        new BigDecimal("999.00"),
+                        Instant.now());
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        PriceDailyRollup row =
+                rollupRepository.findForUpdate("ORD", "LAX", departure, day).orElseThrow();
+        assertThat(row.getId()).isNotNull();
+        assertThat(row.getObservationCount()).isZero();
+        assertThat(row.getMinPrice()).isEqualByComparingTo("450.00");
+        assertThat(rollupRepository.count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.mapper.TripOptionMapper;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Mapping a page of options must cost a constant number of queries, not one per option. */
+@SpringBootTest
+@Transactional
+class TripOptionRepositoryTest {
+
+    private static final int OPTIONS = 100;
+
+    @Autowired private TripSearchRepository tripSearchRepository;
+    @Autowired private TripOptionRepository tripOptionRepository;
+    @Autowired private TripOptionMapper tripOptionMapper;
+    @Autowired private EntityManager entityManager;
+
+    private UUID searchId;
+
+    @BeforeEach
+    void persistSearch() {
+        TripSearch saved =
+                tripSearchRepository.save(TripSearchPersistenceTest.searchGraph(OPTIONS));
+        entityManager.flush();
+        entityManager.clear();
+        searchId = saved.getId();
+    }
+
+    @Test
+    void pageIsMappedWithOneSelectAndOneCount() {
+        PageRequest page = PageRequest.of(0, OPTIONS, Sort.by(Sort.Direction.ASC, "totalPrice"));
+
+        List<TripOptionSummaryDTO> mapped =
+                queries(
+                        () ->
+                                tripOptionRepository.findByTripSearchId(searchId, page).stream()
+                                        .map(tripOptionMapper::toDto)
+                                        .toList(),
+                        2);
+
+        assertThat(mapped).hasSize(OPTIONS);
+        assertThat(mapped.get(0).getFlight().getSegments()).containsExactly("ORD→DEN", "DEN→LAX");
+        assertThat(mapped.get(0).getLodging().getHotelName()).isNotNull();
+    }
+
+    @Test
+    void flagFilteredPageIsMappedWithOneSelectAndOneCount() {
+        PageRequest page = PageRequest.of(0, OPTIONS / 2, Sort.by("totalPrice"));
+
+        List<TripOptionSummaryDTO> mapped =
+                queries(
+                        () ->
+                                tripOptionRepository
+                                        .findByTripSearchIdAndFlags(searchId, 0L, 0L, page)
+                                        .stream()
+                                        .map(tripOptionMapper::toDto)
+                                        .toList(),
+                        2);
+
+        assertThat(mapped).hasSize(OPTIONS / 2);
+    }
+
+    @Test
+    void allOptionsAreMappedWithOneSelect() {
+        List<TripOptionSummaryDTO> mapped =
+                queries(
+                        () ->
+                                tripOptionRepository.findAllByTripSearchId(searchId).stream()
+                                        .map(tripOptionMapper::toDto)
+                                        .toList(),
+                        1);
+
+        assertThat(mapped).hasSize(OPTIONS);
+    }
+
+    /** Run {@code work} and assert it prepared {@code expected} statements and no lazy fetches. */
+    private <T> T queries(Supplier<T> work, int expected) {
+        Statistics statistics =
+                entityManager
+                        .getEntityManagerFactory()
+                        .unwrap(SessionFactory.class)
+                        .getStatistics();
+        statistics.clear();
+        T result = work.get();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expected);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Statements and time to persist one 50-option round-trip search (two legs each way), with JDBC
+ * batching as configured and with it turned off for the session. Runs against the in-memory H2
+ * database, so the timings understate what a network round trip to PostgreSQL costs per statement.
+ * Skipped by default; run with {@code mvn test -Dtest=TripSearchPersistenceBenchmarkTest
+ * -Dbenchmarks=true}.
+ */
+@Slf4j
+@SpringBootTest
+@Transactional
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class TripSearchPersistenceBenchmarkTest {
+
+    private static final int OPTIONS = 50;
+
+    @Autowired private TripSearchRepository tripSearchRepository;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    void batchedVersusUnbatchedInserts() {
+        report("unbatched", 1);
+        report("batched", null);
+    }
+
+    private void report(String name, Integer batchSize) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+        int warmup = 200;
+        int iterations = 300;
+        for (int i = 0; i < warmup; i++) {
+            persist();
+        }
+        int statements = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            statements += persist();
+        }
+        long elapsed = System.nanoTime() - start;
+        session.setJdbcBatchSize(null);
+        log.info(
+                "{}: {} statements/search, {} us/search",
+                name,
+                statements / iterations,
+                elapsed / iterations / 1_000);
+    }
+
+    /** Persist and flush one search graph, then detach it; returns the statements it took. */
+    private int persist() {
+        TripSearch search = TripSearchPersistenceTest.searchGraph(OPTIONS);
+        int statements =
+                StatementCounter.count(
+                                () -> {
+                                    tripSearchRepository.save(search);
+                                    entityManager.flush();
+                                    return search;
+                                })
+                        .statements();
+        entityManager.clear();
+        return statements;
+    }
+}
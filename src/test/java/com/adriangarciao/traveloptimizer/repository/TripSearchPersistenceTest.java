@@ -0,0 +1,164 @@
+package com.adriangarciao.traveloptimizer.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
+import com.adriangarciao.traveloptimizer.model.LodgingOption;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+public class TripSearchPersistenceTest {
+
+    @Autowired private TripSearchRepository tripSearchRepository;
+    @Autowired private EntityManager entityManager;
+
+    /** A search with {@code options} round-trip options of two legs each way. */
+    public static TripSearch searchGraph(int options) {
+        LocalDate departure = LocalDate.now().plusDays(30);
+        TripSearch search =
+                TripSearch.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .earliestDepartureDate(departure)
+                        .latestDepartureDate(departure.plusDays(2))
+                        .numTravelers(1)
+                        .build();
+        List<TripOption> all = new ArrayList<>(options);
+        for (int i = 0; i < options; i++) {
+            LocalDateTime out = departure.atTime(8 + i % 10, 0);
+            FlightOption flight =
+                    FlightOption.builder()
+                            .airline("UA")
+                            .flightNumber("UA" + (100 + i))
+                            .stops(1)
+                            .departureDate(departure)
+                            .price(BigDecimal.valueOf(200 + i))
+                            .legs(
+                                    List.of(
+                                            leg("ORD", "DEN", out, out.plusHours(2)),
+                                            leg("DEN", "LAX", out.plusHours(3), out.plusHours(5))))
+                            .returnDate(departure.plusDays(7))
+                            .returnLegs(
+                                    List.of(
+                                            leg("LAX", "DEN", out.plusDays(7), null),
+                                            leg("DEN", "ORD", null, out.plusDays(7).plusHours(6))))
+                            .build();
+            LodgingOption lodging =
+                    LodgingOption.builder()
+                            .hotelName("Hotel " + i)
+                            .rating(4.0)
+                            .pricePerNight(BigDecimal.valueOf(120))
+                            .nights(7)
+                            .build();
+            all.add(
+                    TripOption.builder()
+                            .totalPrice(BigDecimal.valueOf(1040 + i))
+                            .currency("USD")
+                            .flightOption(flight)
+                            .lodgingOption(lodging)
+                            .tripSearch(search)
+                            .build());
+        }
+        search.setOptions(all);
+        return search;
+    }
+
+    private static FlightSegment leg(
+            String from, String to, LocalDateTime departAt, LocalDateTime arriveAt) {
+        return FlightSegment.builder()
+                .departureAirport(from)
+                .arrivalAirport(to)
+                .departureAt(departAt)
+                .arrivalAt(arriveAt)
+                .carrierCode("UA")
+                .build();
+    }
+
+    @Test
+    void searchGraphIsPersistedWithOneBatchPerTable() {
+        TripSearch search = searchGraph(20);
+
+        StatementCounter.Counted<TripSearch> persisted =
+                StatementCounter.count(
+                        () -> {
+                            TripSearch saved = tripSearchRepository.save(search);
+                            entityManager.flush();
+                            return saved;
+                        });
+
+        // trip_search, flight_option, lodging_option and trip_option: one insert batch each
+        assertThat(persisted.statements()).isEqualTo(4);
+    }
+
+    @Test
+    void legsRoundTripThroughTheJsonColumns() {
+        TripSearch saved = tripSearchRepository.save(searchGraph(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        FlightOption flight =
+                tripSearchRepository
+                        .findById(saved.getId())
+                        .orElseThrow()
+                        .getOptions()
+                        .get(0)
+                        .getFlightOption();
+
+        FlightOption expected = searchGraph(1).getOptions().get(0).getFlightOption();
+        assertThat(flight.getLegs()).isEqualTo(expected.getLegs());
+        assertThat(flight.getReturnLegs()).isEqualTo(expected.getReturnLegs());
+        assertThat(flight.getSegments()).containsExactly("ORD→DEN", "DEN→LAX");
+        assertThat(flight.legSummary().minLayoverMinutes()).isEqualTo(60);
+    }
+
+    @Test
+    void warmedSearchesAreListedNewestFirst_andDeletedWithTheirOptions() {
+        Instant now = Instant.now();
+        List<UUID> saved = new ArrayList<>();
+        for (int age = 3; age >= 1; age--) {
+            TripSearch search = searchGraph(2);
+            search.setWarmed(true);
+            search.setWarmKey("key");
+            search.setCreatedAt(now.minusSeconds(60L * age));
+            saved.add(tripSearchRepository.save(search).getId());
+        }
+        tripSearchRepository.save(searchGraph(2));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<UUID> warmed = tripSearchRepository.findIdsByWarmKey("key");
+        assertThat(warmed).containsExactly(saved.get(2), saved.get(1), saved.get(0));
+
+        tripSearchRepository.deleteAllById(warmed.subList(2, 3));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(tripSearchRepository.findIdsByWarmKey("key"))
+                .containsExactly(saved.get(2), saved.get(1));
+        // The user search and two warmed ones remain, with two options each
+        assertThat(count("TripOption")).isEqualTo(6);
+        assertThat(count("FlightOption")).isEqualTo(6);
+        assertThat(count("LodgingOption")).isEqualTo(6);
+    }
+
+    private long count(String entity) {
+        return entityManager
+                .createQuery("select count(e) from " + entity + " e", Long.class)
+                .getSingleResult();
+    }
+}
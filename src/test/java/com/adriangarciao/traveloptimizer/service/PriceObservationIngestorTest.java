@@ -0,0 +1,129 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class PriceObservationIngestorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PriceRollupService rollupService;
+    private SimpleMeterRegistry meterRegistry;
+    private final LocalDate departure = LocalDate.now().plusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        rollupService = mock(PriceRollupService.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private PriceObservationIngestor ingestor(int capacity, int batchSize, long bucketSeconds) {
+        return new PriceObservationIngestor(
+                jdbcTemplate,
+                mock(PlatformTransactionManager.class),
+                rollupService,
+                meterRegistry,
+                capacity,
+                batchSize,
+                bucketSeconds);
+    }
+
+    @Test
+    void sameRouteInOneBucketIsDeduplicated() {
+        PriceObservationIngestor ingestor = ingestor(100, 10, 3600);
+
+        assertTrue(ingestor.submit("ORD", "LAX", departure, 500));
+        assertFalse(ingestor.submit("ORD", "LAX", departure, 510));
+        assertTrue(ingestor.submit("ORD", "LAX", departure.plusDays(1), 520));
+
+        assertEquals(2, ingestor.queueDepth());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .get("traveloptimizer.price_observation.dropped")
+                        .tag("reason", "duplicate_bucket")
+                        .counter()
+                        .count());
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() {
+        PriceObservationIngestor ingestor = ingestor(1, 10, 0);
+
+        assertTrue(ingestor.submit("ORD", "LAX", departure, 500));
+        assertFalse(ingestor.submit("ORD", "LAX", departure, 510));
+
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .get("traveloptimizer.price_observation.dropped")
+                        .tag("reason", "queue_full")
+                        .counter()
+                        .count());
+        assertEquals(
+                1.0,
+                meterRegistry.get("traveloptimizer.price_observation.queue.depth").gauge().value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesInBatchesAndNotifiesListeners() {
+        PriceObservationIngestor ingestor = ingestor(100, 2, 0);
+        List<Integer> notifiedBatchSizes = new ArrayList<>();
+        ingestor.addFlushListener(batch -> notifiedBatchSizes.add(batch.size()));
+        for (int i = 0; i < 5; i++) {
+            ingestor.submit("ORD", "LAX", departure, 500 + i);
+        }
+
+        assertEquals(5, ingestor.flush());
+
+        verify(jdbcTemplate, times(3))
+                .batchUpdate(
+                        anyString(),
+                        anyList(),
+                        anyInt(),
+                        any(ParameterizedPreparedStatementSetter.class));
+        verify(rollupService, times(3)).recordObservations(anyList());
+        assertEquals(List.of(2, 2, 1), notifiedBatchSizes);
+        assertEquals(0, ingestor.queueDepth());
+        assertEquals(
+                5.0,
+                meterRegistry.get("traveloptimizer.price_observation.flushed").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedBatchIsCountedAndNotNotified() {
+        PriceObservationIngestor ingestor = ingestor(100, 10, 0);
+        List<List<PriceObservation>> notified = new ArrayList<>();
+        ingestor.addFlushListener(notified::add);
+        when(jdbcTemplate.batchUpdate(
+                        anyString(),
+                        anyList(),
+                        anyInt(),
+                        any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new IllegalStateException("db down"));
+        ingestor.submit("ORD", "LAX", departure, 500);
+
+        assertEquals(0, ingestor.flush());
+        assertTrue(notified.isEmpty());
+        assertEquals(
+                1.0,
+                meterRegistry
+                        .get("traveloptimizer.price_observation.flush_failed")
+                        .counter()
+                        .count());
+    }
+}
@@ -0,0 +1,103 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PriceQuantileSketchTest {
+
+    @Test
+    void quantilesAndCdfTrackAUniformDistribution() {
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(200 + random.nextDouble() * 800); // uniform in [200, 1000)
+        }
+
+        PriceQuantileSketch.Snapshot snapshot = sketch.snapshot();
+        assertEquals(100_000, snapshot.count());
+        assertEquals(400, snapshot.quantile(0.25), 10);
+        assertEquals(600, snapshot.quantile(0.5), 10);
+        assertEquals(0.25, snapshot.cdf(400), 0.01);
+        assertEquals(0.9, snapshot.cdf(920), 0.01);
+        assertEquals(0.0, snapshot.cdf(100));
+        assertEquals(1.0, snapshot.cdf(2000));
+    }
+
+    @Test
+    void memoryStaysBoundedAsPricesAccumulate() {
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            sketch.add(300 + random.nextGaussian() * 50);
+        }
+
+        assertTrue(sketch.toBytes().length < 8 * 1024, "sketch should stay a few KB");
+    }
+
+    @Test
+    void serializedSketchAnswersTheSameQueries() {
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add(i);
+        }
+
+        PriceQuantileSketch restored = PriceQuantileSketch.fromBytes(sketch.toBytes());
+        restored.add(500);
+
+        assertEquals(1001, restored.count());
+        assertEquals(sketch.snapshot().quantile(0.1), restored.snapshot().quantile(0.1), 2.0);
+        assertEquals(sketch.snapshot().cdf(750), restored.snapshot().cdf(750), 0.01);
+    }
+
+    @Test
+    void mergedSketchesDescribeTheCombinedPrices() {
+        PriceQuantileSketch low = new PriceQuantileSketch(100);
+        PriceQuantileSketch high = new PriceQuantileSketch(100);
+        for (int i = 0; i < 1000; i++) {
+            low.add(100 + i % 100);
+            high.add(300 + i % 100);
+        }
+
+        low.merge(high);
+
+        PriceQuantileSketch.Snapshot merged = low.snapshot();
+        assertEquals(2000, merged.count());
+        assertEquals(0.5, merged.cdf(250), 0.01);
+        assertEquals(100, merged.quantile(0.0), 1e-9);
+        assertEquals(399, merged.quantile(1.0), 1e-9);
+    }
+
+    @Test
+    void decayedPricesCountForLessThanNewOnes() {
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(100);
+        }
+        sketch.decay(0.25);
+        for (int i = 0; i < 250; i++) {
+            sketch.add(500);
+        }
+
+        assertEquals(500, sketch.count());
+        assertEquals(0.5, sketch.snapshot().cdf(300), 0.01);
+
+        // Faded out entirely: only the newer prices are left
+        sketch.decay(1e-9);
+        assertEquals(0, sketch.count());
+        assertTrue(Double.isNaN(sketch.snapshot().quantile(0.5)));
+    }
+
+    @Test
+    void smallSketchInterpolatesBetweenObservedPrices() {
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        sketch.add(100);
+        sketch.add(200);
+        sketch.add(300);
+
+        PriceQuantileSketch.Snapshot snapshot = sketch.snapshot();
+        assertEquals(200, snapshot.quantile(0.5), 1e-9);
+        assertEquals(0.5, snapshot.cdf(200), 1e-9);
+    }
+}
@@ -0,0 +1,83 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RouteTrendModelTest {
+
+    private final LocalDate departure = LocalDate.now().plusDays(60);
+    private final RouteTrendModel model = new RouteTrendModel(0.3, 0.1, 1000, Duration.ofDays(14));
+
+    @Test
+    void slopeConvergesOnALinearPriceRamp() {
+        Instant start = Instant.now().minus(Duration.ofDays(40));
+        for (int day = 0; day < 40; day++) {
+            model.update(
+                    "ORD", "LAX", departure, 500 + 10.0 * day, start.plus(Duration.ofDays(day)));
+        }
+
+        RouteTrendModel.Estimate est = model.estimate("ORD", "LAX", departure).orElseThrow();
+        assertEquals(40, est.count());
+        assertEquals(10.0, est.slopePerDay(), 0.5);
+        assertEquals(890.0, est.level(), 10.0);
+    }
+
+    @Test
+    void burstsWithinAnHourOnlyMoveTheLevel() {
+        Instant now = Instant.now();
+        model.update("ORD", "LAX", departure, 500, now);
+        model.update("ORD", "LAX", departure, 600, now.plusSeconds(60));
+
+        RouteTrendModel.Estimate est = model.estimate("ORD", "LAX", departure).orElseThrow();
+        assertEquals(0.0, est.slopePerDay());
+        assertEquals(530.0, est.level(), 1e-9);
+    }
+
+    @Test
+    void seedingKeepsAStateWithAsManyObservations() {
+        Instant now = Instant.now();
+        List<PriceObservation> history =
+                List.of(observation(500, now.minus(Duration.ofDays(2))), observation(520, now));
+
+        assertTrue(model.seed("ORD", "LAX", departure, history));
+        assertFalse(model.seed("ORD", "LAX", departure, history));
+        assertEquals(2, model.estimate("ORD", "LAX", departure).orElseThrow().count());
+        assertTrue(model.estimate("ORD", "LAX", departure.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void seedingReplacesAStateWithFewerObservations() {
+        Instant now = Instant.now();
+        // A flush created this state before the first trend load seeded the route
+        model.update("ORD", "LAX", departure, 560, now);
+        List<PriceObservation> history =
+                List.of(
+                        observation(500, now.minus(Duration.ofDays(3))),
+                        observation(520, now.minus(Duration.ofDays(2))),
+                        observation(540, now.minus(Duration.ofDays(1))),
+                        observation(560, now));
+
+        assertTrue(model.seed("ORD", "LAX", departure, history));
+
+        RouteTrendModel.Estimate est = model.estimate("ORD", "LAX", departure).orElseThrow();
+        assertEquals(4, est.count());
+        assertTrue(est.slopePerDay() > 0);
+    }
+
+    private PriceObservation observation(double price, Instant at) {
+        return PriceObservation.builder()
+                .origin("ORD")
+                .destination("LAX")
+                .departureDate(departure)
+                .observedPrice(BigDecimal.valueOf(price))
+                .createdAt(at)
+                .build();
+    }
+}
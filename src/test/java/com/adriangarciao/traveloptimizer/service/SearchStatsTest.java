@@ -0,0 +1,109 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SearchStatsTest {
+
+    @Test
+    void quartilesAndMedianMatchSortedReference() {
+        Random random = new Random(42);
+        for (int n = 1; n <= 60; n++) {
+            List<BigDecimal> prices = new ArrayList<>();
+            long[] durations = new long[n];
+            for (int i = 0; i < n; i++) {
+                // Few distinct values so duplicates are exercised
+                prices.add(BigDecimal.valueOf(100 + random.nextInt(20) * 25));
+                durations[i] = 60 + random.nextInt(12) * 30;
+            }
+
+            SearchStats stats = SearchStats.of(prices, durations, 0);
+
+            List<BigDecimal> sorted = prices.stream().sorted().toList();
+            long[] sortedDurations = durations.clone();
+            Arrays.sort(sortedDurations);
+            assertEquals(0, sorted.get(0).compareTo(stats.minPrice()));
+            assertEquals(0, sorted.get(n - 1).compareTo(stats.maxPrice()));
+            assertEquals(0, reference(sorted, 0.25).compareTo(stats.p25Price()), "n=" + n);
+            assertEquals(0, reference(sorted, 0.75).compareTo(stats.p75Price()), "n=" + n);
+            long expectedMedian =
+                    n % 2 == 1
+                            ? sortedDurations[n / 2]
+                            : (sortedDurations[n / 2 - 1] + sortedDurations[n / 2]) / 2;
+            assertEquals(expectedMedian, stats.medianDurationMinutes(), "n=" + n);
+        }
+    }
+
+    @Test
+    void rankLookupCountsStrictlyCheaperOptions() {
+        SearchStats stats =
+                SearchStats.of(
+                        List.of(
+                                BigDecimal.valueOf(300),
+                                BigDecimal.valueOf(100),
+                                BigDecimal.valueOf(200),
+                                BigDecimal.valueOf(200)),
+                        new long[0],
+                        0);
+
+        assertEquals(0, stats.countBelow(BigDecimal.valueOf(100)));
+        assertEquals(1, stats.countBelow(new BigDecimal("200.00")));
+        assertEquals(3, stats.countBelow(BigDecimal.valueOf(300)));
+        assertEquals(4, stats.countBelow(BigDecimal.valueOf(999)));
+        assertTrue(stats.containsPrice(new BigDecimal("200.00")));
+        assertFalse(stats.containsPrice(BigDecimal.valueOf(250)));
+        assertEquals(0.75, stats.fractionBelow(BigDecimal.valueOf(300)), 1e-9);
+        // Rank lookups do not disturb the quartiles computed up front
+        assertEquals(0, BigDecimal.valueOf(175).compareTo(stats.p25Price()));
+    }
+
+    @Test
+    void tripOptionsSkipMissingPricesAndDurations() {
+        List<TripOption> options = new ArrayList<>();
+        options.add(option(BigDecimal.valueOf(250), 1, Duration.ofMinutes(300)));
+        options.add(option(null, 2, null));
+        options.add(option(BigDecimal.valueOf(150), 0, Duration.ofMinutes(180)));
+
+        SearchStats stats = SearchStats.ofTripOptions(options);
+
+        assertEquals(2, stats.priceCount());
+        assertEquals(2, stats.durationCount());
+        assertEquals(180, stats.minDurationMinutes());
+        assertEquals(300, stats.maxDurationMinutes());
+        assertEquals(2, stats.maxStops());
+        assertSame(SearchStats.EMPTY, SearchStats.ofTripOptions(List.of()));
+        assertEquals(0.5, SearchStats.EMPTY.fractionBelow(BigDecimal.ONE));
+    }
+
+    private static TripOption option(BigDecimal price, int stops, Duration duration) {
+        return TripOption.builder()
+                .totalPrice(price)
+                .flightOption(FlightOption.builder().stops(stops).duration(duration).build())
+                .build();
+    }
+
+    /** Same interpolation as the original sort-based SearchContext percentile. */
+    private static BigDecimal reference(List<BigDecimal> sorted, double q) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+        double index = q * (sorted.size() - 1);
+        int lower = (int) Math.floor(index);
+        int upper = (int) Math.ceil(index);
+        if (lower == upper) {
+            return sorted.get(lower);
+        }
+        BigDecimal lo = sorted.get(lower);
+        BigDecimal hi = sorted.get(upper);
+        return lo.add(hi.subtract(lo).multiply(BigDecimal.valueOf(index - lower)));
+    }
+}
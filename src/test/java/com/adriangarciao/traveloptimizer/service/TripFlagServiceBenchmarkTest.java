@@ -0,0 +1,101 @@
+package com.adriangarciao.traveloptimizer.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.adriangarciao.traveloptimizer.dto.TripFlagDTO;
+import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Rough throughput check for flag evaluation over a search-sized result page. Skipped by default;
+ * run with {@code mvn test -Dtest=TripFlagServiceBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class TripFlagServiceBenchmarkTest {
+
+    private static final int OPTIONS = 200;
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 10_000;
+
+    @Test
+    void evaluateSearchPage() {
+        TripFlagService service = new TripFlagService();
+        List<TripOption> options = options();
+        SearchContext ctx = service.computeContext(options);
+
+        long flags = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            flags += evaluateAll(service, options, ctx);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            flags += evaluateAll(service, options, ctx);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        log.info(
+                "TripFlagService.evaluate: {} ns/option ({} options x {} rounds, {} flags)",
+                elapsed / ((long) OPTIONS * MEASURED_ROUNDS),
+                OPTIONS,
+                MEASURED_ROUNDS,
+                flags);
+        assertFalse(flags == 0);
+    }
+
+    private static long evaluateAll(
+            TripFlagService service, List<TripOption> options, SearchContext ctx) {
+        long count = 0;
+        for (TripOption option : options) {
+            List<TripFlagDTO> flags = service.evaluate(option, ctx);
+            count += flags.size();
+        }
+        return count;
+    }
+
+    /** Mix of nonstop and connecting itineraries with varied departure hours and layovers. */
+    private static List<TripOption> options() {
+        LocalDateTime base = LocalDateTime.parse("2026-03-01T00:00:00");
+        List<TripOption> options = new ArrayList<>(OPTIONS);
+        for (int i = 0; i < OPTIONS; i++) {
+            int stops = i % 3;
+            LocalDateTime depart = base.plusMinutes((i * 97L) % (24 * 60));
+            List<FlightSegment> legs = new ArrayList<>();
+            String from = "ORD";
+            for (int leg = 0; leg <= stops; leg++) {
+                String to = leg == stops ? "LAX" : "H" + leg + (char) ('A' + i % 26);
+                LocalDateTime arrive = depart.plusMinutes(90 + (i % 5) * 20);
+                legs.add(
+                        FlightSegment.builder()
+                                .departureAirport(from)
+                                .arrivalAirport(to)
+                                .departureAt(depart)
+                                .arrivalAt(arrive)
+                                .durationMinutes(90 + (i % 5) * 20)
+                                .build());
+                from = to;
+                depart = arrive.plusMinutes(30 + (i * 13L) % 360);
+            }
+            BigDecimal price = BigDecimal.valueOf(150 + (i * 37L) % 600);
+            FlightOption flight =
+                    FlightOption.builder()
+                            .price(price)
+                            .stops(stops)
+                            .duration(Duration.ofMinutes(180 + stops * 150L))
+                            .legs(legs)
+                            .build();
+            flight.summarizeLegs();
+            options.add(TripOption.builder().totalPrice(price).flightOption(flight).build());
+        }
+        return options;
+    }
+}
@@ -1,14 +1,18 @@
 package com.adriangarciao.traveloptimizer.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.adriangarciao.traveloptimizer.dto.FlagCode;
 import com.adriangarciao.traveloptimizer.dto.FlagSeverity;
 import com.adriangarciao.traveloptimizer.dto.TripFlagDTO;
 import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.FlightSegment;
 import com.adriangarciao.traveloptimizer.model.TripOption;
 import java.math.BigDecimal;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -33,18 +37,27 @@ public class TripFlagServiceTest {
         return TripOption.builder().totalPrice(price).flightOption(flight).build();
     }
 
-    private TripOption createOptionWithSegments(
-            BigDecimal price, int stops, Duration duration, List<String> segments) {
+    private TripOption createOptionWithLegs(
+            BigDecimal price, int stops, Duration duration, List<FlightSegment> legs) {
         FlightOption flight =
                 FlightOption.builder()
                         .price(price)
                         .stops(stops)
                         .duration(duration)
-                        .segments(segments)
+                        .legs(legs)
                         .build();
         return TripOption.builder().totalPrice(price).flightOption(flight).build();
     }
 
+    private static FlightSegment leg(String from, String to, String departAt, String arriveAt) {
+        return FlightSegment.builder()
+                .departureAirport(from)
+                .arrivalAirport(to)
+                .departureAt(LocalDateTime.parse(departAt))
+                .arrivalAt(LocalDateTime.parse(arriveAt))
+                .build();
+    }
+
     private List<TripOption> createOptionList(BigDecimal... prices) {
         List<TripOption> options = new ArrayList<>();
         for (BigDecimal price : prices) {
@@ -126,14 +139,14 @@ public class TripFlagServiceTest {
         assertFalse(manyStops.isPresent(), "Should NOT have MANY_STOPS flag for 1 stop");
     }
 
-    // --- Redeye tests (based on segment parsing) ---
+    // --- Redeye tests (based on first leg departure) ---
 
     @Test
-    void testRedeyeFlag_segmentWith11pm_flagsWarn() {
-        // Segment format includes departure time like "ORD → LAX (dep 23:00)"
-        List<String> segments = List.of("ORD → LAX (dep 23:00)");
+    void testRedeyeFlag_legAt11pm_flagsWarn() {
+        List<FlightSegment> legs =
+                List.of(leg("ORD", "LAX", "2026-03-01T23:00:00", "2026-03-02T01:30:00"));
         TripOption option =
-                createOptionWithSegments(BigDecimal.valueOf(300), 0, Duration.ofHours(5), segments);
+                createOptionWithLegs(BigDecimal.valueOf(300), 0, Duration.ofHours(5), legs);
         List<TripOption> options = List.of(option);
         SearchContext ctx = service.computeContext(options);
 
@@ -142,13 +155,15 @@ public class TripFlagServiceTest {
         Optional<TripFlagDTO> redeye = findFlag(flags, FlagCode.REDEYE);
         assertTrue(redeye.isPresent(), "Should have REDEYE flag for 11pm departure");
         assertEquals(FlagSeverity.WARN, redeye.get().getSeverity());
+        assertEquals(23, redeye.get().getMetrics().get("departureHour"));
     }
 
     @Test
-    void testRedeyeFlag_segmentWith10am_noFlag() {
-        List<String> segments = List.of("ORD → LAX (dep 10:00)");
+    void testRedeyeFlag_legAt10am_noFlag() {
+        List<FlightSegment> legs =
+                List.of(leg("ORD", "LAX", "2026-03-01T10:00:00", "2026-03-01T12:30:00"));
         TripOption option =
-                createOptionWithSegments(BigDecimal.valueOf(300), 0, Duration.ofHours(5), segments);
+                createOptionWithLegs(BigDecimal.valueOf(300), 0, Duration.ofHours(5), legs);
         List<TripOption> options = List.of(option);
         SearchContext ctx = service.computeContext(options);
 
@@ -158,6 +173,104 @@ public class TripFlagServiceTest {
         assertFalse(redeye.isPresent(), "Should NOT have REDEYE flag for 10am departure");
     }
 
+    // --- Connection tests (based on leg times) ---
+
+    @Test
+    void testTightConnection_40MinuteLayover_flagsBad() {
+        List<FlightSegment> legs =
+                List.of(
+                        leg("ORD", "DEN", "2026-03-01T08:00:00", "2026-03-01T09:30:00"),
+                        leg("DEN", "LAX", "2026-03-01T10:10:00", "2026-03-01T11:40:00"));
+        TripOption option =
+                createOptionWithLegs(BigDecimal.valueOf(300), 1, Duration.ofHours(5), legs);
+        SearchContext ctx = service.computeContext(List.of(option));
+
+        List<TripFlagDTO> flags = service.evaluate(option, ctx);
+
+        Optional<TripFlagDTO> tight = findFlag(flags, FlagCode.TIGHT_CONNECTION);
+        assertTrue(tight.isPresent(), "Should have TIGHT_CONNECTION flag for 40m layover");
+        assertEquals(FlagSeverity.BAD, tight.get().getSeverity());
+        assertEquals(40, tight.get().getMetrics().get("connectionMinutes"));
+        assertEquals("DEN", tight.get().getMetrics().get("airport"));
+        assertFalse(findFlag(flags, FlagCode.LONG_LAYOVER).isPresent());
+    }
+
+    @Test
+    void testLongLayover_sixHourLayover_flagsWarnAtLongestConnection() {
+        List<FlightSegment> legs =
+                List.of(
+                        leg("BOS", "ORD", "2026-03-01T06:00:00", "2026-03-01T08:00:00"),
+                        leg("ORD", "DEN", "2026-03-01T09:30:00", "2026-03-01T11:00:00"),
+                        leg("DEN", "LAX", "2026-03-01T17:00:00", "2026-03-01T18:30:00"));
+        TripOption option =
+                createOptionWithLegs(BigDecimal.valueOf(300), 2, Duration.ofHours(14), legs);
+        SearchContext ctx = service.computeContext(List.of(option));
+
+        List<TripFlagDTO> flags = service.evaluate(option, ctx);
+
+        Optional<TripFlagDTO> layover = findFlag(flags, FlagCode.LONG_LAYOVER);
+        assertTrue(layover.isPresent(), "Should have LONG_LAYOVER flag for 6h layover");
+        assertEquals(FlagSeverity.WARN, layover.get().getSeverity());
+        assertEquals(360, layover.get().getMetrics().get("layoverMinutes"));
+        assertEquals("DEN", layover.get().getMetrics().get("airport"));
+        assertFalse(findFlag(flags, FlagCode.TIGHT_CONNECTION).isPresent());
+    }
+
+    @Test
+    void testLegSummary_usesStoredColumnsOnceSummarized() {
+        FlightOption flight =
+                FlightOption.builder()
+                        .legs(
+                                List.of(
+                                        leg(
+                                                "ORD",
+                                                "DEN",
+                                                "2026-03-01T23:30:00",
+                                                "2026-03-02T01:00:00"),
+                                        leg(
+                                                "DEN",
+                                                "LAX",
+                                                "2026-03-02T01:50:00",
+                                                "2026-03-02T03:00:00")))
+                        .build();
+
+        flight.summarizeLegs();
+
+        assertTrue(flight.isLegsSummarized());
+        assertEquals(23, flight.getDepartureHour());
+        assertEquals(50, flight.getMinLayoverMinutes());
+        assertEquals("DEN", flight.getMinLayoverAirport());
+        assertEquals(flight.getMinLayoverMinutes(), flight.legSummary().minLayoverMinutes());
+        assertEquals(List.of("ORD→DEN", "DEN→LAX"), flight.getSegments());
+    }
+
+    // --- Stored flags ---
+
+    @Test
+    void testApplyFlags_storesMaskAndFlagsForEachOption() {
+        TripOption nonstop = createOption(BigDecimal.valueOf(200), 0, Duration.ofHours(3));
+        TripOption threeStops = createOption(BigDecimal.valueOf(900), 3, Duration.ofHours(12));
+        List<TripOption> options = List.of(nonstop, threeStops);
+
+        service.applyFlags(options, "ORD", "LAX");
+
+        assertNotEquals(0L, nonstop.getFlagMask() & FlagCode.NONSTOP.mask());
+        assertEquals(0L, nonstop.getFlagMask() & FlagCode.MANY_STOPS.mask());
+        assertNotEquals(0L, threeStops.getFlagMask() & FlagCode.MANY_STOPS.mask());
+        assertTrue(nonstop.getFlagsJson().contains("\"nonstop\""));
+        assertEquals(
+                TripFlagService.maskOf(
+                        service.evaluate(threeStops, service.computeContext(options))),
+                threeStops.getFlagMask());
+    }
+
+    @Test
+    void testFlagCode_fromCodeAcceptsCodeOrName() {
+        assertEquals(FlagCode.REDEYE, FlagCode.fromCode("redeye"));
+        assertEquals(FlagCode.TIGHT_CONNECTION, FlagCode.fromCode("TIGHT_CONNECTION"));
+        assertThrows(IllegalArgumentException.class, () -> FlagCode.fromCode("bogus"));
+    }
+
     // --- Price percentile tests ---
 
     @Test
@@ -219,6 +332,37 @@ public class TripFlagServiceTest {
         assertFalse(expensive.isPresent(), "Middle price should not have EXPENSIVE");
     }
 
+    @Test
+    void testGreatPriceFlag_usesRouteHistoryWhenAvailable() {
+        RoutePriceDistributionService history = mock(RoutePriceDistributionService.class);
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        for (int p = 100; p <= 1000; p += 10) {
+            sketch.add(p);
+        }
+        when(history.distribution("ORD", "LAX")).thenReturn(Optional.of(sketch.snapshot()));
+        TripFlagService withHistory = new TripFlagService(history);
+
+        // Cheapest in this search, but above the usual price for the route
+        List<TripOption> pricey =
+                createOptionList(
+                        BigDecimal.valueOf(800),
+                        BigDecimal.valueOf(850),
+                        BigDecimal.valueOf(900),
+                        BigDecimal.valueOf(950));
+        SearchContext ctx = withHistory.computeContext(pricey, "ORD", "LAX");
+        assertFalse(
+                findFlag(withHistory.evaluate(pricey.get(0), ctx), FlagCode.GREAT_PRICE)
+                        .isPresent());
+
+        // Historically cheap even though the search is too small for percentiles
+        List<TripOption> cheap = createOptionList(BigDecimal.valueOf(150));
+        ctx = withHistory.computeContext(cheap, "ORD", "LAX");
+        Optional<TripFlagDTO> great =
+                findFlag(withHistory.evaluate(cheap.get(0), ctx), FlagCode.GREAT_PRICE);
+        assertTrue(great.isPresent());
+        assertTrue(great.get().getMetrics().containsKey("historicalPercentile"));
+    }
+
     // --- Long travel time tests ---
 
     @Test
@@ -1,16 +1,23 @@
 package com.adriangarciao.traveloptimizer.service.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 import com.adriangarciao.traveloptimizer.dto.BuyWaitDTO;
 import com.adriangarciao.traveloptimizer.dto.FlightSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.service.PriceHistoryService;
+import com.adriangarciao.traveloptimizer.service.PriceQuantileSketch;
+import com.adriangarciao.traveloptimizer.service.RoutePriceDistributionService;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
 public class BuyWaitServiceImplTest {
@@ -364,4 +371,96 @@ public class BuyWaitServiceImplTest {
         assertEquals("BUY", dto.getDecision(), "Proximity to departure should bias toward BUY");
         assertTrue(dto.getConfidence() > 0.4, "Expected boosted confidence for near departure");
     }
+
+    @Test
+    public void testHistoricalPercentileBlendsIntoDealRating() {
+        RoutePriceDistributionService distribution = mock(RoutePriceDistributionService.class);
+        PriceQuantileSketch sketch = new PriceQuantileSketch(100);
+        for (int p = 100; p <= 1000; p += 10) {
+            sketch.add(p);
+        }
+        when(distribution.distribution("ORD", "LAX")).thenReturn(Optional.of(sketch.snapshot()));
+        BuyWaitServiceImpl svc = new BuyWaitServiceImpl(null, distribution);
+
+        // Cheapest of this search, but most expensive relative to route history
+        List<TripOptionSummaryDTO> options = new ArrayList<>();
+        for (int p : new int[] {950, 980, 990, 1000}) {
+            options.add(
+                    TripOptionSummaryDTO.builder()
+                            .tripOptionId(java.util.UUID.randomUUID())
+                            .totalPrice(BigDecimal.valueOf(p))
+                            .currency("USD")
+                            .build());
+        }
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .earliestDepartureDate(LocalDate.now().plusDays(40))
+                        .numTravelers(1)
+                        .build();
+
+        BuyWaitDTO dto = svc.computeBaseline(options.get(0), options, req);
+
+        assertEquals(0.0, dto.getPricePercentile(), 1e-9);
+        assertTrue(dto.getHistoricalPercentile() > 0.9);
+        assertEquals("FAIR", dto.getDealRating());
+        assertTrue(
+                dto.getReasons().stream().anyMatch(r -> r.contains("prices seen on this route")));
+    }
+
+    @Test
+    public void testComputeBaselines_matchesPerOptionAndLooksUpTrendOnce() {
+        PriceHistoryService history = mock(PriceHistoryService.class);
+        when(history.computeTrend(anyString(), anyString(), any()))
+                .thenReturn(
+                        new PriceHistoryService.TrendResult(
+                                "RISING", "Prices increased.", 8, 550.0, 500.0));
+        BuyWaitServiceImpl svc = new BuyWaitServiceImpl(history);
+
+        List<TripOptionSummaryDTO> options = new ArrayList<>();
+        // shuffled prices with a duplicate to exercise first-occurrence ranking
+        int[] prices = {700, 300, 900, 300, 100, 500, 800, 200, 600, 400};
+        for (int p : prices) {
+            options.add(
+                    TripOptionSummaryDTO.builder()
+                            .tripOptionId(java.util.UUID.randomUUID())
+                            .totalPrice(BigDecimal.valueOf(p))
+                            .currency("USD")
+                            .flight(
+                                    FlightSummaryDTO.builder()
+                                            .stops(0)
+                                            .duration(Duration.ofHours(5))
+                                            .build())
+                            .build());
+        }
+        TripSearchRequestDTO req =
+                TripSearchRequestDTO.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .earliestDepartureDate(LocalDate.now().plusDays(20))
+                        .latestDepartureDate(LocalDate.now().plusDays(25))
+                        .numTravelers(1)
+                        .build();
+
+        List<BuyWaitDTO> batch = svc.computeBaselines(options, req);
+        verify(history, times(1)).computeTrend("ORD", "LAX", req.getEarliestDepartureDate());
+
+        assertEquals(options.size(), batch.size());
+        for (int i = 0; i < options.size(); i++) {
+            BuyWaitDTO single = svc.computeBaseline(options.get(i), options, req);
+            assertEquals(single, batch.get(i), "Batch result should match option " + i);
+        }
+        // both 300s rank at the first occurrence (index 2 of 9)
+        assertEquals(2.0 / 9.0, batch.get(1).getPricePercentile(), 1e-9);
+        assertEquals(2.0 / 9.0, batch.get(3).getPricePercentile(), 1e-9);
+        assertEquals("RISING", batch.get(0).getTrend());
+    }
+
+    @Test
+    public void testComputeBaselines_emptyInputReturnsEmptyList() {
+        BuyWaitServiceImpl svc = new BuyWaitServiceImpl();
+        assertTrue(svc.computeBaselines(List.of(), null).isEmpty());
+        assertTrue(svc.computeBaselines(null, null).isEmpty());
+    }
 }
@@ -0,0 +1,175 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.adriangarciao.traveloptimizer.dto.CacheWarmingStatusDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.dto.TripType;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import com.adriangarciao.traveloptimizer.service.TripSearchService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CacheWarmingServiceImplTest {
+
+    private final LocalDate departure = LocalDate.now().plusDays(30);
+    private final TripSearchRepository repository = mock(TripSearchRepository.class);
+    private final TripSearchService searchService = mock(TripSearchService.class);
+    private final TaskScheduler scheduler = mock(TaskScheduler.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CacheWarmingServiceImpl warmer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<TripSearchService> searchProvider = mock(ObjectProvider.class);
+        when(searchProvider.getIfAvailable()).thenReturn(searchService);
+        ObjectProvider<TaskScheduler> schedulerProvider = mock(ObjectProvider.class);
+        when(schedulerProvider.getIfUnique()).thenReturn(scheduler);
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable()).thenReturn(registry);
+        warmer =
+                new CacheWarmingServiceImpl(
+                        repository, searchProvider, schedulerProvider, registryProvider);
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "pauseMs", 0L);
+        when(repository.findHotSearches(any(), any(), any()))
+                .thenReturn(
+                        List.of(row("JFK", "LAX", 12), row("SFO", "ORD", 4), row("BOS", "MIA", 1)));
+    }
+
+    @Test
+    void refreshesSearchesAboveTheThreshold_hottestFirst_andOnlyWhenDue() {
+        when(searchService.refreshCachedSearch(any())).thenReturn(response("OK"));
+
+        assertThat(warmer.warm()).isEqualTo(2);
+        assertThat(warmer.warm()).isZero();
+
+        verify(searchService, times(2)).refreshCachedSearch(any());
+        CacheWarmingStatusDTO status = warmer.status();
+        assertThat(status.getSearches())
+                .extracting(CacheWarmingStatusDTO.WarmSearch::getOrigin)
+                .containsExactly("JFK", "SFO");
+        assertThat(status.getSearches()).allMatch(s -> s.getLastRefreshedAt() != null);
+        assertThat(status.getRefreshes()).isEqualTo(2);
+        assertThat(registry.get("traveloptimizer.cache.warming.searches").gauge().value())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void rateLimitedRefresh_stopsTheRunAndPausesWarming() {
+        when(searchService.refreshCachedSearch(any())).thenReturn(response("RATE_LIMITED"));
+
+        assertThat(warmer.warm()).isEqualTo(1);
+        assertThat(warmer.warm()).isZero();
+
+        verify(searchService, times(1)).refreshCachedSearch(any());
+        CacheWarmingStatusDTO status = warmer.status();
+        assertThat(status.getPausedUntil()).isNotNull();
+        assertThat(status.getFailedRefreshes()).isEqualTo(1);
+        assertThat(
+                        registry.get("traveloptimizer.cache.warming.refreshes")
+                                .tag("result", "rate_limited")
+                                .counter()
+                                .count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void onlyLookupsOfWarmSearchesCountTowardsTheHitRatio() {
+        when(searchService.refreshCachedSearch(any())).thenReturn(response("OK"));
+        warmer.warm();
+        TripSearchRequestDTO warm = request("JFK", "LAX");
+
+        warmer.recordLookup(warm, true);
+        warmer.recordLookup(warm, true);
+        warmer.recordLookup(warm, false);
+        warmer.recordLookup(request("BOS", "MIA"), false);
+
+        CacheWarmingStatusDTO status = warmer.status();
+        assertThat(status.getLookups()).isEqualTo(3);
+        assertThat(status.getHits()).isEqualTo(2);
+        assertThat(status.getHitRatio()).isEqualTo(2.0 / 3);
+        assertThat(status.getSearches().get(0).getHits()).isEqualTo(2);
+    }
+
+    @Test
+    void warmSearchesStayWarmOnLookupsAlone_onceTheirPersistedSearchesAgeOut() {
+        when(searchService.refreshCachedSearch(any())).thenReturn(response("OK"));
+        warmer.warm();
+        for (int i = 0; i < 5; i++) {
+            warmer.recordLookup(request("JFK", "LAX"), true);
+        }
+        warmer.recordLookup(request("BOS", "MIA"), false);
+        when(repository.findHotSearches(any(), any(), any())).thenReturn(List.of());
+
+        warmer.warm();
+
+        CacheWarmingStatusDTO status = warmer.status();
+        assertThat(status.getSearches())
+                .extracting(CacheWarmingStatusDTO.WarmSearch::getOrigin)
+                .containsExactly("JFK");
+        assertThat(status.getSearches().get(0).getSearchCount()).isEqualTo(5);
+    }
+
+    @Test
+    void pauseBetweenRefreshes_schedulesTheRestOfTheRunInsteadOfSleeping() {
+        when(searchService.refreshCachedSearch(any())).thenReturn(response("OK"));
+        ReflectionTestUtils.setField(warmer, "pauseMs", 1000L);
+
+        assertThat(warmer.warm()).isEqualTo(1);
+
+        ArgumentCaptor<Runnable> rest = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(rest.capture(), any(Instant.class));
+        verify(searchService, times(1)).refreshCachedSearch(any());
+        rest.getValue().run();
+        verify(searchService, times(2)).refreshCachedSearch(any());
+        assertThat(warmer.status().getSearches()).allMatch(s -> s.getLastRefreshedAt() != null);
+    }
+
+    private Object[] row(String origin, String destination, long count) {
+        return new Object[] {
+            TripType.ONE_WAY,
+            origin,
+            destination,
+            departure,
+            departure.plusDays(2),
+            null,
+            null,
+            1,
+            new BigDecimal("800.00"),
+            count
+        };
+    }
+
+    private TripSearchRequestDTO request(String origin, String destination) {
+        return TripSearchRequestDTO.builder()
+                .origin(origin)
+                .destination(destination)
+                .earliestDepartureDate(departure)
+                .latestDepartureDate(departure.plusDays(2))
+                .numTravelers(1)
+                .maxBudget(new BigDecimal("800"))
+                .build();
+    }
+
+    private static TripSearchResponseDTO response(String providerStatus) {
+        return TripSearchResponseDTO.builder().flightProviderStatus(providerStatus).build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.adriangarciao.traveloptimizer.dto.FlightSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripRecommendationsDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import com.adriangarciao.traveloptimizer.service.MlEnrichmentService;
+import com.adriangarciao.traveloptimizer.service.SearchStats;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {"ml.client=local", "ml.enabled=true"})
+class MlEnrichmentServiceImplTest {
+
+    private static final LocalDate DEPARTURE = LocalDate.now().plusDays(30);
+
+    @Autowired private MlEnrichmentService enrichmentService;
+    @Autowired private TripSearchRepository tripSearchRepository;
+
+    @Test
+    void backgroundEnrichmentStoresRecommendationsAndBumpsVersion() throws Exception {
+        TripSearch search = tripSearchRepository.save(searchWithOneOption());
+        TripOption saved = search.getOptions().get(0);
+
+        MlEnrichmentService.State before = enrichmentService.getState(search.getId());
+        assertThat(before.version()).isZero();
+        assertThat(before.status()).isNull();
+
+        enrich(search, saved);
+
+        TripRecommendationsDTO recs = enrichmentService.getRecommendations(search.getId());
+        assertThat(recs.getStatus()).isEqualTo(MlEnrichmentService.READY);
+        assertThat(recs.getVersion()).isEqualTo(1L);
+        assertThat(recs.getRecommendations()).hasSize(1);
+        TripRecommendationsDTO.OptionRecommendation rec = recs.getRecommendations().get(0);
+        assertThat(rec.getTripOptionId()).isEqualTo(saved.getId());
+        assertThat(rec.getMlRecommendation().getAction()).isIn("BUY", "WAIT");
+        assertThat(rec.getBuyWait().getDecision()).isEqualTo(rec.getMlRecommendation().getAction());
+        assertThat(enrichmentService.getState(search.getId()).etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void repeatOfAReadySearchKeepsItsVersion() throws Exception {
+        TripSearch search = tripSearchRepository.save(searchWithOneOption());
+        TripOption saved = search.getOptions().get(0);
+        enrich(search, saved);
+        String etag = enrichmentService.getState(search.getId()).etag();
+
+        // A cached repeat hands over copies of the same options, without their recommendations
+        enrich(search, saved);
+
+        assertThat(enrichmentService.getState(search.getId()).etag()).isEqualTo(etag);
+    }
+
+    @Test
+    void searchLeftPendingIsEnrichedAgainOnceStale() throws Exception {
+        TripSearch search = searchWithOneOption();
+        search.setMlStatus(MlEnrichmentService.PENDING);
+        search.setMlPendingSince(Instant.now().minus(Duration.ofHours(1)));
+        search = tripSearchRepository.save(search);
+
+        enrich(search, search.getOptions().get(0));
+
+        MlEnrichmentService.State state = enrichmentService.getState(search.getId());
+        assertThat(state.status()).isEqualTo(MlEnrichmentService.READY);
+        assertThat(state.version()).isEqualTo(1L);
+    }
+
+    @Test
+    void recentlyPendingSearchIsLeftToItsRun() throws Exception {
+        TripSearch search = searchWithOneOption();
+        search.setMlStatus(MlEnrichmentService.PENDING);
+        search.setMlPendingSince(Instant.now());
+        search = tripSearchRepository.save(search);
+
+        enrich(search, search.getOptions().get(0));
+
+        MlEnrichmentService.State state = enrichmentService.getState(search.getId());
+        assertThat(state.status()).isEqualTo(MlEnrichmentService.PENDING);
+        assertThat(state.version()).isZero();
+    }
+
+    @Test
+    void concurrentRepeatsStartOneRun() throws Exception {
+        TripSearch search = tripSearchRepository.save(searchWithOneOption());
+        TripOption saved = search.getOptions().get(0);
+
+        CompletableFuture<Void> first = start(search, saved);
+        CompletableFuture<Void> second = start(search, saved);
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+
+        MlEnrichmentService.State state = enrichmentService.getState(search.getId());
+        assertThat(state.status()).isEqualTo(MlEnrichmentService.READY);
+        assertThat(state.version()).isEqualTo(1L);
+    }
+
+    private static TripSearch searchWithOneOption() {
+        TripSearch search =
+                TripSearch.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .earliestDepartureDate(DEPARTURE)
+                        .latestDepartureDate(DEPARTURE.plusDays(2))
+                        .numTravelers(1)
+                        .build();
+        TripOption option =
+                TripOption.builder()
+                        .totalPrice(BigDecimal.valueOf(250))
+                        .currency("USD")
+                        .tripSearch(search)
+                        .build();
+        search.setOptions(List.of(option));
+        return search;
+    }
+
+    /** Run background enrichment for one stored option and wait for it to finish. */
+    private void enrich(TripSearch search, TripOption option) throws Exception {
+        start(search, option).get(10, TimeUnit.SECONDS);
+    }
+
+    /** Start background enrichment for one stored option. */
+    private CompletableFuture<Void> start(TripSearch search, TripOption option) {
+        TripOptionSummaryDTO dto =
+                TripOptionSummaryDTO.builder()
+                        .tripOptionId(option.getId())
+                        .totalPrice(option.getTotalPrice())
+                        .currency("USD")
+                        .flight(
+                                FlightSummaryDTO.builder()
+                                        .stops(0)
+                                        .duration(Duration.ofHours(4))
+                                        .build())
+                        .build();
+        TripSearchRequestDTO request =
+                TripSearchRequestDTO.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .earliestDepartureDate(DEPARTURE)
+                        .latestDepartureDate(DEPARTURE.plusDays(2))
+                        .numTravelers(1)
+                        .build();
+        return enrichmentService.enrichInBackground(
+                search.getId(), List.of(dto), request, SearchStats.ofSummaries(List.of(dto)));
+    }
+}
@@ -0,0 +1,234 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.adriangarciao.traveloptimizer.repository.PriceObservationRepository;
+import com.adriangarciao.traveloptimizer.service.PriceHistoryService;
+import com.adriangarciao.traveloptimizer.service.PriceRollupService;
+import com.adriangarciao.traveloptimizer.service.RouteTrendModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class PriceHistoryServiceImplTest {
+
+    private PriceObservationRepository repository;
+    private SimpleMeterRegistry meterRegistry;
+    private PriceHistoryServiceImpl service;
+    private final LocalDate departure = LocalDate.now().plusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PriceObservationRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new PriceHistoryServiceImpl(repository, null, null, meterRegistry, 300, 100, 14);
+        // Too sparse on the exact date to warm the online model, so lookups stay on the cold path
+        when(repository.findRecentByRoute(eq("ORD"), eq("LAX"), eq(departure), any()))
+                .thenReturn(observations(600, 500));
+        when(repository.findRecentByRouteAndDateRange(eq("ORD"), eq("LAX"), any(), any(), any()))
+                .thenReturn(observations(600, 600, 500, 500));
+    }
+
+    @Test
+    void repeatedTrendLookupsHitTheCache() {
+        PriceHistoryService.TrendResult first = service.computeTrend("ORD", "LAX", departure);
+        PriceHistoryService.TrendResult second = service.computeTrend("ORD", "LAX", departure);
+
+        assertEquals("RISING", first.trend());
+        assertSame(first, second);
+        verify(repository, times(1)).findRecentByRoute(eq("ORD"), eq("LAX"), eq(departure), any());
+        assertEquals(
+                0.5,
+                meterRegistry
+                        .get("traveloptimizer.price_history.trend_cache.hit_ratio")
+                        .gauge()
+                        .value(),
+                1e-9);
+    }
+
+    @Test
+    void recordingAnObservationInvalidatesNearbyDates() {
+        service.computeTrend("ORD", "LAX", departure);
+        service.recordObservation("ORD", "LAX", departure.minusDays(2), 550.0);
+        service.computeTrend("ORD", "LAX", departure);
+
+        verify(repository, times(2)).findRecentByRoute(eq("ORD"), eq("LAX"), eq(departure), any());
+    }
+
+    @Test
+    void failedLookupsAreNotCached() {
+        when(repository.findRecentByRoute(eq("SFO"), eq("JFK"), eq(departure), any()))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(observations(500, 500, 500, 500));
+
+        assertEquals("UNKNOWN", service.computeTrend("SFO", "JFK", departure).trend());
+        assertEquals("STABLE", service.computeTrend("SFO", "JFK", departure).trend());
+    }
+
+    @Test
+    void warmRouteIsAnsweredByOnlineModelWithoutRepository() {
+        for (double p : new double[] {500, 505, 495, 500, 502}) {
+            service.recordObservation("SFO", "JFK", departure, p);
+        }
+
+        PriceHistoryService.TrendResult result = service.computeTrend("SFO", "JFK", departure);
+
+        assertEquals("STABLE", result.trend());
+        assertEquals(5, result.observationCount());
+        assertNotNull(result.confidence());
+        verify(repository, never()).findRecentByRoute(eq("SFO"), eq("JFK"), any(), any());
+    }
+
+    @Test
+    void synchronousObservationIsWrittenInItsOwnTransaction_andOnlyCommittedOnesFeedTheModel() {
+        PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service =
+                new PriceHistoryServiceImpl(
+                        repository, null, null, transactions, meterRegistry, 300, 100, 14);
+        for (double p : new double[] {500, 505, 495, 500}) {
+            service.recordObservation("SFO", "JFK", departure, p);
+        }
+        when(repository.save(any())).thenThrow(new IllegalStateException("db down"));
+        service.recordObservation("SFO", "JFK", departure, 900);
+
+        ArgumentCaptor<TransactionDefinition> definition =
+                ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactions, times(5)).getTransaction(definition.capture());
+        assertEquals(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW,
+                definition.getValue().getPropagationBehavior());
+        verify(transactions, times(1)).rollback(any());
+        assertEquals(4, service.computeTrend("SFO", "JFK", departure).observationCount());
+    }
+
+    @Test
+    void coldRouteIsSeededFromRawObservations() {
+        when(repository.findRecentByRoute(eq("SFO"), eq("JFK"), eq(departure), any()))
+                .thenReturn(observations(560, 540, 520, 500));
+
+        service.computeTrend("SFO", "JFK", departure);
+        // The seeded model answers from here on, even after the cached entry is dropped
+        service.recordObservation("SFO", "JFK", departure.plusDays(1), 600);
+        PriceHistoryService.TrendResult result = service.computeTrend("SFO", "JFK", departure);
+
+        assertEquals("RISING", result.trend());
+        assertNotNull(result.slopePerDay());
+        verify(repository, times(1)).findRecentByRoute(eq("SFO"), eq("JFK"), eq(departure), any());
+    }
+
+    @Test
+    void modelEstimateIsClassifiedOverAWeek() {
+        PriceHistoryService.TrendResult rising =
+                service.trendFromEstimate(
+                        new RouteTrendModel.Estimate(500, 3.0, 25.0, 10, Instant.now()));
+        PriceHistoryService.TrendResult falling =
+                service.trendFromEstimate(
+                        new RouteTrendModel.Estimate(500, -3.0, 25.0, 10, Instant.now()));
+        PriceHistoryService.TrendResult stable =
+                service.trendFromEstimate(
+                        new RouteTrendModel.Estimate(500, 0.5, 25.0, 10, Instant.now()));
+
+        assertEquals("RISING", rising.trend());
+        assertEquals("FALLING", falling.trend());
+        assertEquals("STABLE", stable.trend());
+        assertEquals(479.0, rising.avgOlderPrice(), 1e-9);
+        assertTrue(rising.confidence() > 0.5);
+    }
+
+    @Test
+    void trendIsComputedFromDailyRollupsWhenAvailable() {
+        PriceRollupService rollups = mock(PriceRollupService.class);
+        PriceHistoryServiceImpl withRollups =
+                new PriceHistoryServiceImpl(repository, rollups, null, meterRegistry, 300, 100, 14);
+        LocalDate today = LocalDate.now();
+        when(rollups.findRecent(eq("ORD"), eq("LAX"), eq(departure), any()))
+                .thenReturn(
+                        List.of(
+                                rollup(today, 3, 1800),
+                                rollup(today.minusDays(1), 1, 500),
+                                rollup(today.minusDays(2), 2, 1000)));
+
+        PriceHistoryService.TrendResult result = withRollups.computeTrend("ORD", "LAX", departure);
+
+        assertEquals("RISING", result.trend());
+        assertEquals(6, result.observationCount());
+        assertEquals(600.0, result.avgRecentPrice(), 1e-9);
+        assertEquals(500.0, result.avgOlderPrice(), 1e-9);
+        verify(repository, never()).findRecentByRoute(any(), any(), any(), any());
+    }
+
+    @Test
+    void rollupsAreReadForTheConfiguredLookback() {
+        PriceRollupService rollups = mock(PriceRollupService.class);
+        PriceHistoryServiceImpl longWindow =
+                new PriceHistoryServiceImpl(repository, rollups, null, meterRegistry, 300, 100, 60);
+
+        longWindow.computeTrend("ORD", "LAX", departure);
+
+        verify(rollups)
+                .findRecent(
+                        eq("ORD"),
+                        eq("LAX"),
+                        eq(departure),
+                        eq(LocalDate.now(ZoneOffset.UTC).minusDays(60)));
+    }
+
+    @Test
+    void singleRollupDayFallsBackToRawObservations() {
+        PriceRollupService rollups = mock(PriceRollupService.class);
+        PriceHistoryServiceImpl withRollups =
+                new PriceHistoryServiceImpl(repository, rollups, null, meterRegistry, 300, 100, 14);
+        when(rollups.findRecent(eq("ORD"), eq("LAX"), eq(departure), any()))
+                .thenReturn(List.of(rollup(LocalDate.now(), 4, 2200)));
+
+        assertEquals("RISING", withRollups.computeTrend("ORD", "LAX", departure).trend());
+        verify(repository).findRecentByRoute(eq("ORD"), eq("LAX"), eq(departure), any());
+    }
+
+    private PriceDailyRollup rollup(LocalDate day, long count, double sum) {
+        return PriceDailyRollup.builder()
+                .origin("ORD")
+                .destination("LAX")
+                .departureDate(departure)
+                .observationDay(day)
+                .observationCount(count)
+                .sumPrice(BigDecimal.valueOf(sum))
+                .build();
+    }
+
+    /**
+     * Build observations ordered most recent first, as the repository returns them, one day apart.
+     */
+    private List<PriceObservation> observations(double... prices) {
+        List<PriceObservation> list = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < prices.length; i++) {
+            list.add(
+                    PriceObservation.builder()
+                            .origin("ORD")
+                            .destination("LAX")
+                            .departureDate(departure)
+                            .observedPrice(BigDecimal.valueOf(prices[i]))
+                            .createdAt(now.minus(Duration.ofDays(i)))
+                            .build());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,160 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.adriangarciao.traveloptimizer.model.PriceDailyRollup;
+import com.adriangarciao.traveloptimizer.model.PriceObservation;
+import com.adriangarciao.traveloptimizer.repository.PriceDailyRollupRepository;
+import com.adriangarciao.traveloptimizer.repository.PriceObservationRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class PriceRollupServiceImplTest {
+
+    private PriceDailyRollupRepository rollupRepository;
+    private PriceObservationRepository observationRepository;
+    private PriceRollupServiceImpl service;
+    private final LocalDate departure = LocalDate.now().plusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository = mock(PriceDailyRollupRepository.class);
+        observationRepository = mock(PriceObservationRepository.class);
+        service = new PriceRollupServiceImpl(rollupRepository, observationRepository);
+    }
+
+    @Test
+    void foldKeepsExactCountsAndBoundedMedian() {
+        PriceDailyRollup rollup = open(500);
+
+        PriceRollupServiceImpl.fold(rollup, new BigDecimal("700.00"));
+        PriceRollupServiceImpl.fold(rollup, new BigDecimal("400.00"));
+
+        assertEquals(3, rollup.getObservationCount());
+        assertEquals(0, new BigDecimal("1600.00").compareTo(rollup.getSumPrice()));
+        assertEquals(0, new BigDecimal("400.00").compareTo(rollup.getMinPrice()));
+        assertEquals(0, new BigDecimal("700.00").compareTo(rollup.getMaxPrice()));
+        assertTrue(rollup.getMedianPrice().compareTo(rollup.getMinPrice()) >= 0);
+        assertTrue(rollup.getMedianPrice().compareTo(rollup.getMaxPrice()) <= 0);
+    }
+
+    @Test
+    void firstObservationOfTheDayCreatesRollup() {
+        PriceDailyRollup inserted = empty(450);
+        when(rollupRepository.findForUpdate(any(), any(), any(), any()))
+                .thenReturn(Optional.empty(), Optional.of(inserted));
+
+        service.recordObservation("ORD", "LAX", departure, new BigDecimal("450.00"), Instant.now());
+
+        verify(rollupRepository)
+                .insertIfAbsent(
+                        any(),
+                        eq("ORD"),
+                        eq("LAX"),
+                        eq(departure),
+                        eq(LocalDate.now(ZoneOffset.UTC)),
+                        eq(new BigDecimal("450.00")),
+                        any());
+        ArgumentCaptor<PriceDailyRollup> saved = ArgumentCaptor.forClass(PriceDailyRollup.class);
+        verify(rollupRepository).save(saved.capture());
+        assertEquals(1, saved.getValue().getObservationCount());
+        assertEquals(0, new BigDecimal("450.00").compareTo(saved.getValue().getSumPrice()));
+        assertEquals(0, new BigDecimal("450.00").compareTo(saved.getValue().getMedianPrice()));
+    }
+
+    @Test
+    void rowCreatedConcurrentlyIsFoldedIntoInsteadOfFailing() {
+        // Another node inserted the day's row between the lookup and the insert
+        PriceDailyRollup concurrent = open(500);
+        when(rollupRepository.findForUpdate(any(), any(), any(), any()))
+                .thenReturn(Optional.empty(), Optional.of(concurrent));
+        when(rollupRepository.insertIfAbsent(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(0);
+
+        service.recordObservations(
+                List.of(observation(700, Instant.now()), observation(300, Instant.now())));
+
+        assertEquals(3, concurrent.getObservationCount());
+        assertEquals(0, new BigDecimal("1500.00").compareTo(concurrent.getSumPrice()));
+        verify(rollupRepository).save(concurrent);
+    }
+
+    @Test
+    void compactionRebuildsExactMedianAndDeletesRawRows() {
+        LocalDate oldDay = LocalDate.now(ZoneOffset.UTC).minusDays(30);
+        Instant oldInstant = oldDay.atStartOfDay(ZoneOffset.UTC).toInstant().plusSeconds(3600);
+        PriceDailyRollup existing = open(500);
+        existing.setObservationDay(oldDay);
+
+        when(observationRepository.findOldestCreatedAt()).thenReturn(oldInstant, (Instant) null);
+        when(observationRepository.findCreatedBetween(any(), any()))
+                .thenReturn(
+                        List.of(
+                                observation(500, oldInstant),
+                                observation(700, oldInstant),
+                                observation(400, oldInstant),
+                                observation(900, oldInstant)));
+        when(rollupRepository.findForUpdate(eq("ORD"), eq("LAX"), eq(departure), eq(oldDay)))
+                .thenReturn(Optional.of(existing));
+        when(observationRepository.deleteCreatedBetween(any(), any())).thenReturn(4);
+
+        assertEquals(1, service.compactRawObservations());
+
+        assertTrue(existing.isCompacted());
+        assertEquals(4, existing.getObservationCount());
+        assertEquals(0, new BigDecimal("600.00").compareTo(existing.getMedianPrice()));
+        assertEquals(0, new BigDecimal("2500").compareTo(existing.getSumPrice()));
+        verify(observationRepository).deleteCreatedBetween(any(), any());
+    }
+
+    @Test
+    void compactionLeavesRecentDaysAlone() {
+        when(observationRepository.findOldestCreatedAt()).thenReturn(Instant.now());
+
+        assertEquals(0, service.compactRawObservations());
+        verify(observationRepository, never()).deleteCreatedBetween(any(), any());
+    }
+
+    private PriceDailyRollup open(double price) {
+        BigDecimal p = BigDecimal.valueOf(price).setScale(2);
+        return PriceDailyRollup.builder()
+                .origin("ORD")
+                .destination("LAX")
+                .departureDate(departure)
+                .observationDay(LocalDate.now(ZoneOffset.UTC))
+                .observationCount(1)
+                .minPrice(p)
+                .medianPrice(p)
+                .maxPrice(p)
+                .sumPrice(p)
+                .build();
+    }
+
+    /** A row as inserted by {@code insertIfAbsent}: no observations yet, bounds at the seed. */
+    private PriceDailyRollup empty(double seed) {
+        PriceDailyRollup rollup = open(seed);
+        rollup.setObservationCount(0);
+        rollup.setSumPrice(BigDecimal.ZERO);
+        return rollup;
+    }
+
+    private PriceObservation observation(double price, Instant createdAt) {
+        return PriceObservation.builder()
+                .origin("ORD")
+                .destination("LAX")
+                .departureDate(departure)
+                .observedPrice(BigDecimal.valueOf(price))
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.adriangarciao.traveloptimizer.model.RoutePriceSketch;
+import com.adriangarciao.traveloptimizer.repository.RoutePriceSketchRepository;
+import com.adriangarciao.traveloptimizer.service.PriceQuantileSketch;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RoutePriceDistributionServiceImplTest {
+
+    private final RoutePriceSketchRepository repository = mock(RoutePriceSketchRepository.class);
+
+    /** The shared route_price_sketch row of ORD-LAX. */
+    private final AtomicReference<RoutePriceSketch> row = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findForUpdate("ORD", "LAX"))
+                .thenAnswer(invocation -> Optional.ofNullable(row.get()));
+        when(repository.save(any()))
+                .thenAnswer(
+                        invocation -> {
+                            RoutePriceSketch saved = invocation.getArgument(0);
+                            saved.setUpdatedAt(Instant.now());
+                            row.set(saved);
+                            return saved;
+                        });
+    }
+
+    @Test
+    void snapshotsOfSeveralNodesAddUpInsteadOfOverwritingEachOther() {
+        RoutePriceDistributionServiceImpl first = node();
+        RoutePriceDistributionServiceImpl second = node();
+        for (int i = 0; i < 10; i++) {
+            first.record("ORD", "LAX", 200);
+            second.record("ORD", "LAX", 400);
+        }
+
+        assertEquals(1, first.snapshot());
+        assertEquals(1, second.snapshot());
+
+        PriceQuantileSketch stored = PriceQuantileSketch.fromBytes(row.get().getSketch());
+        assertEquals(20, stored.count());
+        assertEquals(20, row.get().getObservationCount());
+        // The second node now sees the first node's prices too
+        assertEquals(0.5, second.distribution("ORD", "LAX").orElseThrow().cdf(300), 0.01);
+        assertEquals(0, second.snapshot());
+    }
+
+    @Test
+    void storedPricesFadeWithTheirAge() {
+        PriceQuantileSketch old = new PriceQuantileSketch(100);
+        for (int i = 0; i < 40; i++) {
+            old.add(100);
+        }
+        row.set(
+                RoutePriceSketch.builder()
+                        .origin("ORD")
+                        .destination("LAX")
+                        .observationCount(40)
+                        .sketch(old.toBytes())
+                        .updatedAt(Instant.now().minus(Duration.ofDays(60)))
+                        .build());
+        RoutePriceDistributionServiceImpl node = node();
+        for (int i = 0; i < 10; i++) {
+            node.record("ORD", "LAX", 500);
+        }
+
+        node.snapshot();
+
+        // Two half-lives leave a quarter of the old weight: 10 old prices against 10 new ones
+        assertEquals(20, row.get().getObservationCount());
+        assertEquals(0.5, node.distribution("ORD", "LAX").orElseThrow().cdf(300), 0.01);
+    }
+
+    private RoutePriceDistributionServiceImpl node() {
+        return new RoutePriceDistributionServiceImpl(repository, null, null, null, 100, 10, 30);
+    }
+}
@@ -0,0 +1,236 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.adriangarciao.traveloptimizer.cache.SearchResponseBodyCache;
+import com.adriangarciao.traveloptimizer.cache.TwoTierCacheManager;
+import com.adriangarciao.traveloptimizer.config.SearchKeyGenerator;
+import com.adriangarciao.traveloptimizer.dto.PreferencesDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchRequestDTO;
+import com.adriangarciao.traveloptimizer.dto.TripSearchResponseDTO;
+import com.adriangarciao.traveloptimizer.mapper.TripOptionMapper;
+import com.adriangarciao.traveloptimizer.mapper.TripSearchMapper;
+import com.adriangarciao.traveloptimizer.model.FlightOption;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import com.adriangarciao.traveloptimizer.repository.TripOptionRepository;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/** The search cache holds the full result set; sort and limit are applied per call. */
+class TripSearchCacheTest {
+
+    private final LocalDate departure = LocalDate.now().plusDays(20);
+
+    private final TripSearchRepository searches = mock(TripSearchRepository.class);
+    private final TwoTierCacheManager cacheManager =
+            new TwoTierCacheManager(null, Map.of(), null, null);
+
+    @Test
+    void differentSortAndLimitShareOneCachedSearch() {
+        TripSearchServiceImpl service =
+                service(List.of(option(300, 0.5), option(200, 0.9), option(400, 0.7)));
+
+        TripSearchResponseDTO byValue =
+                service.searchTrips(request("ord", "lax", "500.00"), 2, null, null);
+        TripSearchResponseDTO byPrice =
+                service.searchTrips(request(" ORD", "LAX ", "500"), 3, "totalPrice", "asc");
+
+        assertThat(byValue.getOptions())
+                .extracting(TripOptionSummaryDTO::getValueScore)
+                .containsExactly(0.9, 0.7);
+        assertThat(byPrice.getOptions())
+                .extracting(o -> o.getTotalPrice().intValue())
+                .containsExactly(200, 300, 400);
+        assertThat(byPrice.getSearchId()).isEqualTo(byValue.getSearchId());
+        // One provider/persist round trip for both calls
+        verify(searches, times(1)).save(any());
+    }
+
+    @Test
+    void resultsSortOnTheOptionPageKeys() {
+        TripSearchServiceImpl service =
+                service(
+                        List.of(
+                                option(300, 0.5, Duration.ofHours(5)),
+                                option(200, 0.9, null),
+                                option(400, 0.7, Duration.ofHours(3))));
+
+        assertThat(
+                        service.searchTrips(request("ORD", "LAX", "500"), 3, "duration", "asc")
+                                .getOptions())
+                .extracting(o -> o.getTotalPrice().intValue())
+                .containsExactly(400, 300, 200);
+    }
+
+    @Test
+    void unknownSortIsRejectedBeforeSearching() {
+        TripSearchServiceImpl service = service(List.of(option(300, 0.5)));
+
+        assertThatThrownBy(
+                        () ->
+                                service.searchTrips(
+                                        request("ORD", "LAX", "500"), 3, "currency", "asc"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(searches, never()).save(any());
+    }
+
+    @Test
+    void searchIsCachedOnlyOnceItsTransactionCommits() {
+        TripSearchServiceImpl service = service(List.of(option(300, 0.5)));
+        TripSearchRequestDTO request = request("ORD", "LAX", "500");
+        org.springframework.cache.Cache cache = cacheManager.getCache("tripSearchCache");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.searchTrips(request, 3, null, null);
+            assertThat(cache.get(SearchKeyGenerator.canonicalKey(request))).isNull();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            assertThat(cache.get(SearchKeyGenerator.canonicalKey(request))).isNotNull();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void refreshReplacesTheCachedSearchAndDropsItsRenderedBodies() {
+        TripSearchServiceImpl service = service(List.of(option(300, 0.5)));
+        SearchResponseBodyCache bodies = mock(SearchResponseBodyCache.class);
+        ReflectionTestUtils.setField(service, "responseBodyCache", bodies);
+        TripSearchRequestDTO request = request("ORD", "LAX", "500");
+
+        service.refreshCachedSearch(request);
+
+        assertThat(
+                        cacheManager
+                                .getCache("tripSearchCache")
+                                .get(SearchKeyGenerator.canonicalKey(request)))
+                .isNotNull();
+        verify(bodies).evictSearch(request);
+    }
+
+    @Test
+    void refreshDeletesWarmedSearchesOlderThanTheOneItReplaces() {
+        TripSearchServiceImpl service = service(List.of(option(300, 0.5)));
+        TripSearchRequestDTO request = request("ORD", "LAX", "500");
+        String key = SearchKeyGenerator.canonicalKey(request);
+        UUID fresh = UUID.randomUUID();
+        UUID replaced = UUID.randomUUID();
+        UUID older = UUID.randomUUID();
+        UUID oldest = UUID.randomUUID();
+        when(searches.findIdsByWarmKey(key)).thenReturn(List.of(fresh, replaced, older, oldest));
+
+        service.refreshCachedSearch(request);
+
+        verify(searches).deleteAllById(List.of(older, oldest));
+        verify(searches, never()).deleteById(any());
+    }
+
+    /** A service whose search persists as one stored search holding {@code stored}. */
+    private TripSearchServiceImpl service(List<TripOption> stored) {
+        UUID searchId = UUID.randomUUID();
+        TripOptionRepository options = mock(TripOptionRepository.class);
+        TripSearchMapper searchMapper = mock(TripSearchMapper.class);
+        TripOptionMapper optionMapper = new TripOptionMapper();
+        TripSearch saved =
+                TripSearch.builder().id(searchId).origin("ORD").destination("LAX").build();
+        when(searchMapper.toEntity(any())).thenReturn(saved);
+        when(searches.save(any())).thenReturn(saved);
+        when(searchMapper.toDto(saved))
+                .thenReturn(
+                        TripSearchResponseDTO.builder()
+                                .searchId(searchId)
+                                .origin("ORD")
+                                .destination("LAX")
+                                .build());
+        when(options.findAllByTripSearchId(searchId)).thenReturn(stored);
+
+        TripSearchServiceImpl service =
+                new TripSearchServiceImpl(
+                        searches,
+                        options,
+                        searchMapper,
+                        optionMapper,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        Runnable::run,
+                        null,
+                        null,
+                        new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "cacheManager", cacheManager);
+        return service;
+    }
+
+    @Test
+    void canonicalKeyIgnoresCaseWhitespaceAndAirlineOrder() {
+        TripSearchRequestDTO a = request("sfo", "jfk", "1000.0");
+        a.setPreferences(
+                PreferencesDTO.builder().preferredAirlines(List.of("ua", "AA", "UA")).build());
+        TripSearchRequestDTO b = request(" SFO ", "JFK", "1000");
+        b.setPreferences(PreferencesDTO.builder().preferredAirlines(List.of("AA", "UA")).build());
+        assertThat(SearchKeyGenerator.canonicalKey(a))
+                .isEqualTo(SearchKeyGenerator.canonicalKey(b));
+
+        // Absent preferences equal default ones
+        TripSearchRequestDTO c = request("SFO", "JFK", "1000");
+        TripSearchRequestDTO d = request("SFO", "JFK", "1000");
+        d.setPreferences(new PreferencesDTO());
+        assertThat(SearchKeyGenerator.canonicalKey(c))
+                .isEqualTo(SearchKeyGenerator.canonicalKey(d));
+
+        TripSearchRequestDTO other = request("SFO", "JFK", "1000");
+        other.setNumTravelers(2);
+        assertThat(SearchKeyGenerator.canonicalKey(other))
+                .isNotEqualTo(SearchKeyGenerator.canonicalKey(c));
+    }
+
+    private TripSearchRequestDTO request(String origin, String destination, String budget) {
+        return TripSearchRequestDTO.builder()
+                .origin(origin)
+                .destination(destination)
+                .earliestDepartureDate(departure)
+                .latestDepartureDate(departure.plusDays(2))
+                .maxBudget(new BigDecimal(budget))
+                .numTravelers(1)
+                .build();
+    }
+
+    private static TripOption option(int price, double valueScore) {
+        return option(price, valueScore, null);
+    }
+
+    private static TripOption option(int price, double valueScore, Duration flightDuration) {
+        return TripOption.builder()
+                .id(UUID.randomUUID())
+                .totalPrice(BigDecimal.valueOf(price))
+                .currency("USD")
+                .valueScore(valueScore)
+                .flightOption(
+                        flightDuration != null
+                                ? FlightOption.builder().duration(flightDuration).build()
+                                : null)
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package com.adriangarciao.traveloptimizer.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.adriangarciao.traveloptimizer.dto.FlagCode;
+import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
+import com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO;
+import com.adriangarciao.traveloptimizer.model.TripOption;
+import com.adriangarciao.traveloptimizer.model.TripSearch;
+import com.adriangarciao.traveloptimizer.repository.TripSearchPersistenceTest;
+import com.adriangarciao.traveloptimizer.repository.TripSearchRepository;
+import com.adriangarciao.traveloptimizer.service.TripSearchService;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class TripSearchKeysetPaginationTest {
+
+    private static final int OPTIONS = 100;
+    private static final int SIZE = 30;
+
+    @Autowired private TripSearchService tripSearchService;
+    @Autowired private TripSearchRepository tripSearchRepository;
+    @Autowired private EntityManager entityManager;
+
+    private UUID searchId;
+
+    @BeforeEach
+    void persistSearch() {
+        TripSearch search = TripSearchPersistenceTest.searchGraph(OPTIONS);
+        // Nothing more to fetch from the provider; pages come from stored options only
+        search.setFlightExhausted(true);
+        List<TripOption> options = search.getOptions();
+        for (int i = 0; i < options.size(); i++) {
+            // Few distinct keys, so most page boundaries fall inside a run of equal values, and
+            // some options without a duration
+            TripOption option = options.get(i);
+            option.setTotalPrice(BigDecimal.valueOf(1000 + (i % 7) * 10));
+            option.setValueScore((i % 3) / 3.0);
+            option.getFlightOption()
+                    .setDuration(i % 5 == 0 ? null : Duration.ofMinutes(300 + (i % 4) * 30));
+        }
+        searchId = tripSearchRepository.save(search).getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /** Every option of the search, following cursors from the first numbered page. */
+    private List<TripOptionSummaryDTO> walk(String sortBy, String sortDir, Set<FlagCode> excluded) {
+        List<TripOptionSummaryDTO> seen = new ArrayList<>();
+        TripOptionsPageDTO page =
+                tripSearchService.getOptions(
+                        searchId, 0, SIZE, sortBy, sortDir, Set.of(), excluded);
+        seen.addAll(page.getOptions());
+        while (page.getNextCursor() != null) {
+            page =
+                    tripSearchService.getOptionsAfter(
+                            searchId, page.getNextCursor(), SIZE, Set.of(), excluded);
+            assertThat(page.getPage()).isEqualTo(seen.size() / SIZE);
+            assertThat(page.getTotalOptions()).isEqualTo(OPTIONS);
+            seen.addAll(page.getOptions());
+        }
+        assertThat(page.isHasMore()).isFalse();
+        return seen;
+    }
+
+    private static List<UUID> ids(List<TripOptionSummaryDTO> options) {
+        return options.stream().map(TripOptionSummaryDTO::getTripOptionId).toList();
+    }
+
+    @Test
+    void cursorPagesMatchNumberedPages() {
+        List<TripOptionSummaryDTO> byCursor = walk("totalPrice", "asc", Set.of());
+
+        List<TripOptionSummaryDTO> byNumber = new ArrayList<>();
+        for (int page = 0; page * SIZE < OPTIONS; page++) {
+            byNumber.addAll(
+                    tripSearchService
+                            .getOptions(searchId, page, SIZE, "totalPrice", "asc")
+                            .getOptions());
+        }
+
+        assertThat(byCursor).hasSize(OPTIONS);
+        assertThat(ids(byCursor)).doesNotHaveDuplicates().isEqualTo(ids(byNumber));
+        assertThat(byCursor)
+                .isSortedAccordingTo(Comparator.comparing(TripOptionSummaryDTO::getTotalPrice));
+    }
+
+    @Test
+    void everySortKeyVisitsEachOptionOnce() {
+        List<TripOptionSummaryDTO> byScore = walk("valueScore", "desc", Set.of());
+        List<TripOptionSummaryDTO> byDuration = walk("duration", "asc", Set.of());
+        List<TripOptionSummaryDTO> byDurationDesc = walk("duration", "desc", Set.of());
+
+        assertThat(ids(byScore)).hasSize(OPTIONS).doesNotHaveDuplicates();
+        assertThat(ids(byDuration)).hasSize(OPTIONS).doesNotHaveDuplicates();
+        assertThat(ids(byDurationDesc)).hasSize(OPTIONS).doesNotHaveDuplicates();
+        assertThat(byDuration)
+                .isSortedAccordingTo(
+                        Comparator.comparing(
+                                o -> o.getFlight().getDuration(),
+                                Comparator.nullsFirst(Comparator.naturalOrder())));
+    }
+
+    @Test
+    void pageEndingWithoutKeyHasNoCursor() {
+        // The first 20 options by duration have none, so this page ends on a missing key
+        TripOptionsPageDTO page = tripSearchService.getOptions(searchId, 0, 10, "duration", "asc");
+
+        assertThat(page.getOptions()).hasSize(10);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.isHasMore()).isTrue();
+    }
+
+    @Test
+    void flagFiltersApplyToCursorPages() {
+        List<TripOptionSummaryDTO> options = walk("totalPrice", "desc", Set.of(FlagCode.NONSTOP));
+
+        assertThat(ids(options)).hasSize(OPTIONS).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void cursorPageFetchesAssociationsWithTheSelect() {
+        String cursor =
+                tripSearchService
+                        .getOptions(searchId, 0, SIZE, "totalPrice", "asc")
+                        .getNextCursor();
+        entityManager.clear();
+        Statistics statistics =
+                entityManager
+                        .getEntityManagerFactory()
+                        .unwrap(SessionFactory.class)
+                        .getStatistics();
+        statistics.clear();
+
+        TripOptionsPageDTO page =
+                tripSearchService.getOptionsAfter(searchId, cursor, SIZE, Set.of(), Set.of());
+
+        assertThat(page.getOptions()).hasSize(SIZE);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void unsupportedSortHasNoCursor() {
+        assertThat(
+                        tripSearchService
+                                .getOptions(searchId, 0, SIZE, "currency", "asc")
+                                .getNextCursor())
+                .isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(
+                        () ->
+                                tripSearchService.getOptionsAfter(
+                                        searchId, "not-a-cursor", SIZE, Set.of(), Set.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import com.adriangarciao.traveloptimizer.dto.FlagCode;
 import com.adriangarciao.traveloptimizer.dto.TripOptionSummaryDTO;
 import com.adriangarciao.traveloptimizer.dto.TripOptionsPageDTO;
 import com.adriangarciao.traveloptimizer.mapper.TripOptionMapper;
@@ -23,6 +24,7 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -100,6 +102,7 @@ class TripSearchPaginationTest {
                 new PageImpl<>(existingOptions.subList(0, 5), PageRequest.of(0, 5), 5);
 
         when(tripSearchRepository.findById(searchId)).thenReturn(Optional.of(tripSearch));
+        when(tripOptionRepository.countByTripSearchId(searchId)).thenReturn(5L);
         when(tripOptionRepository.findByTripSearchId(eq(searchId), any(Pageable.class)))
                 .thenReturn(page);
         when(tripOptionMapper.toDto(any()))
@@ -128,18 +131,14 @@ class TripSearchPaginationTest {
         // Arrange: Only 5 existing options, requesting page 1 with size 5 (need 10 total)
         List<TripOption> existingOptions = createMockOptions(5);
 
-        // First call returns count check
-        Page<TripOption> countPage =
-                new PageImpl<>(existingOptions.subList(0, 1), PageRequest.of(0, 1), 5);
-        // Second call returns empty for page 1 initially, then results after fetch
-        Page<TripOption> emptyPage = new PageImpl<>(new ArrayList<>(), PageRequest.of(1, 5), 5);
         Page<TripOption> resultPage =
                 new PageImpl<>(existingOptions.subList(0, 5), PageRequest.of(1, 5), 10);
 
         when(tripSearchRepository.findById(searchId)).thenReturn(Optional.of(tripSearch));
+        when(tripOptionRepository.countByTripSearchId(searchId)).thenReturn(5L, 10L);
+        when(tripOptionRepository.findAllByTripSearchId(searchId)).thenReturn(existingOptions);
         when(tripOptionRepository.findByTripSearchId(eq(searchId), any(Pageable.class)))
-                .thenReturn(countPage) // count check
-                .thenReturn(resultPage); // result fetch
+                .thenReturn(resultPage);
 
         // Mock provider to return new offers
         List<FlightOffer> newOffers = createMockFlightOffers(5);
@@ -175,6 +174,7 @@ class TripSearchPaginationTest {
         Page<TripOption> page = new PageImpl<>(existingOptions, PageRequest.of(0, 5), 3);
 
         when(tripSearchRepository.findById(searchId)).thenReturn(Optional.of(tripSearch));
+        when(tripOptionRepository.countByTripSearchId(searchId)).thenReturn(3L);
         when(tripOptionRepository.findByTripSearchId(eq(searchId), any(Pageable.class)))
                 .thenReturn(page);
         when(tripOptionMapper.toDto(any()))
@@ -205,6 +205,7 @@ class TripSearchPaginationTest {
         Page<TripOption> emptyPage = new PageImpl<>(new ArrayList<>(), PageRequest.of(1, 5), 5);
 
         when(tripSearchRepository.findById(searchId)).thenReturn(Optional.of(tripSearch));
+        when(tripOptionRepository.countByTripSearchId(searchId)).thenReturn(5L);
         when(tripOptionRepository.findByTripSearchId(eq(searchId), any(Pageable.class)))
                 .thenReturn(emptyPage);
 
@@ -217,6 +218,45 @@ class TripSearchPaginationTest {
         assertFalse(result.isHasMore(), "hasMore should be false on empty exhausted page");
     }
 
+    @Test
+    @DisplayName("Flag filters are pushed to the repository as masks before paging")
+    void flagFiltersQueryByMask() {
+        tripSearch.setFlightExhausted(true);
+
+        List<TripOption> matching = createMockOptions(2);
+        when(tripSearchRepository.findById(searchId)).thenReturn(Optional.of(tripSearch));
+        when(tripOptionRepository.countByTripSearchId(searchId)).thenReturn(8L);
+        when(tripOptionRepository.findByTripSearchIdAndFlags(
+                        eq(searchId),
+                        eq(FlagCode.NONSTOP.mask()),
+                        eq(FlagCode.REDEYE.mask() | FlagCode.TIGHT_CONNECTION.mask()),
+                        any(Pageable.class)))
+                .thenReturn(new PageImpl<>(matching, PageRequest.of(0, 5), 2));
+        when(tripOptionMapper.toDto(any()))
+                .thenAnswer(
+                        inv -> {
+                            TripOption opt = inv.getArgument(0);
+                            return TripOptionSummaryDTO.builder()
+                                    .tripOptionId(opt.getId())
+                                    .totalPrice(opt.getTotalPrice())
+                                    .build();
+                        });
+
+        TripOptionsPageDTO result =
+                service.getOptions(
+                        searchId,
+                        0,
+                        5,
+                        "valueScore",
+                        "desc",
+                        Set.of(FlagCode.NONSTOP),
+                        Set.of(FlagCode.REDEYE, FlagCode.TIGHT_CONNECTION));
+
+        assertEquals(2, result.getOptions().size());
+        assertEquals(2, result.getTotalOptions());
+        assertFalse(result.isHasMore());
+    }
+
     // Helper methods
 
     private List<TripOption> createMockOptions(int count) {